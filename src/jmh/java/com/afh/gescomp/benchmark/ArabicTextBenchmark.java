@@ -0,0 +1,98 @@
+package com.afh.gescomp.benchmark;
+
+import com.afh.gescomp.util.ArabicFontUtil;
+import com.afh.gescomp.util.ArabicTextCache;
+import com.afh.gescomp.util.FontRegistry;
+import com.itextpdf.text.Font;
+import com.itextpdf.text.pdf.languages.ArabicLigaturizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sélection de police (ArabicFontUtil.getAppropriateFont), rendu mis en cache (ArabicTextCache)
+ * et mise en forme des ligatures arabes (ArabicLigaturizer) sur {@code lignes} libellés mixtes.
+ * Le rendu en cache est mesuré sur des désignations qui se répètent ({@code distincts} valeurs).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class ArabicTextBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int lignes;
+
+    /** Désignations différentes parmi les lignes du rendu en cache. */
+    @Param({"2000"})
+    public int distincts;
+
+    private List<String> textes;
+
+    private List<String> designations;
+
+    private ArabicFontUtil arabicFontUtil;
+
+    private ArabicTextCache arabicTextCache;
+
+    @Setup(Level.Trial)
+    public void preparer() {
+        textes = DonneesSynthetiques.libelles(lignes);
+        designations = DonneesSynthetiques.libellesRepetes(lignes, distincts);
+        arabicFontUtil = new ArabicFontUtil();
+        ReflectionTestUtils.setField(arabicFontUtil, "fontRegistry", new FontRegistry());
+        arabicTextCache = new ArabicTextCache();
+        ReflectionTestUtils.setField(arabicTextCache, "arabicFontUtil", arabicFontUtil);
+        ReflectionTestUtils.setField(arabicTextCache, "tailleMax", 20000L);
+        arabicTextCache.initialiser();
+    }
+
+    @Benchmark
+    public void getAppropriateFont(Blackhole blackhole) {
+        for (String texte : textes) {
+            blackhole.consume(arabicFontUtil.getAppropriateFont(texte, 9, Font.NORMAL));
+        }
+    }
+
+    @Benchmark
+    public void renduEnCache(Blackhole blackhole) {
+        for (String texte : designations) {
+            blackhole.consume(arabicTextCache.rendu(texte, 9, Font.NORMAL));
+        }
+    }
+
+    /**
+     * Traitement sans cache d'une cellule de désignation : nettoyage, détection de l'arabe, police
+     */
+    @Benchmark
+    public void renduSansCache(Blackhole blackhole) {
+        for (String texte : designations) {
+            blackhole.consume(ArabicFontUtil.formatArabicText(texte));
+            blackhole.consume(arabicFontUtil.containsArabicText(texte));
+            blackhole.consume(arabicFontUtil.getAppropriateFont(texte, 9, Font.NORMAL));
+        }
+    }
+
+    @Benchmark
+    public void ligaturizer(Blackhole blackhole) {
+        for (String texte : textes) {
+            blackhole.consume(new ArabicLigaturizer().process(texte));
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.afh.gescomp.benchmark;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Jeux de données synthétiques reproductibles (graine fixe) pour les benchmarks :
+ * un libellé sur trois est en arabe, comme sur les bordereaux réels.
+ */
+final class DonneesSynthetiques {
+
+    private static final String[] LIBELLES_FR = {
+            "Travaux de voirie et réseaux divers", "Fourniture de câbles électriques",
+            "Construction de logements sociaux", "Aménagement de lotissement", "Étanchéité des terrasses"};
+
+    private static final String[] LIBELLES_AR = {
+            "أشغال الطرقات والشبكات المختلفة", "تزويد بالكوابل الكهربائية",
+            "بناء مساكن اجتماعية", "تهيئة تقسيم", "عزل الأسطح"};
+
+    private static final String[] BANQUES = {"STB", "BNA", "BH", "BIAT", null};
+
+    private DonneesSynthetiques() {
+    }
+
+    static String libelle(int i) {
+        return i % 3 == 0 ? LIBELLES_AR[i % LIBELLES_AR.length] + " " + i : LIBELLES_FR[i % LIBELLES_FR.length] + " " + i;
+    }
+
+    static List<String> libelles(int lignes) {
+        List<String> textes = new ArrayList<>(lignes);
+        for (int i = 0; i < lignes; i++) {
+            textes.add(libelle(i));
+        }
+        return textes;
+    }
+
+    /**
+     * {@code lignes} libellés tirés parmi {@code distincts} désignations, comme les fournisseurs
+     * et articles qui reviennent d'une ligne à l'autre d'un rapport
+     */
+    static List<String> libellesRepetes(int lignes, int distincts) {
+        Random random = new Random(42);
+        List<String> textes = new ArrayList<>(lignes);
+        for (int i = 0; i < lignes; i++) {
+            textes.add(libelle(random.nextInt(Math.max(distincts, 1))));
+        }
+        return textes;
+    }
+
+    /**
+     * Lignes de getFournisseursStatistiques : DESIGNATION, NUM_FOURN, nombre_marches, montant_total, penalites, banque
+     */
+    static List<Object[]> lignesFournisseurs(int lignes) {
+        Random random = new Random(42);
+        List<Object[]> rows = new ArrayList<>(lignes);
+        for (int i = 0; i < lignes; i++) {
+            rows.add(new Object[]{libelle(i), String.format("F%06d", i), new BigDecimal(random.nextInt(50)),
+                    BigDecimal.valueOf(random.nextInt(10000000), 3), BigDecimal.valueOf(random.nextInt(50000), 3),
+                    BANQUES[i % BANQUES.length]});
+        }
+        return rows;
+    }
+
+    /**
+     * Lignes de getMarchesDetailles : NUM_MARCHE, DESIGNATION, MNT_MARCHE, DATE_MARCHE, NUM_FOURN, fournisseur, banque
+     */
+    static List<Object[]> lignesMarches(int lignes) {
+        Random random = new Random(42);
+        long debut = Timestamp.valueOf("2015-01-01 00:00:00").getTime();
+        List<Object[]> rows = new ArrayList<>(lignes);
+        for (int i = 0; i < lignes; i++) {
+            rows.add(new Object[]{new BigDecimal(2015000000L + i), libelle(i), BigDecimal.valueOf(random.nextInt(10000000), 3),
+                    new Timestamp(debut + i * 60000L), String.format("F%06d", i % 5000), libelle(i + 1),
+                    BANQUES[i % BANQUES.length]});
+        }
+        return rows;
+    }
+
+    /**
+     * Curseur JDBC sur des marchés générés à la volée (colonnes de parcourirMarchesParPeriode :
+     * NUM_MARCHE, DESIGNATION, fournisseur, MNT_MARCHE, DATE_MARCHE, banque), sans les garder en mémoire.
+     */
+    static ResultSet curseurMarches(final int lignes) {
+        final long debut = Timestamp.valueOf("2015-01-01 00:00:00").getTime();
+        return (ResultSet) Proxy.newProxyInstance(DonneesSynthetiques.class.getClassLoader(),
+                new Class<?>[]{ResultSet.class}, new InvocationHandler() {
+                    private int ligne = -1;
+
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        String nom = method.getName();
+                        if ("next".equals(nom)) {
+                            return ++ligne < lignes;
+                        }
+                        if ("wasNull".equals(nom)) {
+                            return false;
+                        }
+                        if ("close".equals(nom)) {
+                            return null;
+                        }
+                        int colonne = args != null && args.length > 0 && args[0] instanceof Integer ? (Integer) args[0] : 0;
+                        switch (colonne) {
+                            case 1:
+                                return "getLong".equals(nom) ? (Object) (2015000000L + ligne) : String.valueOf(2015000000L + ligne);
+                            case 2:
+                                return libelle(ligne);
+                            case 3:
+                                return ligne % 7 == 0 ? null : libelle(ligne + 1);
+                            case 4:
+                                return "getBigDecimal".equals(nom) ? (Object) BigDecimal.valueOf(ligne * 1250L, 3) : (Object) (ligne * 1.25d);
+                            case 5:
+                                return new Timestamp(debut + ligne * 60000L);
+                            case 6:
+                                return BANQUES[ligne % BANQUES.length];
+                            default:
+                                throw new UnsupportedOperationException(nom);
+                        }
+                    }
+                });
+    }
+}
@@ -0,0 +1,88 @@
+package com.afh.gescomp.benchmark;
+
+import com.afh.gescomp.controller.MrcArticleController;
+import com.afh.gescomp.dto.MrcArticleDTO;
+import com.afh.gescomp.model.primary.Article;
+import com.afh.gescomp.model.primary.MrcArticle;
+import com.afh.gescomp.model.primary.MrcArticleId;
+import com.afh.gescomp.model.primary.MrcLot;
+import com.afh.gescomp.model.primary.MrcLotId;
+import com.afh.gescomp.model.primary.PrmTypeSerie;
+import com.afh.gescomp.service.MrcArticleService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Conversion entités -> DTO de MrcArticleController.getMrcArticles sur {@code lignes} articles de marché.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class MrcArticleDtoBenchmark {
+
+    private static final Long NUM_MARCHE = 2024000010L;
+
+    @Param({"1000", "100000", "1000000"})
+    public int lignes;
+
+    private MrcArticleController controller;
+
+    @Setup(Level.Trial)
+    public void preparer() {
+        MrcLot lot = new MrcLot();
+        lot.setId(new MrcLotId(NUM_MARCHE, "L1"));
+        PrmTypeSerie serie = new PrmTypeSerie();
+        serie.setId(1L);
+        serie.setDesignation("Série A");
+
+        List<MrcArticle> articles = new ArrayList<>(lignes);
+        for (int i = 0; i < lignes; i++) {
+            Article article = new Article();
+            article.setNumArticle(String.format("A%08d", i));
+            article.setDesignation(DonneesSynthetiques.libelle(i));
+            article.setDesignationFr(DonneesSynthetiques.libelle(i + 1));
+            MrcArticle ligne = new MrcArticle();
+            ligne.setId(new MrcArticleId(article.getNumArticle(), NUM_MARCHE, 1, "L1", (short) (i % Short.MAX_VALUE)));
+            ligne.setNumArticle(article);
+            ligne.setMrcLot(lot);
+            ligne.setIdTypeSerie(serie);
+            ligne.setQuantite(BigDecimal.valueOf(i, 3));
+            ligne.setPrixUnitaire(BigDecimal.valueOf(125000, 3));
+            ligne.setTva(new BigDecimal("19.00"));
+            ligne.setChAp(0);
+            articles.add(ligne);
+        }
+
+        MrcArticleService mrcArticleService = mock(MrcArticleService.class);
+        when(mrcArticleService.findByNumMarcheAndIdLot(NUM_MARCHE, "L1")).thenReturn(articles);
+        controller = new MrcArticleController();
+        ReflectionTestUtils.setField(controller, "mrcArticleService", mrcArticleService);
+    }
+
+    @Benchmark
+    public List<MrcArticleDTO> getMrcArticles() {
+        return controller.getMrcArticles(NUM_MARCHE, "L1");
+    }
+}
@@ -0,0 +1,130 @@
+package com.afh.gescomp.benchmark;
+
+import com.afh.gescomp.implementation.StatistiquesServiceImpl;
+import com.afh.gescomp.util.ArabicFontUtil;
+import com.afh.gescomp.util.ArabicTextCache;
+import com.afh.gescomp.util.FontRegistry;
+import org.apache.commons.io.output.NullOutputStream;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Chemins chauds de StatistiquesServiceImpl sur des données synthétiques :
+ * transformation lignes -> Map, rendu des tableaux PDF (fournisseurs, marchés)
+ * et écriture Excel en flux. La base est remplacée par des bouchons qui renvoient
+ * les lignes générées, seul le traitement Java est mesuré.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class StatistiquesBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int lignes;
+
+    private StatistiquesServiceImpl service;
+
+    @Setup(Level.Trial)
+    public void preparer() {
+        final List<Object[]> fournisseurs = DonneesSynthetiques.lignesFournisseurs(lignes);
+        final List<Object[]> marches = DonneesSynthetiques.lignesMarches(lignes);
+
+        EntityManager entityManager = mock(EntityManager.class);
+        when(entityManager.createNativeQuery(anyString())).thenAnswer(new Answer<Query>() {
+            @Override
+            public Query answer(InvocationOnMock invocation) {
+                Query query = mock(Query.class);
+                boolean detailMarches = ((String) invocation.getArguments()[0]).startsWith("SELECT m.NUM_MARCHE");
+                when(query.getResultList()).thenReturn(detailMarches ? marches : fournisseurs);
+                return query;
+            }
+        });
+
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                RowCallbackHandler handler = (RowCallbackHandler) invocation.getArguments()[1];
+                ResultSet rs = DonneesSynthetiques.curseurMarches(lignes);
+                while (rs.next()) {
+                    handler.processRow(rs);
+                }
+                return null;
+            }
+        }).when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+
+        ArabicFontUtil arabicFontUtil = new ArabicFontUtil();
+        ReflectionTestUtils.setField(arabicFontUtil, "fontRegistry", new FontRegistry());
+        ArabicTextCache arabicTextCache = new ArabicTextCache();
+        ReflectionTestUtils.setField(arabicTextCache, "arabicFontUtil", arabicFontUtil);
+        ReflectionTestUtils.setField(arabicTextCache, "tailleMax", 20000L);
+        arabicTextCache.initialiser();
+
+        service = new StatistiquesServiceImpl();
+        ReflectionTestUtils.setField(service, "entityManager", entityManager);
+        ReflectionTestUtils.setField(service, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(service, "arabicFontUtil", arabicFontUtil);
+        ReflectionTestUtils.setField(service, "arabicTextCache", arabicTextCache);
+        ReflectionTestUtils.setField(service, "exportFetchSize", 500);
+        ReflectionTestUtils.setField(service, "exportFenetreLignes", 100);
+        ReflectionTestUtils.setField(service, "exportPdfLotLignes", 50);
+    }
+
+    @Benchmark
+    public Map<String, Object> fournisseursStatistiquesEnMap() {
+        return service.getFournisseursStatistiques("01", 0, lignes, "a", 10.0, true);
+    }
+
+    @Benchmark
+    public Map<String, Object> marchesDetaillesEnMap() {
+        return service.getMarchesDetailles("01", 0, lignes, null, null);
+    }
+
+    @Benchmark
+    public void exportPdfFournisseurs() throws IOException {
+        service.exportToPDF("01", "fournisseurs", null, null, new NullOutputStream());
+    }
+
+    @Benchmark
+    public void exportPdfMarches() throws IOException {
+        service.exportToPDF("01", "marches", null, null, new NullOutputStream());
+    }
+
+    @Benchmark
+    public void exportExcelMarches() throws IOException {
+        service.exportToExcel("01", "marches", null, null, new NullOutputStream());
+    }
+}
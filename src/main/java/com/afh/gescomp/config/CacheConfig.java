@@ -0,0 +1,105 @@
+package com.afh.gescomp.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.cache.CacheStatistics;
+import org.springframework.boot.actuate.cache.CacheStatisticsProvider;
+import org.springframework.boot.actuate.cache.DefaultCacheStatistics;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.interceptor.KeyGenerator;
+import org.springframework.cache.interceptor.SimpleKey;
+import org.springframework.cache.support.SimpleCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.domain.Pageable;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Caches nommés bornés (taille + TTL) pour les listes paginées :
+ * "articles" (ArticleDTO) et "marches" (MarcheListeDTO), ainsi que les structures par numéro ("structures").
+ * Les listes paginées ne mettent en cache que des DTO à plat, jamais des pages d'entités.
+ * Les specs suivent la syntaxe CaffeineSpec, ex. maximumSize=500,expireAfterWrite=5m
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String ARTICLES = "articles";
+    public static final String MARCHES = "marches";
+    public static final String STRUCTURES = "structures";
+
+    @Value("${cache.spec.articles:maximumSize=500,expireAfterWrite=10m}")
+    private String specArticles;
+
+    @Value("${cache.spec.marches:maximumSize=500,expireAfterWrite=5m}")
+    private String specMarches;
+
+    @Value("${cache.spec.structures:maximumSize=1000,expireAfterWrite=1h}")
+    private String specStructures;
+
+    @Bean
+    public CacheManager cacheManager() {
+        SimpleCacheManager cacheManager = new SimpleCacheManager();
+        cacheManager.setCaches(Arrays.asList(
+                creerCache(ARTICLES, specArticles),
+                creerCache(MARCHES, specMarches),
+                creerCache(STRUCTURES, specStructures)));
+        return cacheManager;
+    }
+
+    /**
+     * Clé des listes paginées : numéro de page, taille, tri puis tous les paramètres de filtre,
+     * dans l'ordre de la signature.
+     */
+    @Bean
+    public KeyGenerator pageFiltresKeyGenerator() {
+        return new KeyGenerator() {
+            @Override
+            public Object generate(Object target, Method method, Object... params) {
+                List<Object> elements = new ArrayList<>();
+                elements.add(method.getName());
+                for (Object param : params) {
+                    if (param instanceof Pageable) {
+                        Pageable pageable = (Pageable) param;
+                        elements.add(pageable.getPageNumber());
+                        elements.add(pageable.getPageSize());
+                        elements.add(pageable.getSort());
+                    } else {
+                        elements.add(param);
+                    }
+                }
+                return new SimpleKey(elements.toArray());
+            }
+        };
+    }
+
+    /**
+     * Exposition des caches Caffeine dans /metrics (cache.{nom}.size, hit.ratio, miss.ratio)
+     */
+    @Bean
+    public CacheStatisticsProvider<CaffeineCache> caffeineCacheStatisticsProvider() {
+        return new CacheStatisticsProvider<CaffeineCache>() {
+            @Override
+            public CacheStatistics getCacheStatistics(CacheManager cacheManager, CaffeineCache cache) {
+                DefaultCacheStatistics statistiques = new DefaultCacheStatistics();
+                statistiques.setSize(cache.getSize());
+                CacheStats stats = cache.getStats();
+                if (stats.requestCount() > 0) {
+                    statistiques.setHitRatio(stats.hitRate());
+                    statistiques.setMissRatio(stats.missRate());
+                }
+                return statistiques;
+            }
+        };
+    }
+
+    private static CaffeineCache creerCache(String nom, String spec) {
+        return new CaffeineCache(nom, Caffeine.from(spec).recordStats().build());
+    }
+}
@@ -0,0 +1,70 @@
+package com.afh.gescomp.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+
+/**
+ * Adaptateur Spring Cache pour un cache Caffeine (borné en taille, TTL, éviction W-TinyLFU).
+ * Spring 4.2 ne fournit pas encore CaffeineCacheManager.
+ */
+public class CaffeineCache extends AbstractValueAdaptingCache {
+
+    private final String name;
+
+    private final Cache<Object, Object> cache;
+
+    public CaffeineCache(String name, Cache<Object, Object> cache) {
+        super(false);
+        this.name = name;
+        this.cache = cache;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Cache<Object, Object> getNativeCache() {
+        return cache;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        return cache.getIfPresent(key);
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        if (value != null) {
+            cache.put(key, toStoreValue(value));
+        }
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        if (value == null) {
+            return get(key);
+        }
+        return toValueWrapper(cache.asMap().putIfAbsent(key, toStoreValue(value)));
+    }
+
+    @Override
+    public void evict(Object key) {
+        cache.invalidate(key);
+    }
+
+    @Override
+    public void clear() {
+        cache.invalidateAll();
+    }
+
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+    public long getSize() {
+        return cache.estimatedSize();
+    }
+}
@@ -0,0 +1,311 @@
+package com.afh.gescomp.config;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compression gzip (ou deflate) des réponses selon l'en-tête Accept-Encoding.
+ * Les premiers {@code seuil} octets sont retenus : une réponse plus courte part telle quelle avec son
+ * Content-Length, une réponse plus longue d'un type compressible (JSON, texte) est compressée à la volée.
+ * Les autres types (PDF, Excel, images) passent sans modification après le seuil.
+ * Fonctionne aussi sous un serveur d'applications, contrairement à server.compression (Tomcat embarqué).
+ */
+public class CompressionFilter extends OncePerRequestFilter {
+
+    private static final String GZIP = "gzip";
+    private static final String DEFLATE = "deflate";
+
+    private final int seuil;
+
+    private final String[] types;
+
+    public CompressionFilter(int seuil, String[] types) {
+        this.seuil = seuil;
+        this.types = types.clone();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String codage = codageAccepte(request.getHeader("Accept-Encoding"));
+        if (codage == null || "HEAD".equals(request.getMethod())) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        ReponseCompressee reponse = new ReponseCompressee(response, codage);
+        filterChain.doFilter(request, reponse);
+        reponse.terminer();
+    }
+
+    /**
+     * @return "gzip", "deflate" ou null si le client n'accepte aucun des deux (absent ou q=0)
+     */
+    static String codageAccepte(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return null;
+        }
+        boolean deflate = false;
+        for (String element : acceptEncoding.split(",")) {
+            String[] parties = element.trim().split(";");
+            String nom = parties[0].trim().toLowerCase();
+            boolean refuse = parties.length > 1 && parties[1].trim().replace(" ", "").matches("q=0(\\.0*)?");
+            if (refuse) {
+                continue;
+            }
+            if (GZIP.equals(nom)) {
+                return GZIP;
+            }
+            deflate |= DEFLATE.equals(nom);
+        }
+        return deflate ? DEFLATE : null;
+    }
+
+    private boolean typeCompressible(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        String type = contentType.toLowerCase();
+        for (String candidat : types) {
+            if (type.startsWith(candidat)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Réponse dont le corps passe par un {@link FluxCompresse} ; le Content-Length annoncé par
+     * l'application n'est transmis que si le corps n'est pas compressé
+     */
+    private final class ReponseCompressee extends HttpServletResponseWrapper {
+        private final HttpServletResponse origine;
+        private final String codage;
+        private FluxCompresse flux;
+        private PrintWriter writer;
+        private long longueur = -1;
+
+        ReponseCompressee(HttpServletResponse origine, String codage) {
+            super(origine);
+            this.origine = origine;
+            this.codage = codage;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (writer != null) {
+                throw new IllegalStateException("getWriter() a déjà été appelé");
+            }
+            if (flux == null) {
+                flux = new FluxCompresse(this);
+            }
+            return flux;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                if (flux != null) {
+                    throw new IllegalStateException("getOutputStream() a déjà été appelé");
+                }
+                flux = new FluxCompresse(this);
+                writer = new PrintWriter(new OutputStreamWriter(flux, getCharacterEncoding()));
+            }
+            return writer;
+        }
+
+        @Override
+        public void setContentLength(int len) {
+            longueur = len;
+        }
+
+        @Override
+        public void setContentLengthLong(long len) {
+            longueur = len;
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+            if ("Content-Length".equalsIgnoreCase(name)) {
+                longueur = value == null ? -1 : Long.parseLong(value.trim());
+            } else {
+                super.setHeader(name, value);
+            }
+        }
+
+        @Override
+        public void addHeader(String name, String value) {
+            if ("Content-Length".equalsIgnoreCase(name)) {
+                setHeader(name, value);
+            } else {
+                super.addHeader(name, value);
+            }
+        }
+
+        @Override
+        public void setIntHeader(String name, int value) {
+            if ("Content-Length".equalsIgnoreCase(name)) {
+                longueur = value;
+            } else {
+                super.setIntHeader(name, value);
+            }
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+            if (flux != null) {
+                flux.flush();
+            } else {
+                super.flushBuffer();
+            }
+        }
+
+        @Override
+        public void reset() {
+            super.reset();
+            longueur = -1;
+            if (flux != null) {
+                flux.vider();
+            }
+        }
+
+        @Override
+        public void resetBuffer() {
+            super.resetBuffer();
+            if (flux != null) {
+                flux.vider();
+            }
+        }
+
+        void terminer() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+            if (flux != null) {
+                flux.terminer();
+            } else if (longueur >= 0 && !origine.isCommitted()) {
+                origine.setHeader("Content-Length", Long.toString(longueur));
+            }
+        }
+    }
+
+    /**
+     * Flux qui retient les premiers octets pour décider de la compression, puis écrit directement
+     */
+    private final class FluxCompresse extends ServletOutputStream {
+        private final ReponseCompressee reponse;
+        private ByteArrayOutputStream tampon = new ByteArrayOutputStream();
+        private OutputStream sortie;
+        private ServletOutputStream origine;
+
+        FluxCompresse(ReponseCompressee reponse) {
+            this.reponse = reponse;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (sortie == null && tampon.size() + 1 > seuil) {
+                decider(true);
+            }
+            if (sortie == null) {
+                tampon.write(b);
+            } else {
+                sortie.write(b);
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (sortie == null && tampon.size() + len > seuil) {
+                decider(true);
+            }
+            if (sortie == null) {
+                tampon.write(b, off, len);
+            } else {
+                sortie.write(b, off, len);
+            }
+        }
+
+        /**
+         * Tant que la décision n'est pas prise, flush ne fait rien : Jackson vide son flux
+         * à la fin de chaque réponse, même courte
+         */
+        @Override
+        public void flush() throws IOException {
+            if (sortie != null) {
+                sortie.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            terminer();
+        }
+
+        @Override
+        public boolean isReady() {
+            return origine == null || origine.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            throw new UnsupportedOperationException("Écriture non bloquante non prise en charge par la compression");
+        }
+
+        void vider() {
+            if (sortie == null) {
+                tampon.reset();
+            }
+        }
+
+        void terminer() throws IOException {
+            if (sortie == null) {
+                reponse.longueur = tampon.size();
+                decider(false);
+            }
+            if (sortie instanceof DeflaterOutputStream) {
+                ((DeflaterOutputStream) sortie).finish();
+            }
+            sortie.flush();
+        }
+
+        private void decider(boolean grand) throws IOException {
+            HttpServletResponse http = reponse.origine;
+            int statut = http.getStatus();
+            boolean compressible = typeCompressible(http.getContentType());
+            if (compressible) {
+                http.addHeader("Vary", "Accept-Encoding");
+            }
+            origine = http.getOutputStream();
+            if (grand && compressible && statut >= 200 && statut != 204 && statut != 206 && statut != 304
+                    && http.getHeader("Content-Encoding") == null) {
+                http.setHeader("Content-Encoding", reponse.codage);
+                sortie = GZIP.equals(reponse.codage) ? new GZIPOutputStream(origine, 8192) : new DeflaterOutputStream(origine);
+            } else {
+                if (reponse.longueur >= 0 && !http.isCommitted()) {
+                    // En-tête plutôt que setContentLengthLong (Servlet 3.1) : WebLogic 12.1 est en Servlet 3.0
+                    http.setHeader("Content-Length", Long.toString(reponse.longueur));
+                }
+                sortie = origine;
+            }
+            tampon.writeTo(sortie);
+            tampon = null;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.afh.gescomp.config;
+
+import org.apache.tomcat.jdbc.pool.ConnectionPool;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Jauges du pool de connexions Oracle publiées dans /metrics (datasource.pool.*) :
+ * connexions actives, inactives, threads en attente, taille, et histogramme
+ * du temps d'obtention d'une connexion lorsque le pool est un {@link InstrumentedDataSource}.
+ */
+@Component
+public class DataSourcePoolMetrics implements PublicMetrics {
+
+    private static final String PREFIXE = "datasource.pool";
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        if (!(dataSource instanceof org.apache.tomcat.jdbc.pool.DataSource)) {
+            // Source JNDI ou autre implémentation : pas de jauges disponibles
+            return Collections.emptyList();
+        }
+        org.apache.tomcat.jdbc.pool.DataSource pool = (org.apache.tomcat.jdbc.pool.DataSource) dataSource;
+        List<Metric<?>> metrics = new ArrayList<>();
+        ConnectionPool connexions = pool.getPool();
+        metrics.add(new Metric<Number>(PREFIXE + ".active", connexions != null ? connexions.getActive() : 0));
+        metrics.add(new Metric<Number>(PREFIXE + ".idle", connexions != null ? connexions.getIdle() : 0));
+        metrics.add(new Metric<Number>(PREFIXE + ".waiting", connexions != null ? connexions.getWaitCount() : 0));
+        metrics.add(new Metric<Number>(PREFIXE + ".size", connexions != null ? connexions.getSize() : 0));
+        metrics.add(new Metric<Number>(PREFIXE + ".max-active", pool.getMaxActive()));
+        metrics.add(new Metric<Number>(PREFIXE + ".min-idle", pool.getMinIdle()));
+
+        if (pool instanceof InstrumentedDataSource) {
+            InstrumentedDataSource instrumente = (InstrumentedDataSource) pool;
+            for (Map.Entry<String, Number> valeur : instrumente.getAcquisition().instantane(PREFIXE + ".acquire").entrySet()) {
+                metrics.add(new Metric<Number>(valeur.getKey(), valeur.getValue()));
+            }
+            metrics.add(new Metric<Number>(PREFIXE + ".acquire.failures", instrumente.getEchecs()));
+        }
+        return metrics;
+    }
+}
@@ -0,0 +1,85 @@
+package com.afh.gescomp.config;
+
+import org.springframework.util.DigestUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * ETag fort des réponses JSON des GET, calculé sur le corps envoyé (empreinte MD5 des données
+ * sérialisées, et donc distinct pour une réponse compressée et non compressée), et réponse
+ * 304 Not Modified sans corps quand l'en-tête If-None-Match du client correspond.
+ * Les données étant aussi modifiées hors de l'application (procédures, autres applications),
+ * l'empreinte du contenu sert de version plutôt qu'un compteur tenu par l'application.
+ * Le Cache-Control "no-store" posé par Spring Security devient "private, no-cache" pour ces réponses :
+ * le navigateur peut les garder et les revalide à chaque appel.
+ * Les chemins exclus (exports en flux) ne sont pas mis en mémoire tampon.
+ */
+public class EtagFilter extends OncePerRequestFilter {
+
+    private static final String CACHE_CONTROL = "private, no-cache";
+
+    private final String[] exclusions;
+
+    public EtagFilter(String[] exclusions) {
+        this.exclusions = exclusions.clone();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!"GET".equals(request.getMethod()) && !"HEAD".equals(request.getMethod())) {
+            return true;
+        }
+        String chemin = request.getRequestURI();
+        for (String exclusion : exclusions) {
+            if (!exclusion.isEmpty() && chemin.contains(exclusion)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        ContentCachingResponseWrapper reponse = new ContentCachingResponseWrapper(response);
+        filterChain.doFilter(request, reponse);
+
+        String contentType = reponse.getContentType();
+        if (reponse.getStatusCode() == HttpServletResponse.SC_OK && reponse.getContentSize() > 0
+                && contentType != null && contentType.toLowerCase().contains("json")) {
+            String etag = "\"" + DigestUtils.md5DigestAsHex(reponse.getContentAsByteArray()) + "\"";
+            response.setHeader("ETag", etag);
+            response.setHeader("Cache-Control", CACHE_CONTROL);
+            if (correspond(request.getHeader("If-None-Match"), etag)) {
+                response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                return;
+            }
+        }
+        reponse.copyBodyToResponse();
+    }
+
+    /**
+     * Comparaison faible (RFC 7232) : W/"x" correspond à "x", "*" à toute représentation
+     */
+    static boolean correspond(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidat : ifNoneMatch.split(",")) {
+            String valeur = candidat.trim();
+            if (valeur.startsWith("W/")) {
+                valeur = valeur.substring(2);
+            }
+            if ("*".equals(valeur) || etag.equals(valeur)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
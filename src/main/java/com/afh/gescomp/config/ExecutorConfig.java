@@ -0,0 +1,85 @@
+package com.afh.gescomp.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Pools de threads dédiés, bornés (taille et file d'attente) pour ne pas saturer le pool JDBC
+ */
+@Configuration
+public class ExecutorConfig {
+
+    @Value("${dashboard.executor.core-size:8}")
+    private int dashboardCoreSize;
+
+    @Value("${dashboard.executor.max-size:16}")
+    private int dashboardMaxSize;
+
+    @Value("${dashboard.executor.queue-capacity:50}")
+    private int dashboardQueueCapacity;
+
+    @Value("${export.executor.core-size:2}")
+    private int exportCoreSize;
+
+    @Value("${export.executor.max-size:4}")
+    private int exportMaxSize;
+
+    @Value("${export.executor.queue-capacity:20}")
+    private int exportQueueCapacity;
+
+    @Value("${recalcul.executor.core-size:4}")
+    private int recalculCoreSize;
+
+    @Value("${recalcul.executor.max-size:4}")
+    private int recalculMaxSize;
+
+    @Value("${recalcul.executor.queue-capacity:100}")
+    private int recalculQueueCapacity;
+
+    /**
+     * Calcul concurrent des widgets du dashboard (/api/dashboard/all).
+     * Une tâche refusée (pool et file pleins) est signalée comme widget en erreur.
+     */
+    @Bean(name = "dashboardExecutor")
+    public ThreadPoolTaskExecutor dashboardExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(dashboardCoreSize);
+        executor.setMaxPoolSize(dashboardMaxSize);
+        executor.setQueueCapacity(dashboardQueueCapacity);
+        executor.setThreadNamePrefix("dashboard-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        return executor;
+    }
+
+    /**
+     * Rendu des exports PDF / Excel asynchrones (/api/exports), hors des threads HTTP.
+     * Une soumission refusée (pool et file pleins) est renvoyée en 503.
+     */
+    @Bean(name = "exportExecutor")
+    public ThreadPoolTaskExecutor exportExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(exportCoreSize);
+        executor.setMaxPoolSize(exportMaxSize);
+        executor.setQueueCapacity(exportQueueCapacity);
+        executor.setThreadNamePrefix("export-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        return executor;
+    }
+
+    /**
+     * Recalcul groupé des décomptes (/api/decomptes/recalculer), un marché par tâche.
+     * Une tâche refusée (pool et file pleins) est signalée en échec pour les décomptes du marché.
+     */
+    @Bean(name = "recalculExecutor")
+    public ThreadPoolTaskExecutor recalculExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(recalculCoreSize);
+        executor.setMaxPoolSize(recalculMaxSize);
+        executor.setQueueCapacity(recalculQueueCapacity);
+        executor.setThreadNamePrefix("recalcul-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        return executor;
+    }
+}
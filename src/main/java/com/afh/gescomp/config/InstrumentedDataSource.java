@@ -0,0 +1,41 @@
+package com.afh.gescomp.config;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool Tomcat JDBC mesurant le temps d'obtention des connexions.
+ * Sélectionné par {@code spring.datasource.type} : Spring Boot le crée et lui applique
+ * les propriétés {@code spring.datasource.*} comme au pool par défaut, et le reconnaît
+ * toujours comme un pool Tomcat (métriques datasource.primary.*, JMX).
+ * Les appels directs à {@code dataSource.getConnection()} (procédures stockées) sont mesurés aussi.
+ */
+public class InstrumentedDataSource extends org.apache.tomcat.jdbc.pool.DataSource {
+
+    private final LatencyHistogram acquisition = new LatencyHistogram();
+
+    private final AtomicLong echecs = new AtomicLong();
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        long debut = System.nanoTime();
+        try {
+            return super.getConnection();
+        } catch (SQLException e) {
+            // Délai maxWait dépassé (pool épuisé) ou base injoignable
+            echecs.incrementAndGet();
+            throw e;
+        } finally {
+            acquisition.enregistrerNanos(System.nanoTime() - debut);
+        }
+    }
+
+    public LatencyHistogram getAcquisition() {
+        return acquisition;
+    }
+
+    public long getEchecs() {
+        return echecs.get();
+    }
+}
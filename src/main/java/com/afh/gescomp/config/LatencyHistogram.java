@@ -0,0 +1,76 @@
+package com.afh.gescomp.config;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogramme de durées à bornes fixes (en millisecondes), sans verrou.
+ * Les compteurs sont cumulatifs depuis le démarrage, comme les compteurs de /metrics.
+ */
+public class LatencyHistogram {
+
+    /** Bornes par défaut : de 1 ms à 5 s. */
+    public static final long[] BORNES_PAR_DEFAUT = {1, 5, 10, 25, 50, 100, 250, 500, 1000, 5000};
+
+    private final long[] bornes;
+
+    /** Un compteur par borne, plus un dernier pour les durées au-delà de la plus grande. */
+    private final AtomicLongArray compteurs;
+
+    private final AtomicLong total = new AtomicLong();
+
+    private final AtomicLong sommeMicros = new AtomicLong();
+
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    public LatencyHistogram() {
+        this(BORNES_PAR_DEFAUT);
+    }
+
+    public LatencyHistogram(long[] bornesMs) {
+        this.bornes = bornesMs.clone();
+        Arrays.sort(this.bornes);
+        this.compteurs = new AtomicLongArray(this.bornes.length + 1);
+    }
+
+    public void enregistrerNanos(long nanos) {
+        long micros = Math.max(nanos / 1000L, 0L);
+        long millis = micros / 1000L;
+        int i = 0;
+        while (i < bornes.length && millis >= bornes[i]) {
+            i++;
+        }
+        compteurs.incrementAndGet(i);
+        total.incrementAndGet();
+        sommeMicros.addAndGet(micros);
+        long max = maxMicros.get();
+        while (micros > max && !maxMicros.compareAndSet(max, micros)) {
+            max = maxMicros.get();
+        }
+    }
+
+    public long getTotal() {
+        return total.get();
+    }
+
+    /**
+     * Valeurs publiées sous {@code prefixe} : count, mean-ms, max-ms et une entrée
+     * {@code lt-<borne>ms} par borne (nombre cumulé de durées inférieures à la borne).
+     */
+    public Map<String, Number> instantane(String prefixe) {
+        Map<String, Number> valeurs = new LinkedHashMap<>();
+        long n = total.get();
+        valeurs.put(prefixe + ".count", n);
+        valeurs.put(prefixe + ".mean-ms", n == 0 ? 0.0 : sommeMicros.get() / 1000.0 / n);
+        valeurs.put(prefixe + ".max-ms", maxMicros.get() / 1000.0);
+        long cumul = 0;
+        for (int i = 0; i < bornes.length; i++) {
+            cumul += compteurs.get(i);
+            valeurs.put(prefixe + ".lt-" + bornes[i] + "ms", cumul);
+        }
+        return valeurs;
+    }
+}
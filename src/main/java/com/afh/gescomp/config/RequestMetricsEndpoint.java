@@ -0,0 +1,52 @@
+package com.afh.gescomp.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.AbstractEndpoint;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Endpoint actuator /requetes : par méthode de contrôleur, latence (latence.*), requêtes lentes,
+ * requêtes SQL, lignes lues et temps SQL (sql.*) ; par procédure stockée, durées d'exécution.
+ * Sensible comme /metrics (endpoints.requetes.sensitive).
+ */
+@Component
+public class RequestMetricsEndpoint extends AbstractEndpoint<Map<String, Object>> {
+
+    @Autowired
+    private RequestMetricsInterceptor requestMetrics;
+
+    public RequestMetricsEndpoint() {
+        super("requetes");
+    }
+
+    @Override
+    public Map<String, Object> invoke() {
+        Map<String, Object> endpoints = new TreeMap<>();
+        for (Map.Entry<String, RequestMetricsInterceptor.Mesures> entree : requestMetrics.getParEndpoint().entrySet()) {
+            RequestMetricsInterceptor.Mesures mesures = entree.getValue();
+            Map<String, Object> valeurs = new LinkedHashMap<String, Object>(mesures.getLatence().instantane("latence"));
+            long n = mesures.getLatence().getTotal();
+            valeurs.put("lentes", mesures.getLentes());
+            valeurs.put("sql.count", mesures.getRequetesSql());
+            valeurs.put("sql.rows", mesures.getLignes());
+            valeurs.put("sql.time-ms", mesures.getDureeSqlMicros() / 1000.0);
+            valeurs.put("sql.count-per-request", n == 0 ? 0.0 : (double) mesures.getRequetesSql() / n);
+            valeurs.put("sql.rows-per-request", n == 0 ? 0.0 : (double) mesures.getLignes() / n);
+            valeurs.put("sql.mean-ms", n == 0 ? 0.0 : mesures.getDureeSqlMicros() / 1000.0 / n);
+            endpoints.put(entree.getKey(), valeurs);
+        }
+        Map<String, Object> procedures = new TreeMap<>();
+        for (Map.Entry<String, LatencyHistogram> entree : SqlAccounting.getProcedures().entrySet()) {
+            procedures.put(entree.getKey(), entree.getValue().instantane("duree"));
+        }
+        Map<String, Object> resultat = new LinkedHashMap<>();
+        resultat.put("seuil-lent-ms", requestMetrics.getSeuilLentMs());
+        resultat.put("endpoints", endpoints);
+        resultat.put("procedures", procedures);
+        return resultat;
+    }
+}
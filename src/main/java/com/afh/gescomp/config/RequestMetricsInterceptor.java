@@ -0,0 +1,133 @@
+package com.afh.gescomp.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Mesure de chaque requête HTTP traitée par un contrôleur : histogramme de latence par méthode
+ * de contrôleur, requêtes SQL, lignes lues et temps SQL cumulés (voir {@link SqlAccounting}).
+ * Une requête plus lente que metrics.requetes.seuil-lent-ms est journalisée avec ses requêtes SQL
+ * les plus coûteuses. Les valeurs sont publiées par {@link RequestMetricsEndpoint}.
+ */
+@Component
+public class RequestMetricsInterceptor extends HandlerInterceptorAdapter {
+
+    private static final Logger logger = LoggerFactory.getLogger(RequestMetricsInterceptor.class);
+
+    private static final String DEBUT = RequestMetricsInterceptor.class.getName() + ".debut";
+
+    @Value("${metrics.requetes.seuil-lent-ms:2000}")
+    private long seuilLentMs;
+
+    private final ConcurrentMap<String, Mesures> parEndpoint = new ConcurrentHashMap<>();
+
+    /**
+     * Cumuls d'une méthode de contrôleur
+     */
+    public static final class Mesures {
+        private final LatencyHistogram latence = new LatencyHistogram();
+        private final AtomicLong requetesSql = new AtomicLong();
+        private final AtomicLong lignes = new AtomicLong();
+        private final AtomicLong dureeSqlMicros = new AtomicLong();
+        private final AtomicLong lentes = new AtomicLong();
+
+        public LatencyHistogram getLatence() {
+            return latence;
+        }
+
+        public long getRequetesSql() {
+            return requetesSql.get();
+        }
+
+        public long getLignes() {
+            return lignes.get();
+        }
+
+        public long getDureeSqlMicros() {
+            return dureeSqlMicros.get();
+        }
+
+        public long getLentes() {
+            return lentes.get();
+        }
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (handler instanceof HandlerMethod) {
+            request.setAttribute(DEBUT, System.nanoTime());
+            SqlAccounting.demarrer();
+        }
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // Suite du traitement sur un autre thread : le bilan de ce thread n'est plus rattaché à la requête
+        SqlAccounting.terminer();
+        request.removeAttribute(DEBUT);
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object debut = request.getAttribute(DEBUT);
+        SqlAccounting.Bilan bilan = SqlAccounting.terminer();
+        if (!(debut instanceof Long) || !(handler instanceof HandlerMethod)) {
+            return;
+        }
+        long nanos = System.nanoTime() - (Long) debut;
+        HandlerMethod methode = (HandlerMethod) handler;
+        String cle = methode.getBeanType().getSimpleName() + "." + methode.getMethod().getName();
+        Mesures mesures = mesures(cle);
+        mesures.latence.enregistrerNanos(nanos);
+        if (bilan != null) {
+            mesures.requetesSql.addAndGet(bilan.getRequetes());
+            mesures.lignes.addAndGet(bilan.getLignes());
+            mesures.dureeSqlMicros.addAndGet(bilan.getDureeSqlNanos() / 1000L);
+        }
+        long millis = nanos / 1000000L;
+        if (seuilLentMs > 0 && millis >= seuilLentMs) {
+            mesures.lentes.incrementAndGet();
+            if (bilan != null) {
+                logger.warn("Requête lente {} {} ({}) : {} ms, dont SQL {} ms, {} requêtes, {} lignes{}",
+                        request.getMethod(), request.getRequestURI(), cle, millis,
+                        bilan.getDureeSqlNanos() / 1000000L, bilan.getRequetes(), bilan.getLignes(),
+                        bilan.detail(5, 200));
+            } else {
+                logger.warn("Requête lente {} {} ({}) : {} ms", request.getMethod(), request.getRequestURI(), cle, millis);
+            }
+        }
+    }
+
+    public Map<String, Mesures> getParEndpoint() {
+        return Collections.unmodifiableMap(parEndpoint);
+    }
+
+    public long getSeuilLentMs() {
+        return seuilLentMs;
+    }
+
+    private Mesures mesures(String cle) {
+        Mesures mesures = parEndpoint.get(cle);
+        if (mesures == null) {
+            Mesures nouvelles = new Mesures();
+            mesures = parEndpoint.putIfAbsent(cle, nouvelles);
+            if (mesures == null) {
+                mesures = nouvelles;
+            }
+        }
+        return mesures;
+    }
+}
@@ -0,0 +1,50 @@
+package com.afh.gescomp.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.embedded.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Optimisation des réponses de /api/* : ETag et 304 ({@link EtagFilter}), puis compression
+ * ({@link CompressionFilter}). L'ETag est le filtre extérieur : il porte sur le corps tel qu'il est envoyé.
+ */
+@Configuration
+public class ResponseOptimizationConfig {
+
+    @Value("${http.compression.enabled:true}")
+    private boolean compressionActive;
+
+    @Value("${http.compression.seuil-octets:2048}")
+    private int seuilCompression;
+
+    @Value("${http.compression.types:application/json,text/plain,text/csv,text/html,application/javascript,application/xml}")
+    private String[] typesCompressibles;
+
+    @Value("${http.etag.enabled:true}")
+    private boolean etagActif;
+
+    @Value("${http.etag.exclusions:/export}")
+    private String[] exclusionsEtag;
+
+    @Bean
+    public FilterRegistrationBean etagFilter() {
+        FilterRegistrationBean registrationBean = new FilterRegistrationBean(new EtagFilter(exclusionsEtag));
+        registrationBean.addUrlPatterns("/api/*");
+        registrationBean.setOrder(2);
+        registrationBean.setName("etagFilter");
+        registrationBean.setEnabled(etagActif);
+        return registrationBean;
+    }
+
+    @Bean
+    public FilterRegistrationBean compressionFilter() {
+        FilterRegistrationBean registrationBean = new FilterRegistrationBean(
+                new CompressionFilter(seuilCompression, typesCompressibles));
+        registrationBean.addUrlPatterns("/api/*");
+        registrationBean.setOrder(3);
+        registrationBean.setName("compressionFilter");
+        registrationBean.setEnabled(compressionActive);
+        return registrationBean;
+    }
+}
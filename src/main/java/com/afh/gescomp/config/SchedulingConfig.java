@@ -0,0 +1,12 @@
+package com.afh.gescomp.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Active les tâches planifiées (@Scheduled), ex. rafraîchissement du snapshot statistiques
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
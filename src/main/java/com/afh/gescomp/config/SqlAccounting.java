@@ -0,0 +1,179 @@
+package com.afh.gescomp.config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Comptabilité des allers-retours SQL alimentée par {@link SqlAccountingInterceptor} :
+ * bilan de la requête HTTP en cours (thread courant) et durées cumulées de chaque
+ * procédure stockée, quel que soit l'appelant (JPA, JdbcTemplate, CallableStatement).
+ * Les requêtes exécutées par d'autres threads (pools d'exécution du dashboard, des exports)
+ * ne sont pas rattachées à la requête HTTP qui les a déclenchées.
+ */
+public final class SqlAccounting {
+
+    /** "CALL X(...)", "{ call X(...) }" ou "{ ? = call X(...) }" */
+    private static final Pattern APPEL_PROCEDURE =
+            Pattern.compile("^\\s*\\{?\\s*(?:\\?\\s*=\\s*)?call\\s+([\\w.$#]+)", Pattern.CASE_INSENSITIVE);
+
+    /** Requêtes distinctes détaillées par bilan ; les suivantes sont regroupées. */
+    private static final int MAX_REQUETES_DISTINCTES = 50;
+
+    private static final String AUTRES = "(autres requêtes)";
+
+    private static final ThreadLocal<Bilan> COURANT = new ThreadLocal<>();
+
+    /** Requêtes exécutées par chaque thread, bilan ouvert ou non */
+    private static final ThreadLocal<long[]> EXECUTEES = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            return new long[1];
+        }
+    };
+
+    private static final ConcurrentMap<String, LatencyHistogram> PROCEDURES = new ConcurrentHashMap<>();
+
+    private SqlAccounting() {
+    }
+
+    /**
+     * Requêtes, lignes lues et temps SQL d'une requête HTTP, par texte SQL
+     */
+    public static final class Bilan {
+        private final Map<String, long[]> parSql = new LinkedHashMap<>();
+        private long requetes;
+        private long lignes;
+        private long nanos;
+
+        public long getRequetes() {
+            return requetes;
+        }
+
+        public long getLignes() {
+            return lignes;
+        }
+
+        public long getDureeSqlNanos() {
+            return nanos;
+        }
+
+        /**
+         * Requêtes les plus coûteuses, une par ligne : exécutions, durée cumulée, lignes lues, texte SQL tronqué
+         */
+        public String detail(int max, int longueurSql) {
+            List<Map.Entry<String, long[]>> entrees = new ArrayList<>(parSql.entrySet());
+            Collections.sort(entrees, new Comparator<Map.Entry<String, long[]>>() {
+                @Override
+                public int compare(Map.Entry<String, long[]> a, Map.Entry<String, long[]> b) {
+                    return Long.compare(b.getValue()[1], a.getValue()[1]);
+                }
+            });
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < Math.min(max, entrees.size()); i++) {
+                long[] v = entrees.get(i).getValue();
+                String sql = entrees.get(i).getKey().replaceAll("\\s+", " ").trim();
+                sb.append(String.format("%n  %d x %d ms, %d lignes : %s", v[0], v[1] / 1000000L, v[2],
+                        sql.length() > longueurSql ? sql.substring(0, longueurSql) + "..." : sql));
+            }
+            return sb.toString();
+        }
+
+        private long[] ligne(String sql) {
+            String cle = sql == null ? AUTRES : sql;
+            long[] v = parSql.get(cle);
+            if (v == null) {
+                if (parSql.size() >= MAX_REQUETES_DISTINCTES) {
+                    cle = AUTRES;
+                    v = parSql.get(cle);
+                }
+                if (v == null) {
+                    v = new long[3];
+                    parSql.put(cle, v);
+                }
+            }
+            return v;
+        }
+    }
+
+    /**
+     * Ouvre le bilan du thread courant (début de requête HTTP)
+     */
+    public static void demarrer() {
+        COURANT.set(new Bilan());
+    }
+
+    /**
+     * Ferme et renvoie le bilan du thread courant, ou null s'il n'a pas été ouvert
+     */
+    public static Bilan terminer() {
+        Bilan bilan = COURANT.get();
+        COURANT.remove();
+        return bilan;
+    }
+
+    /**
+     * Nombre de requêtes exécutées par le thread courant depuis son démarrage ;
+     * s'utilise par différence entre deux lectures, y compris hors requête HTTP
+     */
+    public static long requetesDuThread() {
+        return EXECUTEES.get()[0];
+    }
+
+    /**
+     * Durées cumulées par procédure stockée (nom en majuscules, préfixé du package)
+     */
+    public static Map<String, LatencyHistogram> getProcedures() {
+        return Collections.unmodifiableMap(PROCEDURES);
+    }
+
+    static void requeteExecutee(String sql, long nanos) {
+        EXECUTEES.get()[0]++;
+        String procedure = procedure(sql);
+        if (procedure != null) {
+            LatencyHistogram histogramme = PROCEDURES.get(procedure);
+            if (histogramme == null) {
+                LatencyHistogram nouveau = new LatencyHistogram();
+                histogramme = PROCEDURES.putIfAbsent(procedure, nouveau);
+                if (histogramme == null) {
+                    histogramme = nouveau;
+                }
+            }
+            histogramme.enregistrerNanos(nanos);
+        }
+        Bilan bilan = COURANT.get();
+        if (bilan != null) {
+            long[] v = bilan.ligne(sql);
+            v[0]++;
+            v[1] += nanos;
+            bilan.requetes++;
+            bilan.nanos += nanos;
+        }
+    }
+
+    static void lignesLues(String sql, long lignes) {
+        Bilan bilan = COURANT.get();
+        if (bilan != null && lignes > 0) {
+            bilan.ligne(sql)[2] += lignes;
+            bilan.lignes += lignes;
+        }
+    }
+
+    /**
+     * @return Nom de la procédure appelée, en majuscules, ou null si le SQL n'est pas un appel
+     */
+    static String procedure(String sql) {
+        if (sql == null) {
+            return null;
+        }
+        Matcher m = APPEL_PROCEDURE.matcher(sql);
+        return m.find() ? m.group(1).toUpperCase() : null;
+    }
+}
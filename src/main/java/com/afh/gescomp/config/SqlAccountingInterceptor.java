@@ -0,0 +1,135 @@
+package com.afh.gescomp.config;
+
+import org.apache.tomcat.jdbc.pool.interceptor.AbstractCreateStatementInterceptor;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * Intercepteur du pool Tomcat JDBC (spring.datasource.jdbc-interceptors) qui chronomètre
+ * chaque exécution de requête et compte les lignes lues, pour {@link SqlAccounting}.
+ * Couvre JPA, JdbcTemplate et les appels directs de procédures (prepareCall).
+ */
+public class SqlAccountingInterceptor extends AbstractCreateStatementInterceptor {
+
+    @Override
+    public Object createStatement(Object proxy, Method method, Object[] args, Object statement, long time) {
+        String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+        Class<?> type = statement instanceof CallableStatement ? CallableStatement.class
+                : statement instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+        return Proxy.newProxyInstance(SqlAccountingInterceptor.class.getClassLoader(), new Class<?>[]{type},
+                new StatementMesure(proxy, statement, sql));
+    }
+
+    @Override
+    public void closeInvoked() {
+        // Aucun état par connexion
+    }
+
+    private static Object invoquer(Object cible, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(cible, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Statement chronométré ; le SQL d'un Statement simple est pris à l'exécution
+     */
+    private static final class StatementMesure implements InvocationHandler {
+        private final Object connexion;
+        private final Object statement;
+        private final String sql;
+        private LignesLues resultat;
+
+        StatementMesure(Object connexion, Object statement, String sql) {
+            this.connexion = connexion;
+            this.statement = statement;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String nom = method.getName();
+            if (GETCONNECTION_VAL.equals(nom)) {
+                return connexion;
+            }
+            if (CLOSE_VAL.equals(nom)) {
+                signalerLignes();
+                return invoquer(statement, method, args);
+            }
+            if (nom.startsWith(EXECUTE)) {
+                String texte = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : sql;
+                long debut = System.nanoTime();
+                try {
+                    return envelopper(invoquer(statement, method, args), texte);
+                } finally {
+                    SqlAccounting.requeteExecutee(texte, System.nanoTime() - debut);
+                }
+            }
+            Object valeur = invoquer(statement, method, args);
+            return "getResultSet".equals(nom) ? envelopper(valeur, sql) : valeur;
+        }
+
+        private Object envelopper(Object valeur, String texte) {
+            if (!(valeur instanceof ResultSet)) {
+                return valeur;
+            }
+            signalerLignes();
+            resultat = new LignesLues((ResultSet) valeur, texte);
+            return Proxy.newProxyInstance(SqlAccountingInterceptor.class.getClassLoader(),
+                    new Class<?>[]{ResultSet.class}, resultat);
+        }
+
+        private void signalerLignes() {
+            if (resultat != null) {
+                resultat.signaler();
+                resultat = null;
+            }
+        }
+    }
+
+    /**
+     * ResultSet qui compte les lignes parcourues ; le total est signalé à la fermeture
+     * du ResultSet ou, à défaut, de son Statement
+     */
+    private static final class LignesLues implements InvocationHandler {
+        private final ResultSet resultSet;
+        private final String sql;
+        private long lignes;
+        private boolean signale;
+
+        LignesLues(ResultSet resultSet, String sql) {
+            this.resultSet = resultSet;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object valeur = invoquer(resultSet, method, args);
+            String nom = method.getName();
+            if ("next".equals(nom)) {
+                if (Boolean.TRUE.equals(valeur)) {
+                    lignes++;
+                }
+            } else if (CLOSE_VAL.equals(nom)) {
+                signaler();
+            }
+            return valeur;
+        }
+
+        void signaler() {
+            if (!signale) {
+                signale = true;
+                SqlAccounting.lignesLues(sql, lignes);
+            }
+        }
+    }
+}
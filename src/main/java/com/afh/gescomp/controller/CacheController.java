@@ -0,0 +1,46 @@
+package com.afh.gescomp.controller;
+
+import com.afh.gescomp.config.CaffeineCache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@CrossOrigin(origins = "http://localhost:4200")
+@RestController
+@RequestMapping("/api/cache")
+public class CacheController {
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    /**
+     * Statistiques des caches applicatifs : taille, hits, misses, évictions, taux de succès
+     */
+    @RequestMapping(value = "/stats", method = RequestMethod.GET)
+    public ResponseEntity<Map<String, Object>> getStatistiques() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (String nom : cacheManager.getCacheNames()) {
+            Cache cache = cacheManager.getCache(nom);
+            if (!(cache instanceof CaffeineCache)) {
+                continue;
+            }
+            CaffeineCache caffeineCache = (CaffeineCache) cache;
+            CacheStats stats = caffeineCache.getStats();
+            Map<String, Object> statistiques = new HashMap<>();
+            statistiques.put("taille", caffeineCache.getSize());
+            statistiques.put("hits", stats.hitCount());
+            statistiques.put("misses", stats.missCount());
+            statistiques.put("evictions", stats.evictionCount());
+            statistiques.put("tauxSucces", stats.hitRate());
+            result.put(nom, statistiques);
+        }
+        return ResponseEntity.ok(result);
+    }
+}
@@ -1,13 +1,17 @@
 package com.afh.gescomp.controller;
 
 import com.afh.gescomp.model.primary.Chat;
-import com.afh.gescomp.repository.primary.ChatRepository;
+import com.afh.gescomp.service.ChatService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.messaging.MessagingException;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 
+import javax.validation.Valid;
 import java.util.List;
 import java.util.Map;
 
@@ -16,37 +20,60 @@ import java.util.Map;
 @RequestMapping("/api/chat")
 public class ChatController {
 
+    private static final Logger logger = LoggerFactory.getLogger(ChatController.class);
+
     @Autowired
     private SimpMessagingTemplate messagingTemplate;
 
     @Autowired
-    private ChatRepository chatRepository;
+    private ChatService chatService;
 
 
     @RequestMapping(value = "/send",method = RequestMethod.POST)
-    public void sendMessage(@RequestBody Chat chat) {
-        // Enregistrer le message dans la base de données
-        chatRepository.save(chat);
+    public void sendMessage(@Valid @RequestBody Chat chat) {
+        // Enregistrement en base par lots, en arrière-plan
+        chatService.enregistrer(chat);
         // Destinataire basé sur receiverMatricule
-        messagingTemplate.convertAndSend(
-                "/topic/chat/" + chat.getReceiverMatricule(),  // Canal unique pour chaque utilisateur
-                chat
-        );
+        try {
+            messagingTemplate.convertAndSend(
+                    "/topic/chat/" + chat.getReceiverMatricule(),  // Canal unique pour chaque utilisateur
+                    chat
+            );
+        } catch (MessagingException e) {
+            // Broker relais indisponible : le message reste enregistré et sera lu dans l'historique
+            logger.warn("Message pour {} non diffusé: {}", chat.getReceiverMatricule(), e.getMessage());
+        }
     }
 
-    // Récupérer les messages pour un matricule
+    // Récupérer les derniers messages pour un matricule (au plus chat.historique.max)
     @RequestMapping(value = "/messages", method = RequestMethod.POST)
     public List<Chat> getMessagesBetweenAdminAndUser(@RequestBody Map<String, String> payload) {
         String senderMatricule = payload.get("senderMatricule");
         String receiverMatricule = payload.get("receiverMatricule");
-        return chatRepository.findMessagesBetweenUserAndAdmins(senderMatricule, receiverMatricule);
+        return chatService.derniersMessages(senderMatricule, receiverMatricule);
+    }
+
+    // Historique par page : avantId (curseur, facultatif) et limite (facultative)
+    @RequestMapping(value = "/messages/page", method = RequestMethod.POST)
+    public ResponseEntity<Map<String, Object>> getPageBetweenAdminAndUser(@RequestBody Map<String, String> payload) {
+        String senderMatricule = payload.get("senderMatricule");
+        String receiverMatricule = payload.get("receiverMatricule");
+        Long avantId;
+        Integer limite;
+        try {
+            avantId = payload.get("avantId") == null ? null : Long.valueOf(payload.get("avantId"));
+            limite = payload.get("limite") == null ? null : Integer.valueOf(payload.get("limite"));
+        } catch (NumberFormatException e) {
+            return new ResponseEntity<>(HttpStatus.BAD_REQUEST);
+        }
+        return ResponseEntity.ok(chatService.historique(senderMatricule, receiverMatricule, avantId, limite));
     }
-    @Transactional
+
     @RequestMapping(value = "/messages", method = RequestMethod.DELETE)
     public ResponseEntity<Void> deleteMessagesBetweenAdminAndUser(@RequestBody Map<String, String> payload) {
         String senderMatricule = payload.get("senderMatricule");
         String receiverMatricule = payload.get("receiverMatricule");
-        chatRepository.deleteMessagesBetweenUserAndAdmins(senderMatricule, receiverMatricule);
+        chatService.supprimerConversation(senderMatricule, receiverMatricule);
         return ResponseEntity.ok().build();
     }
 }
@@ -122,6 +122,19 @@ public class DashboardController {
         return ResponseEntity.ok(sectorielles);
     }
 
+    /**
+     * Récupère tous les widgets du dashboard en un appel, calculés en parallèle.
+     * Les widgets en échec ou hors délai sont listés dans "widgetsEnErreur".
+     */
+    @RequestMapping(value = "/all", method = RequestMethod.GET)
+    public ResponseEntity<Map<String, Object>> getAllWidgets(
+            @RequestParam(required = false) String numStruct,
+            @RequestParam(defaultValue = "12") int months,
+            @RequestParam(defaultValue = "5") int limit) {
+        Map<String, Object> widgets = dashboardService.getAllWidgets(numStruct, months, limit);
+        return ResponseEntity.ok(widgets);
+    }
+
 
 
 
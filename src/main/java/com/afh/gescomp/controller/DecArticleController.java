@@ -112,6 +112,36 @@ public class DecArticleController {
         return ResponseEntity.ok(updatedArticles);
     }
 
+    /**
+     * Patch en masse des lignes de travaux ; dryRun=true renvoie le diff sans rien écrire
+     */
+    @RequestMapping(value = "/batchTravaux", method = RequestMethod.PATCH)
+    public ResponseEntity<Map<String, Object>> patchDecArticlesTravauxParLots(
+            @RequestParam Long numMarche,
+            @RequestParam String idLot,
+            @RequestParam Short numPieceFourn,
+            @RequestParam Short numEtape,
+            @RequestParam(defaultValue = "false") boolean dryRun,
+            @RequestBody List<DecArticleUpdateRequest> articlesToUpdate) {
+        return ResponseEntity.ok(decArticleService.patchDecArticles(
+                numMarche, idLot, numPieceFourn, numEtape, false, articlesToUpdate, dryRun));
+    }
+
+    /**
+     * Patch en masse des lignes d'approvisionnement ; dryRun=true renvoie le diff sans rien écrire
+     */
+    @RequestMapping(value = "/batchAppro", method = RequestMethod.PATCH)
+    public ResponseEntity<Map<String, Object>> patchDecArticlesApproParLots(
+            @RequestParam Long numMarche,
+            @RequestParam String idLot,
+            @RequestParam Short numPieceFourn,
+            @RequestParam Short numEtape,
+            @RequestParam(defaultValue = "false") boolean dryRun,
+            @RequestBody List<DecArticleUpdateRequest> articlesToUpdate) {
+        return ResponseEntity.ok(decArticleService.patchDecArticles(
+                numMarche, idLot, numPieceFourn, numEtape, true, articlesToUpdate, dryRun));
+    }
+
     @RequestMapping(value = "/calculateMontantsFinalDecArticlesOrd/{numMarche}/{numPieceFourn}/{numEtape}", method = RequestMethod.GET)
     public ResponseEntity<Map<String, String>> calculateMontantsFinalDecArticlesOrd(
             @PathVariable("numMarche") Long numMarche,
@@ -1,6 +1,7 @@
 package com.afh.gescomp.controller;
 
 import com.afh.gescomp.dto.DecompteResponse;
+import com.afh.gescomp.dto.RecalculDecompteCible;
 import com.afh.gescomp.exception.MrcEtapeNotFoundException;
 import com.afh.gescomp.exception.PrmTypeDecNotFoundException;
 import com.afh.gescomp.model.primary.Decompte;
@@ -8,7 +9,9 @@ import com.afh.gescomp.payload.response.MessageResponse;
 import com.afh.gescomp.repository.primary.DecompteRepository;
 import com.afh.gescomp.service.DecArticleService;
 import com.afh.gescomp.service.DecompteService;
+import com.afh.gescomp.service.RecalculDecompteService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.format.annotation.DateTimeFormat;
@@ -37,6 +40,12 @@ public class DecompteController {
     @Autowired
     private DecArticleService decArticleService;
 
+    @Autowired
+    private RecalculDecompteService recalculDecompteService;
+
+    @Value("${recalcul.max-cibles:500}")
+    private int maxCibles;
+
     @RequestMapping(method = RequestMethod.GET)
     public ResponseEntity<List<Decompte>> getDecomptesByNumMarcheAndIdTypeDec(
             @RequestParam("numMarche") Long numMarche,
@@ -138,6 +147,22 @@ public class DecompteController {
         }
     }
 
+    /**
+     * Recalcul de plusieurs décomptes en une requête (CAL_DEC_ORD, CAL_DEC_LRG, CAL_DEC_AVANCE),
+     * avec une issue par décompte
+     */
+    @RequestMapping(value = "/recalculer", method = RequestMethod.POST)
+    public ResponseEntity<?> recalculer(@RequestBody List<RecalculDecompteCible> cibles) {
+        if (cibles == null || cibles.isEmpty()) {
+            return ResponseEntity.badRequest().body(new MessageResponse("Aucun décompte à recalculer"));
+        }
+        if (cibles.size() > maxCibles) {
+            return ResponseEntity.badRequest().body(
+                    new MessageResponse("Trop de décomptes à recalculer : " + cibles.size() + " (maximum " + maxCibles + ")"));
+        }
+        return ResponseEntity.ok(recalculDecompteService.recalculer(cibles));
+    }
+
     @RequestMapping(value = "/calculateMontantDecLrgDecompte/{numMarche}/{numPieceFourn}", method = RequestMethod.GET)
     public ResponseEntity<Map<String, String>> calculateMontantsFinalDecArticlesLrg(
             @PathVariable("numMarche") Long numMarche,
@@ -0,0 +1,138 @@
+package com.afh.gescomp.controller;
+
+import com.afh.gescomp.dto.ExportJob;
+import com.afh.gescomp.exception.ResourceNotFoundException;
+import com.afh.gescomp.service.ExportJobService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Exports asynchrones : soumission, suivi et téléchargement des rapports PDF / Excel
+ */
+@CrossOrigin(origins = "http://localhost:4200")
+@RestController
+@RequestMapping("/api/exports")
+public class ExportJobController {
+
+    @Autowired
+    private ExportJobService exportJobService;
+
+    /**
+     * Soumet un export des statistiques (format pdf ou excel)
+     */
+    @RequestMapping(value = "/statistiques", method = RequestMethod.POST)
+    public ResponseEntity<Map<String, Object>> soumettreStatistiques(
+            @RequestParam(required = false) String numStruct,
+            @RequestParam(defaultValue = "marches") String type,
+            @RequestParam(defaultValue = "pdf") String format,
+            @RequestParam(required = false) String dateDebut,
+            @RequestParam(required = false) String dateFin) {
+        try {
+            ExportJob job = exportJobService.soumettreStatistiques(format, type, numStruct, dateDebut, dateFin);
+            return new ResponseEntity<>(enMap(job), HttpStatus.ACCEPTED);
+        } catch (TaskRejectedException e) {
+            return fileSaturee();
+        }
+    }
+
+    /**
+     * Soumet l'export PDF des détails d'un fournisseur
+     */
+    @RequestMapping(value = "/fournisseur/{numFourn}", method = RequestMethod.POST)
+    public ResponseEntity<Map<String, Object>> soumettreFournisseur(@PathVariable String numFourn) {
+        try {
+            return new ResponseEntity<>(enMap(exportJobService.soumettreFournisseur(numFourn)), HttpStatus.ACCEPTED);
+        } catch (TaskRejectedException e) {
+            return fileSaturee();
+        }
+    }
+
+    /**
+     * Statut et progression d'un export
+     */
+    @RequestMapping(value = "/{id}", method = RequestMethod.GET)
+    public ResponseEntity<Map<String, Object>> getStatut(@PathVariable String id) {
+        return ResponseEntity.ok(enMap(trouver(id)));
+    }
+
+    /**
+     * Téléchargement du rapport produit. Le fichier est transmis sans copie en mémoire :
+     * sendfile de Tomcat si le connecteur le permet, sinon FileChannel.transferTo.
+     */
+    @RequestMapping(value = "/{id}/fichier", method = RequestMethod.GET)
+    public void telecharger(@PathVariable String id, HttpServletRequest request,
+                            HttpServletResponse response) throws IOException {
+        ExportJob job = trouver(id);
+        if (job.getStatut() != ExportJob.Statut.TERMINE) {
+            response.sendError(HttpStatus.CONFLICT.value(), "Export non disponible, statut: " + job.getStatut());
+            return;
+        }
+        File fichier = job.getFichier();
+        long longueur = fichier.length();
+        response.setContentType(job.getContentType());
+        response.setHeader("Content-Disposition", "attachment; filename=" + job.getNomFichier());
+        response.setHeader("Content-Length", String.valueOf(longueur));
+
+        if (Boolean.TRUE.equals(request.getAttribute("org.apache.tomcat.sendfile.support"))) {
+            request.setAttribute("org.apache.tomcat.sendfile.filename", fichier.getCanonicalPath());
+            request.setAttribute("org.apache.tomcat.sendfile.start", 0L);
+            request.setAttribute("org.apache.tomcat.sendfile.end", longueur);
+            return;
+        }
+        try (FileInputStream in = new FileInputStream(fichier); FileChannel canal = in.getChannel()) {
+            WritableByteChannel sortie = Channels.newChannel(response.getOutputStream());
+            long position = 0;
+            while (position < longueur) {
+                position += canal.transferTo(position, longueur - position, sortie);
+            }
+        }
+    }
+
+    private ExportJob trouver(String id) {
+        ExportJob job = exportJobService.getJob(id);
+        if (job == null) {
+            throw new ResourceNotFoundException("Export introuvable: " + id);
+        }
+        return job;
+    }
+
+    private static ResponseEntity<Map<String, Object>> fileSaturee() {
+        Map<String, Object> erreur = new LinkedHashMap<>();
+        erreur.put("error", "File d'attente des exports pleine, réessayez plus tard");
+        return new ResponseEntity<>(erreur, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    private static Map<String, Object> enMap(ExportJob job) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("jobId", job.getId());
+        result.put("statut", job.getStatut().name());
+        result.put("nomFichier", job.getNomFichier());
+        result.put("octetsEcrits", job.getOctetsEcrits());
+        result.put("dateCreation", job.getDateCreation());
+        if (job.getDateDebut() > 0) {
+            long fin = job.getDateFin() > 0 ? job.getDateFin() : System.currentTimeMillis();
+            result.put("dureeMs", fin - job.getDateDebut());
+        }
+        if (job.getStatut() == ExportJob.Statut.TERMINE) {
+            result.put("telechargement", "/api/exports/" + job.getId() + "/fichier");
+        }
+        if (job.getMessage() != null) {
+            result.put("error", job.getMessage());
+        }
+        return result;
+    }
+}
@@ -15,6 +15,8 @@ import org.springframework.web.bind.annotation.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -160,11 +162,12 @@ public class FournisseurController {
      * @return Le fichier PDF en tant que réponse HTTP
      */
     @RequestMapping(value = "/export/pdf/{numFourn}", method = RequestMethod.GET)
-    public ResponseEntity<byte[]> exportFournisseurDetailsToPDF(
+    public void exportFournisseurDetailsToPDF(
             @PathVariable String numFourn,
             @RequestParam(value = "supportArabic", defaultValue = "true") boolean supportArabic,
             @RequestParam(value = "fontFamily", defaultValue = "arabic") String fontFamily,
-            @RequestParam(value = "encoding", defaultValue = "UTF-8") String encoding) {
+            @RequestParam(value = "encoding", defaultValue = "UTF-8") String encoding,
+            HttpServletResponse response) throws IOException {
         try {
             // Log des paramètres reçus
             System.out.println("🔄 Génération PDF pour fournisseur: " + numFourn);
@@ -172,26 +175,28 @@ public class FournisseurController {
             System.out.println("🔤 Famille de police: " + fontFamily);
             System.out.println("🔤 Encodage: " + encoding);
             
-            byte[] pdfBytes = fournisseurService.generateFournisseurDetailsPDF(numFourn);
-            
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(new MediaType("application", "pdf"));
-            headers.setContentDispositionFormData("attachment", "Fournisseur_" + numFourn + ".pdf");
-            headers.setCacheControl("must-revalidate, post-check=0, pre-check=0");
+            response.setContentType("application/pdf");
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "form-data; name=\"attachment\"; filename=\"Fournisseur_" + numFourn + ".pdf\"");
+            response.setHeader(HttpHeaders.CACHE_CONTROL, "must-revalidate, post-check=0, pre-check=0");
             
             // Ajouter des headers pour le support arabe
             if (supportArabic) {
-                headers.add("X-Arabic-Support", "enabled");
-                headers.add("X-Font-Family", fontFamily);
-                headers.add("X-Encoding", encoding);
+                response.setHeader("X-Arabic-Support", "enabled");
+                response.setHeader("X-Font-Family", fontFamily);
+                response.setHeader("X-Encoding", encoding);
             }
             
+            // Le PDF est écrit directement dans la réponse
+            fournisseurService.generateFournisseurDetailsPDF(numFourn, response.getOutputStream());
             System.out.println("✅ PDF généré avec succès pour le fournisseur: " + numFourn);
-            return new ResponseEntity<>(pdfBytes, headers, HttpStatus.OK);
             
         } catch (Exception e) {
             logger.error("❌ Erreur lors de la génération du PDF: {}", e.getMessage(), e);
-            return new ResponseEntity<>(HttpStatus.INTERNAL_SERVER_ERROR);
+            // Tant que rien n'a été envoyé, on peut encore répondre en erreur
+            if (!response.isCommitted()) {
+                response.reset();
+                response.sendError(HttpStatus.INTERNAL_SERVER_ERROR.value());
+            }
         }
     }
 }
@@ -1,6 +1,7 @@
 package com.afh.gescomp.controller;
 
 
+import com.afh.gescomp.dto.MarcheListeDTO;
 import com.afh.gescomp.model.primary.Article;
 import com.afh.gescomp.model.primary.Marche;
 import com.afh.gescomp.payload.response.MontantResponse;
@@ -39,6 +40,25 @@ public class MarcheController {
         return ResponseEntity.ok(marches);
     }
 
+    /**
+     * Liste paginée des marchés pour la grille : projection légère, le détail complet reste sur /{id}
+     */
+    @RequestMapping(value = "/liste", method = RequestMethod.GET)
+    public ResponseEntity<Page<MarcheListeDTO>> getListeMarches(@RequestParam(defaultValue = "0") int page, @RequestParam(defaultValue = "10") int size, @RequestParam(required = false) String filter, @RequestParam(required = false) String designation, @RequestParam(required = false) String fournisseurdesignation, @RequestParam(required = false) String numStruct, @RequestParam(required = false) String numFourn) {
+        Pageable pageable = new PageRequest(page, size);
+        Page<MarcheListeDTO> marches = marcheService.getListeMarches(pageable, filter, designation, fournisseurdesignation, numStruct, numFourn);
+        return ResponseEntity.ok(marches);
+    }
+
+    /**
+     * Liste des marchés par curseur (défilement infini) : passer nextCursor de la réponse comme lastId
+     */
+    @RequestMapping(value = "/curseur", method = RequestMethod.GET)
+    public ResponseEntity<Map<String, Object>> getMarchesParCurseur(@RequestParam(required = false) Long lastId, @RequestParam(defaultValue = "10") int size, @RequestParam(required = false) String filter, @RequestParam(required = false) String designation, @RequestParam(required = false) String fournisseurdesignation, @RequestParam(required = false) String numStruct, @RequestParam(required = false) String numFourn, @RequestParam(defaultValue = "false") boolean avecTotal) {
+        Map<String, Object> marches = marcheService.getMarchesParCurseur(lastId, size, filter, designation, fournisseurdesignation, numStruct, numFourn, avecTotal);
+        return ResponseEntity.ok(marches);
+    }
+
     @RequestMapping(value = "/allMarches",method = RequestMethod.GET)
     public ResponseEntity<List<Marche>> getMarches(@RequestParam(required = false) String numStruct) {
         List<Marche> marches = marcheService.getAllMarchesNoPaginAndSearch(numStruct);
@@ -204,6 +204,14 @@ public class MrcArticleController {
         return ResponseEntity.ok(savedArticles);
     }
 
+    /**
+     * Enregistrement en masse d'un bordereau : renvoie le nombre de lignes insérées et mises à jour
+     */
+    @RequestMapping(value = "/bulk", method = RequestMethod.POST)
+    public ResponseEntity<Map<String, Object>> upsertArticles(@RequestBody List<MrcArticle> mrcArticles) {
+        return ResponseEntity.ok(mrcArticleService.upsertArticles(mrcArticles));
+    }
+
     @RequestMapping(value = "/maxIdArticle/{numMarche}/{idLot}",method = RequestMethod.GET)
     public Short getMaxIdArticle(@PathVariable Long numMarche, @PathVariable String idLot) {
         return   mrcArticleService.getMaxIdArticle(numMarche, idLot);
@@ -1,10 +1,13 @@
 package com.afh.gescomp.controller;
 
 import com.afh.gescomp.service.StatistiquesService;
+import com.afh.gescomp.service.StatistiquesSnapshotService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.util.Map;
 
 @CrossOrigin(origins = "http://localhost:4200")
@@ -15,6 +18,9 @@ public class StatistiquesController {
     @Autowired
     private StatistiquesService statistiquesService;
 
+    @Autowired
+    private StatistiquesSnapshotService statistiquesSnapshotService;
+
     /**
      * Récupère les données détaillées des fournisseurs avec leurs statistiques
      */
@@ -183,60 +189,54 @@ public class StatistiquesController {
      * Export des données en PDF avec filtrage par période
      */
     @RequestMapping(value = "/export/pdf", method = RequestMethod.GET)
-    public ResponseEntity<byte[]> exportToPDF(
+    public void exportToPDF(
             @RequestParam(required = false) String numStruct,
             @RequestParam(defaultValue = "marches") String type,
             @RequestParam(required = false) String dateDebut,
-            @RequestParam(required = false) String dateFin) {
-        
-        byte[] pdfData = statistiquesService.exportToPDF(numStruct, type, dateDebut, dateFin);
-        return ResponseEntity.ok()
-                .header("Content-Type", "application/pdf")
-                .header("Content-Disposition", "attachment; filename=statistiques_marches.pdf")
-                .body(pdfData);
+            @RequestParam(required = false) String dateFin,
+            HttpServletResponse response) throws IOException {
+
+        // Export en flux : le document est écrit directement dans la réponse
+        response.setContentType("application/pdf");
+        response.setHeader("Content-Disposition", "attachment; filename=statistiques_marches.pdf");
+        statistiquesService.exportToPDF(numStruct, type, dateDebut, dateFin, response.getOutputStream());
     }
 
     /**
      * Export des données en Excel avec filtrage par période
      */
     @RequestMapping(value = "/export/excel", method = RequestMethod.GET)
-    public ResponseEntity<byte[]> exportToExcel(
+    public void exportToExcel(
             @RequestParam(required = false) String numStruct,
             @RequestParam(defaultValue = "marches") String type,
             @RequestParam(required = false) String dateDebut,
-            @RequestParam(required = false) String dateFin) {
+            @RequestParam(required = false) String dateFin,
+            HttpServletResponse response) throws IOException {
 
-        byte[] excelData = statistiquesService.exportToExcel(numStruct, type, dateDebut, dateFin);
-        return ResponseEntity.ok()
-                .header("Content-Type", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet")
-                .header("Content-Disposition", "attachment; filename=statistiques_marches.xlsx")
-                .body(excelData);
+        // Dates vérifiées avant les en-têtes xlsx : une date invalide reste une erreur 400 lisible
+        statistiquesService.validerPeriode(dateDebut, dateFin);
+        // Export en flux : le classeur est écrit directement dans la réponse
+        response.setContentType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+        response.setHeader("Content-Disposition", "attachment; filename=statistiques_marches.xlsx");
+        statistiquesService.exportToExcel(numStruct, type, dateDebut, dateFin, response.getOutputStream());
     }
 
     /**
      * Endpoint générique pour l'export
      */
     @RequestMapping(value = "/export", method = RequestMethod.GET)
-    public ResponseEntity<byte[]> exportGeneric(
+    public void exportGeneric(
             @RequestParam(required = false) String numStruct,
             @RequestParam(defaultValue = "marches") String type,
             @RequestParam(defaultValue = "pdf") String format,
             @RequestParam(required = false) String dateDebut,
-            @RequestParam(required = false) String dateFin) {
+            @RequestParam(required = false) String dateFin,
+            HttpServletResponse response) throws IOException {
 
-        byte[] data;
         if ("excel".equalsIgnoreCase(format)) {
-            data = statistiquesService.exportToExcel(numStruct, type, dateDebut, dateFin);
-            return ResponseEntity.ok()
-                    .header("Content-Type", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet")
-                    .header("Content-Disposition", "attachment; filename=statistiques_marches.xlsx")
-                    .body(data);
+            exportToExcel(numStruct, type, dateDebut, dateFin, response);
         } else {
-            data = statistiquesService.exportToPDF(numStruct, type, dateDebut, dateFin);
-            return ResponseEntity.ok()
-                    .header("Content-Type", "application/pdf")
-                    .header("Content-Disposition", "attachment; filename=statistiques_marches.pdf")
-                    .body(data);
+            exportToPDF(numStruct, type, dateDebut, dateFin, response);
         }
     }
 
@@ -265,11 +265,15 @@ public class StatistiquesController {
 
     /**
      * Récupère toutes les statistiques générales en une seule fois
+     * (composite=false force le mode détaillé, une requête par section)
      */
     @RequestMapping(value = "/generales", method = RequestMethod.GET)
     public ResponseEntity<Map<String, Object>> getStatistiquesGenerales(
-            @RequestParam(required = false) String numStruct) {
-        Map<String, Object> stats = statistiquesService.getStatistiquesGenerales(numStruct);
+            @RequestParam(required = false) String numStruct,
+            @RequestParam(required = false) Boolean composite) {
+        Map<String, Object> stats = composite != null
+                ? statistiquesService.getStatistiquesGenerales(numStruct, composite)
+                : statistiquesService.getStatistiquesGenerales(numStruct);
         return ResponseEntity.ok(stats);
     }
 
@@ -492,6 +496,23 @@ public class StatistiquesController {
         return ResponseEntity.ok(repartition);
     }
 
+    // ========== SNAPSHOT STATISTIQUES ==========
 
+    /**
+     * Récupère l'état du snapshot statistiques en mémoire (date, âge, durée de calcul)
+     */
+    @RequestMapping(value = "/snapshot", method = RequestMethod.GET)
+    public ResponseEntity<Map<String, Object>> getEtatSnapshot() {
+        return ResponseEntity.ok(statistiquesSnapshotService.getEtat());
+    }
+
+    /**
+     * Force le recalcul immédiat du snapshot statistiques
+     */
+    @RequestMapping(value = "/snapshot/refresh", method = RequestMethod.POST)
+    public ResponseEntity<Map<String, Object>> rafraichirSnapshot() {
+        statistiquesSnapshotService.rafraichir();
+        return ResponseEntity.ok(statistiquesSnapshotService.getEtat());
+    }
 }
 
@@ -0,0 +1,122 @@
+package com.afh.gescomp.dto;
+
+import java.io.File;
+
+/**
+ * Tâche d'export (PDF / Excel) exécutée en arrière-plan par
+ * {@link com.afh.gescomp.service.ExportJobService}. Le rapport est rendu dans un fichier
+ * temporaire, téléchargeable une fois la tâche terminée et jusqu'à expiration.
+ */
+public class ExportJob {
+
+    public enum Statut {
+        EN_ATTENTE, EN_COURS, TERMINE, ECHEC
+    }
+
+    private final String id;
+    private final String cle;
+    private final String nomFichier;
+    private final String contentType;
+    private final long dateCreation;
+    private volatile Statut statut = Statut.EN_ATTENTE;
+    private volatile long dateDebut;
+    private volatile long dateFin;
+    private volatile File fichier;
+    private volatile String message;
+
+    public ExportJob(String id, String cle, String nomFichier, String contentType) {
+        this.id = id;
+        this.cle = cle;
+        this.nomFichier = nomFichier;
+        this.contentType = contentType;
+        this.dateCreation = System.currentTimeMillis();
+    }
+
+    public void demarrer(File fichier) {
+        this.fichier = fichier;
+        this.dateDebut = System.currentTimeMillis();
+        this.statut = Statut.EN_COURS;
+    }
+
+    public void terminer() {
+        this.dateFin = System.currentTimeMillis();
+        this.statut = Statut.TERMINE;
+    }
+
+    public void echouer(String message) {
+        this.message = message;
+        this.dateFin = System.currentTimeMillis();
+        this.statut = Statut.ECHEC;
+    }
+
+    /**
+     * Indique si une demande identique peut réutiliser cette tâche : en attente, en cours,
+     * ou terminée depuis moins de {@code ttlMs}.
+     */
+    public boolean estReutilisable(long maintenant, long ttlMs) {
+        switch (statut) {
+            case EN_ATTENTE:
+            case EN_COURS:
+                return true;
+            case TERMINE:
+                return !estExpire(maintenant, ttlMs);
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Tâche finie (terminée ou en échec) depuis plus de {@code ttlMs}.
+     */
+    public boolean estExpire(long maintenant, long ttlMs) {
+        return (statut == Statut.TERMINE || statut == Statut.ECHEC) && maintenant - dateFin > ttlMs;
+    }
+
+    /**
+     * Taille actuelle du fichier produit : sert d'indicateur de progression pendant le rendu.
+     */
+    public long getOctetsEcrits() {
+        File f = fichier;
+        return f != null && f.exists() ? f.length() : 0;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getCle() {
+        return cle;
+    }
+
+    public String getNomFichier() {
+        return nomFichier;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public long getDateCreation() {
+        return dateCreation;
+    }
+
+    public Statut getStatut() {
+        return statut;
+    }
+
+    public long getDateDebut() {
+        return dateDebut;
+    }
+
+    public long getDateFin() {
+        return dateFin;
+    }
+
+    public File getFichier() {
+        return fichier;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
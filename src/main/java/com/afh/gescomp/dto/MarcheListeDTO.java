@@ -0,0 +1,27 @@
+package com.afh.gescomp.dto;
+
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+/**
+ * Ligne de la liste des marchés : uniquement les colonnes affichées par la grille,
+ * chargée par expression constructeur (sans les associations EAGER de Marche)
+ */
+@Data
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class MarcheListeDTO {
+    private Long id;
+    private String designation;
+    private Short exercice;
+    private Date dateMarche;
+    private BigDecimal mntMarche;
+    private String numFourn;
+    private String fournisseurDesignation;
+    private String numStruct;
+    private String structureDesignation;
+}
@@ -0,0 +1,23 @@
+package com.afh.gescomp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Décompte à recalculer par /api/decomptes/recalculer.
+ * procedure : "ORD" (CAL_DEC_ORD, pièce et étape requises), "LRG" (CAL_DEC_LRG, pièce requise)
+ * ou "AVANCE" (CAL_DEC_AVANCE, marché seul)
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class RecalculDecompteCible {
+
+    private String procedure;
+    private Long numMarche;
+    private Short numPieceFourn;
+    private Short numEtape;
+}
@@ -0,0 +1,27 @@
+package com.afh.gescomp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Issue du recalcul d'une cible, dans l'ordre de la demande
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class RecalculDecompteResultat {
+
+    private String procedure;
+    private Long numMarche;
+    private Short numPieceFourn;
+    private Short numEtape;
+    private boolean succes;
+    private String message;
+
+    public RecalculDecompteResultat(RecalculDecompteCible cible, boolean succes, String message) {
+        this(cible.getProcedure(), cible.getNumMarche(), cible.getNumPieceFourn(), cible.getNumEtape(), succes, message);
+    }
+}
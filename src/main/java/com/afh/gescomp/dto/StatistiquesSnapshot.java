@@ -0,0 +1,313 @@
+package com.afh.gescomp.dto;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Photographie immuable des agrégats statistiques, calculée en une passe par
+ * {@link com.afh.gescomp.service.StatistiquesSnapshotService}.
+ * Les agrégats sont tenus par NUM_STRUCT et pour l'ensemble des structures
+ * (structure '03' ou structure non renseignée).
+ */
+public final class StatistiquesSnapshot {
+
+    /** Structure centrale : voit les données de toutes les structures. */
+    public static final String STRUCTURE_CENTRALE = "03";
+
+    private final long dateGeneration;
+    private final long dureeCalculMs;
+    private final long totalFournisseurs;
+    private final long totalArticles;
+    private final Agregats global;
+    private final Map<String, Agregats> parStructure;
+
+    public StatistiquesSnapshot(long dateGeneration, long dureeCalculMs, long totalFournisseurs, long totalArticles,
+                                Agregats global, Map<String, Agregats> parStructure) {
+        this.dateGeneration = dateGeneration;
+        this.dureeCalculMs = dureeCalculMs;
+        this.totalFournisseurs = totalFournisseurs;
+        this.totalArticles = totalArticles;
+        this.global = global;
+        this.parStructure = Collections.unmodifiableMap(new HashMap<>(parStructure));
+    }
+
+    /**
+     * Agrégats visibles pour une structure selon la règle des requêtes natives :
+     * {@code (:numStruct = '03' OR m.NUM_STRUCT = :numStruct)}.
+     */
+    public Agregats perimetre(String numStruct) {
+        if (numStruct == null || numStruct.isEmpty() || STRUCTURE_CENTRALE.equals(numStruct)) {
+            return global;
+        }
+        return structure(numStruct);
+    }
+
+    /**
+     * Agrégats d'une structure exacte ({@code NUM_STRUCT = :numStruct}), sans la règle '03'.
+     */
+    public Agregats structure(String numStruct) {
+        if (numStruct == null || numStruct.isEmpty()) {
+            return global;
+        }
+        Agregats agregats = parStructure.get(numStruct);
+        return agregats != null ? agregats : Agregats.VIDE;
+    }
+
+    public long getDateGeneration() {
+        return dateGeneration;
+    }
+
+    public long getDureeCalculMs() {
+        return dureeCalculMs;
+    }
+
+    public long getAgeMs() {
+        return System.currentTimeMillis() - dateGeneration;
+    }
+
+    public long getTotalFournisseurs() {
+        return totalFournisseurs;
+    }
+
+    public long getTotalArticles() {
+        return totalArticles;
+    }
+
+    public int getNombreStructures() {
+        return parStructure.size();
+    }
+
+    /**
+     * Agrégats d'un périmètre. Les marchés sont tenus par jour (clé yyyyMMdd triée)
+     * avec des cumuls, ce qui permet de répondre aux requêtes "avant telle date"
+     * par recherche dichotomique et de reconstruire les séries mensuelles.
+     */
+    public static final class Agregats {
+
+        static final Agregats VIDE = new Accumulateur().construire(0);
+
+        private final int[] jours;
+        private final long[] cumulMarches;
+        private final double[] cumulMontants;
+        private final long marchesSansDate;
+        private final double montantSansDate;
+        private final String[] regions;
+        private final int[] marchesParRegion;
+        private final String[] secteurs;
+        private final int[] articlesParSecteur;
+        private final String[] topFournisseurs;
+        private final int[] marchesParFournisseur;
+        private final boolean fournisseursComplets;
+        private final long nombrePenalites;
+        private final double montantPenalites;
+
+        private Agregats(Accumulateur acc, int topN) {
+            int n = acc.jours.size();
+            this.jours = new int[n];
+            this.cumulMarches = new long[n];
+            this.cumulMontants = new double[n];
+            int i = 0;
+            long nombre = 0;
+            double montant = 0;
+            for (Map.Entry<Integer, double[]> jour : acc.jours.entrySet()) {
+                nombre += (long) jour.getValue()[0];
+                montant += jour.getValue()[1];
+                jours[i] = jour.getKey();
+                cumulMarches[i] = nombre;
+                cumulMontants[i] = montant;
+                i++;
+            }
+            this.marchesSansDate = acc.marchesSansDate;
+            this.montantSansDate = acc.montantSansDate;
+
+            List<Map.Entry<String, Integer>> triRegions = trier(acc.regions, Integer.MAX_VALUE);
+            this.regions = new String[triRegions.size()];
+            this.marchesParRegion = new int[triRegions.size()];
+            remplir(triRegions, regions, marchesParRegion);
+
+            List<Map.Entry<String, Integer>> triSecteurs = trier(acc.secteurs, Integer.MAX_VALUE);
+            this.secteurs = new String[triSecteurs.size()];
+            this.articlesParSecteur = new int[triSecteurs.size()];
+            remplir(triSecteurs, secteurs, articlesParSecteur);
+
+            List<Map.Entry<String, Integer>> triFournisseurs = trier(acc.fournisseurs, topN);
+            this.topFournisseurs = new String[triFournisseurs.size()];
+            this.marchesParFournisseur = new int[triFournisseurs.size()];
+            remplir(triFournisseurs, topFournisseurs, marchesParFournisseur);
+            this.fournisseursComplets = acc.fournisseurs.size() <= topN;
+
+            this.nombrePenalites = acc.nombrePenalites;
+            this.montantPenalites = acc.montantPenalites;
+        }
+
+        public long nombreMarches() {
+            return marchesSansDate + (jours.length == 0 ? 0 : cumulMarches[jours.length - 1]);
+        }
+
+        public double montantMarches() {
+            return montantSansDate + (jours.length == 0 ? 0 : cumulMontants[jours.length - 1]);
+        }
+
+        /**
+         * Nombre de marchés datés au plus tard du jour donné (yyyyMMdd inclus).
+         */
+        public long nombreMarchesJusquAu(int jour) {
+            int idx = dernierIndexJusquAu(jour);
+            return idx < 0 ? 0 : cumulMarches[idx];
+        }
+
+        /**
+         * Montant des marchés datés au plus tard du jour donné (yyyyMMdd inclus).
+         */
+        public double montantMarchesJusquAu(int jour) {
+            int idx = dernierIndexJusquAu(jour);
+            return idx < 0 ? 0 : cumulMontants[idx];
+        }
+
+        /**
+         * Série mensuelle (clé "YYYY-MM", valeurs {nombre, montant}) des marchés datés à partir du jour donné.
+         */
+        public Map<String, double[]> parMoisDepuis(int jourDebut) {
+            Map<String, double[]> mois = new TreeMap<>();
+            int idx = dernierIndexJusquAu(jourDebut - 1) + 1;
+            for (int i = idx; i < jours.length; i++) {
+                String cle = String.format("%04d-%02d", jours[i] / 10000, (jours[i] / 100) % 100);
+                double[] valeurs = mois.get(cle);
+                if (valeurs == null) {
+                    valeurs = new double[2];
+                    mois.put(cle, valeurs);
+                }
+                valeurs[0] += cumulMarches[i] - (i > 0 ? cumulMarches[i - 1] : 0);
+                valeurs[1] += cumulMontants[i] - (i > 0 ? cumulMontants[i - 1] : 0);
+            }
+            return mois;
+        }
+
+        public Map<String, Integer> getMarchesParRegion() {
+            return enMap(regions, marchesParRegion, regions.length);
+        }
+
+        public Map<String, Integer> getArticlesParSecteur() {
+            return enMap(secteurs, articlesParSecteur, secteurs.length);
+        }
+
+        /**
+         * Top fournisseurs par nombre de marchés, limité à {@code limit} et à la profondeur retenue au calcul.
+         */
+        public Map<String, Integer> getTopFournisseurs(int limit) {
+            return enMap(topFournisseurs, marchesParFournisseur, Math.min(limit, topFournisseurs.length));
+        }
+
+        /**
+         * Indique si le top retenu au calcul suffit pour répondre à un top de taille {@code limit}.
+         */
+        public boolean couvreTopFournisseurs(int limit) {
+            return fournisseursComplets || limit <= topFournisseurs.length;
+        }
+
+        public long getNombrePenalites() {
+            return nombrePenalites;
+        }
+
+        public double getMontantPenalites() {
+            return montantPenalites;
+        }
+
+        private int dernierIndexJusquAu(int jour) {
+            int idx = Arrays.binarySearch(jours, jour);
+            return idx >= 0 ? idx : -idx - 2;
+        }
+
+        private static List<Map.Entry<String, Integer>> trier(Map<String, Integer> valeurs, int limit) {
+            List<Map.Entry<String, Integer>> entrees = new ArrayList<>(valeurs.entrySet());
+            Collections.sort(entrees, new Comparator<Map.Entry<String, Integer>>() {
+                @Override
+                public int compare(Map.Entry<String, Integer> a, Map.Entry<String, Integer> b) {
+                    return b.getValue().compareTo(a.getValue());
+                }
+            });
+            return entrees.size() > limit ? entrees.subList(0, limit) : entrees;
+        }
+
+        private static void remplir(List<Map.Entry<String, Integer>> entrees, String[] libelles, int[] valeurs) {
+            for (int i = 0; i < entrees.size(); i++) {
+                libelles[i] = entrees.get(i).getKey();
+                valeurs[i] = entrees.get(i).getValue();
+            }
+        }
+
+        private static Map<String, Integer> enMap(String[] libelles, int[] valeurs, int taille) {
+            Map<String, Integer> map = new LinkedHashMap<>();
+            for (int i = 0; i < taille; i++) {
+                map.put(libelles[i], valeurs[i]);
+            }
+            return map;
+        }
+    }
+
+    /**
+     * Accumulateur mutable utilisé pendant le calcul d'un snapshot, puis figé en {@link Agregats}.
+     */
+    public static final class Accumulateur {
+
+        private final TreeMap<Integer, double[]> jours = new TreeMap<>();
+        private long marchesSansDate;
+        private double montantSansDate;
+        private final Map<String, Integer> regions = new HashMap<>();
+        private final Map<String, Integer> secteurs = new HashMap<>();
+        private final Map<String, Integer> fournisseurs = new HashMap<>();
+        private long nombrePenalites;
+        private double montantPenalites;
+
+        public void ajouterMarches(Integer jour, long nombre, double montant) {
+            if (jour == null) {
+                marchesSansDate += nombre;
+                montantSansDate += montant;
+                return;
+            }
+            double[] valeurs = jours.get(jour);
+            if (valeurs == null) {
+                valeurs = new double[2];
+                jours.put(jour, valeurs);
+            }
+            valeurs[0] += nombre;
+            valeurs[1] += montant;
+        }
+
+        public void ajouterRegion(String region, int nombreMarches) {
+            cumuler(regions, region, nombreMarches);
+        }
+
+        public void ajouterSecteur(String secteur, int nombreArticles) {
+            cumuler(secteurs, secteur, nombreArticles);
+        }
+
+        public void ajouterFournisseur(String designation, int nombreMarches) {
+            cumuler(fournisseurs, designation, nombreMarches);
+        }
+
+        public void ajouterPenalites(long nombre, double montant) {
+            nombrePenalites += nombre;
+            montantPenalites += montant;
+        }
+
+        public Agregats construire(int topN) {
+            return new Agregats(this, topN);
+        }
+
+        private static void cumuler(Map<String, Integer> map, String cle, int valeur) {
+            if (cle == null) {
+                return;
+            }
+            Integer courant = map.get(cle);
+            map.put(cle, courant == null ? valeur : courant + valeur);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.afh.gescomp.generator;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Attribution des numéros séquentiels par marché (pénalités de décompte...) sans relire
+ * le MAX() de la table à chaque insertion.
+ * Chaque clé possède un compteur en mémoire, amorcé par le MAX() de la base puis incrémenté atomiquement :
+ * deux requêtes simultanées de la même instance n'obtiennent jamais le même numéro.
+ * La base reste la référence : le compteur est réamorcé après {@code numerotation.duree-amorce-ms},
+ * après une suppression, et quand l'insertion échoue sur un numéro déjà pris par une autre instance
+ * ou une autre application ; l'insertion est alors retentée avec le numéro suivant.
+ */
+@Component
+public class NumeroAllocator {
+
+    private static final Logger logger = LoggerFactory.getLogger(NumeroAllocator.class);
+
+    /**
+     * Lecture du plus grand numéro attribué en base pour la clé (null si aucun)
+     */
+    public interface Amorce {
+        Long max();
+    }
+
+    /**
+     * Insertion de la ligne portant le numéro attribué ; doit échouer si le numéro existe déjà
+     */
+    public interface Insertion<T> {
+        T inserer(long numero);
+    }
+
+    @Value("${numerotation.duree-amorce-ms:60000}")
+    private long dureeAmorce = 60000L;
+
+    @Value("${numerotation.tentatives:3}")
+    private int tentatives = 3;
+
+    private final ConcurrentMap<String, Compteur> compteurs = new ConcurrentHashMap<>();
+
+    /**
+     * @return Dernier numéro attribué pour la clé, 0 si aucun
+     */
+    public long courant(String cle, Amorce amorce) {
+        return compteur(cle, amorce).valeur.get();
+    }
+
+    /**
+     * Réserve le numéro suivant de la clé
+     */
+    public long suivant(String cle, Amorce amorce) {
+        return compteur(cle, amorce).valeur.incrementAndGet();
+    }
+
+    /**
+     * Le prochain accès à la clé relira la base (après une suppression par exemple)
+     */
+    public void oublier(String cle) {
+        compteurs.remove(cle);
+    }
+
+    /**
+     * Réserve un numéro et insère la ligne correspondante. Si l'insertion échoue alors que la base
+     * contient déjà ce numéro, le compteur est réamorcé et l'insertion retentée ; tout autre échec est propagé.
+     */
+    public <T> T allouer(String cle, Amorce amorce, Insertion<T> insertion) {
+        RuntimeException echec = null;
+        for (int tentative = 1; tentative <= tentatives; tentative++) {
+            long numero = suivant(cle, amorce);
+            try {
+                return insertion.inserer(numero);
+            } catch (RuntimeException e) {
+                oublier(cle);
+                Long max = amorce.max();
+                if (max == null || max < numero) {
+                    throw e;
+                }
+                logger.warn("Numéro {} déjà attribué pour {} (tentative {}/{}), compteur réamorcé à {}",
+                        numero, cle, tentative, tentatives, max);
+                echec = e;
+            }
+        }
+        throw echec;
+    }
+
+    public int getTaille() {
+        return compteurs.size();
+    }
+
+    private Compteur compteur(String cle, Amorce amorce) {
+        while (true) {
+            Compteur compteur = compteurs.get(cle);
+            long maintenant = System.currentTimeMillis();
+            if (compteur != null && maintenant - compteur.amorceLe < dureeAmorce) {
+                return compteur;
+            }
+            Long max = amorce.max();
+            Compteur nouveau = new Compteur(max == null ? 0L : max, maintenant);
+            if (compteur == null) {
+                Compteur existant = compteurs.putIfAbsent(cle, nouveau);
+                return existant == null ? nouveau : existant;
+            }
+            if (compteurs.replace(cle, compteur, nouveau)) {
+                return nouveau;
+            }
+        }
+    }
+
+    private static final class Compteur {
+        private final AtomicLong valeur;
+        private final long amorceLe;
+
+        Compteur(long valeur, long amorceLe) {
+            this.valeur = new AtomicLong(valeur);
+            this.amorceLe = amorceLe;
+        }
+    }
+}
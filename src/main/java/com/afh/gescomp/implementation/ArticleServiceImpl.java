@@ -4,7 +4,11 @@ import com.afh.gescomp.dto.ArticleDTO;
 import com.afh.gescomp.model.primary.*;
 import com.afh.gescomp.repository.primary.*;
 import com.afh.gescomp.service.ArticleService;
+import com.afh.gescomp.service.HierarchieArticleService;
+import com.afh.gescomp.service.StatistiquesSnapshotService;
 import javax.persistence.*;
+import com.afh.gescomp.config.CacheConfig;
+import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 
 import org.springframework.beans.factory.annotation.Autowired;
@@ -26,16 +30,15 @@ public class ArticleServiceImpl implements ArticleService {
     private EntityManager entityManager;
     @Autowired
     private ArticleRepository articleRepository;
+
     @Autowired
-    private SecteurRepository secteurRepository;
-    @Autowired
-    private SousSecteurRepository sousSecteurRepository;
-    @Autowired
-    private FamilleRepository familleRepository;
+    private StatistiquesSnapshotService statistiquesSnapshotService;
+
     @Autowired
-    private SousFamilleRepository sousFamilleRepository;
+    private HierarchieArticleService hierarchieArticleService;
 
     @Transactional
+    @CacheEvict(value = CacheConfig.ARTICLES, allEntries = true)
     @Override
     public void save(Article article) {
         if (article.getCreatedAt() == null) {
@@ -49,6 +52,7 @@ public class ArticleServiceImpl implements ArticleService {
         String nextNumArticle = getArticleSuivant(sect, sSect, famille, sFamille);
         article.setNumArticle(nextNumArticle);
         articleRepository.save(article);
+        statistiquesSnapshotService.marquerModifie();
     }
 
     @Transactional
@@ -105,12 +109,15 @@ public class ArticleServiceImpl implements ArticleService {
         return articleRepository.findOne(numArticle);
     }
 
+    @CacheEvict(value = CacheConfig.ARTICLES, allEntries = true)
     @Override
     public void deleteArticle(Article article) {
         articleRepository.delete(article);
+        statistiquesSnapshotService.marquerModifie();
     }
 
     @Transactional
+    @CacheEvict(value = CacheConfig.ARTICLES, allEntries = true)
     @Override
     public Article updateArticle(String existingNumArticle, Article article) {
         Article existingArticle=articleRepository.findOne(existingNumArticle);
@@ -120,7 +127,9 @@ public class ArticleServiceImpl implements ArticleService {
         existingArticle.setDesignationFr(article.getDesignationFr());
         existingArticle.setHistorique(article.getHistorique());
         existingArticle.setTVA(article.getTVA());
-        return  articleRepository.save(existingArticle);
+        Article saved = articleRepository.save(existingArticle);
+        statistiquesSnapshotService.marquerModifie();
+        return saved;
     }
 
     @Override
@@ -153,7 +162,7 @@ public class ArticleServiceImpl implements ArticleService {
     }*/
 
     @Transactional
-    @Cacheable("articles")
+    @Cacheable(value = CacheConfig.ARTICLES, keyGenerator = "pageFiltresKeyGenerator")
     @Override
     public Page<ArticleDTO> getAllArticles(
             Pageable pageable,
@@ -203,16 +212,16 @@ public class ArticleServiceImpl implements ArticleService {
         dto.setCreatedAt(article.getCreatedAt());
         // Ajout des données supplémentaires
         // Enrichir les données supplémentaires
-        String sectEcoDesignation = secteurRepository.findDesignationByNumSectEco(article.getNumSectEco());
+        String sectEcoDesignation = hierarchieArticleService.getDesignationSecteur(article.getNumSectEco());
         dto.setNumSectEco(sectEcoDesignation != null ? sectEcoDesignation : "Unknown");
 
-        String sousSecteurDesignation = sousSecteurRepository.findDesignationByNumSSectEco(article.getNumSSectEco(),article.getNumSectEco());
+        String sousSecteurDesignation = hierarchieArticleService.getDesignationSousSecteur(article.getNumSectEco(), article.getNumSSectEco());
         dto.setNumSSectEco(sousSecteurDesignation != null ? sousSecteurDesignation : "Unknown");
 
-        String familleDesignation = familleRepository.findDesignationByNumFamille(article.getNumFamille(),article.getNumSSectEco(),article.getNumSectEco());
+        String familleDesignation = hierarchieArticleService.getDesignationFamille(article.getNumSectEco(), article.getNumSSectEco(), article.getNumFamille());
         dto.setNumFamille(familleDesignation != null ? familleDesignation : "Unknown");
 
-        String sousFamilleDesignation = sousFamilleRepository.findDesignationByNumSFamille(article.getNumSFamille(),article.getNumFamille(),article.getNumSSectEco(),article.getNumSectEco());
+        String sousFamilleDesignation = hierarchieArticleService.getDesignationSousFamille(article.getNumSectEco(), article.getNumSSectEco(), article.getNumFamille(), article.getNumSFamille());
         dto.setNumSFamille(sousFamilleDesignation != null ? sousFamilleDesignation : "Unknown");
 
 
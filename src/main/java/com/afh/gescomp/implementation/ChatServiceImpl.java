@@ -0,0 +1,297 @@
+package com.afh.gescomp.implementation;
+
+import com.afh.gescomp.model.primary.Chat;
+import com.afh.gescomp.repository.primary.ChatRepository;
+import com.afh.gescomp.service.ChatService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.StringReader;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+
+/**
+ * Messagerie : les messages sont diffusés sans attendre la base puis insérés par lots JDBC
+ * ({@code chat.persistance.lot-max} lignes, une transaction par lot) toutes les
+ * {@code chat.persistance.intervalle-ms}. Un lot refusé par la base est repris ligne par ligne et les
+ * messages fautifs sont écartés ; seul un lot en échec faute de base disponible est remis en file.
+ * L'historique est lu par pages sur Chat.id, jamais en entier.
+ */
+@Service
+public class ChatServiceImpl implements ChatService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ChatServiceImpl.class);
+
+    /** Longueur des colonnes SENDER_MATRICULE, RECEIVER_MATRICULE et NUM_STRUCT (@Size de Chat) */
+    static final int LONGUEUR_MAX = 20;
+
+    static final String SQL_INSERT_CHAT = "INSERT INTO ACHAT.CHAT (ID, SENDER_MATRICULE, RECEIVER_MATRICULE, MESSAGE, NUM_STRUCT) " +
+            "VALUES (ACHAT.SEQ_CHAT.NEXTVAL, ?, ?, ?, ?)";
+
+    @Autowired
+    private ChatRepository chatRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${chat.persistance.file-max:10000}")
+    private int fileMax = 10000;
+
+    @Value("${chat.persistance.lot-max:200}")
+    private int lotMax = 200;
+
+    @Value("${chat.historique.limite-defaut:50}")
+    private int limiteDefaut = 50;
+
+    @Value("${chat.historique.limite-max:200}")
+    private int limiteMax = 200;
+
+    @Value("${chat.historique.max:500}")
+    private int historiqueMax = 500;
+
+    private BlockingDeque<Chat> enAttente;
+
+    /** Une seule écriture de lots à la fois, pour garder l'ordre d'arrivée des messages */
+    private final Object verrouEcriture = new Object();
+
+    @PostConstruct
+    public void initialiser() {
+        enAttente = new LinkedBlockingDeque<>(fileMax);
+    }
+
+    @Override
+    public void enregistrer(Chat chat) {
+        // L'insertion JDBC ne passe pas par la validation JPA : un message refusé ici ne bloque jamais la file
+        valider(chat);
+        if (enAttente.offer(chat)) {
+            return;
+        }
+        // File pleine (base lente ou indisponible) : le thread appelant écrit les lots en attente
+        logger.warn("File des messages pleine ({} messages), écriture immédiate", fileMax);
+        vider();
+        if (!enAttente.offer(chat)) {
+            inserer(Collections.singletonList(chat));
+        }
+    }
+
+    /**
+     * Tâche planifiée : écriture des messages en attente
+     */
+    @Scheduled(fixedDelayString = "${chat.persistance.intervalle-ms:200}")
+    public void ecrireEnAttente() {
+        vider();
+    }
+
+    @PreDestroy
+    public void arreter() {
+        int ecrits = vider();
+        if (!enAttente.isEmpty()) {
+            logger.error("{} message(s) non enregistré(s) à l'arrêt", enAttente.size());
+        } else if (ecrits > 0) {
+            logger.info("{} message(s) en attente enregistré(s) à l'arrêt", ecrits);
+        }
+    }
+
+    @Override
+    public int vider() {
+        synchronized (verrouEcriture) {
+            int total = 0;
+            List<Chat> lot = new ArrayList<>(lotMax);
+            while (enAttente.drainTo(lot, lotMax) > 0) {
+                try {
+                    inserer(lot);
+                    total += lot.size();
+                } catch (DataAccessException | TransactionException e) {
+                    if (baseIndisponible(e)) {
+                        logger.error("Erreur lors de l'enregistrement de {} message(s), nouvel essai au prochain passage: {}",
+                                lot.size(), e.getMessage());
+                        remettreEnTete(lot);
+                        break;
+                    }
+                    logger.warn("Lot de {} message(s) refusé ({}), nouvel essai ligne par ligne", lot.size(), e.getMessage());
+                    List<Chat> restants = new ArrayList<>();
+                    total += insererUnParUn(lot, restants);
+                    if (!restants.isEmpty()) {
+                        remettreEnTete(restants);
+                        break;
+                    }
+                }
+                lot.clear();
+            }
+            return total;
+        }
+    }
+
+    @Override
+    public Map<String, Object> historique(String sender, String receiver, Long avantId, Integer limite) {
+        int taille = limite == null ? limiteDefaut : Math.max(1, Math.min(limite, limiteMax));
+        if (avantId == null && !enAttente.isEmpty()) {
+            // Première page : les messages tout juste envoyés depuis ce nœud sont écrits avant la lecture
+            vider();
+        }
+        List<Chat> page = chatRepository.findPageBetweenUserAndAdmins(sender, receiver,
+                avantId == null ? Long.MAX_VALUE : avantId, new PageRequest(0, taille + 1));
+        boolean plusAnciens = page.size() > taille;
+        List<Chat> messages = new ArrayList<>(plusAnciens ? page.subList(0, taille) : page);
+        Collections.reverse(messages);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("messages", messages);
+        result.put("avantId", plusAnciens ? messages.get(0).getId() : null);
+        result.put("plusAnciens", plusAnciens);
+        return result;
+    }
+
+    @Override
+    public List<Chat> derniersMessages(String sender, String receiver) {
+        if (!enAttente.isEmpty()) {
+            vider();
+        }
+        List<Chat> messages = new ArrayList<>(chatRepository.findPageBetweenUserAndAdmins(sender, receiver,
+                Long.MAX_VALUE, new PageRequest(0, historiqueMax)));
+        Collections.reverse(messages);
+        return messages;
+    }
+
+    @Override
+    public void supprimerConversation(final String sender, final String receiver) {
+        vider();
+        transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+            @Override
+            protected void doInTransactionWithoutResult(TransactionStatus status) {
+                chatRepository.deleteMessagesBetweenUserAndAdmins(sender, receiver);
+            }
+        });
+    }
+
+    @Override
+    public int getEnAttente() {
+        return enAttente.size();
+    }
+
+    /**
+     * Un lot, une transaction : en cas d'échec aucun message du lot n'est écrit
+     */
+    private void inserer(final List<Chat> lot) {
+        transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+            @Override
+            protected void doInTransactionWithoutResult(TransactionStatus status) {
+                jdbcTemplate.batchUpdate(SQL_INSERT_CHAT, new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        Chat chat = lot.get(i);
+                        ps.setString(1, chat.getSenderMatricule());
+                        ps.setString(2, chat.getReceiverMatricule());
+                        // MESSAGE en flux de caractères : aucune limite de taille liée à un VARCHAR
+                        if (chat.getMessage() == null) {
+                            ps.setNull(3, Types.CLOB);
+                        } else {
+                            ps.setCharacterStream(3, new StringReader(chat.getMessage()), chat.getMessage().length());
+                        }
+                        ps.setString(4, chat.getNumStruct());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return lot.size();
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Reprise d'un lot refusé, un message par transaction : un message refusé par la base est écarté
+     * (journalisé) au lieu de bloquer la file ; si la base devient indisponible, les messages restants
+     * sont ajoutés à {@code restants} pour être remis en tête de file
+     * @return Nombre de messages insérés
+     */
+    private int insererUnParUn(List<Chat> lot, List<Chat> restants) {
+        int inseres = 0;
+        for (int i = 0; i < lot.size(); i++) {
+            Chat chat = lot.get(i);
+            try {
+                inserer(Collections.singletonList(chat));
+                inseres++;
+            } catch (DataAccessException | TransactionException e) {
+                if (baseIndisponible(e)) {
+                    logger.error("Base indisponible pendant la reprise du lot, nouvel essai au prochain passage: {}", e.getMessage());
+                    restants.addAll(lot.subList(i, lot.size()));
+                    return inseres;
+                }
+                logger.error("Message écarté (de {} à {}, structure {}, {} caractères) refusé par la base: {}",
+                        chat.getSenderMatricule(), chat.getReceiverMatricule(), chat.getNumStruct(),
+                        chat.getMessage() == null ? 0 : chat.getMessage().length(), e.getMessage());
+            }
+        }
+        return inseres;
+    }
+
+    /**
+     * Échec lié à la base (connexion, verrou, délai) et non au contenu des messages : le lot est gardé
+     */
+    private static boolean baseIndisponible(Exception e) {
+        return e instanceof TransactionException
+                || e instanceof DataAccessResourceFailureException
+                || e instanceof TransientDataAccessException
+                || e instanceof RecoverableDataAccessException;
+    }
+
+    private static void valider(Chat chat) {
+        if (chat == null) {
+            throw new IllegalArgumentException("Message absent");
+        }
+        verifierLongueur("senderMatricule", chat.getSenderMatricule());
+        verifierLongueur("receiverMatricule", chat.getReceiverMatricule());
+        verifierLongueur("numStruct", chat.getNumStruct());
+    }
+
+    private static void verifierLongueur(String champ, String valeur) {
+        if (valeur != null && valeur.length() > LONGUEUR_MAX) {
+            throw new IllegalArgumentException(champ + " dépasse " + LONGUEUR_MAX + " caractères");
+        }
+    }
+
+    /**
+     * Lot en échec remis en tête de file, dans son ordre d'origine
+     */
+    private void remettreEnTete(List<Chat> lot) {
+        int perdus = 0;
+        for (int i = lot.size() - 1; i >= 0; i--) {
+            if (!enAttente.offerFirst(lot.get(i))) {
+                perdus++;
+            }
+        }
+        if (perdus > 0) {
+            logger.error("{} message(s) perdu(s) : file des messages pleine", perdus);
+        }
+    }
+}
@@ -7,6 +7,9 @@ import com.afh.gescomp.service.DashboardService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.stereotype.Service;
 
 import javax.persistence.EntityManager;
@@ -15,6 +18,13 @@ import javax.persistence.Query;
 import java.math.BigDecimal;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Service
 public class DashboardServiceImpl implements DashboardService {
@@ -33,6 +43,13 @@ public class DashboardServiceImpl implements DashboardService {
     @PersistenceContext
     private EntityManager entityManager;
 
+    @Autowired
+    @Qualifier("dashboardExecutor")
+    private AsyncTaskExecutor dashboardExecutor;
+
+    @Value("${dashboard.all.widget-timeout-ms:5000}")
+    private long widgetTimeoutMs;
+
     @Override
     public Map<String, Object> getDashboardStats(String numStruct) {
         Map<String, Object> stats = new HashMap<>();
@@ -675,5 +692,125 @@ public class DashboardServiceImpl implements DashboardService {
         return sectoriellesData;
     }
 
+    // ========== CALCUL PARALLÈLE DE TOUS LES WIDGETS ==========
 
+    @Override
+    public Map<String, Object> getAllWidgets(final String numStruct, final int months, final int limit) {
+        long debut = System.currentTimeMillis();
+
+        Map<String, Callable<Map<String, Object>>> widgets = new LinkedHashMap<>();
+        widgets.put("stats", new Callable<Map<String, Object>>() {
+            @Override
+            public Map<String, Object> call() {
+                return getDashboardStats(numStruct);
+            }
+        });
+        widgets.put("penalites", new Callable<Map<String, Object>>() {
+            @Override
+            public Map<String, Object> call() {
+                return getPenalitesData(numStruct);
+            }
+        });
+        widgets.put("garanties", new Callable<Map<String, Object>>() {
+            @Override
+            public Map<String, Object> call() {
+                return getGarantiesData(numStruct);
+            }
+        });
+        widgets.put("decomptes", new Callable<Map<String, Object>>() {
+            @Override
+            public Map<String, Object> call() {
+                return getDecomptesData(numStruct);
+            }
+        });
+        widgets.put("etapes", new Callable<Map<String, Object>>() {
+            @Override
+            public Map<String, Object> call() {
+                return getEtapesData(numStruct);
+            }
+        });
+        widgets.put("sectorielles", new Callable<Map<String, Object>>() {
+            @Override
+            public Map<String, Object> call() {
+                return getSectoriellesData(numStruct);
+            }
+        });
+        widgets.put("topFournisseurs", new Callable<Map<String, Object>>() {
+            @Override
+            public Map<String, Object> call() {
+                return getTopFournisseurs(numStruct, limit);
+            }
+        });
+        widgets.put("marchesEvolution", new Callable<Map<String, Object>>() {
+            @Override
+            public Map<String, Object> call() {
+                return getMarchesEvolutionByMonth(numStruct, months);
+            }
+        });
+
+        // Soumission de tous les widgets, puis attente avec une échéance commune :
+        // chaque widget dispose de widgetTimeoutMs depuis le lancement
+        Map<String, Future<Map<String, Object>>> futures = new LinkedHashMap<>();
+        Map<String, Object> result = new LinkedHashMap<>();
+        List<String> widgetsEnErreur = new ArrayList<>();
+        for (Map.Entry<String, Callable<Map<String, Object>>> widget : widgets.entrySet()) {
+            try {
+                futures.put(widget.getKey(), soumettre(widget.getValue()));
+            } catch (RejectedExecutionException e) {
+                log.warn("Widget {} refusé : pool dashboard saturé", widget.getKey());
+                result.put(widget.getKey(), widgetEnErreur("rejete", "Pool de calcul saturé"));
+                widgetsEnErreur.add(widget.getKey());
+            }
+        }
+
+        long echeance = debut + widgetTimeoutMs;
+        for (Map.Entry<String, Future<Map<String, Object>>> entry : futures.entrySet()) {
+            String nom = entry.getKey();
+            Future<Map<String, Object>> future = entry.getValue();
+            try {
+                long restant = Math.max(0, echeance - System.currentTimeMillis());
+                Map<String, Object> donnees = future.get(restant, TimeUnit.MILLISECONDS);
+                result.put(nom, donnees);
+                if (donnees != null && donnees.containsKey("error")) {
+                    widgetsEnErreur.add(nom);
+                }
+            } catch (TimeoutException e) {
+                future.cancel(true);
+                log.warn("Widget {} hors délai ({} ms)", nom, widgetTimeoutMs);
+                result.put(nom, widgetEnErreur("timeout", "Délai dépassé (" + widgetTimeoutMs + " ms)"));
+                widgetsEnErreur.add(nom);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                log.error("Erreur lors du calcul du widget " + nom + ": " + cause.getMessage(), cause);
+                result.put(nom, widgetEnErreur("erreur", cause.getMessage()));
+                widgetsEnErreur.add(nom);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                future.cancel(true);
+                result.put(nom, widgetEnErreur("interrompu", "Calcul interrompu"));
+                widgetsEnErreur.add(nom);
+            }
+        }
+
+        result.put("widgetsEnErreur", widgetsEnErreur);
+        result.put("dureeMs", System.currentTimeMillis() - debut);
+        return result;
+    }
+
+    private Future<Map<String, Object>> soumettre(Callable<Map<String, Object>> widget) {
+        if (dashboardExecutor == null) {
+            // Sans exécuteur (tests unitaires) : calcul immédiat dans le thread appelant
+            FutureTask<Map<String, Object>> tache = new FutureTask<>(widget);
+            tache.run();
+            return tache;
+        }
+        return dashboardExecutor.submit(widget);
+    }
+
+    private static Map<String, Object> widgetEnErreur(String statut, String message) {
+        Map<String, Object> widget = new HashMap<>();
+        widget.put("error", message);
+        widget.put("widgetStatus", statut);
+        return widget;
+    }
 }
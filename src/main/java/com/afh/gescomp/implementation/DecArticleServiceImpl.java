@@ -1,16 +1,21 @@
 package com.afh.gescomp.implementation;
 
+import com.afh.gescomp.config.CacheConfig;
 import com.afh.gescomp.model.primary.DecArticle;
 import com.afh.gescomp.model.primary.DecArticleId;
 import com.afh.gescomp.payload.request.DecArticleUpdateRequest;
+import com.afh.gescomp.payload.request.UpdatedColumns;
 import com.afh.gescomp.payload.response.MontantResponse;
 import com.afh.gescomp.repository.primary.DecArticleRepository;
 import com.afh.gescomp.service.DecArticleService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.repository.query.Param;
 import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -18,10 +23,17 @@ import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.Query;
 import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 
 @Service
 public class DecArticleServiceImpl implements DecArticleService {
@@ -32,6 +44,16 @@ public class DecArticleServiceImpl implements DecArticleService {
     @Autowired
     private DecArticleRepository decArticleRepository;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /** Colonnes modifiables par patch, dans l'ordre des paramètres de SQL_PATCH_DEC_ARTICLE. */
+    private static final String[] COLONNES_PATCH = {"quantite", "tva", "pctRea"};
+
+    private static final String SQL_PATCH_DEC_ARTICLE = "UPDATE ACHAT.DEC_ARTICLE SET QUANTITE = NVL(?, QUANTITE), "
+            + "TVA = NVL(?, TVA), PCT_REA = NVL(?, PCT_REA) "
+            + "WHERE NUM_MARCHE = ? AND NUM_PIECE_FOURN = ? AND AP = ? AND ID_LOT = ? AND ID_ARTICLE = ? AND NUM_ARTICLE = ?";
+
     @Override
     public List<DecArticle> getDecArticlesTravaux(Long numMarche, String idLot, Short numPieceFourn, Short numEtape) {
         return decArticleRepository.findDecArticlesByMarcheAndLotAndAPTravaux(numMarche, idLot, numPieceFourn, numEtape);
@@ -53,6 +75,7 @@ public class DecArticleServiceImpl implements DecArticleService {
         return decArticleRepository.findDecArticlesByMarcheAndLotAndAPApproPagin(numMarche, idLot, numPieceFourn, numEtape, pageable);
     }
     //---------------//
+    @Transactional
     @Override
     public List<DecArticle> patchDecArticlesTravaux(
             Long numMarche,
@@ -62,31 +85,12 @@ public class DecArticleServiceImpl implements DecArticleService {
             List<DecArticleUpdateRequest> articlesToUpdate) {
 
         List<DecArticle> existingArticles = decArticleRepository.findDecArticlesByMarcheAndLotAndAPTravaux(numMarche, idLot, numPieceFourn, numEtape);
-
-        // Mettre à jour les champs des articles existants
-        for (DecArticleUpdateRequest updatedArticleRequest : articlesToUpdate) {
-            // Chercher l'article correspondant dans la base de données
-            for (DecArticle existingArticle : existingArticles) {
-                if (existingArticle.getId().getIdArticle().equals(updatedArticleRequest.getIdDecArticle().getIdArticle())) {
-                    // Mettre à jour les champs du `updatedColumns`
-                    if (updatedArticleRequest.getUpdatedColumns().getQuantite() != null) {
-                        existingArticle.setQuantite(updatedArticleRequest.getUpdatedColumns().getQuantite());
-                    }
-                    if (updatedArticleRequest.getUpdatedColumns().getTva() != null) {
-                        existingArticle.setTva(updatedArticleRequest.getUpdatedColumns().getTva());
-                    }
-                    if (updatedArticleRequest.getUpdatedColumns().getPctRea() != null) {
-                        existingArticle.setPctRea(updatedArticleRequest.getUpdatedColumns().getPctRea());
-                    }
-                    // Sauvegarder l'article mis à jour dans la base de données
-                    decArticleRepository.save(existingArticle);
-                }
-            }
-        }
+        appliquerPatch(existingArticles, articlesToUpdate, true, false);
         // Retourner les articles mis à jour
         return existingArticles;
     }
 
+    @Transactional
     @Override
     public List<DecArticle> patchDecArticlesAppro(
             Long numMarche,
@@ -96,29 +100,161 @@ public class DecArticleServiceImpl implements DecArticleService {
             List<DecArticleUpdateRequest> articlesToUpdate) {
 
         List<DecArticle> existingArticles = decArticleRepository.findDecArticlesByMarcheAndLotAndAPAppro(numMarche, idLot, numPieceFourn, numEtape);
+        appliquerPatch(existingArticles, articlesToUpdate, false, false);
+        // Retourner les articles mis à jour
+        return existingArticles;
+    }
+
+    @Transactional
+    @Override
+    public Map<String, Object> patchDecArticles(Long numMarche, String idLot, Short numPieceFourn, Short numEtape,
+                                                boolean appro, List<DecArticleUpdateRequest> articlesToUpdate,
+                                                boolean dryRun) {
+        List<DecArticle> existingArticles = appro
+                ? decArticleRepository.findDecArticlesByMarcheAndLotAndAPAppro(numMarche, idLot, numPieceFourn, numEtape)
+                : decArticleRepository.findDecArticlesByMarcheAndLotAndAPTravaux(numMarche, idLot, numPieceFourn, numEtape);
+        return appliquerPatch(existingArticles, articlesToUpdate, !appro, dryRun);
+    }
+
+    /**
+     * Applique les modifications aux lignes du décompte, indexées par idArticle.
+     * Seules les lignes réellement modifiées sont écrites, en un seul UPDATE JDBC par lots ;
+     * les colonnes non modifiées sont liées à NULL et conservées par NVL.
+     * pctRea n'est modifiable que pour les travaux, comme auparavant.
+     * @return Rapport : nombre de lignes modifiées, inchangées, idArticle introuvables et diff par ligne
+     */
+    private Map<String, Object> appliquerPatch(List<DecArticle> existingArticles, List<DecArticleUpdateRequest> articlesToUpdate,
+                                               boolean avecPctRea, boolean dryRun) {
+        Map<Short, List<DecArticle>> parIdArticle = new HashMap<>();
+        for (DecArticle existingArticle : existingArticles) {
+            List<DecArticle> lignes = parIdArticle.get(existingArticle.getId().getIdArticle());
+            if (lignes == null) {
+                lignes = new ArrayList<>(1);
+                parIdArticle.put(existingArticle.getId().getIdArticle(), lignes);
+            }
+            lignes.add(existingArticle);
+        }
 
-        // Mettre à jour les champs des articles existants
+        // Modifications fusionnées par ligne : la dernière valeur reçue pour une colonne l'emporte
+        Map<DecArticleId, BigDecimal[]> nouvellesValeurs = new LinkedHashMap<>();
+        Map<DecArticleId, DecArticle> lignesModifiees = new HashMap<>();
+        Set<Short> introuvables = new TreeSet<>();
         for (DecArticleUpdateRequest updatedArticleRequest : articlesToUpdate) {
-            // Chercher l'article correspondant dans la base de données
-            for (DecArticle existingArticle : existingArticles) {
-                if (existingArticle.getId().getIdArticle().equals(updatedArticleRequest.getIdDecArticle().getIdArticle())) {
-                    // Mettre à jour les champs du `updatedColumns`
-                    if (updatedArticleRequest.getUpdatedColumns().getQuantite() != null) {
-                        existingArticle.setQuantite(updatedArticleRequest.getUpdatedColumns().getQuantite());
-                    }
-                    if (updatedArticleRequest.getUpdatedColumns().getTva() != null) {
-                        existingArticle.setTva(updatedArticleRequest.getUpdatedColumns().getTva());
+            UpdatedColumns colonnes = updatedArticleRequest.getUpdatedColumns();
+            if (updatedArticleRequest.getIdDecArticle() == null || colonnes == null) {
+                continue;
+            }
+            Short idArticle = updatedArticleRequest.getIdDecArticle().getIdArticle();
+            List<DecArticle> lignes = parIdArticle.get(idArticle);
+            if (lignes == null) {
+                if (idArticle != null) {
+                    introuvables.add(idArticle);
+                }
+                continue;
+            }
+            for (DecArticle existingArticle : lignes) {
+                BigDecimal[] valeurs = nouvellesValeurs.get(existingArticle.getId());
+                if (valeurs == null) {
+                    valeurs = new BigDecimal[COLONNES_PATCH.length];
+                    nouvellesValeurs.put(existingArticle.getId(), valeurs);
+                    lignesModifiees.put(existingArticle.getId(), existingArticle);
+                }
+                if (colonnes.getQuantite() != null) {
+                    valeurs[0] = colonnes.getQuantite();
+                }
+                if (colonnes.getTva() != null) {
+                    valeurs[1] = colonnes.getTva();
+                }
+                if (avecPctRea && colonnes.getPctRea() != null) {
+                    valeurs[2] = colonnes.getPctRea();
+                }
+            }
+        }
+
+        final List<DecArticleId> cles = new ArrayList<>();
+        final List<BigDecimal[]> changements = new ArrayList<>();
+        List<Map<String, Object>> diff = new ArrayList<>();
+        for (Map.Entry<DecArticleId, BigDecimal[]> entree : nouvellesValeurs.entrySet()) {
+            DecArticle existingArticle = lignesModifiees.get(entree.getKey());
+            BigDecimal[] avant = {existingArticle.getQuantite(), existingArticle.getTva(), existingArticle.getPctRea()};
+            BigDecimal[] apres = entree.getValue();
+            Map<String, Object> colonnesModifiees = new LinkedHashMap<>();
+            for (int i = 0; i < COLONNES_PATCH.length; i++) {
+                if (apres[i] != null && (avant[i] == null || avant[i].compareTo(apres[i]) != 0)) {
+                    Map<String, Object> valeur = new LinkedHashMap<>();
+                    valeur.put("avant", avant[i]);
+                    valeur.put("apres", apres[i]);
+                    colonnesModifiees.put(COLONNES_PATCH[i], valeur);
+                } else {
+                    apres[i] = null;
+                }
+            }
+            if (colonnesModifiees.isEmpty()) {
+                continue;
+            }
+            cles.add(entree.getKey());
+            changements.add(apres);
+            Map<String, Object> ligne = new LinkedHashMap<>();
+            ligne.put("idArticle", entree.getKey().getIdArticle());
+            ligne.put("numArticle", entree.getKey().getNumArticle());
+            ligne.put("colonnes", colonnesModifiees);
+            diff.add(ligne);
+        }
+
+        if (!dryRun && !cles.isEmpty()) {
+            jdbcTemplate.batchUpdate(SQL_PATCH_DEC_ARTICLE, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    BigDecimal[] valeurs = changements.get(i);
+                    for (int c = 0; c < valeurs.length; c++) {
+                        if (valeurs[c] != null) {
+                            ps.setBigDecimal(c + 1, valeurs[c]);
+                        } else {
+                            ps.setNull(c + 1, Types.NUMERIC);
+                        }
                     }
-                    // Sauvegarder l'article mis à jour dans la base de données
-                    decArticleRepository.save(existingArticle);
+                    DecArticleId id = cles.get(i);
+                    ps.setLong(4, id.getNumMarche());
+                    ps.setShort(5, id.getNumPieceFourn());
+                    ps.setShort(6, id.getAp());
+                    ps.setString(7, id.getIdLot());
+                    ps.setShort(8, id.getIdArticle());
+                    ps.setString(9, id.getNumArticle());
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return cles.size();
+                }
+            });
+            // Les entités renvoyées reflètent l'écriture JDBC, sans second UPDATE par Hibernate
+            for (int i = 0; i < cles.size(); i++) {
+                DecArticle existingArticle = lignesModifiees.get(cles.get(i));
+                entityManager.detach(existingArticle);
+                BigDecimal[] valeurs = changements.get(i);
+                if (valeurs[0] != null) {
+                    existingArticle.setQuantite(valeurs[0]);
+                }
+                if (valeurs[1] != null) {
+                    existingArticle.setTva(valeurs[1]);
+                }
+                if (valeurs[2] != null) {
+                    existingArticle.setPctRea(valeurs[2]);
                 }
             }
         }
-        // Retourner les articles mis à jour
-        return existingArticles;
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("dryRun", dryRun);
+        result.put("modifies", cles.size());
+        result.put("inchanges", existingArticles.size() - cles.size());
+        result.put("introuvables", introuvables);
+        result.put("diff", diff);
+        return result;
     }
 
     @Transactional
+    @CacheEvict(value = CacheConfig.MARCHES, allEntries = true)
     @Override
     public String calculateMontantsFinalDecArticlesOrd(Long numMarche, Short numPieceFourn, Short numEtape) {
         try {
@@ -139,6 +275,7 @@ public class DecArticleServiceImpl implements DecArticleService {
     }
 
     @Transactional
+    @CacheEvict(value = CacheConfig.MARCHES, allEntries = true)
     @Override
     public String calculateMontantsFinalDecArticlesLrg(Long numMarche, Short numPieceFourn) {
         try {
@@ -2,11 +2,17 @@ package com.afh.gescomp.implementation;
 
 import com.afh.gescomp.dto.DecPenaliteDTO;
 import com.afh.gescomp.exception.ResourceNotFoundException;
+import com.afh.gescomp.generator.NumeroAllocator;
 import com.afh.gescomp.model.primary.*;
 import com.afh.gescomp.repository.primary.*;
 import com.afh.gescomp.service.DecPenaliteService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
 
 @Service
 public class DecPenaliteServiceImpl implements DecPenaliteService {
@@ -26,8 +32,17 @@ public class DecPenaliteServiceImpl implements DecPenaliteService {
     @Autowired
     private TypePenaliteRepository  typePenaliteRepository;
 
+    @Autowired
+    private NumeroAllocator numeroAllocator;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
     @Override
-    public DecPenalite saveOrUpdateDecPenalite(DecPenaliteDTO decPenaliteDTO) {
+    public DecPenalite saveOrUpdateDecPenalite(final DecPenaliteDTO decPenaliteDTO) {
         Marche marche = marcheRepository.findById(decPenaliteDTO.getNumMarche());
         if (marche == null) {
             throw new ResourceNotFoundException("Marche not found with id " + decPenaliteDTO.getNumMarche());
@@ -53,16 +68,37 @@ public class DecPenaliteServiceImpl implements DecPenaliteService {
             return decPenaliteRepository.save(existingDecPenaliteUnique);
         }
 
-        Long lastNumPen = decPenaliteRepository.findMaxNumPenForMarcheAndPieceFourn(
-                decPenaliteDTO.getNumMarche(),
-                decPenaliteDTO.getNumPieceFourn()
-        );
+        final Long numMarche = decPenaliteDTO.getNumMarche();
+        final Long numPieceFourn = decPenaliteDTO.getNumPieceFourn();
+        NumeroAllocator.Amorce amorce = new NumeroAllocator.Amorce() {
+            @Override
+            public Long max() {
+                return decPenaliteRepository.findMaxNumPenForMarcheAndPieceFourn(numMarche, numPieceFourn);
+            }
+        };
+        // Numéro suivant de la pièce (1 si pas de pénalité) ; persist échoue sur un numéro déjà pris là où save écraserait la ligne
+        return numeroAllocator.allouer("DEC_PENALITE:" + numMarche + ":" + numPieceFourn, amorce,
+                new NumeroAllocator.Insertion<DecPenalite>() {
+                    @Override
+                    public DecPenalite inserer(final long numPen) {
+                        return transactionTemplate.execute(new TransactionCallback<DecPenalite>() {
+                            @Override
+                            public DecPenalite doInTransaction(TransactionStatus status) {
+                                DecPenalite decPenalite = nouvellePenalite(decPenaliteDTO, numPen);
+                                entityManager.persist(decPenalite);
+                                entityManager.flush();
+                                return decPenalite;
+                            }
+                        });
+                    }
+                });
+    }
 
-        Long newNumPen = (lastNumPen != null) ? lastNumPen + 1 : 1L; // Si pas de pénalité, commencer par 1
+    private static DecPenalite nouvellePenalite(DecPenaliteDTO decPenaliteDTO, long numPen) {
         DecPenaliteId decPenaliteId = new DecPenaliteId();
         decPenaliteId.setNumMarche(decPenaliteDTO.getNumMarche());
         decPenaliteId.setNumPieceFourn(decPenaliteDTO.getNumPieceFourn());
-        decPenaliteId.setNumPen(newNumPen);
+        decPenaliteId.setNumPen(numPen);
 
         DecPenalite decPenalite = new DecPenalite();
         decPenalite.setId(decPenaliteId);
@@ -71,7 +107,7 @@ public class DecPenaliteServiceImpl implements DecPenaliteService {
         decPenalite.setDatePen(decPenaliteDTO.getDatePen());
         decPenalite.setDesignation(decPenaliteDTO.getDesignation());
         decPenalite.setNumEtape(decPenaliteDTO.getNumEtape());
-        return decPenaliteRepository.save(decPenalite);
+        return decPenalite;
     }
 
     @Override
@@ -1,5 +1,6 @@
 package com.afh.gescomp.implementation;
 
+import com.afh.gescomp.config.CacheConfig;
 import com.afh.gescomp.dto.DecompteResponse;
 import com.afh.gescomp.exception.PrmTypeDecNotFoundException;
 import com.afh.gescomp.exception.ResourceNotFoundException;
@@ -13,9 +14,12 @@ import com.afh.gescomp.repository.primary.MrcEtapeRepository;
 import com.afh.gescomp.repository.primary.PrmTypeDecRepository;
 import com.afh.gescomp.service.DecompteService;
 import com.afh.gescomp.service.MarcheService;
+import org.hibernate.Session;
+import org.hibernate.jdbc.ReturningWork;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -67,25 +71,31 @@ public class DecompteServiceImpl implements DecompteService {
     }
 
     @Transactional
+    @CacheEvict(value = CacheConfig.MARCHES, allEntries = true)
     @Override
-    public DecompteResponse insertDecompte(Long numMarche, java.sql.Date datePiece, Long idTypeDec, Long numEtape, Short soldeAvance) {
+    public DecompteResponse insertDecompte(final Long numMarche, final java.sql.Date datePiece, final Long idTypeDec,
+                                           final Long numEtape, final Short soldeAvance) {
         try {
-            String sql = "CALL PKG_CREE_DEC.INSERT_DEC(:numMarche, :datePiece, :idTypeDec, :numEtape, :soldeAvance)";
-            Query query = entityManager.createNativeQuery(sql);
-            query.setParameter("numMarche", numMarche);
-            query.setParameter("datePiece", datePiece);
-            query.setParameter("idTypeDec", idTypeDec);
-            query.setParameter("numEtape", numEtape);
-            query.setParameter("soldeAvance", soldeAvance);
-
-            query.executeUpdate();
-
-            // Récupérer le numéro de pièce fournisseur ajouté (le plus récent)
-            String getDecompteQuery = "SELECT MAX(d.id.numPieceFourn) FROM Decompte d WHERE d.id.numMarche = :numMarche";
-            Query getDecompte = entityManager.createQuery(getDecompteQuery);
-            getDecompte.setParameter("numMarche", numMarche);
-            Short numPieceFourn = (Short) getDecompte.getSingleResult();
-
+            // Le numéro de pièce attribué par la procédure revient en paramètre OUT, sur la connexion de la transaction
+            Short numPieceFourn = entityManager.unwrap(Session.class).doReturningWork(new ReturningWork<Short>() {
+                @Override
+                public Short execute(Connection connection) throws SQLException {
+                    try (CallableStatement stmt = connection.prepareCall("{ call PKG_CREE_DEC.INSERT_DEC(?, ?, ?, ?, ?, ?) }")) {
+                        stmt.setLong(1, numMarche);
+                        stmt.setDate(2, datePiece);
+                        stmt.setLong(3, idTypeDec);
+                        stmt.setLong(4, numEtape);
+                        if (soldeAvance == null) {
+                            stmt.setNull(5, Types.INTEGER);
+                        } else {
+                            stmt.setShort(5, soldeAvance);
+                        }
+                        stmt.registerOutParameter(6, Types.INTEGER);
+                        stmt.execute();
+                        return (short) stmt.getInt(6);
+                    }
+                }
+            });
             return new DecompteResponse(true, "Décompte ajouté avec succès", numPieceFourn);
 
         } catch (Exception e) {
@@ -96,6 +106,7 @@ public class DecompteServiceImpl implements DecompteService {
 
 
     @Transactional
+    @CacheEvict(value = CacheConfig.MARCHES, allEntries = true)
     @Override
     public void deleteDecompte(Long numMarche, Long numPieceFourn) {
         try {
@@ -113,6 +124,7 @@ public class DecompteServiceImpl implements DecompteService {
     }
 
     @Transactional
+    @CacheEvict(value = CacheConfig.MARCHES, allEntries = true)
     @Override
     public String calculMontantDecAvanceDecompte(Long numMarche) {
         try {
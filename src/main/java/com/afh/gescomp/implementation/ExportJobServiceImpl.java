@@ -0,0 +1,198 @@
+package com.afh.gescomp.implementation;
+
+import com.afh.gescomp.dto.ExportJob;
+import com.afh.gescomp.service.ExportJobService;
+import com.afh.gescomp.service.FournisseurService;
+import com.afh.gescomp.service.StatistiquesService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * File d'exports asynchrones : les rapports sont rendus par le pool borné "exportExecutor"
+ * dans des fichiers temporaires, hors des threads HTTP. Les demandes identiques
+ * (même format, type, structure et période) partagent la même tâche.
+ */
+@Service
+public class ExportJobServiceImpl implements ExportJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExportJobServiceImpl.class);
+
+    private static final String CONTENT_TYPE_PDF = "application/pdf";
+    private static final String CONTENT_TYPE_EXCEL = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+
+    @Autowired
+    private StatistiquesService statistiquesService;
+
+    @Autowired
+    private FournisseurService fournisseurService;
+
+    @Autowired
+    @Qualifier("exportExecutor")
+    private AsyncTaskExecutor exportExecutor;
+
+    @Value("${export.jobs.repertoire:}")
+    private String repertoire;
+
+    @Value("${export.jobs.ttl-ms:3600000}")
+    private long ttlMs;
+
+    private final ConcurrentMap<String, ExportJob> jobs = new ConcurrentHashMap<>();
+
+    /** Tâche courante par clé de déduplication. */
+    private final ConcurrentMap<String, ExportJob> parCle = new ConcurrentHashMap<>();
+
+    /**
+     * Rendu d'un rapport dans un flux
+     */
+    private interface Rendu {
+        void ecrire(OutputStream out) throws IOException;
+    }
+
+    @Override
+    public ExportJob soumettreStatistiques(String format, final String type, final String numStruct,
+                                          final String dateDebut, final String dateFin) {
+        // Même contrôle que l'export direct : une date invalide est refusée dès la soumission
+        statistiquesService.validerPeriode(dateDebut, dateFin);
+        final boolean excel = "excel".equalsIgnoreCase(format);
+        String cle = (excel ? "excel" : "pdf") + '|' + type + '|' + numStruct + '|' + dateDebut + '|' + dateFin;
+        return soumettre(cle, excel ? "statistiques_marches.xlsx" : "statistiques_marches.pdf",
+                excel ? CONTENT_TYPE_EXCEL : CONTENT_TYPE_PDF, new Rendu() {
+                    @Override
+                    public void ecrire(OutputStream out) throws IOException {
+                        if (excel) {
+                            statistiquesService.exportToExcel(numStruct, type, dateDebut, dateFin, out);
+                        } else {
+                            statistiquesService.exportToPDF(numStruct, type, dateDebut, dateFin, out);
+                        }
+                    }
+                });
+    }
+
+    @Override
+    public ExportJob soumettreFournisseur(final String numFourn) {
+        return soumettre("fournisseur|" + numFourn, "Fournisseur_" + numFourn + ".pdf", CONTENT_TYPE_PDF,
+                new Rendu() {
+                    @Override
+                    public void ecrire(OutputStream out) throws IOException {
+                        fournisseurService.generateFournisseurDetailsPDF(numFourn, out);
+                    }
+                });
+    }
+
+    @Override
+    public ExportJob getJob(String id) {
+        ExportJob job = jobs.get(id);
+        return job != null && !job.estExpire(System.currentTimeMillis(), ttlMs) ? job : null;
+    }
+
+    /**
+     * Tâche planifiée : purge des exports expirés (@Scheduled n'accepte que les méthodes void).
+     */
+    @Scheduled(fixedDelayString = "${export.jobs.nettoyage-ms:60000}")
+    public void purgerExpires() {
+        nettoyer();
+    }
+
+    @Override
+    public int nettoyer() {
+        long maintenant = System.currentTimeMillis();
+        int supprimes = 0;
+        for (Iterator<ExportJob> it = jobs.values().iterator(); it.hasNext(); ) {
+            ExportJob job = it.next();
+            if (job.estExpire(maintenant, ttlMs)) {
+                it.remove();
+                parCle.remove(job.getCle(), job);
+                supprimerFichier(job);
+                supprimes++;
+            }
+        }
+        if (supprimes > 0) {
+            logger.info("{} export(s) expiré(s) supprimé(s)", supprimes);
+        }
+        return supprimes;
+    }
+
+    private ExportJob soumettre(String cle, String nomFichier, String contentType, final Rendu rendu) {
+        final ExportJob job = new ExportJob(UUID.randomUUID().toString(), cle, nomFichier, contentType);
+        long maintenant = System.currentTimeMillis();
+        while (true) {
+            ExportJob courant = parCle.get(cle);
+            if (courant != null && courant.estReutilisable(maintenant, ttlMs)) {
+                return courant;
+            }
+            boolean place = courant == null ? parCle.putIfAbsent(cle, job) == null : parCle.replace(cle, courant, job);
+            if (place) {
+                break;
+            }
+        }
+        jobs.put(job.getId(), job);
+
+        try {
+            exportExecutor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    executer(job, rendu);
+                }
+            });
+        } catch (TaskRejectedException e) {
+            // Pool et file pleins : la demande est refusée, rien n'est conservé
+            jobs.remove(job.getId());
+            parCle.remove(cle, job);
+            job.echouer("File d'attente des exports pleine");
+            throw e;
+        }
+        return job;
+    }
+
+    private void executer(ExportJob job, Rendu rendu) {
+        File fichier = null;
+        try {
+            fichier = File.createTempFile("export-", "-" + job.getNomFichier(), repertoireExports());
+            job.demarrer(fichier);
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(fichier))) {
+                rendu.ecrire(out);
+            }
+            job.terminer();
+            logger.info("Export {} ({}) terminé en {} ms, {} octets", job.getId(), job.getCle(),
+                    job.getDateFin() - job.getDateDebut(), fichier.length());
+        } catch (Exception e) {
+            logger.error("Erreur lors de l'export {} ({}): {}", job.getId(), job.getCle(), e.getMessage(), e);
+            job.echouer(e.getMessage());
+            supprimerFichier(job);
+        }
+    }
+
+    private File repertoireExports() throws IOException {
+        File dir = repertoire == null || repertoire.trim().isEmpty()
+                ? new File(System.getProperty("java.io.tmpdir"), "afh-exports")
+                : new File(repertoire);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Impossible de créer le répertoire des exports: " + dir);
+        }
+        return dir;
+    }
+
+    private static void supprimerFichier(ExportJob job) {
+        File fichier = job.getFichier();
+        if (fichier != null && fichier.exists() && !fichier.delete()) {
+            logger.warn("Fichier d'export non supprimé: {}", fichier);
+        }
+    }
+}
@@ -1,16 +1,21 @@
 package com.afh.gescomp.implementation;
 
 import com.afh.gescomp.model.primary.Fournisseur;
-import com.afh.gescomp.model.primary.Marche;
+import com.afh.gescomp.model.primary.PrmTypeNant;
 import com.afh.gescomp.repository.primary.FournisseurRepository;
 import com.afh.gescomp.service.FournisseurService;
-import com.afh.gescomp.service.MarcheService;
+import com.afh.gescomp.service.StatistiquesSnapshotService;
+import com.afh.gescomp.config.CacheConfig;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.slf4j.Logger;
@@ -18,6 +23,12 @@ import org.slf4j.LoggerFactory;
 
 import java.util.List;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import org.springframework.core.io.ClassPathResource;
 import org.apache.commons.io.IOUtils;
 import java.util.regex.Pattern;
@@ -27,27 +38,46 @@ public class FournisseurServiceImpl implements FournisseurService {
     
     private static final Logger logger = LoggerFactory.getLogger(FournisseurServiceImpl.class);
     
-    @Autowired
-    private MarcheService marcheService;
+    /** Marchés d'un fournisseur, mêmes critères et tri que MarcheRepository.findByFournisseurNumFourn. */
+    private static final String SQL_MARCHES_FOURNISSEUR_PDF =
+            "SELECT m.DESIGNATION, m.NUM_MARCHE, m.DATE_MARCHE, m.MONTANT_PEN_J, n.NANT, n.DESIGNATION " +
+            "FROM ACHAT.MARCHE m LEFT JOIN ACHAT.PRM_TYPE_NANT n ON m.NANT = n.NANT " +
+            "WHERE m.NUM_FOURN = ? ORDER BY m.DATE_MARCHE DESC";
+
+    @Value("${statistiques.export.fetch-size:500}")
+    private int pdfFetchSize;
+
+    @Value("${statistiques.export.pdf-lot-lignes:50}")
+    private int pdfLotLignes;
     
     @Override
     public byte[] generateFournisseurDetailsPDF(String numFourn) {
         try {
-            // Récupérer le fournisseur
-            Pageable pageable = new PageRequest(0, 1);
-            Page<Fournisseur> page = fournisseurRepository.findByNumFourn(pageable, numFourn);
-            Fournisseur fournisseur = page.hasContent() ? page.getContent().get(0) : null;
-            if (fournisseur == null) {
-                throw new RuntimeException("Fournisseur non trouvé avec le numéro: " + numFourn);
-            }
-            
-            // Récupérer les marchés du fournisseur
-            List<Marche> marches = marcheService.getMarchesByFournisseur(numFourn);
-            
-            // Créer le document PDF
-            com.itextpdf.text.Document document = new com.itextpdf.text.Document();
             ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            com.itextpdf.text.pdf.PdfWriter writer = com.itextpdf.text.pdf.PdfWriter.getInstance(document, baos);
+            generateFournisseurDetailsPDF(numFourn, baos);
+            return baos.toByteArray();
+        } catch (Exception e) {
+            logger.error("Erreur lors de la génération du PDF pour le fournisseur {}: {}", numFourn, e.getMessage(), e);
+            String errorMessage = "Erreur lors de la génération du PDF: " + e.getMessage();
+            return errorMessage.getBytes();
+        }
+    }
+
+    @Override
+    public void generateFournisseurDetailsPDF(final String numFourn, OutputStream out) throws IOException {
+        // Récupérer le fournisseur (avant toute écriture : l'appelant peut encore répondre en erreur)
+        Pageable pageable = new PageRequest(0, 1);
+        Page<Fournisseur> page = fournisseurRepository.findByNumFourn(pageable, numFourn);
+        Fournisseur fournisseur = page.hasContent() ? page.getContent().get(0) : null;
+        if (fournisseur == null) {
+            throw new RuntimeException("Fournisseur non trouvé avec le numéro: " + numFourn);
+        }
+
+        // Créer le document PDF, écrit au fil de l'eau dans le flux de sortie
+        final com.itextpdf.text.Document document = new com.itextpdf.text.Document();
+        try {
+            com.itextpdf.text.pdf.PdfWriter writer = com.itextpdf.text.pdf.PdfWriter.getInstance(document, out);
+            writer.setCloseStream(false);
             
             // Ajouter un événement de pied de page pour la pagination
             writer.setPageEvent(new FooterPageEvent());
@@ -105,110 +135,105 @@ public class FournisseurServiceImpl implements FournisseurService {
             marcheTitle.setSpacingBefore(10);
             document.add(marcheTitle);
             
-            if (marches != null && !marches.isEmpty()) {
-                com.itextpdf.text.pdf.PdfPTable table = new com.itextpdf.text.pdf.PdfPTable(5); // 5 colonnes
-                table.setWidthPercentage(100);
-                table.setSpacingBefore(10f);
-                table.setSpacingAfter(10f);
-                
-                // Définir les largeurs relatives des colonnes
-                float[] columnWidths = {3f, 1.5f, 1.5f, 1.5f, 1.5f};
-                table.setWidths(columnWidths);
-                
-                // En-têtes de colonnes
-                com.itextpdf.text.Font headerFont = new com.itextpdf.text.Font(com.itextpdf.text.Font.FontFamily.HELVETICA, 12, com.itextpdf.text.Font.BOLD, new com.itextpdf.text.BaseColor(255, 255, 255));
-                
-                com.itextpdf.text.pdf.PdfPCell cell1 = new com.itextpdf.text.pdf.PdfPCell(new com.itextpdf.text.Phrase("Désignation", headerFont));
-                cell1.setBackgroundColor(new com.itextpdf.text.BaseColor(41, 128, 185));
-                cell1.setPadding(5);
-                table.addCell(cell1);
-                
-                com.itextpdf.text.pdf.PdfPCell cell2 = new com.itextpdf.text.pdf.PdfPCell(new com.itextpdf.text.Phrase("Numéro", headerFont));
-                cell2.setBackgroundColor(new com.itextpdf.text.BaseColor(41, 128, 185));
-                cell2.setPadding(5);
-                table.addCell(cell2);
-                
-                com.itextpdf.text.pdf.PdfPCell cell3 = new com.itextpdf.text.pdf.PdfPCell(new com.itextpdf.text.Phrase("Date", headerFont));
-                cell3.setBackgroundColor(new com.itextpdf.text.BaseColor(41, 128, 185));
-                cell3.setPadding(5);
-                table.addCell(cell3);
-                
-                com.itextpdf.text.pdf.PdfPCell cell4 = new com.itextpdf.text.pdf.PdfPCell(new com.itextpdf.text.Phrase("Montant (TND)", headerFont));
-                cell4.setBackgroundColor(new com.itextpdf.text.BaseColor(41, 128, 185));
-                cell4.setPadding(5);
-                table.addCell(cell4);
-                
-                com.itextpdf.text.pdf.PdfPCell cell5 = new com.itextpdf.text.pdf.PdfPCell(new com.itextpdf.text.Phrase("Statut", headerFont));
-                cell5.setBackgroundColor(new com.itextpdf.text.BaseColor(41, 128, 185));
-                cell5.setPadding(5);
-                table.addCell(cell5);
-                
-                // Données des marchés
-                com.itextpdf.text.Font cellFont = new com.itextpdf.text.Font(com.itextpdf.text.Font.FontFamily.HELVETICA, 10);
-                boolean alternate = false;
-                
-                for (Marche marche : marches) {
-                    com.itextpdf.text.pdf.PdfPCell dataCell;
-                    com.itextpdf.text.BaseColor backgroundColor = alternate ? 
-                            new com.itextpdf.text.BaseColor(240, 240, 240) : 
-                            new com.itextpdf.text.BaseColor(255, 255, 255);
-                    
-                    // Désignation
-                    dataCell = new com.itextpdf.text.pdf.PdfPCell(new com.itextpdf.text.Phrase(
-                            marche.getDesignation() != null ? marche.getDesignation() : "Sans titre", cellFont));
-                    dataCell.setBackgroundColor(backgroundColor);
-                    dataCell.setPadding(5);
-                    table.addCell(dataCell);
-                    
-                    // Numéro
-                    dataCell = new com.itextpdf.text.pdf.PdfPCell(new com.itextpdf.text.Phrase(
-                            marche.getId() != null ? marche.getId().toString() : "Non disponible", cellFont));
-                    dataCell.setBackgroundColor(backgroundColor);
-                    dataCell.setPadding(5);
-                    table.addCell(dataCell);
-                    
-                    // Date
-                    String formattedDate = marche.getDateMarche() != null ? 
-                            new java.text.SimpleDateFormat("dd/MM/yyyy").format(marche.getDateMarche()) : 
-                            "Non disponible";
-                    dataCell = new com.itextpdf.text.pdf.PdfPCell(new com.itextpdf.text.Phrase(formattedDate, cellFont));
-                    dataCell.setBackgroundColor(backgroundColor);
-                    dataCell.setPadding(5);
-                    table.addCell(dataCell);
-                    
-                    // Montant
-                    String formattedMontant = marche.getMontantPenJ() != null ? 
-                            String.format("% ,.2f", marche.getMontantPenJ()) : 
-                            "Non disponible";
-                    dataCell = new com.itextpdf.text.pdf.PdfPCell(new com.itextpdf.text.Phrase(formattedMontant, cellFont));
-                    dataCell.setBackgroundColor(backgroundColor);
-                    dataCell.setPadding(5);
-                    table.addCell(dataCell);
-                    
-                    // Statut
-                    dataCell = new com.itextpdf.text.pdf.PdfPCell(new com.itextpdf.text.Phrase(
-                            marche.getNant() != null ? marche.getNant().toString() : "Non défini", cellFont));
-                    dataCell.setBackgroundColor(backgroundColor);
-                    dataCell.setPadding(5);
-                    table.addCell(dataCell);
-                    
-                    alternate = !alternate; // Alterner les couleurs de fond
+            // Tableau des marchés, incomplet : les lignes lues en curseur sont vidées dans le document par lots
+            final com.itextpdf.text.pdf.PdfPTable table = new com.itextpdf.text.pdf.PdfPTable(5); // 5 colonnes
+            table.setWidthPercentage(100);
+            table.setSpacingBefore(10f);
+            table.setSpacingAfter(10f);
+            table.setHeaderRows(1);
+            table.setComplete(false);
+            
+            // Définir les largeurs relatives des colonnes
+            float[] columnWidths = {3f, 1.5f, 1.5f, 1.5f, 1.5f};
+            table.setWidths(columnWidths);
+            
+            // En-têtes de colonnes
+            com.itextpdf.text.Font headerFont = new com.itextpdf.text.Font(com.itextpdf.text.Font.FontFamily.HELVETICA, 12, com.itextpdf.text.Font.BOLD, new com.itextpdf.text.BaseColor(255, 255, 255));
+            for (String header : new String[]{"Désignation", "Numéro", "Date", "Montant (TND)", "Statut"}) {
+                com.itextpdf.text.pdf.PdfPCell headerCell = new com.itextpdf.text.pdf.PdfPCell(new com.itextpdf.text.Phrase(header, headerFont));
+                headerCell.setBackgroundColor(new com.itextpdf.text.BaseColor(41, 128, 185));
+                headerCell.setPadding(5);
+                table.addCell(headerCell);
+            }
+            
+            // Données des marchés
+            final com.itextpdf.text.Font cellFont = new com.itextpdf.text.Font(com.itextpdf.text.Font.FontFamily.HELVETICA, 10);
+            final int[] nombreMarches = {0};
+            try {
+                jdbcTemplate.query(new PreparedStatementCreator() {
+                    @Override
+                    public PreparedStatement createPreparedStatement(Connection connection) throws SQLException {
+                        PreparedStatement ps = connection.prepareStatement(SQL_MARCHES_FOURNISSEUR_PDF);
+                        ps.setFetchSize(pdfFetchSize);
+                        ps.setString(1, numFourn);
+                        return ps;
+                    }
+                }, new RowCallbackHandler() {
+                    @Override
+                    public void processRow(ResultSet rs) throws SQLException {
+                        // Alterner les couleurs de fond
+                        com.itextpdf.text.BaseColor backgroundColor = nombreMarches[0] % 2 == 1 ?
+                                new com.itextpdf.text.BaseColor(240, 240, 240) :
+                                new com.itextpdf.text.BaseColor(255, 255, 255);
+                        
+                        String designation = rs.getString(1);
+                        long numMarche = rs.getLong(2);
+                        String numero = rs.wasNull() ? "Non disponible" : String.valueOf(numMarche);
+                        java.sql.Timestamp dateMarche = rs.getTimestamp(3);
+                        java.math.BigDecimal montantPenJ = rs.getBigDecimal(4);
+                        long nant = rs.getLong(5);
+                        // Même rendu que l'ancien PrmTypeNant.toString()
+                        String statut = rs.wasNull() ? "Non défini" : new PrmTypeNant(nant, rs.getString(6)).toString();
+                        
+                        ajouterCellule(table, designation != null ? designation : "Sans titre", cellFont, backgroundColor);
+                        ajouterCellule(table, numero, cellFont, backgroundColor);
+                        ajouterCellule(table, dateMarche != null ?
+                                new java.text.SimpleDateFormat("dd/MM/yyyy").format(dateMarche) : "Non disponible",
+                                cellFont, backgroundColor);
+                        ajouterCellule(table, montantPenJ != null ?
+                                String.format("% ,.2f", montantPenJ) : "Non disponible",
+                                cellFont, backgroundColor);
+                        ajouterCellule(table, statut, cellFont, backgroundColor);
+                        
+                        if (++nombreMarches[0] % Math.max(pdfLotLignes, 1) == 0) {
+                            try {
+                                document.add(table);
+                            } catch (com.itextpdf.text.DocumentException e) {
+                                throw new IllegalStateException(e);
+                            }
+                        }
+                    }
+                });
+            } catch (IllegalStateException e) {
+                if (e.getCause() instanceof com.itextpdf.text.DocumentException) {
+                    throw (com.itextpdf.text.DocumentException) e.getCause();
                 }
-                
+                throw e;
+            }
+            
+            if (nombreMarches[0] > 0) {
+                table.setComplete(true);
                 document.add(table);
             } else {
                 document.add(new com.itextpdf.text.Paragraph("Aucun marché trouvé pour ce fournisseur.", 
                         new com.itextpdf.text.Font(com.itextpdf.text.Font.FontFamily.HELVETICA, 11, com.itextpdf.text.Font.ITALIC)));
             }
-            
-            document.close();
-            return baos.toByteArray();
-            
-        } catch (Exception e) {
-            logger.error("Erreur lors de la génération du PDF pour le fournisseur {}: {}", numFourn, e.getMessage(), e);
-            String errorMessage = "Erreur lors de la génération du PDF: " + e.getMessage();
-            return errorMessage.getBytes();
+        } catch (com.itextpdf.text.DocumentException e) {
+            throw new IOException("Erreur lors de la génération du PDF: " + e.getMessage(), e);
+        } finally {
+            if (document.isOpen()) {
+                document.close();
+            }
         }
+        out.flush();
+    }
+
+    private static void ajouterCellule(com.itextpdf.text.pdf.PdfPTable table, String texte,
+                                       com.itextpdf.text.Font font, com.itextpdf.text.BaseColor backgroundColor) {
+        com.itextpdf.text.pdf.PdfPCell dataCell = new com.itextpdf.text.pdf.PdfPCell(new com.itextpdf.text.Phrase(texte, font));
+        dataCell.setBackgroundColor(backgroundColor);
+        dataCell.setPadding(5);
+        table.addCell(dataCell);
     }
     
     /**
@@ -235,6 +260,10 @@ public class FournisseurServiceImpl implements FournisseurService {
 
     @Autowired
     private FournisseurRepository fournisseurRepository;
+
+    @Autowired
+    private StatistiquesSnapshotService statistiquesSnapshotService;
+
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
@@ -284,6 +313,7 @@ public class FournisseurServiceImpl implements FournisseurService {
         return fournisseurRepository.findAll(new PageRequest(page, size));
     }
 
+    @CacheEvict(value = CacheConfig.MARCHES, allEntries = true)
     @Override
     public void save(Fournisseur fournisseur) {
         String sql = "SELECT COUNT(*) FROM ACHAT.FOURNISSEUR";
@@ -292,6 +322,7 @@ public class FournisseurServiceImpl implements FournisseurService {
             resetSequence();
         }
         fournisseurRepository.save(fournisseur);
+        statistiquesSnapshotService.marquerModifie();
     }
 
     @Override
@@ -299,9 +330,11 @@ public class FournisseurServiceImpl implements FournisseurService {
         return fournisseurRepository.findOne(id);
     }
 
+    @CacheEvict(value = CacheConfig.MARCHES, allEntries = true)
     @Override
     public void deleteFournisseur(Fournisseur fournisseur) {
         fournisseurRepository.delete(fournisseur);
+        statistiquesSnapshotService.marquerModifie();
         /*        String sqlCount = "SELECT COUNT(*) FROM ACHAT.FOURNISSEUR";
         Long count = jdbcTemplate.queryForObject(sqlCount, Long.class);
         if (count != null && count == 0) {
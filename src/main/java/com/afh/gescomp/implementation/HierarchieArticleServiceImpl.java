@@ -0,0 +1,152 @@
+package com.afh.gescomp.implementation;
+
+import com.afh.gescomp.model.primary.HierarchieArticleListener;
+import com.afh.gescomp.service.HierarchieArticleService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index des désignations SECT_ECO / SOUS_SECTEUR / FAMILLE / SOUS_FAMILLE chargé en 4 requêtes,
+ * puis consulté sans accès base. Une table par niveau, clés composites compactées dans un long (16 bits par numéro).
+ * L'index est rechargé après une écriture JPA sur ces tables (voir {@link HierarchieArticleListener}),
+ * après {@link #invalider()} ou au-delà de max-age-ms (tables aussi alimentées hors application).
+ */
+@Service
+public class HierarchieArticleServiceImpl implements HierarchieArticleService {
+
+    private static final Logger logger = LoggerFactory.getLogger(HierarchieArticleServiceImpl.class);
+
+    private static final int SECTEUR = 0;
+    private static final int SOUS_SECTEUR = 1;
+    private static final int FAMILLE = 2;
+    private static final int SOUS_FAMILLE = 3;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${articles.hierarchie.max-age-ms:600000}")
+    private long maxAgeMs;
+
+    private volatile Index index;
+
+    @Override
+    public String getDesignationSecteur(Short numSectEco) {
+        return indexCourant().get(SECTEUR, cle(numSectEco, 0, 0, 0));
+    }
+
+    @Override
+    public String getDesignationSousSecteur(Short numSectEco, Short numSSectEco) {
+        return indexCourant().get(SOUS_SECTEUR, cle(numSectEco, numSSectEco, 0, 0));
+    }
+
+    @Override
+    public String getDesignationFamille(Short numSectEco, Short numSSectEco, Short numFamille) {
+        return indexCourant().get(FAMILLE, cle(numSectEco, numSSectEco, numFamille, 0));
+    }
+
+    @Override
+    public String getDesignationSousFamille(Short numSectEco, Short numSSectEco, Short numFamille, Short numSFamille) {
+        return indexCourant().get(SOUS_FAMILLE, cle(numSectEco, numSSectEco, numFamille, numSFamille));
+    }
+
+    @Override
+    public void invalider() {
+        index = null;
+    }
+
+    private Index indexCourant() {
+        Index courant = index;
+        if (courant == null || courant.estPerime(maxAgeMs)) {
+            synchronized (this) {
+                courant = index;
+                if (courant == null || courant.estPerime(maxAgeMs)) {
+                    courant = charger();
+                    index = courant;
+                }
+            }
+        }
+        return courant;
+    }
+
+    private Index charger() {
+        // Version lue avant le chargement : une écriture concurrente déclenchera un nouveau rechargement
+        long version = HierarchieArticleListener.version();
+        List<Map<Long, String>> designations = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            designations.add(new HashMap<Long, String>());
+        }
+        for (Object[] row : lignes("SELECT se.numSectEco, se.designation FROM SECT_ECO se")) {
+            ajouter(designations.get(SECTEUR), cle(row[0], 0, 0, 0), row[1]);
+        }
+        for (Object[] row : lignes("SELECT ss.numSectEco, ss.numSSectEco, ss.designation FROM SOUS_SECTEUR ss")) {
+            ajouter(designations.get(SOUS_SECTEUR), cle(row[0], row[1], 0, 0), row[2]);
+        }
+        for (Object[] row : lignes("SELECT f.numSectEco, f.numSSectEco, f.numFamille, f.designation FROM Famille f")) {
+            ajouter(designations.get(FAMILLE), cle(row[0], row[1], row[2], 0), row[3]);
+        }
+        for (Object[] row : lignes("SELECT sf.numSectEco, sf.numSSectEco, sf.numFamille, sf.numSFamille, sf.designation FROM SOUS_FAMILLE sf")) {
+            ajouter(designations.get(SOUS_FAMILLE), cle(row[0], row[1], row[2], row[3]), row[4]);
+        }
+        logger.info("Index de la hiérarchie article chargé : {} secteurs, {} sous-secteurs, {} familles, {} sous-familles",
+                designations.get(SECTEUR).size(), designations.get(SOUS_SECTEUR).size(),
+                designations.get(FAMILLE).size(), designations.get(SOUS_FAMILLE).size());
+        return new Index(designations, version);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object[]> lignes(String jpql) {
+        return entityManager.createQuery(jpql).getResultList();
+    }
+
+    private static void ajouter(Map<Long, String> designations, Long cle, Object designation) {
+        if (cle != null && designation != null) {
+            designations.put(cle, designation.toString());
+        }
+    }
+
+    /**
+     * Clé compacte d'un nœud dans la table de son niveau (niveaux inférieurs à 0).
+     * Retourne null si un niveau attendu n'est pas renseigné.
+     */
+    private static Long cle(Object numSectEco, Object numSSectEco, Object numFamille, Object numSFamille) {
+        if (numSectEco == null || numSSectEco == null || numFamille == null || numSFamille == null) {
+            return null;
+        }
+        return (niveau(numSectEco) << 48) | (niveau(numSSectEco) << 32)
+                | (niveau(numFamille) << 16) | niveau(numSFamille);
+    }
+
+    private static long niveau(Object numero) {
+        return ((Number) numero).longValue() & 0xFFFFL;
+    }
+
+    private static final class Index {
+
+        private final List<Map<Long, String>> designations;
+        private final long version;
+        private final long dateChargement = System.currentTimeMillis();
+
+        private Index(List<Map<Long, String>> designations, long version) {
+            this.designations = designations;
+            this.version = version;
+        }
+
+        private String get(int niveau, Long cle) {
+            return cle != null ? designations.get(niveau).get(cle) : null;
+        }
+
+        private boolean estPerime(long maxAgeMs) {
+            return version != HierarchieArticleListener.version()
+                    || System.currentTimeMillis() - dateChargement > maxAgeMs;
+        }
+    }
+}
@@ -1,17 +1,23 @@
 package com.afh.gescomp.implementation;
 
+import com.afh.gescomp.dto.MarcheListeDTO;
 import com.afh.gescomp.model.primary.Fournisseur;
 import com.afh.gescomp.model.primary.Marche;
 import com.afh.gescomp.payload.response.MontantResponse;
 import com.afh.gescomp.repository.primary.FournisseurRepository;
 import com.afh.gescomp.repository.primary.MarcheRepository;
 import com.afh.gescomp.service.MarcheService;
+import com.afh.gescomp.service.StatistiquesSnapshotService;
 import javax.persistence.*;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import com.afh.gescomp.config.CacheConfig;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -19,14 +25,24 @@ import org.springframework.transaction.annotation.Transactional;
 
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class MarcheServiceImpl implements MarcheService {
 
     private static final Logger logger = LoggerFactory.getLogger(MarcheServiceImpl.class);
 
+    /** Projection des listes : colonnes de la grille uniquement, aucune association EAGER chargée. */
+    private static final String SELECT_MARCHE_LISTE = "SELECT NEW com.afh.gescomp.dto.MarcheListeDTO("
+            + "m.id, m.designation, m.exercice, m.dateMarche, m.mntMarche, m.numFourn, f.designation, "
+            + "s.numStruct, s.designation) "
+            + "FROM Marche m LEFT JOIN m.idFourn f JOIN m.idStructure s ";
+
     @Override
     public List<Marche> getMarchesByFournisseur(String numFourn) {
         if (numFourn == null || numFourn.isEmpty()) {
@@ -45,6 +61,9 @@ public class MarcheServiceImpl implements MarcheService {
     @Autowired
     private FournisseurRepository fournisseurRepository;
 
+    @Autowired
+    private StatistiquesSnapshotService statistiquesSnapshotService;
+
     @Override
     public List<Marche> findAllMarches() {
         return marcheRepository.findAll();
@@ -102,7 +121,133 @@ public class MarcheServiceImpl implements MarcheService {
         return marches;
     }
 
+    @Override
+    public Map<String, Object> getMarchesParCurseur(Long lastId, int size, String filter, String designation,
+                                                    String fournisseurDesignation, String numStruct, String numFourn,
+                                                    boolean avecTotal) {
+        if (size < 1) {
+            throw new IllegalArgumentException("La taille de page doit être positive");
+        }
+        FiltreMarches filtre = new FiltreMarches(filter, designation, fournisseurDesignation, numStruct, numFourn);
+
+        // Recherche par clé (m.id < :lastId) sur l'index de NUM_MARCHE : coût indépendant de la profondeur.
+        // Une ligne de plus que demandé est lue pour savoir s'il existe une page suivante, sans COUNT.
+        TypedQuery<MarcheListeDTO> query = entityManager.createQuery(SELECT_MARCHE_LISTE + filtre.where
+                + (lastId != null ? "AND m.id < :lastId " : "") + "ORDER BY m.id DESC", MarcheListeDTO.class);
+        filtre.appliquer(query);
+        if (lastId != null) {
+            query.setParameter("lastId", lastId);
+        }
+        query.setMaxResults(size + 1);
+        List<MarcheListeDTO> marches = query.getResultList();
+
+        boolean hasNext = marches.size() > size;
+        if (hasNext) {
+            marches = new ArrayList<>(marches.subList(0, size));
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("content", marches);
+        result.put("size", marches.size());
+        result.put("hasNext", hasNext);
+        result.put("nextCursor", hasNext ? marches.get(marches.size() - 1).getId() : null);
+        if (avecTotal) {
+            result.put("totalElements", compterMarches(filtre));
+        }
+        return result;
+    }
+
+    /**
+     * Seule liste de marchés mise en cache : des DTO à plat, jamais les entités (modifiables, associations EAGER)
+     */
+    @Cacheable(value = CacheConfig.MARCHES, keyGenerator = "pageFiltresKeyGenerator")
+    @Override
+    public Page<MarcheListeDTO> getListeMarches(Pageable pageable, String filter, String designation,
+                                                String fournisseurDesignation, String numStruct, String numFourn) {
+        FiltreMarches filtre = new FiltreMarches(filter, designation, fournisseurDesignation, numStruct, numFourn);
+        TypedQuery<MarcheListeDTO> query = entityManager.createQuery(
+                SELECT_MARCHE_LISTE + filtre.where + "ORDER BY m.id DESC", MarcheListeDTO.class);
+        filtre.appliquer(query);
+        query.setFirstResult(pageable.getOffset());
+        query.setMaxResults(pageable.getPageSize());
+        List<MarcheListeDTO> marches = query.getResultList();
+
+        // COUNT évité lorsque la page est la dernière (moins de lignes que demandé)
+        long total = marches.size() < pageable.getPageSize() && (pageable.getOffset() == 0 || !marches.isEmpty())
+                ? pageable.getOffset() + marches.size()
+                : compterMarches(filtre);
+        return new PageImpl<>(marches, pageable, total);
+    }
+
+    private long compterMarches(FiltreMarches filtre) {
+        Query count = entityManager.createQuery("SELECT COUNT(m) FROM Marche m LEFT JOIN m.idFourn f JOIN m.idStructure s " + filtre.where);
+        filtre.appliquer(count);
+        return ((Number) count.getSingleResult()).longValue();
+    }
+
+    /**
+     * Clause WHERE et paramètres des listes de marchés, avec les mêmes combinaisons de filtres que getAllMarches
+     * (alias : m = Marche, f = fournisseur, s = structure)
+     */
+    private static final class FiltreMarches {
+
+        private final StringBuilder where = new StringBuilder("WHERE (:numStruct = '03' OR s.numStruct = :numStruct) ");
+        private final Map<String, Object> params = new HashMap<>();
+
+        FiltreMarches(String filter, String designation, String fournisseurDesignation, String numStruct, String numFourn) {
+            Long numMarche = null;
+            if (filter != null && !filter.isEmpty()) {
+                try {
+                    numMarche = Long.valueOf(filter);
+                } catch (NumberFormatException e) {
+                    // Ignorer la conversion si ce n'est pas un Long
+                }
+            }
+            boolean avecDesignation = designation != null && !designation.isEmpty();
+            boolean avecFournisseur = fournisseurDesignation != null && !fournisseurDesignation.isEmpty();
+
+            params.put("numStruct", numStruct);
+            if (numFourn != null && !numFourn.isEmpty()) {
+                where.append("AND m.numFourn = :numFourn ");
+                params.put("numFourn", numFourn);
+            } else if (numMarche != null && avecDesignation && avecFournisseur) {
+                where.append("AND m.id = :numMarche AND m.designation LIKE :designation AND f.designation LIKE :fournisseurDesignation ");
+                params.put("numMarche", numMarche);
+                params.put("designation", "%" + designation + "%");
+                params.put("fournisseurDesignation", "%" + fournisseurDesignation + "%");
+            } else if (numMarche != null && avecDesignation) {
+                where.append("AND (m.id = :numMarche OR m.designation LIKE :designation) ");
+                params.put("numMarche", numMarche);
+                params.put("designation", "%" + designation + "%");
+            } else if (numMarche != null && avecFournisseur) {
+                where.append("AND m.id = :numMarche AND f.designation LIKE :fournisseurDesignation ");
+                params.put("numMarche", numMarche);
+                params.put("fournisseurDesignation", "%" + fournisseurDesignation + "%");
+            } else if (avecDesignation && avecFournisseur) {
+                where.append("AND m.designation LIKE :designation AND f.designation LIKE :fournisseurDesignation ");
+                params.put("designation", "%" + designation + "%");
+                params.put("fournisseurDesignation", "%" + fournisseurDesignation + "%");
+            } else if (numMarche != null) {
+                where.append("AND m.id = :numMarche ");
+                params.put("numMarche", numMarche);
+            } else if (avecDesignation) {
+                where.append("AND LOWER(m.designation) LIKE LOWER(CONCAT('%', :designation, '%')) ");
+                params.put("designation", designation);
+            } else if (avecFournisseur) {
+                where.append("AND f.designation LIKE :fournisseurDesignation ");
+                params.put("fournisseurDesignation", "%" + fournisseurDesignation + "%");
+            }
+        }
+
+        void appliquer(Query query) {
+            for (Map.Entry<String, Object> param : params.entrySet()) {
+                query.setParameter(param.getKey(), param.getValue());
+            }
+        }
+    }
+
     @Transactional
+    @CacheEvict(value = CacheConfig.MARCHES, allEntries = true)
     @Override
     public void save(Marche marcheRequest) {
         if (marcheRequest.getIdFourn() != null) {
@@ -113,6 +258,7 @@ public class MarcheServiceImpl implements MarcheService {
         String nextNummarche = getMarcheSuivant(exercice);
         marcheRequest.setId(Long.parseLong(nextNummarche));
         marcheRepository.save(marcheRequest);
+        statistiquesSnapshotService.marquerModifie();
     }
 
     @Transactional
@@ -130,12 +276,15 @@ public class MarcheServiceImpl implements MarcheService {
         return marcheRepository.findById(numMarche);
     }
 
+    @CacheEvict(value = CacheConfig.MARCHES, allEntries = true)
     @Override
     public void deleteMarche(Marche marche) {
         marcheRepository.delete(marche);
+        statistiquesSnapshotService.marquerModifie();
     }
 
     @Transactional
+    @CacheEvict(value = CacheConfig.MARCHES, allEntries = true)
     @Override
     public Marche updateMarche(Long id, Marche marcheDetails) {
         Marche marche = marcheRepository.findById(id);
@@ -190,11 +339,14 @@ public class MarcheServiceImpl implements MarcheService {
         marche.setDureeAvance(marcheDetails.getDureeAvance());
         marche.setPctRetAv(marcheDetails.getPctRetAv());
 
-        return marcheRepository.save(marche);
+        Marche saved = marcheRepository.save(marche);
+        statistiquesSnapshotService.marquerModifie();
+        return saved;
     }
 
 
     @Transactional
+    @CacheEvict(value = CacheConfig.MARCHES, allEntries = true)
     @Override
     public MontantResponse calculateMontants(Long numMarche) {
         try {
@@ -205,6 +357,7 @@ public class MarcheServiceImpl implements MarcheService {
 
             // Exécuter la procédure
             query.executeUpdate();
+            statistiquesSnapshotService.marquerModifie();
 
             // Après l'exécution de la procédure, récupérez les montants mis à jour dans la base de données
             // Utilisez une requête pour récupérer les montants mis à jour dans la table "marche"
@@ -4,9 +4,10 @@ import com.afh.gescomp.model.primary.Article;
 import com.afh.gescomp.model.primary.MrcArticle;
 import com.afh.gescomp.model.primary.MrcArticleId;
 import com.afh.gescomp.payload.response.MontantResponse;
+import com.afh.gescomp.repository.primary.ArticleRepository;
 import com.afh.gescomp.repository.primary.MrcArticleRepository;
-import com.afh.gescomp.service.ArticleService;
 import com.afh.gescomp.service.MrcArticleService;
+import com.afh.gescomp.service.StatistiquesSnapshotService;
 
 import javax.persistence.EntityManager;
 import javax.persistence.EntityNotFoundException;
@@ -14,14 +15,26 @@ import javax.persistence.PersistenceContext;
 import javax.persistence.Query;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 
 @Service
 public class MrcArticleServiceImpl implements MrcArticleService {
@@ -33,7 +46,27 @@ public class MrcArticleServiceImpl implements MrcArticleService {
     private MrcArticleRepository mrcArticleRepository;
 
     @Autowired
-    private ArticleService articleService;
+    private ArticleRepository articleRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${mrc-article.batch.taille-lot:500}")
+    private int tailleLot;
+
+    /** Limite Oracle du nombre d'éléments d'une liste IN. */
+    private static final int TAILLE_MAX_IN = 1000;
+
+    private static final String SQL_UPDATE_MRC_ARTICLE = "UPDATE ACHAT.MRC_ARTICLE SET TVA = ?, QUANTITE = ?, PRIX_UNITAIRE = ?, "
+            + "ID_TYPE_SERIE = ?, DESCRIPTION = ?, CODE_ARTICLE = ?, CH_AP = ?, PRIX_FOURNITURE = ? "
+            + "WHERE NUM_MARCHE = ? AND ID_LOT = ? AND NUM_ARTICLE = ? AND ID_ARTICLE = ? AND AP = 1";
+
+    private static final String SQL_INSERT_MRC_ARTICLE = "INSERT INTO ACHAT.MRC_ARTICLE (TVA, QUANTITE, PRIX_UNITAIRE, "
+            + "ID_TYPE_SERIE, DESCRIPTION, CODE_ARTICLE, CH_AP, PRIX_FOURNITURE, NUM_MARCHE, ID_LOT, NUM_ARTICLE, ID_ARTICLE, AP) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 1)";
+
+    @Autowired
+    private StatistiquesSnapshotService statistiquesSnapshotService;
 
     @Override
     public void deleteMrcArticle(String numArticle, Long numMarche, Integer ap, String idLot, Short idArticle ) {
@@ -42,6 +75,7 @@ public class MrcArticleServiceImpl implements MrcArticleService {
             throw new EntityNotFoundException("Article not found with id: " + articleId);
         }
         mrcArticleRepository.delete(articleId);
+        statistiquesSnapshotService.marquerModifie();
     }
 
     @Override
@@ -52,6 +86,7 @@ public class MrcArticleServiceImpl implements MrcArticleService {
     @Override
     public void save(MrcArticle mrcArticle) {
         mrcArticleRepository.save(mrcArticle);
+        statistiquesSnapshotService.marquerModifie();
     }
 
 
@@ -59,34 +94,199 @@ public class MrcArticleServiceImpl implements MrcArticleService {
     @Override
     public List<MrcArticle> saveOrUpdateArticles(List<MrcArticle> mrcArticles) {
         List<MrcArticle> savedArticles = new ArrayList<>();
-
         for (MrcArticle mrcArticleRequest : mrcArticles) {
             if (mrcArticleRequest.getId() == null) {
                 throw new IllegalArgumentException("Article ID cannot be null");
             }
+        }
 
+        // Lignes existantes des (marché, lot) concernés et articles référencés, chargés en une fois
+        Map<MrcArticleId, MrcArticle> existants = new HashMap<>();
+        Set<String> lots = new HashSet<>();
+        for (MrcArticle mrcArticleRequest : mrcArticles) {
             MrcArticleId articleId = mrcArticleRequest.getId();
-            MrcArticle existingArticle = findById(
-                    articleId.getNumMarche(),
-                    articleId.getIdLot(),
-                    articleId.getNumArticle(),
-                    articleId.getIdArticle(),
-                    1
-            );
+            if (lots.add(articleId.getNumMarche() + "|" + articleId.getIdLot())) {
+                for (MrcArticle existant : mrcArticleRepository.findByNumMarcheAndIdLot(articleId.getNumMarche(), articleId.getIdLot())) {
+                    existants.put(existant.getId(), existant);
+                }
+            }
+        }
+        Set<String> numArticles = new HashSet<>();
+        for (MrcArticle mrcArticleRequest : mrcArticles) {
+            if (!existants.containsKey(cleExistante(mrcArticleRequest.getId()))) {
+                numArticles.add(mrcArticleRequest.getNumArticle().getNumArticle());
+            }
+        }
+        Map<String, Article> articles = new HashMap<>();
+        for (List<String> tranche : tranches(new ArrayList<>(numArticles), TAILLE_MAX_IN)) {
+            for (Article article : articleRepository.findAll(tranche)) {
+                articles.put(article.getNumArticle(), article);
+            }
+        }
+
+        for (MrcArticle mrcArticleRequest : mrcArticles) {
+            MrcArticleId cle = cleExistante(mrcArticleRequest.getId());
+            MrcArticle existingArticle = existants.get(cle);
 
             if (existingArticle != null) {
                 updateArticle(existingArticle, mrcArticleRequest);
                 mrcArticleRepository.save(existingArticle); // Persist changes
                 savedArticles.add(existingArticle);
             } else {
-                MrcArticle newArticle = createArticle(mrcArticleRequest);
+                MrcArticle newArticle = createArticle(mrcArticleRequest, articles);
                 mrcArticleRepository.save(newArticle);
+                existants.put(cle, newArticle);
                 savedArticles.add(newArticle);
             }
         }
+        statistiquesSnapshotService.marquerModifie();
         return savedArticles;
     }
 
+    @Transactional
+    @Override
+    public Map<String, Object> upsertArticles(List<MrcArticle> mrcArticles) {
+        long debut = System.currentTimeMillis();
+
+        // Validation complète avant toute écriture ; une clé répétée garde sa dernière occurrence
+        Map<MrcArticleId, MrcArticle> lignes = new LinkedHashMap<>();
+        for (MrcArticle mrcArticleRequest : mrcArticles) {
+            if (mrcArticleRequest.getId() == null) {
+                throw new IllegalArgumentException("Article ID cannot be null");
+            }
+            verifierPrixFourniture(mrcArticleRequest);
+            lignes.put(cleNormalisee(mrcArticleRequest), mrcArticleRequest);
+        }
+
+        // Clés existantes : une requête par (marché, lot)
+        Set<MrcArticleId> existantes = new HashSet<>();
+        Set<String> lots = new HashSet<>();
+        for (MrcArticleId cle : lignes.keySet()) {
+            if (lots.add(cle.getNumMarche() + "|" + cle.getIdLot())) {
+                existantes.addAll(entityManager.createQuery(
+                        "SELECT a.id FROM MrcArticle a WHERE a.id.numMarche = :numMarche AND a.id.idLot = :idLot AND a.id.ap = 1",
+                        MrcArticleId.class)
+                        .setParameter("numMarche", cle.getNumMarche())
+                        .setParameter("idLot", cle.getIdLot())
+                        .getResultList());
+            }
+        }
+
+        List<Map.Entry<MrcArticleId, MrcArticle>> misesAJour = new ArrayList<>();
+        List<Map.Entry<MrcArticleId, MrcArticle>> insertions = new ArrayList<>();
+        Set<String> numArticles = new HashSet<>();
+        for (Map.Entry<MrcArticleId, MrcArticle> ligne : lignes.entrySet()) {
+            if (existantes.contains(ligne.getKey())) {
+                misesAJour.add(ligne);
+            } else {
+                insertions.add(ligne);
+                numArticles.add(ligne.getKey().getNumArticle());
+            }
+        }
+
+        // Articles référencés par les nouvelles lignes : une requête IN par tranche de 1000
+        Set<String> introuvables = new TreeSet<>(numArticles);
+        for (List<String> tranche : tranches(new ArrayList<>(numArticles), TAILLE_MAX_IN)) {
+            introuvables.removeAll(entityManager.createQuery(
+                    "SELECT a.numArticle FROM Article a WHERE a.numArticle IN :numArticles", String.class)
+                    .setParameter("numArticles", tranche)
+                    .getResultList());
+        }
+        if (!introuvables.isEmpty()) {
+            throw new IllegalArgumentException("Articles introuvables: " + introuvables);
+        }
+
+        ecrireParLots(SQL_UPDATE_MRC_ARTICLE, misesAJour);
+        ecrireParLots(SQL_INSERT_MRC_ARTICLE, insertions);
+        if (!lignes.isEmpty()) {
+            statistiquesSnapshotService.marquerModifie();
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("total", lignes.size());
+        result.put("inseres", insertions.size());
+        result.put("misAJour", misesAJour.size());
+        result.put("tailleLot", tailleLot);
+        result.put("dureeMs", System.currentTimeMillis() - debut);
+        return result;
+    }
+
+    /**
+     * Écriture JDBC par lots de {@code mrc-article.batch.taille-lot} lignes
+     * (UPDATE et INSERT partagent l'ordre des paramètres)
+     */
+    private void ecrireParLots(String sql, List<Map.Entry<MrcArticleId, MrcArticle>> lignes) {
+        for (final List<Map.Entry<MrcArticleId, MrcArticle>> lot : tranches(lignes, Math.max(tailleLot, 1))) {
+            jdbcTemplate.batchUpdate(sql, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    MrcArticleId cle = lot.get(i).getKey();
+                    MrcArticle ligne = lot.get(i).getValue();
+                    boolean fourniture = ligne.getChAp() != null && ligne.getChAp() == 1;
+                    ps.setBigDecimal(1, ligne.getTva());
+                    ps.setBigDecimal(2, ligne.getQuantite());
+                    ps.setBigDecimal(3, ligne.getPrixUnitaire());
+                    if (ligne.getIdTypeSerie() != null && ligne.getIdTypeSerie().getId() != null) {
+                        ps.setLong(4, ligne.getIdTypeSerie().getId());
+                    } else {
+                        ps.setNull(4, Types.NUMERIC);
+                    }
+                    ps.setString(5, ligne.getDescription());
+                    ps.setString(6, ligne.getCodeArticle());
+                    if (ligne.getChAp() != null) {
+                        ps.setInt(7, ligne.getChAp());
+                    } else {
+                        ps.setNull(7, Types.NUMERIC);
+                    }
+                    ps.setBigDecimal(8, fourniture ? ligne.getPrixFourniture() : null);
+                    ps.setLong(9, cle.getNumMarche());
+                    ps.setString(10, cle.getIdLot());
+                    ps.setString(11, cle.getNumArticle());
+                    ps.setShort(12, cle.getIdArticle());
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return lot.size();
+                }
+            });
+        }
+    }
+
+    /**
+     * Clé de la ligne à écrire (AP = 1), avec les mêmes replis que createArticle pour le lot et l'article
+     */
+    private static MrcArticleId cleNormalisee(MrcArticle mrcArticleRequest) {
+        MrcArticleId id = mrcArticleRequest.getId();
+        String idLot = id.getIdLot();
+        if (idLot == null && mrcArticleRequest.getMrcLot() != null && mrcArticleRequest.getMrcLot().getId() != null) {
+            idLot = mrcArticleRequest.getMrcLot().getId().getIdLot();
+        }
+        String numArticle = id.getNumArticle();
+        if (numArticle == null && mrcArticleRequest.getNumArticle() != null) {
+            numArticle = mrcArticleRequest.getNumArticle().getNumArticle();
+        }
+        if (id.getNumMarche() == null || idLot == null || numArticle == null || id.getIdArticle() == null) {
+            throw new IllegalArgumentException("Clé d'article incomplète: " + id);
+        }
+        return new MrcArticleId(numArticle, id.getNumMarche(), 1, idLot, id.getIdArticle());
+    }
+
+    /**
+     * Clé recherchée par l'ancien findById(..., ap = 1)
+     */
+    private static MrcArticleId cleExistante(MrcArticleId id) {
+        return new MrcArticleId(id.getNumArticle(), id.getNumMarche(), 1, id.getIdLot(), id.getIdArticle());
+    }
+
+    private static <T> List<List<T>> tranches(List<T> valeurs, int taille) {
+        List<List<T>> tranches = new ArrayList<>();
+        for (int i = 0; i < valeurs.size(); i += taille) {
+            tranches.add(valeurs.subList(i, Math.min(i + taille, valeurs.size())));
+        }
+        return tranches;
+    }
+
     @Override
     public MrcArticle findByNumMarcheAndIdLotAndNumArticleAndIdArticle(Long numMarche, String idLot, String numArticle, Short idArticle) {
         return mrcArticleRepository.findByNumMarcheAndIdLotAndNumArticleAndIdArticle(numMarche,idLot,numArticle, idArticle);
@@ -112,9 +312,7 @@ public class MrcArticleServiceImpl implements MrcArticleService {
         existingArticle.getId().setAp(1);
         existingArticle.setChAp(mrcArticleRequest.getChAp());
         if (mrcArticleRequest.getChAp() != null && mrcArticleRequest.getChAp() == 1) {
-            if (mrcArticleRequest.getPrixFourniture() == null) {
-                throw new IllegalArgumentException("Le champ prixFourniture doit être rempli lorsque chAp est égal à 1.");
-            }
+            verifierPrixFourniture(mrcArticleRequest);
             existingArticle.setPrixFourniture(mrcArticleRequest.getPrixFourniture());
         } else {
             existingArticle.setPrixFourniture(null); // Ou 0, selon la logique souhaitée
@@ -124,7 +322,14 @@ public class MrcArticleServiceImpl implements MrcArticleService {
 
 
 
-    private MrcArticle createArticle(MrcArticle mrcArticleRequest) {
+    private static void verifierPrixFourniture(MrcArticle mrcArticleRequest) {
+        if (mrcArticleRequest.getChAp() != null && mrcArticleRequest.getChAp() == 1
+                && mrcArticleRequest.getPrixFourniture() == null) {
+            throw new IllegalArgumentException("Le champ prixFourniture doit être rempli lorsque chAp est égal à 1.");
+        }
+    }
+
+    private MrcArticle createArticle(MrcArticle mrcArticleRequest, Map<String, Article> articles) {
         MrcArticle newArticle = new MrcArticle();
         MrcArticleId id = new MrcArticleId();
 
@@ -136,8 +341,8 @@ public class MrcArticleServiceImpl implements MrcArticleService {
         id.setAp(1); // Ou selon votre logique
         newArticle.setId(id);
 
-        // Récupérer l'article par numéro d'article
-        Article article = articleService.findArticleByNumArticle(id.getNumArticle());
+        // Article préchargé par numéro d'article
+        Article article = articles.get(id.getNumArticle());
         newArticle.setNumArticle(article);
 
         // Assigner les autres propriétés
@@ -150,9 +355,7 @@ public class MrcArticleServiceImpl implements MrcArticleService {
         newArticle.setCodeArticle(mrcArticleRequest.getCodeArticle());
         // Vérifier le champ chAp
         if (mrcArticleRequest.getChAp() != null && mrcArticleRequest.getChAp() == 1) {
-            if (mrcArticleRequest.getPrixFourniture() == null) {
-                throw new IllegalArgumentException("Le champ prixFourniture doit être rempli lorsque chAp est égal à 1.");
-            }
+            verifierPrixFourniture(mrcArticleRequest);
             newArticle.setPrixFourniture(mrcArticleRequest.getPrixFourniture());
         } else {
             newArticle.setPrixFourniture(null); // Ou 0, selon la logique souhaitée
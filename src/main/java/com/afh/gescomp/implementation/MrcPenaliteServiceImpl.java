@@ -7,6 +7,7 @@ import com.afh.gescomp.repository.primary.MarcheRepository;
 import com.afh.gescomp.repository.primary.MrcEtapeRepository;
 import com.afh.gescomp.repository.primary.MrcPenaliteRepository;
 import com.afh.gescomp.service.MrcPenaliteService;
+import com.afh.gescomp.service.StatistiquesSnapshotService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
@@ -25,6 +26,9 @@ public class MrcPenaliteServiceImpl implements MrcPenaliteService {
     @Autowired
     private JdbcTemplate jdbcTemplate;
 
+    @Autowired
+    private StatistiquesSnapshotService statistiquesSnapshotService;
+
     @Override
     public MrcPenalite saveOrUpdateMrcPenalite(MrcPenaliteDTO mrcPenaliteDTO) {
 
@@ -59,7 +63,9 @@ public class MrcPenaliteServiceImpl implements MrcPenaliteService {
             mrcPenalite.setNumPieceFourn(mrcPenaliteDTO.getNumPieceFourn());
         }
 
-        return mrcPenaliteRepository.save(mrcPenalite);
+        MrcPenalite saved = mrcPenaliteRepository.save(mrcPenalite);
+        statistiquesSnapshotService.marquerModifie();
+        return saved;
     }
 
     @Override
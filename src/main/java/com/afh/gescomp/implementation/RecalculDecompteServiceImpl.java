@@ -0,0 +1,279 @@
+package com.afh.gescomp.implementation;
+
+import com.afh.gescomp.config.CacheConfig;
+import com.afh.gescomp.dto.RecalculDecompteCible;
+import com.afh.gescomp.dto.RecalculDecompteResultat;
+import com.afh.gescomp.service.RecalculDecompteService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.BatchUpdateException;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Recalcul groupé des décomptes : les cibles sont regroupées par marché, chaque marché est traité
+ * par le pool borné "recalculExecutor" sur une seule connexion, et les appels consécutifs d'une même
+ * procédure partent en un lot JDBC (addBatch / executeBatch) au lieu d'une requête HTTP par décompte.
+ */
+@Service
+public class RecalculDecompteServiceImpl implements RecalculDecompteService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RecalculDecompteServiceImpl.class);
+
+    static final String SUCCES = "Calcul des montants effectué avec succès";
+
+    private static final Map<String, String> PROCEDURES = new HashMap<>();
+
+    static {
+        PROCEDURES.put("ORD", "{ call CAL_DEC_ORD(?, ?, ?) }");
+        PROCEDURES.put("LRG", "{ call CAL_DEC_LRG(?, ?) }");
+        PROCEDURES.put("AVANCE", "{ call CAL_DEC_AVANCE(?) }");
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired(required = false)
+    @Qualifier("recalculExecutor")
+    private AsyncTaskExecutor recalculExecutor;
+
+    @Value("${recalcul.timeout-ms:60000}")
+    private long timeoutMs;
+
+    @CacheEvict(value = CacheConfig.MARCHES, allEntries = true)
+    @Override
+    public Map<String, Object> recalculer(List<RecalculDecompteCible> cibles) {
+        long debut = System.currentTimeMillis();
+        RecalculDecompteResultat[] resultats = new RecalculDecompteResultat[cibles.size()];
+
+        // Regroupement par marché, dans l'ordre de la demande ; une cible incomplète est refusée sans appel
+        Map<Long, List<Integer>> parMarche = new LinkedHashMap<>();
+        for (int i = 0; i < cibles.size(); i++) {
+            RecalculDecompteCible cible = cibles.get(i);
+            String erreur = verifier(cible);
+            if (erreur != null) {
+                resultats[i] = new RecalculDecompteResultat(cible, false, erreur);
+                continue;
+            }
+            List<Integer> rangs = parMarche.get(cible.getNumMarche());
+            if (rangs == null) {
+                rangs = new ArrayList<>();
+                parMarche.put(cible.getNumMarche(), rangs);
+            }
+            rangs.add(i);
+        }
+
+        Map<Long, Future<RecalculDecompteResultat[]>> taches = new LinkedHashMap<>();
+        for (Map.Entry<Long, List<Integer>> marche : parMarche.entrySet()) {
+            List<RecalculDecompteCible> lot = new ArrayList<>();
+            for (Integer rang : marche.getValue()) {
+                lot.add(cibles.get(rang));
+            }
+            try {
+                taches.put(marche.getKey(), soumettre(lot));
+            } catch (TaskRejectedException e) {
+                logger.warn("Recalcul du marché {} refusé : pool de recalcul saturé", marche.getKey());
+                echec(resultats, cibles, marche.getValue(), "Recalcul refusé : trop de demandes en cours");
+            }
+        }
+
+        long limite = debut + timeoutMs;
+        for (Map.Entry<Long, Future<RecalculDecompteResultat[]>> tache : taches.entrySet()) {
+            List<Integer> rangs = parMarche.get(tache.getKey());
+            try {
+                RecalculDecompteResultat[] issues = tache.getValue().get(
+                        Math.max(limite - System.currentTimeMillis(), 0L), TimeUnit.MILLISECONDS);
+                for (int j = 0; j < rangs.size(); j++) {
+                    resultats[rangs.get(j)] = issues[j];
+                }
+            } catch (TimeoutException e) {
+                echec(resultats, cibles, rangs, "Délai dépassé, le recalcul se poursuit en arrière-plan");
+            } catch (ExecutionException e) {
+                logger.error("Erreur lors du recalcul du marché {}: {}", tache.getKey(), e.getCause().getMessage(), e.getCause());
+                echec(resultats, cibles, rangs, "Erreur lors du calcul des montants: " + e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                echec(resultats, cibles, rangs, "Recalcul interrompu");
+            }
+        }
+
+        int reussis = 0;
+        for (RecalculDecompteResultat resultat : resultats) {
+            if (resultat.isSucces()) {
+                reussis++;
+            }
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("total", resultats.length);
+        result.put("reussis", reussis);
+        result.put("echecs", resultats.length - reussis);
+        result.put("dureeMs", System.currentTimeMillis() - debut);
+        result.put("resultats", Arrays.asList(resultats));
+        return result;
+    }
+
+    private Future<RecalculDecompteResultat[]> soumettre(final List<RecalculDecompteCible> lot) {
+        Callable<RecalculDecompteResultat[]> tache = new Callable<RecalculDecompteResultat[]>() {
+            @Override
+            public RecalculDecompteResultat[] call() {
+                return recalculerMarche(lot);
+            }
+        };
+        if (recalculExecutor == null) {
+            // Sans exécuteur (tests unitaires) : calcul immédiat dans le thread appelant
+            FutureTask<RecalculDecompteResultat[]> future = new FutureTask<>(tache);
+            future.run();
+            return future;
+        }
+        return recalculExecutor.submit(tache);
+    }
+
+    /**
+     * Cibles d'un même marché : une transaction, une connexion, un lot JDBC par suite d'appels
+     * consécutifs à la même procédure. Un échec n'annule pas les recalculs réussis du marché.
+     */
+    RecalculDecompteResultat[] recalculerMarche(final List<RecalculDecompteCible> lot) {
+        final RecalculDecompteResultat[] issues = new RecalculDecompteResultat[lot.size()];
+        transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+            @Override
+            protected void doInTransactionWithoutResult(TransactionStatus status) {
+                jdbcTemplate.execute(new ConnectionCallback<Void>() {
+                    @Override
+                    public Void doInConnection(Connection connection) throws SQLException, DataAccessException {
+                        int debut = 0;
+                        while (debut < lot.size()) {
+                            String procedure = cleProcedure(lot.get(debut));
+                            int fin = debut + 1;
+                            while (fin < lot.size() && procedure.equals(cleProcedure(lot.get(fin)))) {
+                                fin++;
+                            }
+                            executerLot(connection, PROCEDURES.get(procedure), lot, debut, fin, issues);
+                            debut = fin;
+                        }
+                        return null;
+                    }
+                });
+            }
+        });
+        return issues;
+    }
+
+    private static void executerLot(Connection connection, String sql, List<RecalculDecompteCible> lot,
+                                    int debut, int fin, RecalculDecompteResultat[] issues) throws SQLException {
+        try (CallableStatement stmt = connection.prepareCall(sql)) {
+            for (int i = debut; i < fin; i++) {
+                parametres(stmt, lot.get(i));
+                stmt.addBatch();
+            }
+            try {
+                stmt.executeBatch();
+                for (int i = debut; i < fin; i++) {
+                    issues[i] = new RecalculDecompteResultat(lot.get(i), true, SUCCES);
+                }
+                return;
+            } catch (BatchUpdateException e) {
+                int[] comptes = e.getUpdateCounts() == null ? new int[0] : e.getUpdateCounts();
+                if (comptes.length == fin - debut) {
+                    // Pilote qui poursuit le lot après une erreur : un statut par appel
+                    for (int i = debut; i < fin; i++) {
+                        boolean reussi = comptes[i - debut] != Statement.EXECUTE_FAILED;
+                        issues[i] = new RecalculDecompteResultat(lot.get(i), reussi, reussi ? SUCCES : message(e));
+                    }
+                    return;
+                }
+                // Pilote qui s'arrête à la première erreur (Oracle) : les appels suivants sont repris un par un
+                for (int i = debut; i < debut + comptes.length; i++) {
+                    issues[i] = new RecalculDecompteResultat(lot.get(i), true, SUCCES);
+                }
+                issues[debut + comptes.length] = new RecalculDecompteResultat(lot.get(debut + comptes.length), false, message(e));
+                stmt.clearBatch();
+                for (int i = debut + comptes.length + 1; i < fin; i++) {
+                    try {
+                        parametres(stmt, lot.get(i));
+                        stmt.execute();
+                        issues[i] = new RecalculDecompteResultat(lot.get(i), true, SUCCES);
+                    } catch (SQLException unitaire) {
+                        issues[i] = new RecalculDecompteResultat(lot.get(i), false, message(unitaire));
+                    }
+                }
+            }
+        }
+    }
+
+    private static void parametres(CallableStatement stmt, RecalculDecompteCible cible) throws SQLException {
+        stmt.setLong(1, cible.getNumMarche());
+        String procedure = cleProcedure(cible);
+        if (!"AVANCE".equals(procedure)) {
+            stmt.setShort(2, cible.getNumPieceFourn());
+        }
+        if ("ORD".equals(procedure)) {
+            stmt.setShort(3, cible.getNumEtape());
+        }
+    }
+
+    /**
+     * @return Message d'erreur si la cible ne peut pas être recalculée, null sinon
+     */
+    static String verifier(RecalculDecompteCible cible) {
+        if (cible == null || cible.getNumMarche() == null) {
+            return "Marché obligatoire";
+        }
+        String procedure = cleProcedure(cible);
+        if (!PROCEDURES.containsKey(procedure)) {
+            return "Procédure inconnue : " + cible.getProcedure() + " (ORD, LRG ou AVANCE)";
+        }
+        if (!"AVANCE".equals(procedure) && cible.getNumPieceFourn() == null) {
+            return "Numéro de pièce obligatoire pour " + procedure;
+        }
+        if ("ORD".equals(procedure) && cible.getNumEtape() == null) {
+            return "Étape obligatoire pour ORD";
+        }
+        return null;
+    }
+
+    private static String cleProcedure(RecalculDecompteCible cible) {
+        return cible.getProcedure() == null ? "" : cible.getProcedure().trim().toUpperCase();
+    }
+
+    private static String message(SQLException e) {
+        return "Erreur lors du calcul des montants: " + e.getMessage();
+    }
+
+    private static void echec(RecalculDecompteResultat[] resultats, List<RecalculDecompteCible> cibles,
+                              List<Integer> rangs, String message) {
+        for (Integer rang : rangs) {
+            resultats[rang] = new RecalculDecompteResultat(cibles.get(rang), false, message);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.afh.gescomp.implementation;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registre des formes d'une requête native à filtres optionnels.
+ * Chaque combinaison de filtres actifs (masque de bits) est construite une seule fois ;
+ * le texte SQL renvoyé est donc identique d'un appel à l'autre, ce qui permet au
+ * cache de requêtes du driver Oracle (oracle.jdbc.implicitStatementCacheSize)
+ * et au cache de plans Hibernate de le réutiliser sans nouvelle analyse.
+ */
+final class SqlTemplates {
+
+    /**
+     * Construction du texte SQL pour une combinaison de filtres
+     */
+    interface Constructeur {
+        String construire(int filtres);
+    }
+
+    private final ConcurrentMap<Integer, String> formes = new ConcurrentHashMap<>();
+
+    private final Constructeur constructeur;
+
+    SqlTemplates(Constructeur constructeur) {
+        this.constructeur = constructeur;
+    }
+
+    String sql(int filtres) {
+        String sql = formes.get(filtres);
+        if (sql == null) {
+            sql = constructeur.construire(filtres);
+            String existant = formes.putIfAbsent(filtres, sql);
+            if (existant != null) {
+                sql = existant;
+            }
+        }
+        return sql;
+    }
+
+    /**
+     * Nombre de formes construites jusqu'ici
+     */
+    int taille() {
+        return formes.size();
+    }
+}
@@ -1,14 +1,22 @@
 package com.afh.gescomp.implementation;
 
+import com.afh.gescomp.config.SqlAccounting;
+import com.afh.gescomp.dto.StatistiquesSnapshot;
 import com.afh.gescomp.repository.primary.ArticleRepository;
 import com.afh.gescomp.repository.primary.FournisseurRepository;
 import com.afh.gescomp.repository.primary.MarcheRepository;
 import com.afh.gescomp.service.StatistiquesService;
+import com.afh.gescomp.service.StatistiquesSnapshotService;
 import com.afh.gescomp.util.ArabicFontUtil;
+import com.afh.gescomp.util.ArabicTextCache;
 import com.itextpdf.text.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Service;
 
 import javax.persistence.EntityManager;
@@ -23,8 +31,13 @@ import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.io.ByteArrayOutputStream;
 import java.text.SimpleDateFormat;
-import java.io.InputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import java.util.List;
 import java.util.regex.Pattern;
 import java.security.SecureRandom;
@@ -33,8 +46,6 @@ import com.itextpdf.text.pdf.PdfPCell;
 import com.itextpdf.text.pdf.PdfPTable;
 import com.itextpdf.text.pdf.PdfPageEventHelper;
 import com.itextpdf.text.pdf.PdfWriter;
-import com.itextpdf.text.pdf.BaseFont;
-import com.itextpdf.text.pdf.languages.ArabicLigaturizer;
 
 @Service
 public class StatistiquesServiceImpl implements StatistiquesService {
@@ -46,10 +57,159 @@ public class StatistiquesServiceImpl implements StatistiquesService {
     
     // Générateur de nombres aléatoires sécurisé pour les données par défaut
     private static final SecureRandom secureRandom = new SecureRandom();
+
+    // Filtres optionnels des requêtes natives : bits du masque de SqlTemplates
+    private static final int FILTRE_STRUCT = 1;
+    private static final int FILTRE_NOM = 2;
+    private static final int FILTRE_MONTANT = 4;
+    private static final int FILTRE_PENALITES = 8;
+
+    private static final String FILTRE_SQL_STRUCT = "AND (:numStruct = '03' OR m.NUM_STRUCT = :numStruct) ";
+
+    private static final SqlTemplates SQL_FOURNISSEURS_STATISTIQUES = new SqlTemplates(new SqlTemplates.Constructeur() {
+        @Override
+        public String construire(int filtres) {
+            StringBuilder sql = new StringBuilder();
+            sql.append("SELECT ");
+            sql.append("f.DESIGNATION, ");
+            sql.append("f.NUM_FOURN, ");
+            sql.append("COUNT(m.NUM_MARCHE) as nombre_marches, ");
+            sql.append("COALESCE(SUM(m.MNT_MARCHE), 0) as montant_total, ");
+            sql.append("COALESCE(SUM(mp.MONTANT_PEN), 0) as penalites, ");
+            sql.append("b.DESIGNATION as banque ");
+            sql.append("FROM ACHAT.FOURNISSEUR f ");
+            sql.append("LEFT JOIN ACHAT.MARCHE m ON f.NUM_FOURN = m.NUM_FOURN ");
+            sql.append("LEFT JOIN ACHAT.BANQUE b ON m.NUM_BANQUE = b.NUM_BANQUE ");
+            sql.append("LEFT JOIN ACHAT.MRC_PENALITE mp ON m.NUM_MARCHE = mp.NUM_MARCHE ");
+            sql.append("WHERE 1=1 ");
+            if ((filtres & FILTRE_STRUCT) != 0) {
+                sql.append(FILTRE_SQL_STRUCT);
+            }
+            if ((filtres & FILTRE_NOM) != 0) {
+                sql.append("AND UPPER(f.DESIGNATION) LIKE UPPER(:filterName) ");
+            }
+            sql.append("GROUP BY f.DESIGNATION, f.NUM_FOURN ");
+            if ((filtres & FILTRE_MONTANT) != 0) {
+                sql.append("HAVING COALESCE(SUM(m.MNT_MARCHE), 0) >= :filterMinAmount ");
+            }
+            if ((filtres & FILTRE_PENALITES) != 0) {
+                sql.append((filtres & FILTRE_MONTANT) != 0 ? "AND " : "HAVING ").append("COALESCE(SUM(mp.MONTANT_PEN), 0) > 0 ");
+            }
+            sql.append("ORDER BY nombre_marches DESC, montant_total DESC ");
+            sql.append("OFFSET :offset ROWS FETCH NEXT :size ROWS ONLY");
+            return sql.toString();
+        }
+    });
+
+    private static final SqlTemplates SQL_MARCHES_DETAILLES = new SqlTemplates(new SqlTemplates.Constructeur() {
+        @Override
+        public String construire(int filtres) {
+            String sql = "SELECT " +
+                    "m.NUM_MARCHE, " +
+                    "m.DESIGNATION, " +
+                    "m.MNT_MARCHE, " +
+                    "m.DATE_MARCHE, " +
+                    "f.NUM_FOURN, " +
+                    "f.DESIGNATION as fournisseur, " +
+                    "b.DESIGNATION as banque " +
+                    "FROM ACHAT.MARCHE m " +
+                    "JOIN ACHAT.FOURNISSEUR f ON m.NUM_FOURN = f.NUM_FOURN " +
+                    "LEFT JOIN ACHAT.BANQUE b ON m.NUM_BANQUE = b.NUM_BANQUE " +
+                    "WHERE m.MNT_MARCHE IS NOT NULL ";
+            if ((filtres & FILTRE_STRUCT) != 0) {
+                sql += FILTRE_SQL_STRUCT;
+            }
+            if ((filtres & FILTRE_NOM) != 0) {
+                sql += "AND (UPPER(f.DESIGNATION) LIKE UPPER(:filterName) OR UPPER(m.DESIGNATION) LIKE UPPER(:filterName)) ";
+            }
+            if ((filtres & FILTRE_MONTANT) != 0) {
+                sql += "AND m.MNT_MARCHE >= :filterMinAmount ";
+            }
+            return sql + "ORDER BY m.MNT_MARCHE DESC " +
+                    "OFFSET :offset ROWS FETCH NEXT :size ROWS ONLY";
+        }
+    });
+
+    private static final SqlTemplates SQL_FOURNISSEURS_AVEC_MARCHES = new SqlTemplates(new SqlTemplates.Constructeur() {
+        @Override
+        public String construire(int filtres) {
+            String sql = "SELECT " +
+                    "f.DESIGNATION as designation, " +
+                    "f.NUM_FOURN as numFourn, " +
+                    "COUNT(m.NUM_MARCHE) as nombre_marches, " +
+                    "COALESCE(SUM(m.MNT_MARCHE), 0) as montant_total, " +
+                    "COALESCE(COUNT(DISTINCT m.NUM_MARCHE), 0) as marches_uniques " +
+                    "FROM ACHAT.FOURNISSEUR f " +
+                    "LEFT JOIN ACHAT.MARCHE m ON f.NUM_FOURN = m.NUM_FOURN " +
+                    "WHERE 1=1 ";
+            if ((filtres & FILTRE_STRUCT) != 0) {
+                sql += FILTRE_SQL_STRUCT;
+            }
+            if ((filtres & FILTRE_NOM) != 0) {
+                sql += "AND (UPPER(f.DESIGNATION) LIKE UPPER(:filterName) OR UPPER(f.DESIGNATION_FR) LIKE UPPER(:filterName)) ";
+            }
+            if ((filtres & FILTRE_MONTANT) != 0) {
+                sql += "AND m.MNT_MARCHE >= :filterMinAmount ";
+            }
+            return sql + "GROUP BY f.DESIGNATION, f.NUM_FOURN " +
+                    "HAVING COUNT(m.NUM_MARCHE) > 0 " +
+                    "ORDER BY nombre_marches DESC, montant_total DESC " +
+                    "OFFSET :offset ROWS FETCH NEXT :size ROWS ONLY";
+        }
+    });
+
+    private static final SqlTemplates SQL_EVOLUTION_PAR_PERIODE = evolutionMensuelle("m.DATE_MARCHE >= ADD_MONTHS(SYSDATE, -:months) ");
+
+    private static final SqlTemplates SQL_EVOLUTION_PAR_DATES = evolutionMensuelle(
+            "m.DATE_MARCHE >= TO_DATE(:dateDebut, 'YYYY-MM-DD') AND m.DATE_MARCHE <= TO_DATE(:dateFin, 'YYYY-MM-DD') ");
+
+    private static final SqlTemplates SQL_ACTIFS_PAR_PERIODE = agregatMarches("COUNT(*)",
+            "m.DATE_MARCHE >= ADD_MONTHS(SYSDATE, -:months) ");
+
+    private static final SqlTemplates SQL_ACTIFS_PAR_DATES = agregatMarches("COUNT(*)",
+            "m.DATE_MARCHE >= TO_DATE(:dateDebut, 'YYYY-MM-DD') AND m.DATE_MARCHE <= TO_DATE(:dateFin, 'YYYY-MM-DD') ");
+
+    private static final SqlTemplates SQL_DELAI_PAR_PERIODE = agregatMarches("COALESCE(AVG(SYSDATE - m.DATE_MARCHE), 0)",
+            "m.DATE_MARCHE >= ADD_MONTHS(SYSDATE, -:months) ");
+
+    private static final SqlTemplates SQL_DELAI_PAR_DATES = agregatMarches("COALESCE(AVG(SYSDATE - m.DATE_MARCHE), 0)",
+            "m.DATE_MARCHE >= TO_DATE(:dateDebut, 'YYYY-MM-DD') AND m.DATE_MARCHE <= TO_DATE(:dateFin, 'YYYY-MM-DD') ");
+
+    /**
+     * Nombre de marchés par mois sur la période, filtre de structure optionnel
+     */
+    private static SqlTemplates evolutionMensuelle(final String periode) {
+        return new SqlTemplates(new SqlTemplates.Constructeur() {
+            @Override
+            public String construire(int filtres) {
+                return "SELECT TO_CHAR(m.DATE_MARCHE, 'YYYY-MM') as mois, COUNT(*) as nombre_marches " +
+                        "FROM ACHAT.MARCHE m WHERE " + periode +
+                        ((filtres & FILTRE_STRUCT) != 0 ? FILTRE_SQL_STRUCT : "") +
+                        "GROUP BY TO_CHAR(m.DATE_MARCHE, 'YYYY-MM') " +
+                        "ORDER BY TO_CHAR(m.DATE_MARCHE, 'YYYY-MM')";
+            }
+        });
+    }
+
+    /**
+     * Agrégat unique sur les marchés de la période, filtre de structure optionnel
+     */
+    private static SqlTemplates agregatMarches(final String agregat, final String periode) {
+        return new SqlTemplates(new SqlTemplates.Constructeur() {
+            @Override
+            public String construire(int filtres) {
+                return "SELECT " + agregat + " FROM ACHAT.MARCHE m WHERE " + periode +
+                        ((filtres & FILTRE_STRUCT) != 0 ? FILTRE_SQL_STRUCT : "");
+            }
+        });
+    }
     
     @Autowired
     private ArabicFontUtil arabicFontUtil;
 
+    @Autowired
+    private ArabicTextCache arabicTextCache;
+
     @Autowired
     private FournisseurRepository fournisseurRepository;
 
@@ -59,75 +219,29 @@ public class StatistiquesServiceImpl implements StatistiquesService {
     @Autowired
     private MarcheRepository marcheRepository;
 
+    @Autowired
+    private StatistiquesSnapshotService statistiquesSnapshotService;
+
     @PersistenceContext
     private EntityManager entityManager;
 
-    // ======= Police arabe intégrée (chargée une seule fois) =======
-    private static BaseFont ARABIC_BASE_FONT;
+    @Value("${statistiques.generales.composite:true}")
+    private boolean generalesComposite;
 
-    private static synchronized BaseFont getArabicBaseFont() {
-        if (ARABIC_BASE_FONT != null) {
-            return ARABIC_BASE_FONT;
-        }
-        InputStream in = null;
-        try {
-            // Charger la police depuis le classpath
-            ClassLoader cl = Thread.currentThread().getContextClassLoader();
-            in = cl.getResourceAsStream("fonts/arabic/NotoNaskhArabic-Regular.ttf");
-            if (in == null) {
-                // Fallback: chemin alternatif
-                in = StatistiquesServiceImpl.class.getClassLoader().getResourceAsStream("fonts/arabic/NotoNaskhArabic-Regular.ttf");
-            }
-            if (in == null) {
-                return null; // on laissera les polices par défaut
-            }
-            byte[] bytes = toByteArray(in);
-            ARABIC_BASE_FONT = BaseFont.createFont(
-                    "NotoNaskhArabic-Regular.ttf",
-                    BaseFont.IDENTITY_H,
-                    BaseFont.EMBEDDED,
-                    false,
-                    bytes,
-                    null
-            );
-            return ARABIC_BASE_FONT;
-        } catch (Exception e) {
-            return null;
-        } finally {
-            if (in != null) {
-                try { in.close(); } catch (IOException ignored) {}
-            }
-        }
-    }
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
 
-    private static Font getArabicFont(float size, int style) {
-        BaseFont bf = getArabicBaseFont();
-        if (bf != null) {
-            return new Font(bf, size, style);
-        }
-        // Fallback si la police n'est pas trouvée
-        return FontFactory.getFont(BaseFont.IDENTITY_H, size, style);
-    }
+    @Value("${statistiques.export.fetch-size:500}")
+    private int exportFetchSize;
 
-    private static byte[] toByteArray(InputStream in) throws IOException {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        byte[] buf = new byte[4096];
-        int r;
-        while ((r = in.read(buf)) != -1) {
-            baos.write(buf, 0, r);
-        }
-        return baos.toByteArray();
-    }
+    @Value("${statistiques.export.fenetre-lignes:100}")
+    private int exportFenetreLignes;
 
-    private static String shapeArabic(String text) {
-        if (text == null) return "";
-        try {
-            ArabicLigaturizer lig = new ArabicLigaturizer();
-            return lig.process(text);
-        } catch (Exception e) {
-            return text;
-        }
-    }
+    @Value("${statistiques.export.pdf-lot-lignes:50}")
+    private int exportPdfLotLignes;
+
+    /** Nombre de lignes examinées pour dimensionner les colonnes d'un export en flux. */
+    private static final int EXPORT_ECHANTILLON_LARGEUR = 200;
 
     @Override
     public Map<String, Object> getFournisseursStatistiques(String numStruct, int page, int size,
@@ -136,80 +250,22 @@ public class StatistiquesServiceImpl implements StatistiquesService {
         Map<String, Object> result = new HashMap<>();
 
         try {
-            // Construction sécurisée de la requête SQL
-            StringBuilder sql = new StringBuilder();
-            sql.append("SELECT ");
-            sql.append("f.DESIGNATION, ");
-            sql.append("f.NUM_FOURN, ");
-            sql.append("COUNT(m.NUM_MARCHE) as nombre_marches, ");
-            sql.append("COALESCE(SUM(m.MNT_MARCHE), 0) as montant_total, ");
-            sql.append("COALESCE(SUM(mp.MONTANT_PEN), 0) as penalites, ");
-            sql.append("b.DESIGNATION as banque ");
-            sql.append("FROM ACHAT.FOURNISSEUR f ");
-            sql.append("LEFT JOIN ACHAT.MARCHE m ON f.NUM_FOURN = m.NUM_FOURN ");
-            sql.append("LEFT JOIN ACHAT.BANQUE b ON m.NUM_BANQUE = b.NUM_BANQUE ");
-            sql.append("LEFT JOIN ACHAT.MRC_PENALITE mp ON m.NUM_MARCHE = mp.NUM_MARCHE ");
-            sql.append("WHERE 1=1 ");
-
-            Query query = entityManager.createNativeQuery(sql.toString());
-
-            // Ajout sécurisé des conditions avec paramètres liés
-            if (isValidStruct(numStruct)) {
-                sql.append("AND (:numStruct = '03' OR m.NUM_STRUCT = :numStruct) ");
-                query = entityManager.createNativeQuery(sql.toString());
+            boolean avecStruct = isValidStruct(numStruct);
+            boolean avecNom = isValidFilter(filterName);
+            boolean avecMontant = filterMinAmount != null && filterMinAmount > 0;
+            boolean avecPenalites = filterHasPenalites != null && filterHasPenalites;
+            Query query = entityManager.createNativeQuery(SQL_FOURNISSEURS_STATISTIQUES.sql(
+                    (avecStruct ? FILTRE_STRUCT : 0) | (avecNom ? FILTRE_NOM : 0)
+                            | (avecMontant ? FILTRE_MONTANT : 0) | (avecPenalites ? FILTRE_PENALITES : 0)));
+
+            // Paramètres liés uniquement pour les filtres actifs
+            if (avecStruct) {
                 query.setParameter("numStruct", numStruct);
             }
-
-            if (isValidFilter(filterName)) {
-                sql.append("AND UPPER(f.DESIGNATION) LIKE UPPER(:filterName) ");
-                query = entityManager.createNativeQuery(sql.toString());
-                if (isValidStruct(numStruct)) {
-                    query.setParameter("numStruct", numStruct);
-                }
+            if (avecNom) {
                 query.setParameter("filterName", "%" + filterName + "%");
             }
-
-            sql.append("GROUP BY f.DESIGNATION, f.NUM_FOURN ");
-
-            if (filterMinAmount != null && filterMinAmount > 0) {
-                sql.append("HAVING COALESCE(SUM(m.MNT_MARCHE), 0) >= :filterMinAmount ");
-                query = entityManager.createNativeQuery(sql.toString());
-                if (isValidStruct(numStruct)) {
-                    query.setParameter("numStruct", numStruct);
-                }
-                if (isValidFilter(filterName)) {
-                    query.setParameter("filterName", "%" + filterName + "%");
-                }
-                query.setParameter("filterMinAmount", filterMinAmount);
-            }
-
-            if (filterHasPenalites != null && filterHasPenalites) {
-                sql.append((filterMinAmount != null ? "AND " : "HAVING ") + "COALESCE(SUM(mp.MONTANT_PEN), 0) > 0 ");
-                query = entityManager.createNativeQuery(sql.toString());
-                if (isValidStruct(numStruct)) {
-                    query.setParameter("numStruct", numStruct);
-                }
-                if (isValidFilter(filterName)) {
-                    query.setParameter("filterName", "%" + filterName + "%");
-                }
-                if (filterMinAmount != null && filterMinAmount > 0) {
-                    query.setParameter("filterMinAmount", filterMinAmount);
-                }
-            }
-
-            sql.append("ORDER BY nombre_marches DESC, montant_total DESC ");
-            sql.append("OFFSET :offset ROWS FETCH NEXT :size ROWS ONLY");
-
-            query = entityManager.createNativeQuery(sql.toString());
-            
-            // Réapplication sécurisée de tous les paramètres
-            if (isValidStruct(numStruct)) {
-                query.setParameter("numStruct", numStruct);
-            }
-            if (isValidFilter(filterName)) {
-                query.setParameter("filterName", "%" + filterName + "%");
-            }
-            if (filterMinAmount != null && filterMinAmount > 0) {
+            if (avecMontant) {
                 query.setParameter("filterMinAmount", filterMinAmount);
             }
             query.setParameter("offset", page * size);
@@ -454,43 +510,19 @@ public class StatistiquesServiceImpl implements StatistiquesService {
         Map<String, Object> result = new HashMap<>();
 
         try {
-            String sql = "SELECT " +
-                    "m.NUM_MARCHE, " +
-                    "m.DESIGNATION, " +
-                    "m.MNT_MARCHE, " +
-                    "m.DATE_MARCHE, " +
-                    "f.NUM_FOURN, " +
-                    "f.DESIGNATION as fournisseur, " +
-                    "b.DESIGNATION as banque " +
-                    "FROM ACHAT.MARCHE m " +
-                    "JOIN ACHAT.FOURNISSEUR f ON m.NUM_FOURN = f.NUM_FOURN " +
-                    "LEFT JOIN ACHAT.BANQUE b ON m.NUM_BANQUE = b.NUM_BANQUE " +
-                    "WHERE m.MNT_MARCHE IS NOT NULL ";
-
-            if (numStruct != null && !numStruct.isEmpty()) {
-                sql += "AND (:numStruct = '03' OR m.NUM_STRUCT = :numStruct) ";
-            }
-
-            if (filterName != null && !filterName.isEmpty()) {
-                sql += "AND (UPPER(f.DESIGNATION) LIKE UPPER(:filterName) OR UPPER(m.DESIGNATION) LIKE UPPER(:filterName)) ";
-            }
-
-            if (filterMinAmount != null && filterMinAmount > 0) {
-                sql += "AND m.MNT_MARCHE >= :filterMinAmount ";
-            }
-
-            sql += "ORDER BY m.MNT_MARCHE DESC " +
-                   "OFFSET :offset ROWS FETCH NEXT :size ROWS ONLY";
-
-            Query query = entityManager.createNativeQuery(sql);
+            boolean avecStruct = numStruct != null && !numStruct.isEmpty();
+            boolean avecNom = filterName != null && !filterName.isEmpty();
+            boolean avecMontant = filterMinAmount != null && filterMinAmount > 0;
+            Query query = entityManager.createNativeQuery(SQL_MARCHES_DETAILLES.sql(
+                    (avecStruct ? FILTRE_STRUCT : 0) | (avecNom ? FILTRE_NOM : 0) | (avecMontant ? FILTRE_MONTANT : 0)));
 
-            if (numStruct != null && !numStruct.isEmpty()) {
+            if (avecStruct) {
                 query.setParameter("numStruct", numStruct);
             }
-            if (filterName != null && !filterName.isEmpty()) {
+            if (avecNom) {
                 query.setParameter("filterName", "%" + filterName + "%");
             }
-            if (filterMinAmount != null && filterMinAmount > 0) {
+            if (avecMontant) {
                 query.setParameter("filterMinAmount", filterMinAmount);
             }
 
@@ -530,42 +562,23 @@ public class StatistiquesServiceImpl implements StatistiquesService {
         Map<String, Object> result = new HashMap<>();
         try {
             // Requête SQL améliorée pour récupérer les fournisseurs avec leurs marchés
-            String sql = "SELECT " +
-                    "f.DESIGNATION as designation, " +
-                    "f.NUM_FOURN as numFourn, " +
-                    "COUNT(m.NUM_MARCHE) as nombre_marches, " +
-                    "COALESCE(SUM(m.MNT_MARCHE), 0) as montant_total, " +
-                    "COALESCE(COUNT(DISTINCT m.NUM_MARCHE), 0) as marches_uniques " +
-                    "FROM ACHAT.FOURNISSEUR f " +
-                    "LEFT JOIN ACHAT.MARCHE m ON f.NUM_FOURN = m.NUM_FOURN " +
-                    "WHERE 1=1 ";
-
-            if (numStruct != null && !numStruct.isEmpty()) {
-                sql += "AND (:numStruct = '03' OR m.NUM_STRUCT = :numStruct) ";
-            }
-            if (filterName != null && !filterName.isEmpty()) {
-                sql += "AND (UPPER(f.DESIGNATION) LIKE UPPER(:filterName) OR UPPER(f.DESIGNATION_FR) LIKE UPPER(:filterName)) ";
-            }
-            if (filterMinAmount != null && filterMinAmount > 0) {
-                sql += "AND m.MNT_MARCHE >= :filterMinAmount ";
-            }
-
-            sql += "GROUP BY f.DESIGNATION, f.NUM_FOURN " +
-                   "HAVING COUNT(m.NUM_MARCHE) > 0 " +
-                   "ORDER BY nombre_marches DESC, montant_total DESC " +
-                   "OFFSET :offset ROWS FETCH NEXT :size ROWS ONLY";
+            boolean avecStruct = numStruct != null && !numStruct.isEmpty();
+            boolean avecNom = filterName != null && !filterName.isEmpty();
+            boolean avecMontant = filterMinAmount != null && filterMinAmount > 0;
+            String sql = SQL_FOURNISSEURS_AVEC_MARCHES.sql(
+                    (avecStruct ? FILTRE_STRUCT : 0) | (avecNom ? FILTRE_NOM : 0) | (avecMontant ? FILTRE_MONTANT : 0));
 
             System.out.println("SQL Query: " + sql);
             System.out.println("Parameters: numStruct=" + numStruct + ", page=" + page + ", size=" + size + ", filterName=" + filterName + ", filterMinAmount=" + filterMinAmount);
 
             Query query = entityManager.createNativeQuery(sql);
-            if (numStruct != null && !numStruct.isEmpty()) {
+            if (avecStruct) {
                 query.setParameter("numStruct", numStruct);
             }
-            if (filterName != null && !filterName.isEmpty()) {
+            if (avecNom) {
                 query.setParameter("filterName", "%" + filterName + "%");
             }
-            if (filterMinAmount != null && filterMinAmount > 0) {
+            if (avecMontant) {
                 query.setParameter("filterMinAmount", filterMinAmount);
             }
             query.setParameter("offset", page * size);
@@ -746,27 +759,8 @@ public class StatistiquesServiceImpl implements StatistiquesService {
         try {
             int months = getMonthsFromPeriod(period);
 
-            StringBuilder sql = new StringBuilder();
-            sql.append("SELECT ");
-            sql.append("TO_CHAR(m.DATE_MARCHE, 'YYYY-MM') as mois, ");
-            sql.append("COUNT(*) as nombre_marches ");
-            sql.append("FROM ACHAT.MARCHE m ");
-            sql.append("WHERE m.DATE_MARCHE >= ADD_MONTHS(SYSDATE, -:months) ");
-
-            Query query = entityManager.createNativeQuery(sql.toString());
-            query.setParameter("months", months);
-
-            if (isValidStruct(numStruct)) {
-                sql.append("AND (:numStruct = '03' OR m.NUM_STRUCT = :numStruct) ");
-                query = entityManager.createNativeQuery(sql.toString());
-                query.setParameter("months", months);
-                query.setParameter("numStruct", numStruct);
-            }
-
-            sql.append("GROUP BY TO_CHAR(m.DATE_MARCHE, 'YYYY-MM') ");
-            sql.append("ORDER BY TO_CHAR(m.DATE_MARCHE, 'YYYY-MM')");
-
-            query = entityManager.createNativeQuery(sql.toString());
+            int filtres = isValidStruct(numStruct) ? FILTRE_STRUCT : 0;
+            Query query = entityManager.createNativeQuery(SQL_EVOLUTION_PAR_PERIODE.sql(filtres));
             query.setParameter("months", months);
             if (isValidStruct(numStruct)) {
                 query.setParameter("numStruct", numStruct);
@@ -786,22 +780,14 @@ public class StatistiquesServiceImpl implements StatistiquesService {
             }
 
             // Métriques sécurisées
-            String sqlActive = "SELECT COUNT(*) FROM ACHAT.MARCHE m WHERE m.DATE_MARCHE >= ADD_MONTHS(SYSDATE, -:months)";
-            if (isValidStruct(numStruct)) {
-                sqlActive += " AND (:numStruct = '03' OR m.NUM_STRUCT = :numStruct)";
-            }
-            Query qActive = entityManager.createNativeQuery(sqlActive);
+            Query qActive = entityManager.createNativeQuery(SQL_ACTIFS_PAR_PERIODE.sql(filtres));
             qActive.setParameter("months", months);
             if (isValidStruct(numStruct)) {
                 qActive.setParameter("numStruct", numStruct);
             }
             long activeCount = ((Number) qActive.getSingleResult()).longValue();
 
-            String sqlDelay = "SELECT COALESCE(AVG(SYSDATE - m.DATE_MARCHE), 0) FROM ACHAT.MARCHE m WHERE m.DATE_MARCHE >= ADD_MONTHS(SYSDATE, -:months)";
-            if (isValidStruct(numStruct)) {
-                sqlDelay += " AND (:numStruct = '03' OR m.NUM_STRUCT = :numStruct)";
-            }
-            Query qDelay = entityManager.createNativeQuery(sqlDelay);
+            Query qDelay = entityManager.createNativeQuery(SQL_DELAI_PAR_PERIODE.sql(filtres));
             qDelay.setParameter("months", months);
             if (isValidStruct(numStruct)) {
                 qDelay.setParameter("numStruct", numStruct);
@@ -849,30 +835,8 @@ public class StatistiquesServiceImpl implements StatistiquesService {
                 throw new IllegalArgumentException("Format de date invalide");
             }
 
-            StringBuilder sql = new StringBuilder();
-            sql.append("SELECT ");
-            sql.append("TO_CHAR(m.DATE_MARCHE, 'YYYY-MM') as mois, ");
-            sql.append("COUNT(*) as nombre_marches ");
-            sql.append("FROM ACHAT.MARCHE m ");
-            sql.append("WHERE m.DATE_MARCHE >= TO_DATE(:dateDebut, 'YYYY-MM-DD') ");
-            sql.append("AND m.DATE_MARCHE <= TO_DATE(:dateFin, 'YYYY-MM-DD') ");
-
-            Query query = entityManager.createNativeQuery(sql.toString());
-            query.setParameter("dateDebut", dateDebut);
-            query.setParameter("dateFin", dateFin);
-
-            if (isValidStruct(numStruct)) {
-                sql.append("AND (:numStruct = '03' OR m.NUM_STRUCT = :numStruct) ");
-                query = entityManager.createNativeQuery(sql.toString());
-                query.setParameter("dateDebut", dateDebut);
-                query.setParameter("dateFin", dateFin);
-                query.setParameter("numStruct", numStruct);
-            }
-
-            sql.append("GROUP BY TO_CHAR(m.DATE_MARCHE, 'YYYY-MM') ");
-            sql.append("ORDER BY TO_CHAR(m.DATE_MARCHE, 'YYYY-MM')");
-
-            query = entityManager.createNativeQuery(sql.toString());
+            int filtres = isValidStruct(numStruct) ? FILTRE_STRUCT : 0;
+            Query query = entityManager.createNativeQuery(SQL_EVOLUTION_PAR_DATES.sql(filtres));
             query.setParameter("dateDebut", dateDebut);
             query.setParameter("dateFin", dateFin);
             if (isValidStruct(numStruct)) {
@@ -893,11 +857,7 @@ public class StatistiquesServiceImpl implements StatistiquesService {
             }
             
             // Métriques pour la période donnée
-            String sqlActive = "SELECT COUNT(*) FROM ACHAT.MARCHE m WHERE m.DATE_MARCHE >= TO_DATE(:dateDebut, 'YYYY-MM-DD') AND m.DATE_MARCHE <= TO_DATE(:dateFin, 'YYYY-MM-DD')";
-            if (isValidStruct(numStruct)) {
-                sqlActive += " AND (:numStruct = '03' OR m.NUM_STRUCT = :numStruct)";
-            }
-            Query qActive = entityManager.createNativeQuery(sqlActive);
+            Query qActive = entityManager.createNativeQuery(SQL_ACTIFS_PAR_DATES.sql(filtres));
             qActive.setParameter("dateDebut", dateDebut);
             qActive.setParameter("dateFin", dateFin);
             if (isValidStruct(numStruct)) {
@@ -905,11 +865,7 @@ public class StatistiquesServiceImpl implements StatistiquesService {
             }
             long activeCount = ((Number) qActive.getSingleResult()).longValue();
 
-            String sqlDelay = "SELECT COALESCE(AVG(SYSDATE - m.DATE_MARCHE), 0) FROM ACHAT.MARCHE m WHERE m.DATE_MARCHE >= TO_DATE(:dateDebut, 'YYYY-MM-DD') AND m.DATE_MARCHE <= TO_DATE(:dateFin, 'YYYY-MM-DD')";
-            if (isValidStruct(numStruct)) {
-                sqlDelay += " AND (:numStruct = '03' OR m.NUM_STRUCT = :numStruct)";
-            }
-            Query qDelay = entityManager.createNativeQuery(sqlDelay);
+            Query qDelay = entityManager.createNativeQuery(SQL_DELAI_PAR_DATES.sql(filtres));
             qDelay.setParameter("dateDebut", dateDebut);
             qDelay.setParameter("dateFin", dateFin);
             if (isValidStruct(numStruct)) {
@@ -965,6 +921,17 @@ public class StatistiquesServiceImpl implements StatistiquesService {
     public Map<String, Object> getFournisseursRepartition(String numStruct, int limit) {
         Map<String, Object> result = new HashMap<>();
 
+        StatistiquesSnapshot snapshot = snapshotCourant();
+        if (snapshot != null && snapshot.perimetre(numStruct).couvreTopFournisseurs(limit)) {
+            Map<String, Integer> top = snapshot.perimetre(numStruct).getTopFournisseurs(limit);
+            List<String> colors = Arrays.asList("#3498db", "#2ecc71", "#e74c3c", "#f39c12", "#9b59b6");
+            result.put("labels", new ArrayList<>(top.keySet()));
+            result.put("data", new ArrayList<>(top.values()));
+            result.put("colors", colors.subList(0, Math.min(colors.size(), top.size())));
+            ajouterFraicheur(result, snapshot);
+            return result;
+        }
+
         try {
             String sql = "SELECT " +
                     "f.DESIGNATION, " +
@@ -1009,6 +976,7 @@ public class StatistiquesServiceImpl implements StatistiquesService {
             result.put("data", Arrays.asList(3, 2, 1, 1, 1));
         }
 
+        ajouterFraicheur(result, null);
         return result;
     }
 
@@ -1016,6 +984,15 @@ public class StatistiquesServiceImpl implements StatistiquesService {
     public Map<String, Object> getRegionsRepartition(String numStruct) {
         Map<String, Object> result = new HashMap<>();
 
+        StatistiquesSnapshot snapshot = snapshotCourant();
+        if (snapshot != null) {
+            Map<String, Integer> regions = snapshot.perimetre(numStruct).getMarchesParRegion();
+            result.put("labels", new ArrayList<>(regions.keySet()));
+            result.put("data", new ArrayList<>(regions.values()));
+            ajouterFraicheur(result, snapshot);
+            return result;
+        }
+
         try {
             // Simulation basée sur les données de structure ou fournisseur
             String sql = "SELECT " +
@@ -1070,6 +1047,7 @@ public class StatistiquesServiceImpl implements StatistiquesService {
             result.put("data", Arrays.asList(5, 3, 2, 1, 2));
         }
 
+        ajouterFraicheur(result, null);
         return result;
     }
 
@@ -1077,6 +1055,15 @@ public class StatistiquesServiceImpl implements StatistiquesService {
     public Map<String, Object> getArticlesRepartition(String numStruct) {
         Map<String, Object> result = new HashMap<>();
 
+        StatistiquesSnapshot snapshot = snapshotCourant();
+        if (snapshot != null) {
+            Map<String, Integer> secteurs = snapshot.perimetre(numStruct).getArticlesParSecteur();
+            result.put("labels", new ArrayList<>(secteurs.keySet()));
+            result.put("data", new ArrayList<>(secteurs.values()));
+            ajouterFraicheur(result, snapshot);
+            return result;
+        }
+
         try {
             String sql = "SELECT " +
                     "s.DESIGNATION as secteur, " +
@@ -1121,6 +1108,7 @@ public class StatistiquesServiceImpl implements StatistiquesService {
             result.put("data", Arrays.asList(45, 30, 15, 8, 2));
         }
 
+        ajouterFraicheur(result, null);
         return result;
     }
 
@@ -1219,23 +1207,35 @@ public class StatistiquesServiceImpl implements StatistiquesService {
     public Map<String, Object> getMetriquesCles(String numStruct) {
         Map<String, Object> result = new HashMap<>();
 
+        StatistiquesSnapshot snapshot = snapshotCourant();
         try {
-            // Récupérer les métriques depuis la base
-            Long marchesCount = numStruct != null && !numStruct.isEmpty() ?
-                marcheRepository.countByNumStruct(numStruct) : marcheRepository.count();
-            Long fournisseursCount = fournisseurRepository.count();
-            Long articlesCount = articleRepository.count();
-            
-            // Calculer la valeur totale des marchés
-            String sqlValeurTotale = "SELECT COALESCE(SUM(MNT_MARCHE), 0) FROM ACHAT.MARCHE";
-            if (numStruct != null && !numStruct.isEmpty()) {
-                sqlValeurTotale += " WHERE NUM_STRUCT = :numStruct";
-            }
-            Query queryValeurTotale = entityManager.createNativeQuery(sqlValeurTotale);
-            if (numStruct != null && !numStruct.isEmpty()) {
-                queryValeurTotale.setParameter("numStruct", numStruct);
+            Long marchesCount;
+            Long fournisseursCount;
+            Long articlesCount;
+            Double valeurTotale;
+            if (snapshot != null) {
+                marchesCount = snapshot.perimetre(numStruct).nombreMarches();
+                fournisseursCount = snapshot.getTotalFournisseurs();
+                articlesCount = snapshot.getTotalArticles();
+                valeurTotale = snapshot.structure(numStruct).montantMarches() / 1000; // En milliers TND
+            } else {
+                // Récupérer les métriques depuis la base
+                marchesCount = numStruct != null && !numStruct.isEmpty() ?
+                    marcheRepository.countByNumStruct(numStruct) : marcheRepository.count();
+                fournisseursCount = fournisseurRepository.count();
+                articlesCount = articleRepository.count();
+
+                // Calculer la valeur totale des marchés
+                String sqlValeurTotale = "SELECT COALESCE(SUM(MNT_MARCHE), 0) FROM ACHAT.MARCHE";
+                if (numStruct != null && !numStruct.isEmpty()) {
+                    sqlValeurTotale += " WHERE NUM_STRUCT = :numStruct";
+                }
+                Query queryValeurTotale = entityManager.createNativeQuery(sqlValeurTotale);
+                if (numStruct != null && !numStruct.isEmpty()) {
+                    queryValeurTotale.setParameter("numStruct", numStruct);
+                }
+                valeurTotale = ((Number) queryValeurTotale.getSingleResult()).doubleValue() / 1000; // En milliers TND
             }
-            Double valeurTotale = ((Number) queryValeurTotale.getSingleResult()).doubleValue() / 1000; // En milliers TND
 
             result.put("marchesActifs", marchesCount);
             result.put("fournisseurs", fournisseursCount);
@@ -1262,6 +1262,7 @@ public class StatistiquesServiceImpl implements StatistiquesService {
             result.put("tendanceValeur", 15.7);
         }
 
+        ajouterFraicheur(result, snapshot);
         return result;
     }
     
@@ -1269,53 +1270,71 @@ public class StatistiquesServiceImpl implements StatistiquesService {
     public Map<String, Object> getTendancesMetriques(String numStruct, int mois) {
         Map<String, Object> result = new HashMap<>();
         
+        StatistiquesSnapshot snapshot = snapshotCourant();
         try {
-            // Récupérer les valeurs actuelles
-            Long marchesActuels = numStruct != null && !numStruct.isEmpty() ?
-                marcheRepository.countByNumStruct(numStruct) : marcheRepository.count();
-            Long fournisseursActuels = fournisseurRepository.count();
-            Long articlesActuels = articleRepository.count();
-            
-            // Calculer la valeur totale actuelle des marchés
-            String sqlValeurActuelle = "SELECT COALESCE(SUM(MNT_MARCHE), 0) FROM ACHAT.MARCHE";
-            if (numStruct != null && !numStruct.isEmpty()) {
-                sqlValeurActuelle += " WHERE NUM_STRUCT = :numStruct";
-            }
-            Query queryValeurActuelle = entityManager.createNativeQuery(sqlValeurActuelle);
-            if (numStruct != null && !numStruct.isEmpty()) {
-                queryValeurActuelle.setParameter("numStruct", numStruct);
-            }
-            Double valeurActuelle = ((Number) queryValeurActuelle.getSingleResult()).doubleValue();
-            
-            // Récupérer les valeurs historiques (il y a X mois)
-            String sqlMarchesHistoriques = "SELECT COUNT(*) FROM ACHAT.MARCHE WHERE DATE_MARCHE <= ADD_MONTHS(SYSDATE, -:mois)";
-            if (numStruct != null && !numStruct.isEmpty()) {
-                sqlMarchesHistoriques += " AND NUM_STRUCT = :numStruct";
-            }
-            Query queryMarchesHistoriques = entityManager.createNativeQuery(sqlMarchesHistoriques);
-            queryMarchesHistoriques.setParameter("mois", mois);
-            if (numStruct != null && !numStruct.isEmpty()) {
-                queryMarchesHistoriques.setParameter("numStruct", numStruct);
+            Long marchesActuels;
+            Long fournisseursActuels;
+            Long articlesActuels;
+            Double valeurActuelle;
+            Long marchesHistoriques;
+            Double valeurHistorique;
+            if (snapshot != null) {
+                int jourLimite = jourIlYA(mois);
+                StatistiquesSnapshot.Agregats structure = snapshot.structure(numStruct);
+                marchesActuels = snapshot.perimetre(numStruct).nombreMarches();
+                fournisseursActuels = snapshot.getTotalFournisseurs();
+                articlesActuels = snapshot.getTotalArticles();
+                valeurActuelle = structure.montantMarches();
+                marchesHistoriques = structure.nombreMarchesJusquAu(jourLimite);
+                valeurHistorique = structure.montantMarchesJusquAu(jourLimite);
+            } else {
+                // Récupérer les valeurs actuelles
+                marchesActuels = numStruct != null && !numStruct.isEmpty() ?
+                    marcheRepository.countByNumStruct(numStruct) : marcheRepository.count();
+                fournisseursActuels = fournisseurRepository.count();
+                articlesActuels = articleRepository.count();
+
+                // Calculer la valeur totale actuelle des marchés
+                String sqlValeurActuelle = "SELECT COALESCE(SUM(MNT_MARCHE), 0) FROM ACHAT.MARCHE";
+                if (numStruct != null && !numStruct.isEmpty()) {
+                    sqlValeurActuelle += " WHERE NUM_STRUCT = :numStruct";
+                }
+                Query queryValeurActuelle = entityManager.createNativeQuery(sqlValeurActuelle);
+                if (numStruct != null && !numStruct.isEmpty()) {
+                    queryValeurActuelle.setParameter("numStruct", numStruct);
+                }
+                valeurActuelle = ((Number) queryValeurActuelle.getSingleResult()).doubleValue();
+
+                // Récupérer les valeurs historiques (il y a X mois)
+                String sqlMarchesHistoriques = "SELECT COUNT(*) FROM ACHAT.MARCHE WHERE DATE_MARCHE <= ADD_MONTHS(SYSDATE, -:mois)";
+                if (numStruct != null && !numStruct.isEmpty()) {
+                    sqlMarchesHistoriques += " AND NUM_STRUCT = :numStruct";
+                }
+                Query queryMarchesHistoriques = entityManager.createNativeQuery(sqlMarchesHistoriques);
+                queryMarchesHistoriques.setParameter("mois", mois);
+                if (numStruct != null && !numStruct.isEmpty()) {
+                    queryMarchesHistoriques.setParameter("numStruct", numStruct);
+                }
+                marchesHistoriques = ((Number) queryMarchesHistoriques.getSingleResult()).longValue();
+
+                // Valeur totale historique
+                String sqlValeurHistorique = "SELECT COALESCE(SUM(MNT_MARCHE), 0) FROM ACHAT.MARCHE WHERE DATE_MARCHE <= ADD_MONTHS(SYSDATE, -:mois)";
+                if (numStruct != null && !numStruct.isEmpty()) {
+                    sqlValeurHistorique += " AND NUM_STRUCT = :numStruct";
+                }
+                Query queryValeurHistorique = entityManager.createNativeQuery(sqlValeurHistorique);
+                queryValeurHistorique.setParameter("mois", mois);
+                if (numStruct != null && !numStruct.isEmpty()) {
+                    queryValeurHistorique.setParameter("numStruct", numStruct);
+                }
+                valeurHistorique = ((Number) queryValeurHistorique.getSingleResult()).doubleValue();
             }
-            Long marchesHistoriques = ((Number) queryMarchesHistoriques.getSingleResult()).longValue();
-            
+
             // Pour les fournisseurs et articles, nous utilisons des données simulées car les dates d'ajout
             // ne sont pas disponibles dans le modèle actuel
             Long fournisseursHistoriques = (long) (fournisseursActuels * 0.9); // Simulation: 90% du nombre actuel
             Long articlesHistoriques = (long) (articlesActuels * 0.95); // Simulation: 95% du nombre actuel
             
-            // Valeur totale historique
-            String sqlValeurHistorique = "SELECT COALESCE(SUM(MNT_MARCHE), 0) FROM ACHAT.MARCHE WHERE DATE_MARCHE <= ADD_MONTHS(SYSDATE, -:mois)";
-            if (numStruct != null && !numStruct.isEmpty()) {
-                sqlValeurHistorique += " AND NUM_STRUCT = :numStruct";
-            }
-            Query queryValeurHistorique = entityManager.createNativeQuery(sqlValeurHistorique);
-            queryValeurHistorique.setParameter("mois", mois);
-            if (numStruct != null && !numStruct.isEmpty()) {
-                queryValeurHistorique.setParameter("numStruct", numStruct);
-            }
-            Double valeurHistorique = ((Number) queryValeurHistorique.getSingleResult()).doubleValue();
-            
             // Calculer les tendances en pourcentage
             double tendanceMarches = calculerPourcentageTendance(marchesActuels, marchesHistoriques);
             double tendanceFournisseurs = calculerPourcentageTendance(fournisseursActuels, fournisseursHistoriques);
@@ -1352,6 +1371,7 @@ public class StatistiquesServiceImpl implements StatistiquesService {
             result.put("tendanceValeur", 15.7);
         }
         
+        ajouterFraicheur(result, snapshot);
         return result;
     }
     
@@ -1388,10 +1408,24 @@ public class StatistiquesServiceImpl implements StatistiquesService {
     @Override
     public byte[] exportToPDF(String numStruct, String type, String dateDebut, String dateFin) {
         try {
-            // Création du document PDF
-            com.itextpdf.text.Document document = new com.itextpdf.text.Document();
             ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            com.itextpdf.text.pdf.PdfWriter writer = com.itextpdf.text.pdf.PdfWriter.getInstance(document, baos);
+            exportToPDF(numStruct, type, dateDebut, dateFin, baos);
+            return baos.toByteArray();
+        } catch (Exception e) {
+            logger.error("Erreur lors de la génération du PDF: {}", e.getMessage(), e);
+            String errorMessage = "Erreur lors de la génération du PDF: " + e.getMessage();
+            return errorMessage.getBytes();
+        }
+    }
+
+    @Override
+    public void exportToPDF(String numStruct, String type, String dateDebut, String dateFin,
+                            OutputStream out) throws IOException {
+        // Création du document PDF, écrit au fil de l'eau dans le flux de sortie
+        com.itextpdf.text.Document document = new com.itextpdf.text.Document();
+        try {
+            com.itextpdf.text.pdf.PdfWriter writer = com.itextpdf.text.pdf.PdfWriter.getInstance(document, out);
+            writer.setCloseStream(false);
             
             // Ajout d'un event pour le pied de page
             writer.setPageEvent(new FooterPageEvent());
@@ -1452,17 +1486,16 @@ public class StatistiquesServiceImpl implements StatistiquesService {
                 // Type par défaut - statistiques générales
                 exportStatistiquesGenerales(document, numStruct, dateDebut, dateFin);
             }
-            
-
-            
-            document.close();
-            return baos.toByteArray();
-            
+        } catch (IOException | RuntimeException e) {
+            throw e;
         } catch (Exception e) {
-            logger.error("Erreur lors de la génération du PDF: {}", e.getMessage(), e);
-            String errorMessage = "Erreur lors de la génération du PDF: " + e.getMessage();
-            return errorMessage.getBytes();
+            throw new IOException("Erreur lors de la génération du PDF: " + e.getMessage(), e);
+        } finally {
+            if (document.isOpen()) {
+                document.close();
+            }
         }
+        out.flush();
     }
 
     @Override
@@ -1551,6 +1584,97 @@ public class StatistiquesServiceImpl implements StatistiquesService {
         }
     }
     
+    @Override
+    public void validerPeriode(String dateDebut, String dateFin) {
+        if ((dateDebut != null && !dateDebut.trim().isEmpty() && !isValidDate(dateDebut))
+                || (dateFin != null && !dateFin.trim().isEmpty() && !isValidDate(dateFin))) {
+            throw new IllegalArgumentException("Format de date invalide. Format attendu: YYYY-MM-DD");
+        }
+    }
+
+    @Override
+    public void exportToExcel(String numStruct, String type, String dateDebut, String dateFin,
+                              OutputStream out) throws IOException {
+        validerPeriode(dateDebut, dateFin);
+
+        // Classeur à fenêtre glissante : seules les dernières lignes restent en mémoire,
+        // les autres sont écrites dans un fichier temporaire compressé
+        SXSSFWorkbook workbook = new SXSSFWorkbook(exportFenetreLignes);
+        workbook.setCompressTempFiles(true);
+        try {
+            final org.apache.poi.ss.usermodel.Sheet sheet = workbook.createSheet("Statistiques Marchés");
+
+            org.apache.poi.ss.usermodel.CellStyle headerStyle = workbook.createCellStyle();
+            org.apache.poi.ss.usermodel.Font headerFont = workbook.createFont();
+            headerFont.setBold(true);
+            headerStyle.setFont(headerFont);
+
+            org.apache.poi.ss.usermodel.Cell titleCell = sheet.createRow(0).createCell(0);
+            titleCell.setCellValue("Rapport de Statistiques des Marchés");
+            titleCell.setCellStyle(headerStyle);
+
+            String periodeInfo = "Période d'analyse: ";
+            if (dateDebut != null && dateFin != null) {
+                periodeInfo += "du " + dateDebut + " au " + dateFin;
+            } else {
+                periodeInfo += "Toutes les périodes";
+            }
+            sheet.createRow(1).createCell(0).setCellValue(periodeInfo);
+            sheet.createRow(2).createCell(0).setCellValue(
+                    "Généré le: " + new java.text.SimpleDateFormat("dd/MM/yyyy HH:mm").format(new java.util.Date()));
+
+            org.apache.poi.ss.usermodel.Row headerRow = sheet.createRow(4);
+            String[] headers = {"Numéro Marché", "Désignation", "Fournisseur", "Montant (TND)", "Date Marché", "Banque"};
+            final int[] largeurs = new int[headers.length];
+            for (int i = 0; i < headers.length; i++) {
+                org.apache.poi.ss.usermodel.Cell cell = headerRow.createCell(i);
+                cell.setCellValue(headers[i]);
+                cell.setCellStyle(headerStyle);
+                largeurs[i] = headers[i].length();
+            }
+
+            // Lecture en curseur (fetch size) : chaque ligne est écrite puis oubliée
+            final int[] rowNum = {5};
+            parcourirMarchesParPeriode(numStruct, dateDebut, dateFin, new RowCallbackHandler() {
+                @Override
+                public void processRow(ResultSet rs) throws SQLException {
+                    String[] valeurs = {
+                            rs.getString(1),
+                            rs.getString(2) != null ? rs.getString(2) : "",
+                            rs.getString(3) != null ? rs.getString(3) : "Non spécifié",
+                            null,
+                            formatDateForPDF(rs.getTimestamp(5)),
+                            rs.getString(6) != null ? rs.getString(6) : "Non spécifiée"
+                    };
+                    org.apache.poi.ss.usermodel.Row row = sheet.createRow(rowNum[0]++);
+                    for (int i = 0; i < valeurs.length; i++) {
+                        if (i == 3) {
+                            row.createCell(i).setCellValue(rs.getDouble(4));
+                        } else {
+                            row.createCell(i).setCellValue(valeurs[i]);
+                            // Largeur des colonnes estimée sur un échantillon (autoSizeColumn parcourrait tout)
+                            if (rowNum[0] <= 5 + EXPORT_ECHANTILLON_LARGEUR && valeurs[i] != null) {
+                                largeurs[i] = Math.max(largeurs[i], valeurs[i].length());
+                            }
+                        }
+                    }
+                }
+            });
+
+            largeurs[3] = Math.max(largeurs[3], 15);
+            for (int i = 0; i < largeurs.length; i++) {
+                sheet.setColumnWidth(i, Math.min(largeurs[i] + 2, 80) * 256);
+            }
+
+            workbook.write(out);
+            out.flush();
+            logger.info("Export Excel en flux terminé : {} marchés", rowNum[0] - 5);
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
     /**
      * Classe pour gérer le pied de page du PDF
      */
@@ -1600,6 +1724,45 @@ public class StatistiquesServiceImpl implements StatistiquesService {
         }
     }
     
+    /** Parcourt en curseur les marchés de la période sans les accumuler (dates validées par l'appelant) */
+    private void parcourirMarchesParPeriode(String numStruct, String dateDebut, String dateFin,
+                                            RowCallbackHandler handler) {
+        final StringBuilder sql = new StringBuilder();
+        sql.append("SELECT m.NUM_MARCHE, m.DESIGNATION, f.DESIGNATION as fournisseur, ");
+        sql.append("m.MNT_MARCHE, m.DATE_MARCHE, b.DESIGNATION as banque ");
+        sql.append("FROM ACHAT.MARCHE m ");
+        sql.append("LEFT JOIN ACHAT.FOURNISSEUR f ON m.ID_FOURN = f.ID_FOURN ");
+        sql.append("LEFT JOIN ACHAT.BANQUE b ON m.NUM_BANQUE = b.NUM_BANQUE ");
+        sql.append("WHERE m.MNT_MARCHE IS NOT NULL ");
+        final List<Object> params = new ArrayList<>();
+        if (numStruct != null && !numStruct.trim().isEmpty()) {
+            sql.append("AND (? = '03' OR m.NUM_STRUCT = ?) ");
+            params.add(numStruct);
+            params.add(numStruct);
+        }
+        if (dateDebut != null && !dateDebut.trim().isEmpty()) {
+            sql.append("AND m.DATE_MARCHE >= TO_DATE(?, 'YYYY-MM-DD') ");
+            params.add(dateDebut);
+        }
+        if (dateFin != null && !dateFin.trim().isEmpty()) {
+            sql.append("AND m.DATE_MARCHE <= TO_DATE(?, 'YYYY-MM-DD') ");
+            params.add(dateFin);
+        }
+        sql.append("ORDER BY m.DATE_MARCHE DESC");
+
+        jdbcTemplate.query(new PreparedStatementCreator() {
+            @Override
+            public PreparedStatement createPreparedStatement(Connection connection) throws SQLException {
+                PreparedStatement ps = connection.prepareStatement(sql.toString());
+                ps.setFetchSize(exportFetchSize);
+                for (int i = 0; i < params.size(); i++) {
+                    ps.setObject(i + 1, params.get(i));
+                }
+                return ps;
+            }
+        }, handler);
+    }
+
     /**
      * Récupère les données des marchés filtrées par période
      */
@@ -1709,16 +1872,16 @@ public class StatistiquesServiceImpl implements StatistiquesService {
             table.addCell(cell);
         }
         
-        // Données du tableau
+        // Données du tableau : numéros et montants en police latine, désignations via le cache des libellés
+        Font fournisseurStdFont = arabicFontUtil.getAppropriateFont("", ArabicTextCache.TAILLE_CELLULE, Font.NORMAL);
         
         for (Map<String, Object> fournisseur : fournisseurs) {
-            // Formater le texte arabe pour un meilleur affichage
-            String designation = ArabicFontUtil.formatArabicText(String.valueOf(fournisseur.get("designation")));
-            Font fournisseurDesignationFont = arabicFontUtil.getAppropriateFont(designation, 9, Font.NORMAL);
+            ArabicTextCache.TexteRendu designation = arabicTextCache.rendu(
+                    String.valueOf(fournisseur.get("designation")), ArabicTextCache.TAILLE_CELLULE, Font.NORMAL);
             
-            PdfPCell designationCell = new PdfPCell(new Phrase(designation, fournisseurDesignationFont));
+            PdfPCell designationCell = new PdfPCell(new Phrase(designation.getTexte(), designation.getPolice()));
             designationCell.setPadding(5);
-            if (arabicFontUtil.containsArabicText(designation)) {
+            if (designation.isArabe()) {
                 designationCell.setRunDirection(PdfWriter.RUN_DIRECTION_RTL);
                 designationCell.setHorizontalAlignment(Element.ALIGN_RIGHT);
             } else {
@@ -1727,15 +1890,13 @@ public class StatistiquesServiceImpl implements StatistiquesService {
             table.addCell(designationCell);
             
             String numero = String.valueOf(fournisseur.get("numero"));
-            Font fournisseurNumeroFont = arabicFontUtil.getAppropriateFont(numero, 9, Font.NORMAL);
-            PdfPCell numeroCell = new PdfPCell(new Phrase(numero, fournisseurNumeroFont));
+            PdfPCell numeroCell = new PdfPCell(new Phrase(numero, fournisseurStdFont));
             numeroCell.setPadding(5);
             numeroCell.setHorizontalAlignment(Element.ALIGN_CENTER);
             table.addCell(numeroCell);
             
             String nombreMarches = String.valueOf(fournisseur.get("nombreMarches"));
-            Font fournisseurNombreMarchesFont = arabicFontUtil.getAppropriateFont(nombreMarches, 9, Font.NORMAL);
-            PdfPCell marchesCell = new PdfPCell(new Phrase(nombreMarches, fournisseurNombreMarchesFont));
+            PdfPCell marchesCell = new PdfPCell(new Phrase(nombreMarches, fournisseurStdFont));
             marchesCell.setPadding(5);
             marchesCell.setHorizontalAlignment(Element.ALIGN_CENTER);
             table.addCell(marchesCell);
@@ -1745,15 +1906,13 @@ public class StatistiquesServiceImpl implements StatistiquesService {
             double penalites = ((Number) fournisseur.get("penalites")).doubleValue();
             
             String montantFormatted = String.format("%,.2f", montantTotal);
-            Font montantFont = arabicFontUtil.getAppropriateFont(montantFormatted, 9, Font.NORMAL);
-            PdfPCell cellMontant = new PdfPCell(new Phrase(montantFormatted, montantFont));
+            PdfPCell cellMontant = new PdfPCell(new Phrase(montantFormatted, fournisseurStdFont));
             cellMontant.setHorizontalAlignment(Element.ALIGN_RIGHT);
             cellMontant.setPadding(5);
             table.addCell(cellMontant);
             
             String penalitesFormatted = String.format("%,.2f", penalites);
-            Font penalitesFont = arabicFontUtil.getAppropriateFont(penalitesFormatted, 9, Font.NORMAL);
-            PdfPCell cellPenalites = new PdfPCell(new Phrase(penalitesFormatted, penalitesFont));
+            PdfPCell cellPenalites = new PdfPCell(new Phrase(penalitesFormatted, fournisseurStdFont));
             cellPenalites.setHorizontalAlignment(Element.ALIGN_RIGHT);
             cellPenalites.setPadding(5);
             table.addCell(cellPenalites);
@@ -1781,14 +1940,15 @@ public class StatistiquesServiceImpl implements StatistiquesService {
         sectionTitle.setSpacingAfter(10);
         document.add(sectionTitle);
         
-        // Récupération des données filtrées par période
-        List<Map<String, Object>> marches = getMarchesDataByPeriod(numStruct, dateDebut, dateFin);
-        
-        // Création du tableau
-        PdfPTable table = new PdfPTable(5);
+        // Création du tableau : incomplet, il est vidé dans le document par lots
+        // de lignes pendant le parcours du curseur au lieu d'être construit entièrement en mémoire
+        final Document doc = document;
+        final PdfPTable table = new PdfPTable(5);
         table.setWidthPercentage(100);
         table.setSpacingBefore(10f);
         table.setSpacingAfter(10f);
+        table.setHeaderRows(1);
+        table.setComplete(false);
         
         // En-têtes du tableau
         String[] headers = {"Désignation", "Numéro", "Date", "Montant (TND)", "Fournisseur"};
@@ -1803,80 +1963,103 @@ public class StatistiquesServiceImpl implements StatistiquesService {
             table.addCell(cell);
         }
         
-        // Données du tableau
-        for (Map<String, Object> marche : marches) {
-            String designation = String.valueOf(marche.get("designation"));
-            String fournisseur = String.valueOf(marche.get("fournisseur"));
-            String numMarche = String.valueOf(marche.get("numMarche"));
-            Object dateMarche = marche.get("dateMarche");
-            Object montantObj = marche.get("montant");
-
-            // Formater le texte arabe pour un meilleur affichage
-            String designationFormatted = ArabicFontUtil.formatArabicText(designation);
-            String fournisseurFormatted = ArabicFontUtil.formatArabicText(fournisseur);
-            
-            // Déclarer les polices appropriées
-            Font marcheDesignationFont = arabicFontUtil.getAppropriateFont(designation, 9, Font.NORMAL);
-            Font marcheFournisseurFont = arabicFontUtil.getAppropriateFont(fournisseur, 9, Font.NORMAL);
-            Font marcheStdFont = arabicFontUtil.getAppropriateFont("", 9, Font.NORMAL); // Police standard pour le français
-
-            // Pour la désignation
-            PdfPCell designationCell = new PdfPCell(new Phrase(designationFormatted, marcheDesignationFont));
-            designationCell.setPadding(5);
-            if (arabicFontUtil.containsArabicText(designation)) {
-                designationCell.setRunDirection(PdfWriter.RUN_DIRECTION_RTL);
-                designationCell.setHorizontalAlignment(Element.ALIGN_RIGHT);
-            } else {
-                designationCell.setHorizontalAlignment(Element.ALIGN_LEFT);
-            }
-            table.addCell(designationCell);
-
-            // Pour le numéro
-            PdfPCell numeroCell = new PdfPCell(new Phrase(numMarche, marcheStdFont));
-            numeroCell.setPadding(5);
-            numeroCell.setHorizontalAlignment(Element.ALIGN_CENTER);
-            table.addCell(numeroCell);
-
-            // Pour la date
-            String dateStr = formatDateForPDF(dateMarche);
-            PdfPCell dateCell = new PdfPCell(new Phrase(dateStr, marcheStdFont));
-            dateCell.setPadding(5);
-            dateCell.setHorizontalAlignment(Element.ALIGN_CENTER);
-            table.addCell(dateCell);
-
-            // Pour le montant
-            double montant = 0.0;
-            if (montantObj instanceof Number) {
-                montant = ((Number) montantObj).doubleValue();
-            }
-            String montantFormatted = String.format("%,.2f", montant);
-            PdfPCell montantCell = new PdfPCell(new Phrase(montantFormatted, marcheStdFont));
-            montantCell.setHorizontalAlignment(Element.ALIGN_RIGHT);
-            montantCell.setPadding(5);
-            table.addCell(montantCell);
-
-            // Pour le fournisseur
-            PdfPCell fournisseurCell = new PdfPCell(new Phrase(fournisseurFormatted, marcheFournisseurFont));
-            fournisseurCell.setPadding(5);
-            if (arabicFontUtil.containsArabicText(fournisseur)) {
-                fournisseurCell.setRunDirection(PdfWriter.RUN_DIRECTION_RTL);
-                fournisseurCell.setHorizontalAlignment(Element.ALIGN_RIGHT);
-            } else {
-                fournisseurCell.setHorizontalAlignment(Element.ALIGN_LEFT);
+        // Mêmes règles de validation que getMarchesDataByPeriod : période invalide => tableau vide
+        final int[] nombreMarches = {0};
+        if ((dateDebut == null || dateDebut.trim().isEmpty() || isValidDate(dateDebut))
+                && (dateFin == null || dateFin.trim().isEmpty() || isValidDate(dateFin))) {
+            final Font marcheStdFont = arabicFontUtil.getAppropriateFont("", 9, Font.NORMAL); // Police standard pour le français
+            try {
+                parcourirMarchesParPeriode(numStruct, dateDebut, dateFin, new RowCallbackHandler() {
+                    @Override
+                    public void processRow(ResultSet rs) throws SQLException {
+                        ajouterLigneMarchePDF(table, marcheStdFont, rs);
+                        if (++nombreMarches[0] % Math.max(exportPdfLotLignes, 1) == 0) {
+                            try {
+                                doc.add(table);
+                            } catch (DocumentException e) {
+                                throw new IllegalStateException(e);
+                            }
+                        }
+                    }
+                });
+            } catch (IllegalStateException e) {
+                if (e.getCause() instanceof DocumentException) {
+                    throw (DocumentException) e.getCause();
+                }
+                throw e;
             }
-            table.addCell(fournisseurCell);
+        } else {
+            logger.warn("Période invalide pour l'export PDF des marchés: {} - {}", dateDebut, dateFin);
         }
         
+        table.setComplete(true);
         document.add(table);
         
         // Ajout d'un résumé
         Paragraph summary = new Paragraph();
-        String summaryText = "Nombre total de marchés: " + marches.size();
+        String summaryText = "Nombre total de marchés: " + nombreMarches[0];
         Font summaryFont = arabicFontUtil.getAppropriateFont(summaryText, 10, Font.NORMAL);
         summary.add(new Phrase(summaryText, summaryFont));
         summary.setSpacingBefore(10);
         document.add(summary);
     }
+
+    /**
+     * Ajoute au tableau des marchés la ligne courante du curseur de {@link #parcourirMarchesParPeriode}
+     */
+    private void ajouterLigneMarchePDF(PdfPTable table, Font marcheStdFont, ResultSet rs) throws SQLException {
+        String designation = String.valueOf(rs.getString(2));
+        String fournisseur = rs.getString(3) != null ? rs.getString(3) : "Non spécifié";
+        String numMarche = String.valueOf(rs.getString(1));
+        Object dateMarche = rs.getTimestamp(5);
+        double montant = rs.getDouble(4);
+
+        // Texte nettoyé, sens d'écriture et police des libellés, déjà calculés pour les libellés fréquents
+        ArabicTextCache.TexteRendu designationRendu = arabicTextCache.rendu(designation, ArabicTextCache.TAILLE_CELLULE, Font.NORMAL);
+        ArabicTextCache.TexteRendu fournisseurRendu = arabicTextCache.rendu(fournisseur, ArabicTextCache.TAILLE_CELLULE, Font.NORMAL);
+
+        // Pour la désignation
+        PdfPCell designationCell = new PdfPCell(new Phrase(designationRendu.getTexte(), designationRendu.getPolice()));
+        designationCell.setPadding(5);
+        if (designationRendu.isArabe()) {
+            designationCell.setRunDirection(PdfWriter.RUN_DIRECTION_RTL);
+            designationCell.setHorizontalAlignment(Element.ALIGN_RIGHT);
+        } else {
+            designationCell.setHorizontalAlignment(Element.ALIGN_LEFT);
+        }
+        table.addCell(designationCell);
+
+        // Pour le numéro
+        PdfPCell numeroCell = new PdfPCell(new Phrase(numMarche, marcheStdFont));
+        numeroCell.setPadding(5);
+        numeroCell.setHorizontalAlignment(Element.ALIGN_CENTER);
+        table.addCell(numeroCell);
+
+        // Pour la date
+        String dateStr = formatDateForPDF(dateMarche);
+        PdfPCell dateCell = new PdfPCell(new Phrase(dateStr, marcheStdFont));
+        dateCell.setPadding(5);
+        dateCell.setHorizontalAlignment(Element.ALIGN_CENTER);
+        table.addCell(dateCell);
+
+        // Pour le montant
+        String montantFormatted = String.format("%,.2f", montant);
+        PdfPCell montantCell = new PdfPCell(new Phrase(montantFormatted, marcheStdFont));
+        montantCell.setHorizontalAlignment(Element.ALIGN_RIGHT);
+        montantCell.setPadding(5);
+        table.addCell(montantCell);
+
+        // Pour le fournisseur
+        PdfPCell fournisseurCell = new PdfPCell(new Phrase(fournisseurRendu.getTexte(), fournisseurRendu.getPolice()));
+        fournisseurCell.setPadding(5);
+        if (fournisseurRendu.isArabe()) {
+            fournisseurCell.setRunDirection(PdfWriter.RUN_DIRECTION_RTL);
+            fournisseurCell.setHorizontalAlignment(Element.ALIGN_RIGHT);
+        } else {
+            fournisseurCell.setHorizontalAlignment(Element.ALIGN_LEFT);
+        }
+        table.addCell(fournisseurCell);
+    }
     
     /**
      * Exporte les statistiques des articles dans le document PDF
@@ -2556,6 +2739,34 @@ public class StatistiquesServiceImpl implements StatistiquesService {
 
     @Override
     public Map<String, Object> getStatistiquesGenerales(String numStruct) {
+        return getStatistiquesGenerales(numStruct, generalesComposite);
+    }
+
+    @Override
+    public Map<String, Object> getStatistiquesGenerales(String numStruct, boolean composite) {
+        long requetesAvant = SqlAccounting.requetesDuThread();
+        Map<String, Object> statistiques = null;
+        if (composite) {
+            try {
+                statistiques = getStatistiquesGeneralesComposite();
+                statistiques.put("mode", "composite");
+            } catch (Exception e) {
+                logger.warn("Requête composite des statistiques générales en échec, repli sur le mode détaillé: {}",
+                        e.getMessage(), e);
+            }
+        }
+        if (statistiques == null) {
+            statistiques = getStatistiquesGeneralesDetaillees(numStruct);
+            statistiques.put("mode", "detaille");
+        }
+        statistiques.put("requetesSql", SqlAccounting.requetesDuThread() - requetesAvant);
+        return statistiques;
+    }
+
+    /**
+     * Mode détaillé : une requête par section (articles, fournisseurs puis totaux).
+     */
+    private Map<String, Object> getStatistiquesGeneralesDetaillees(String numStruct) {
         Map<String, Object> statistiques = new HashMap<>();
 
         try {
@@ -2588,6 +2799,366 @@ public class StatistiquesServiceImpl implements StatistiquesService {
         return statistiques;
     }
 
+    /**
+     * Mode composite : toutes les sections en un seul aller-retour. Chaque branche du UNION ALL
+     * est étiquetée par sa section et numérotée (RANG) pour conserver l'ordre du mode détaillé.
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> getStatistiquesGeneralesComposite() {
+        List<Object[]> lignes = entityManager.createNativeQuery(SQL_STATISTIQUES_GENERALES).getResultList();
+
+        List<Map<String, Object>> articlesBySecteur = new ArrayList<>();
+        List<Map<String, Object>> articlesByFamille = new ArrayList<>();
+        List<Map<String, Object>> articlesExtremes = new ArrayList<>();
+        List<Map<String, Object>> repartitionUnites = new ArrayList<>();
+        List<Map<String, Object>> topArticles = new ArrayList<>();
+        List<Map<String, Object>> evolutionDecomptes = new ArrayList<>();
+        List<Map<String, Object>> topFournisseursVolume = new ArrayList<>();
+        List<Map<String, Object>> fournisseursByRegion = new ArrayList<>();
+        List<Map<String, Object>> secteursFournisseurs = new ArrayList<>();
+        List<Map<String, Object>> decomptesByType = new ArrayList<>();
+        List<Map<String, Object>> fournisseursByType = new ArrayList<>();
+        List<Map<String, Object>> topFournisseurs = new ArrayList<>();
+        Map<String, Object> fournisseursStatut = new HashMap<>();
+        fournisseursStatut.put("actif", 0);
+        fournisseursStatut.put("suspendu", 0);
+        fournisseursStatut.put("blackliste", 0);
+        int totalArticles = 0;
+        int articlesActifs = 0;
+        int articlesSansMouvement = 0;
+        int totalFournisseurs = 0;
+        int fournisseursAvecPenalites = 0;
+
+        for (Object[] row : lignes) {
+            String section = (String) row[0];
+            int rang = ((Number) row[1]).intValue();
+            Map<String, Object> element = new HashMap<>();
+            switch (section) {
+                case "ART_SECTEUR":
+                    element.put("secteur", row[2]);
+                    element.put("nombre", entier(row[7]));
+                    articlesBySecteur.add(element);
+                    break;
+                case "ART_FAMILLE":
+                    element.put("famille", row[2]);
+                    element.put("nombre", entier(row[7]));
+                    element.put("pourcentage", decimal(row[8]));
+                    articlesByFamille.add(element);
+                    break;
+                case "ART_PLUS_CHER":
+                case "ART_MOINS_CHER":
+                    element.put("designation", row[2]);
+                    element.put("prix", decimal(row[7]));
+                    element.put("type", "ART_PLUS_CHER".equals(section) ? "plus_cher" : "moins_cher");
+                    articlesExtremes.add(element);
+                    break;
+                case "ART_UNITE":
+                    element.put("unite", row[2]);
+                    element.put("nombreArticles", entier(row[7]));
+                    element.put("pourcentage", decimal(row[8]));
+                    repartitionUnites.add(element);
+                    break;
+                case "ART_TOP":
+                    element.put("designation", row[2]);
+                    element.put("secteur", row[3]);
+                    element.put("uniteMesure", row[4] != null ? row[4].toString() : "—");
+                    element.put("famille", row[5] != null ? row[5].toString() : "—");
+                    element.put("statut", row[6] != null ? row[6].toString() : "Inactif");
+                    element.put("utilisations", entier(row[7]));
+                    element.put("quantite", decimal(row[8]));
+                    element.put("tva", decimal(row[9]));
+                    element.put("rang", rang);
+                    topArticles.add(element);
+                    break;
+                case "ART_EVOL_DEC":
+                    element.put("mois", row[2]);
+                    element.put("nombreDecomptes", entier(row[7]));
+                    element.put("montantTotal", decimal(row[8]));
+                    evolutionDecomptes.add(element);
+                    break;
+                case "ART_TOP_FOURN":
+                    element.put("fournisseur", row[2]);
+                    element.put("nombreArticles", entier(row[7]));
+                    element.put("volumeTotal", decimal(row[8]));
+                    element.put("montantTotal", decimal(row[9]));
+                    element.put("rang", rang);
+                    topFournisseursVolume.add(element);
+                    break;
+                case "ART_COMPTEURS":
+                    totalArticles = entier(row[7]);
+                    articlesActifs = entier(row[8]);
+                    articlesSansMouvement = entier(row[9]);
+                    break;
+                case "FOURN_REGION":
+                    element.put("region", row[2]);
+                    element.put("nombre", entier(row[7]));
+                    fournisseursByRegion.add(element);
+                    break;
+                case "FOURN_SECTEUR":
+                    element.put("secteur", row[2]);
+                    element.put("nombreArticles", entier(row[7]));
+                    element.put("pourcentage", decimal(row[8]));
+                    element.put("montantTotal", decimal(row[9]));
+                    secteursFournisseurs.add(element);
+                    break;
+                case "FOURN_STATUT":
+                    fournisseursStatut.put((String) row[2], entier(row[7]));
+                    break;
+                case "FOURN_DEC_TYPE":
+                    element.put("typeDecompte", row[2]);
+                    element.put("mois", row[3]);
+                    element.put("nombreDecomptes", entier(row[7]));
+                    element.put("montantTotal", decimal(row[8]));
+                    decomptesByType.add(element);
+                    break;
+                case "FOURN_TYPE":
+                    element.put("type", row[2]);
+                    element.put("nombre", entier(row[7]));
+                    fournisseursByType.add(element);
+                    break;
+                case "FOURN_TOP":
+                    element.put("designation", row[2]);
+                    element.put("nombreMarches", entier(row[7]));
+                    element.put("rang", rang);
+                    topFournisseurs.add(element);
+                    break;
+                case "FOURN_COMPTEURS":
+                    totalFournisseurs = entier(row[7]);
+                    fournisseursAvecPenalites = entier(row[8]);
+                    break;
+                default:
+                    logger.warn("Section inconnue dans la requête composite: {}", section);
+            }
+        }
+
+        Map<String, Object> articles = new HashMap<>();
+        articles.put("articlesBySecteur", articlesBySecteur);
+        articles.put("articlesByFamille", articlesByFamille);
+        articles.put("articlesExtremes", articlesExtremes);
+        articles.put("repartitionUnites", repartitionUnites);
+        Map<String, Object> articlesStatut = new HashMap<>();
+        articlesStatut.put("actif", articlesActifs);
+        articlesStatut.put("inactif", totalArticles - articlesActifs);
+        articlesStatut.put("obsolete", 0); // Pas de colonne statut dans la table
+        articles.put("articlesStatut", articlesStatut);
+        articles.put("topArticles", topArticles);
+        articles.put("evolutionDecomptes", evolutionDecomptes);
+        articles.put("topFournisseursVolume", topFournisseursVolume);
+        articles.put("articlesSansMouvement", articlesSansMouvement);
+
+        Map<String, Object> fournisseurs = new HashMap<>();
+        fournisseurs.put("fournisseursByRegion", fournisseursByRegion);
+        fournisseurs.put("articlesBySecteur", secteursFournisseurs);
+        fournisseurs.put("fournisseursStatut", fournisseursStatut);
+        fournisseurs.put("decomptesByType", decomptesByType);
+        fournisseurs.put("fournisseursByType", fournisseursByType);
+        fournisseurs.put("topFournisseurs", topFournisseurs);
+        Map<String, Object> fournisseursPenalites = new HashMap<>();
+        fournisseursPenalites.put("avecPenalites", fournisseursAvecPenalites);
+        fournisseursPenalites.put("sansPenalites", totalFournisseurs - fournisseursAvecPenalites);
+        fournisseurs.put("fournisseursPenalites", fournisseursPenalites);
+
+        Map<String, Object> metriquesGlobales = new HashMap<>();
+        metriquesGlobales.put("totalArticles", totalArticles);
+        metriquesGlobales.put("totalFournisseurs", totalFournisseurs);
+
+        Map<String, Object> statistiques = new HashMap<>();
+        statistiques.put("articles", articles);
+        statistiques.put("fournisseurs", fournisseurs);
+        statistiques.put("metriquesGlobales", metriquesGlobales);
+        return statistiques;
+    }
+
+    /**
+     * Branche du UNION ALL composite, au format commun
+     * SECTION, RANG, L1..L5 (libellés), N1..N4 (valeurs numériques).
+     * Chaque colonne porte son alias : des libellés en double font échouer la requête native Hibernate.
+     * La source doit exposer une colonne RN servant de rang.
+     */
+    private static String brancheComposite(String section, String[] libelles, String[] valeurs,
+                                           String source, String filtre) {
+        StringBuilder sql = new StringBuilder("SELECT '").append(section).append("' AS SECTION, RN AS RANG");
+        for (int i = 0; i < 5; i++) {
+            sql.append(", ").append(i < libelles.length ? libelles[i] : "CAST(NULL AS VARCHAR2(400))")
+                    .append(" AS L").append(i + 1);
+        }
+        for (int i = 0; i < 4; i++) {
+            sql.append(", ").append(i < valeurs.length ? valeurs[i] : "CAST(NULL AS NUMBER)")
+                    .append(" AS N").append(i + 1);
+        }
+        sql.append(" FROM (").append(source).append(")");
+        if (filtre != null) {
+            sql.append(" WHERE ").append(filtre);
+        }
+        return sql.toString();
+    }
+
+    private static final String SQL_STATISTIQUES_GENERALES = "WITH TOTAL_ARTICLES AS (SELECT COUNT(*) AS N FROM ACHAT.PRM_ARTICLE) " +
+            brancheComposite("ART_SECTEUR", new String[]{"SECTEUR"}, new String[]{"NOMBRE"},
+                    "SELECT s.DESIGNATION AS SECTEUR, COUNT(a.NUM_ARTICLE) AS NOMBRE, " +
+                    "ROW_NUMBER() OVER (ORDER BY COUNT(a.NUM_ARTICLE) DESC) AS RN " +
+                    "FROM ACHAT.PRM_ARTICLE a " +
+                    "JOIN ACHAT.SECT_ECO s ON a.NUM_SECT_ECO = s.NUM_SECT_ECO " +
+                    "GROUP BY s.NUM_SECT_ECO, s.DESIGNATION", null) +
+            " UNION ALL " +
+            brancheComposite("ART_FAMILLE", new String[]{"FAMILLE"}, new String[]{"NOMBRE", "POURCENTAGE"},
+                    "SELECT f.DESIGNATION AS FAMILLE, COUNT(a.NUM_ARTICLE) AS NOMBRE, " +
+                    "ROUND((COUNT(a.NUM_ARTICLE) * 100.0 / (SELECT N FROM TOTAL_ARTICLES)), 2) AS POURCENTAGE, " +
+                    "ROW_NUMBER() OVER (ORDER BY COUNT(a.NUM_ARTICLE) DESC) AS RN " +
+                    "FROM ACHAT.PRM_ARTICLE a " +
+                    "JOIN ACHAT.FAMILLE f ON a.NUM_SECT_ECO = f.NUM_SECT_ECO " +
+                    "AND a.NUM_S_SECT_ECO = f.NUM_S_SECT_ECO " +
+                    "AND a.NUM_FAMILLE = f.NUM_FAMILLE " +
+                    "GROUP BY f.NUM_SECT_ECO, f.NUM_S_SECT_ECO, f.NUM_FAMILLE, f.DESIGNATION", null) +
+            " UNION ALL " +
+            brancheComposite("ART_PLUS_CHER", new String[]{"DESIGNATION"}, new String[]{"PRIX"},
+                    "SELECT a.DESIGNATION, MAX(ma.PRIX_UNITAIRE) AS PRIX, " +
+                    "ROW_NUMBER() OVER (ORDER BY MAX(ma.PRIX_UNITAIRE) DESC) AS RN " +
+                    "FROM ACHAT.PRM_ARTICLE a " +
+                    "JOIN ACHAT.MRC_ARTICLE ma ON a.NUM_ARTICLE = ma.NUM_ARTICLE " +
+                    "WHERE ma.PRIX_UNITAIRE IS NOT NULL " +
+                    "GROUP BY a.NUM_ARTICLE, a.DESIGNATION", "RN = 1") +
+            " UNION ALL " +
+            brancheComposite("ART_MOINS_CHER", new String[]{"DESIGNATION"}, new String[]{"PRIX"},
+                    "SELECT a.DESIGNATION, MIN(ma.PRIX_UNITAIRE) AS PRIX, " +
+                    "ROW_NUMBER() OVER (ORDER BY MIN(ma.PRIX_UNITAIRE) ASC) AS RN " +
+                    "FROM ACHAT.PRM_ARTICLE a " +
+                    "JOIN ACHAT.MRC_ARTICLE ma ON a.NUM_ARTICLE = ma.NUM_ARTICLE " +
+                    "WHERE ma.PRIX_UNITAIRE IS NOT NULL AND ma.PRIX_UNITAIRE > 0 " +
+                    "GROUP BY a.NUM_ARTICLE, a.DESIGNATION", "RN = 1") +
+            " UNION ALL " +
+            brancheComposite("ART_UNITE", new String[]{"UNITE"}, new String[]{"NOMBRE_ARTICLES", "POURCENTAGE"},
+                    "SELECT COALESCE(a.LIB_UNITE, 'Non définie') AS UNITE, " +
+                    "COUNT(DISTINCT a.NUM_ARTICLE) AS NOMBRE_ARTICLES, " +
+                    "ROUND((COUNT(DISTINCT a.NUM_ARTICLE) * 100.0 / (SELECT N FROM TOTAL_ARTICLES)), 2) AS POURCENTAGE, " +
+                    "ROW_NUMBER() OVER (ORDER BY COUNT(DISTINCT a.NUM_ARTICLE) DESC) AS RN " +
+                    "FROM ACHAT.PRM_ARTICLE a " +
+                    "GROUP BY a.LIB_UNITE", null) +
+            " UNION ALL " +
+            brancheComposite("ART_TOP",
+                    new String[]{"DESIGNATION", "SECTEUR", "UNITE_MESURE", "FAMILLE", "STATUT"},
+                    new String[]{"UTILISATIONS", "QUANTITE_TOTALE", "TVA"},
+                    "SELECT a.DESIGNATION, s.DESIGNATION AS SECTEUR, " +
+                    "COUNT(ma.NUM_MARCHE) AS UTILISATIONS, " +
+                    "COALESCE(SUM(ma.QUANTITE), 0) AS QUANTITE_TOTALE, " +
+                    "a.LIB_UNITE AS UNITE_MESURE, a.TVA AS TVA, f.DESIGNATION AS FAMILLE, " +
+                    "CASE WHEN a.HISTORIQUE > 0 THEN 'Actif' ELSE 'Inactif' END AS STATUT, " +
+                    "ROW_NUMBER() OVER (ORDER BY COUNT(ma.NUM_MARCHE) DESC) AS RN " +
+                    "FROM ACHAT.PRM_ARTICLE a " +
+                    "JOIN ACHAT.MRC_ARTICLE ma ON a.NUM_ARTICLE = ma.NUM_ARTICLE " +
+                    "LEFT JOIN ACHAT.SECT_ECO s ON a.NUM_SECT_ECO = s.NUM_SECT_ECO " +
+                    "LEFT JOIN ACHAT.FAMILLE f ON a.NUM_SECT_ECO = f.NUM_SECT_ECO " +
+                    "AND a.NUM_S_SECT_ECO = f.NUM_S_SECT_ECO " +
+                    "AND a.NUM_FAMILLE = f.NUM_FAMILLE " +
+                    "GROUP BY a.NUM_ARTICLE, a.DESIGNATION, s.DESIGNATION, a.LIB_UNITE, a.TVA, f.DESIGNATION, a.HISTORIQUE",
+                    "RN <= 20") +
+            " UNION ALL " +
+            brancheComposite("ART_EVOL_DEC", new String[]{"MOIS"}, new String[]{"NOMBRE_DECOMPTES", "MONTANT_TOTAL"},
+                    "SELECT TO_CHAR(d.DATE_PIECE, 'YYYY-MM') AS MOIS, " +
+                    "COUNT(d.NUM_PIECE_FOURN) AS NOMBRE_DECOMPTES, " +
+                    "COALESCE(SUM(da.MNT_TTC), 0) AS MONTANT_TOTAL, " +
+                    "ROW_NUMBER() OVER (ORDER BY TO_CHAR(d.DATE_PIECE, 'YYYY-MM')) AS RN " +
+                    "FROM ACHAT.DECOMPTE d " +
+                    "LEFT JOIN ACHAT.DEC_ARTICLE da ON d.NUM_MARCHE = da.NUM_MARCHE " +
+                    "AND d.NUM_PIECE_FOURN = da.NUM_PIECE_FOURN " +
+                    "WHERE d.DATE_PIECE >= ADD_MONTHS(SYSDATE, -12) " +
+                    "GROUP BY TO_CHAR(d.DATE_PIECE, 'YYYY-MM')", null) +
+            " UNION ALL " +
+            brancheComposite("ART_TOP_FOURN", new String[]{"FOURNISSEUR"},
+                    new String[]{"NOMBRE_ARTICLES", "VOLUME_TOTAL", "MONTANT_TOTAL"},
+                    "SELECT f.DESIGNATION AS FOURNISSEUR, " +
+                    "COUNT(DISTINCT ma.NUM_ARTICLE) AS NOMBRE_ARTICLES, " +
+                    "COALESCE(SUM(ma.QUANTITE), 0) AS VOLUME_TOTAL, " +
+                    "COALESCE(SUM(ma.MNT_TTC), 0) AS MONTANT_TOTAL, " +
+                    "ROW_NUMBER() OVER (ORDER BY COUNT(DISTINCT ma.NUM_ARTICLE) DESC, COALESCE(SUM(ma.QUANTITE), 0) DESC) AS RN " +
+                    "FROM ACHAT.FOURNISSEUR f " +
+                    "JOIN ACHAT.MARCHE m ON f.ID_FOURN = m.ID_FOURN " +
+                    "JOIN ACHAT.MRC_ARTICLE ma ON m.NUM_MARCHE = ma.NUM_MARCHE " +
+                    "GROUP BY f.ID_FOURN, f.DESIGNATION", "RN <= 10") +
+            " UNION ALL " +
+            brancheComposite("ART_COMPTEURS", new String[0], new String[]{"TOTAL", "ACTIFS", "SANS_MOUVEMENT"},
+                    "SELECT (SELECT N FROM TOTAL_ARTICLES) AS TOTAL, " +
+                    "(SELECT COUNT(DISTINCT a.NUM_ARTICLE) FROM ACHAT.PRM_ARTICLE a " +
+                    "JOIN ACHAT.MRC_ARTICLE ma ON a.NUM_ARTICLE = ma.NUM_ARTICLE) AS ACTIFS, " +
+                    "(SELECT COUNT(*) FROM ACHAT.PRM_ARTICLE a " +
+                    "WHERE NOT EXISTS (SELECT 1 FROM ACHAT.MRC_ARTICLE ma WHERE ma.NUM_ARTICLE = a.NUM_ARTICLE)) AS SANS_MOUVEMENT, " +
+                    "1 AS RN FROM DUAL", null) +
+            " UNION ALL " +
+            brancheComposite("FOURN_REGION", new String[]{"REGION"}, new String[]{"NOMBRE"},
+                    "SELECT f.VILLE AS REGION, COUNT(*) AS NOMBRE, " +
+                    "ROW_NUMBER() OVER (ORDER BY COUNT(*) DESC) AS RN " +
+                    "FROM ACHAT.FOURNISSEUR f " +
+                    "WHERE f.VILLE IS NOT NULL " +
+                    "GROUP BY f.VILLE", null) +
+            " UNION ALL " +
+            brancheComposite("FOURN_SECTEUR", new String[]{"SECTEUR"},
+                    new String[]{"NOMBRE_ARTICLES", "POURCENTAGE", "MONTANT_TOTAL"},
+                    "SELECT s.DESIGNATION AS SECTEUR, " +
+                    "COUNT(DISTINCT a.NUM_ARTICLE) AS NOMBRE_ARTICLES, " +
+                    "ROUND((COUNT(DISTINCT a.NUM_ARTICLE) * 100.0 / (SELECT N FROM TOTAL_ARTICLES)), 2) AS POURCENTAGE, " +
+                    "COALESCE(SUM(ma.MNT_TTC), 0) AS MONTANT_TOTAL, " +
+                    "ROW_NUMBER() OVER (ORDER BY COUNT(DISTINCT a.NUM_ARTICLE) DESC) AS RN " +
+                    "FROM ACHAT.PRM_ARTICLE a " +
+                    "JOIN ACHAT.SECT_ECO s ON a.NUM_SECT_ECO = s.NUM_SECT_ECO " +
+                    "LEFT JOIN ACHAT.MRC_ARTICLE ma ON a.NUM_ARTICLE = ma.NUM_ARTICLE " +
+                    "WHERE s.DESIGNATION IS NOT NULL " +
+                    "GROUP BY s.NUM_SECT_ECO, s.DESIGNATION", null) +
+            " UNION ALL " +
+            brancheComposite("FOURN_STATUT", new String[]{"STATUT"}, new String[]{"NOMBRE"},
+                    "SELECT CASE " +
+                    "  WHEN f.FIN_FOURN = 'A' THEN 'actif' " +
+                    "  WHEN f.FIN_FOURN = 'S' THEN 'suspendu' " +
+                    "  WHEN f.FIN_FOURN = 'B' THEN 'blackliste' " +
+                    "  ELSE 'autre' " +
+                    "END AS STATUT, COUNT(*) AS NOMBRE, " +
+                    "ROW_NUMBER() OVER (ORDER BY f.FIN_FOURN) AS RN " +
+                    "FROM ACHAT.FOURNISSEUR f " +
+                    "GROUP BY f.FIN_FOURN", null) +
+            " UNION ALL " +
+            brancheComposite("FOURN_DEC_TYPE", new String[]{"TYPE_DECOMPTE", "MOIS"},
+                    new String[]{"NOMBRE_DECOMPTES", "MONTANT_TOTAL"},
+                    "SELECT td.DESIGNATION AS TYPE_DECOMPTE, TO_CHAR(d.DATE_PIECE, 'YYYY-MM') AS MOIS, " +
+                    "COUNT(d.NUM_PIECE_FOURN) AS NOMBRE_DECOMPTES, " +
+                    "COALESCE(SUM(da.MNT_TTC), 0) AS MONTANT_TOTAL, " +
+                    "ROW_NUMBER() OVER (ORDER BY td.DESIGNATION, TO_CHAR(d.DATE_PIECE, 'YYYY-MM')) AS RN " +
+                    "FROM ACHAT.DECOMPTE d " +
+                    "JOIN ACHAT.PRM_TYPE_DEC td ON d.ID_TYPE_DEC = td.ID_TYPE_DEC " +
+                    "LEFT JOIN ACHAT.DEC_ARTICLE da ON d.NUM_MARCHE = da.NUM_MARCHE " +
+                    "AND d.NUM_PIECE_FOURN = da.NUM_PIECE_FOURN " +
+                    "WHERE d.DATE_PIECE >= ADD_MONTHS(SYSDATE, -12) " +
+                    "GROUP BY td.ID_TYPE_DEC, td.DESIGNATION, TO_CHAR(d.DATE_PIECE, 'YYYY-MM')", null) +
+            " UNION ALL " +
+            brancheComposite("FOURN_TYPE", new String[]{"TYPE_FOURN"}, new String[]{"NOMBRE"},
+                    "SELECT TYPE_FOURN, COUNT(*) AS NOMBRE, ROW_NUMBER() OVER (ORDER BY COUNT(*) DESC) AS RN FROM (" +
+                    "SELECT CASE " +
+                    "  WHEN f.CODE_PAYS = 'TN' OR f.CODE_PAYS IS NULL THEN 'Local' " +
+                    "  WHEN f.CODE_PAYS IN ('DZ', 'MA', 'LY', 'EG') THEN 'Régional' " +
+                    "  ELSE 'International' " +
+                    "END AS TYPE_FOURN FROM ACHAT.FOURNISSEUR f) " +
+                    "GROUP BY TYPE_FOURN", null) +
+            " UNION ALL " +
+            brancheComposite("FOURN_TOP", new String[]{"DESIGNATION"}, new String[]{"NOMBRE_MARCHES"},
+                    "SELECT f.DESIGNATION, COUNT(m.NUM_MARCHE) AS NOMBRE_MARCHES, " +
+                    "ROW_NUMBER() OVER (ORDER BY COUNT(m.NUM_MARCHE) DESC) AS RN " +
+                    "FROM ACHAT.FOURNISSEUR f " +
+                    "JOIN ACHAT.MARCHE m ON f.ID_FOURN = m.ID_FOURN " +
+                    "GROUP BY f.ID_FOURN, f.DESIGNATION", "RN <= 10") +
+            " UNION ALL " +
+            brancheComposite("FOURN_COMPTEURS", new String[0], new String[]{"TOTAL", "AVEC_PENALITES"},
+                    "SELECT (SELECT COUNT(*) FROM ACHAT.FOURNISSEUR) AS TOTAL, " +
+                    "(SELECT COUNT(DISTINCT m.ID_FOURN) FROM ACHAT.MARCHE m " +
+                    "JOIN ACHAT.MRC_PENALITE mp ON m.NUM_MARCHE = mp.NUM_MARCHE) AS AVEC_PENALITES, " +
+                    "1 AS RN FROM DUAL", null) +
+            " ORDER BY 1, 2";
+
+    private static int entier(Object valeur) {
+        return valeur != null ? ((Number) valeur).intValue() : 0;
+    }
+
+    private static double decimal(Object valeur) {
+        return valeur != null ? ((Number) valeur).doubleValue() : 0.0;
+    }
+
     @Override
     public Map<String, Object> getArticlesPlusDemandes(String numStruct, String filterSecteur, 
                                                       String filterFamille, String filterStatut, 
@@ -3026,6 +3597,24 @@ public class StatistiquesServiceImpl implements StatistiquesService {
     public Map<String, Object> getStatistiquesPenalites(String numStruct) {
         Map<String, Object> result = new HashMap<>();
         
+        StatistiquesSnapshot snapshot = snapshotCourant();
+        if (snapshot != null) {
+            StatistiquesSnapshot.Agregats perimetre = snapshot.perimetre(numStruct);
+            List<Map<String, Object>> penalites = new ArrayList<>();
+            Map<String, Object> penalite = new HashMap<>();
+            penalite.put("typePenalite", "Pénalité de retard");
+            penalite.put("nombrePenalites", (int) perimetre.getNombrePenalites());
+            penalite.put("montantTotal", perimetre.getMontantPenalites());
+            penalites.add(penalite);
+            completerPenalitesDemo(penalites);
+            result.put("status", "success");
+            result.put("timestamp", new Date());
+            result.put("numStruct", numStruct);
+            result.put("penalites", penalites);
+            ajouterFraicheur(result, snapshot);
+            return result;
+        }
+
         try {
             // Requête SQL pour récupérer les statistiques des pénalités
             String sql = "SELECT " +
@@ -3059,12 +3648,7 @@ public class StatistiquesServiceImpl implements StatistiquesService {
                 penalites.add(penalite);
             }
 
-            // Si aucune donnée trouvée, ajouter des données de démonstration
-            if (penalites.isEmpty()) {
-                penalites.add(createPenaliteDemo("Retard de livraison", 8, 50000.0));
-                penalites.add(createPenaliteDemo("Retard de paiement", 5, 30000.0));
-                penalites.add(createPenaliteDemo("Non-conformité", 3, 20000.0));
-            }
+            completerPenalitesDemo(penalites);
 
             result.put("status", "success");
             result.put("timestamp", new Date());
@@ -3078,6 +3662,7 @@ public class StatistiquesServiceImpl implements StatistiquesService {
             result.put("penalites", new ArrayList<>());
         }
         
+        ajouterFraicheur(result, null);
         return result;
     }
 
@@ -3085,6 +3670,25 @@ public class StatistiquesServiceImpl implements StatistiquesService {
     public Map<String, Object> getTendances(String numStruct) {
         Map<String, Object> result = new HashMap<>();
         
+        StatistiquesSnapshot snapshot = snapshotCourant();
+        if (snapshot != null) {
+            List<Map<String, Object>> tendances = new ArrayList<>();
+            Map<String, double[]> parMois = snapshot.perimetre(numStruct).parMoisDepuis(jourIlYA(12));
+            for (Map.Entry<String, double[]> mois : parMois.entrySet()) {
+                Map<String, Object> tendance = new HashMap<>();
+                tendance.put("mois", mois.getKey());
+                tendance.put("nombreMarches", (int) mois.getValue()[0]);
+                tendance.put("montantTotal", mois.getValue()[1]);
+                tendances.add(tendance);
+            }
+            result.put("status", "success");
+            result.put("timestamp", new Date());
+            result.put("numStruct", numStruct);
+            result.put("tendances", tendances);
+            ajouterFraicheur(result, snapshot);
+            return result;
+        }
+
         try {
             // Requête SQL pour récupérer les tendances des marchés sur les 12 derniers mois
             String sql = "SELECT " +
@@ -3130,6 +3734,7 @@ public class StatistiquesServiceImpl implements StatistiquesService {
             result.put("tendances", new ArrayList<>());
         }
         
+        ajouterFraicheur(result, null);
         return result;
     }
 
@@ -3246,6 +3851,17 @@ public class StatistiquesServiceImpl implements StatistiquesService {
         return garantie;
     }
 
+    /**
+     * Ajoute des pénalités de démonstration si aucune donnée n'a été trouvée
+     */
+    private void completerPenalitesDemo(List<Map<String, Object>> penalites) {
+        if (penalites.isEmpty()) {
+            penalites.add(createPenaliteDemo("Retard de livraison", 8, 50000.0));
+            penalites.add(createPenaliteDemo("Retard de paiement", 5, 30000.0));
+            penalites.add(createPenaliteDemo("Non-conformité", 3, 20000.0));
+        }
+    }
+
     /**
      * Crée une pénalité de démonstration
      */
@@ -3274,6 +3890,33 @@ public class StatistiquesServiceImpl implements StatistiquesService {
         }
     }
 
+    // ========== SNAPSHOT STATISTIQUES ==========
+
+    private StatistiquesSnapshot snapshotCourant() {
+        return statistiquesSnapshotService != null ? statistiquesSnapshotService.getSnapshot() : null;
+    }
+
+    /**
+     * Indique la provenance des données et, pour un snapshot, sa date et son âge
+     */
+    private static void ajouterFraicheur(Map<String, Object> result, StatistiquesSnapshot snapshot) {
+        if (snapshot == null) {
+            result.put("source", "live");
+            return;
+        }
+        result.put("source", "snapshot");
+        result.put("snapshotTimestamp", new Date(snapshot.getDateGeneration()));
+        result.put("snapshotAgeMs", snapshot.getAgeMs());
+    }
+
+    /**
+     * Jour (yyyyMMdd) situé {@code mois} mois avant aujourd'hui, équivalent de ADD_MONTHS(SYSDATE, -mois)
+     */
+    private static int jourIlYA(int mois) {
+        LocalDate jour = LocalDate.now().minusMonths(mois);
+        return jour.getYear() * 10000 + jour.getMonthValue() * 100 + jour.getDayOfMonth();
+    }
+
     // Méthodes utilitaires de validation
     private boolean isValidStruct(String numStruct) {
         return numStruct != null && !numStruct.trim().isEmpty() && VALID_STRUCT_PATTERN.matcher(numStruct).matches();
@@ -3284,10 +3927,18 @@ public class StatistiquesServiceImpl implements StatistiquesService {
     }
 
     private boolean isValidDate(String date) {
-        if (date == null || date.trim().isEmpty()) {
+        if (date == null || !date.matches("\\d{4}-\\d{2}-\\d{2}")) {
+            return false;
+        }
+        // Analyse stricte : 2024-13-45 ou 2023-02-29 sont refusés
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd");
+        format.setLenient(false);
+        try {
+            format.parse(date);
+            return true;
+        } catch (java.text.ParseException e) {
             return false;
         }
-        return date.matches("\\d{4}-\\d{2}-\\d{2}");
     }
 
     /**
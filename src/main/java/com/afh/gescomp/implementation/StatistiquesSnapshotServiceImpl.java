@@ -0,0 +1,265 @@
+package com.afh.gescomp.implementation;
+
+import com.afh.gescomp.dto.StatistiquesSnapshot;
+import com.afh.gescomp.service.StatistiquesSnapshotService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Moteur de snapshot des statistiques : calcule en une passe les agrégats par NUM_STRUCT
+ * (marchés par jour, régions, secteurs, top fournisseurs, pénalités) et les garde en mémoire.
+ * Le snapshot est recalculé par le planificateur lorsqu'il est marqué modifié ou trop ancien.
+ */
+@Service
+public class StatistiquesSnapshotServiceImpl implements StatistiquesSnapshotService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StatistiquesSnapshotServiceImpl.class);
+
+    private static final String CASE_REGION = "CASE " +
+            "  WHEN f.VILLE LIKE '%TUNIS%' THEN 'Tunis' " +
+            "  WHEN f.VILLE LIKE '%SFAX%' THEN 'Sfax' " +
+            "  WHEN f.VILLE LIKE '%SOUSSE%' THEN 'Sousse' " +
+            "  WHEN f.VILLE LIKE '%GABES%' THEN 'Gabès' " +
+            "  WHEN f.VILLE LIKE '%BIZERTE%' THEN 'Bizerte' " +
+            "  ELSE 'Autres' " +
+            "END";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${statistiques.snapshot.enabled:true}")
+    private boolean enabled;
+
+    @Value("${statistiques.snapshot.max-age-ms:900000}")
+    private long maxAgeMs;
+
+    @Value("${statistiques.snapshot.top-n:50}")
+    private int topN;
+
+    private volatile StatistiquesSnapshot snapshot;
+
+    private final AtomicBoolean modifie = new AtomicBoolean(false);
+
+    private final Object verrouCalcul = new Object();
+
+    @Override
+    public StatistiquesSnapshot getSnapshot() {
+        return enabled ? snapshot : null;
+    }
+
+    /**
+     * Dans une transaction, le marquage n'a lieu qu'après le commit : un recalcul lancé entre
+     * l'écriture et le commit lirait encore l'ancien état et effacerait le marquage.
+     */
+    @Override
+    public void marquerModifie() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    modifie.set(true);
+                }
+            });
+        } else {
+            modifie.set(true);
+        }
+    }
+
+    /**
+     * Tâche planifiée : recalcule le snapshot s'il est absent, marqué modifié ou plus vieux que max-age-ms.
+     */
+    @Scheduled(initialDelayString = "${statistiques.snapshot.initial-delay-ms:10000}",
+               fixedDelayString = "${statistiques.snapshot.check-interval-ms:30000}")
+    public void rafraichirSiNecessaire() {
+        if (!enabled) {
+            return;
+        }
+        StatistiquesSnapshot courant = snapshot;
+        if (courant == null || modifie.get() || courant.getAgeMs() > maxAgeMs) {
+            rafraichir();
+        }
+    }
+
+    @Override
+    public StatistiquesSnapshot rafraichir() {
+        synchronized (verrouCalcul) {
+            // Remis à false avant le calcul : une écriture concurrente re-marquera le snapshot
+            modifie.set(false);
+            long debut = System.currentTimeMillis();
+            try {
+                StatistiquesSnapshot nouveau = calculer(debut);
+                snapshot = nouveau;
+                logger.info("Snapshot statistiques recalculé en {} ms ({} structures)",
+                        nouveau.getDureeCalculMs(), nouveau.getNombreStructures());
+            } catch (Exception e) {
+                modifie.set(true);
+                logger.error("Erreur lors du calcul du snapshot statistiques: {}", e.getMessage(), e);
+            }
+            return snapshot;
+        }
+    }
+
+    @Override
+    public Map<String, Object> getEtat() {
+        Map<String, Object> etat = new HashMap<>();
+        StatistiquesSnapshot courant = snapshot;
+        etat.put("enabled", enabled);
+        etat.put("disponible", courant != null);
+        etat.put("modifie", modifie.get());
+        etat.put("maxAgeMs", maxAgeMs);
+        if (courant != null) {
+            etat.put("snapshotTimestamp", new Date(courant.getDateGeneration()));
+            etat.put("snapshotAgeMs", courant.getAgeMs());
+            etat.put("dureeCalculMs", courant.getDureeCalculMs());
+            etat.put("nombreStructures", courant.getNombreStructures());
+        }
+        return etat;
+    }
+
+    private StatistiquesSnapshot calculer(long debut) {
+        StatistiquesSnapshot.Accumulateur global = new StatistiquesSnapshot.Accumulateur();
+        Map<String, StatistiquesSnapshot.Accumulateur> structures = new HashMap<>();
+
+        // 1. Marchés par structure et par jour
+        String sqlMarches = "SELECT m.NUM_STRUCT, TO_CHAR(m.DATE_MARCHE, 'YYYYMMDD') as jour, " +
+                "COUNT(m.NUM_MARCHE) as nombre, COALESCE(SUM(m.MNT_MARCHE), 0) as montant " +
+                "FROM ACHAT.MARCHE m " +
+                "GROUP BY m.NUM_STRUCT, TO_CHAR(m.DATE_MARCHE, 'YYYYMMDD')";
+        for (Object[] row : lignes(sqlMarches)) {
+            Integer jour = row[1] != null ? Integer.valueOf(row[1].toString()) : null;
+            long nombre = ((Number) row[2]).longValue();
+            double montant = ((Number) row[3]).doubleValue();
+            global.ajouterMarches(jour, nombre, montant);
+            StatistiquesSnapshot.Accumulateur structure = structure(structures, row[0]);
+            if (structure != null) {
+                structure.ajouterMarches(jour, nombre, montant);
+            }
+        }
+
+        // 2. Marchés par région (fournisseurs sans marché inclus avec 0 pour le global)
+        String sqlRegions = "SELECT m.NUM_STRUCT, " + CASE_REGION + " as region, " +
+                "COUNT(m.NUM_MARCHE) as nombre_marches " +
+                "FROM ACHAT.FOURNISSEUR f " +
+                "LEFT JOIN ACHAT.MARCHE m ON f.NUM_FOURN = m.NUM_FOURN " +
+                "GROUP BY m.NUM_STRUCT, " + CASE_REGION;
+        for (Object[] row : lignes(sqlRegions)) {
+            String region = (String) row[1];
+            int nombre = ((Number) row[2]).intValue();
+            global.ajouterRegion(region, nombre);
+            StatistiquesSnapshot.Accumulateur structure = structure(structures, row[0]);
+            if (structure != null) {
+                structure.ajouterRegion(region, nombre);
+            }
+        }
+
+        // 3. Articles par secteur : COUNT(DISTINCT) non additif, global et structures calculés séparément
+        String sqlSecteursGlobal = "SELECT s.DESIGNATION as secteur, COUNT(DISTINCT a.NUM_ARTICLE) as nombre_articles " +
+                "FROM ACHAT.PRM_ARTICLE a " +
+                "LEFT JOIN ACHAT.SECT_ECO s ON a.NUM_SECT_ECO = s.NUM_SECT_ECO " +
+                "GROUP BY s.DESIGNATION";
+        for (Object[] row : lignes(sqlSecteursGlobal)) {
+            global.ajouterSecteur((String) row[0], ((Number) row[1]).intValue());
+        }
+        String sqlSecteursStructure = "SELECT m.NUM_STRUCT, s.DESIGNATION as secteur, " +
+                "COUNT(DISTINCT a.NUM_ARTICLE) as nombre_articles " +
+                "FROM ACHAT.PRM_ARTICLE a " +
+                "LEFT JOIN ACHAT.SECT_ECO s ON a.NUM_SECT_ECO = s.NUM_SECT_ECO " +
+                "JOIN ACHAT.MRC_ARTICLE ma ON a.NUM_ARTICLE = ma.NUM_ARTICLE " +
+                "JOIN ACHAT.MARCHE m ON ma.NUM_MARCHE = m.NUM_MARCHE " +
+                "WHERE m.NUM_STRUCT IS NOT NULL " +
+                "GROUP BY m.NUM_STRUCT, s.DESIGNATION";
+        for (Object[] row : lignes(sqlSecteursStructure)) {
+            StatistiquesSnapshot.Accumulateur structure = structure(structures, row[0]);
+            if (structure != null) {
+                structure.ajouterSecteur((String) row[1], ((Number) row[2]).intValue());
+            }
+        }
+
+        // 4. Marchés par fournisseur (top-N retenu à la construction), fournisseurs sans marché inclus avec 0
+        String sqlFournisseurs = "SELECT m.NUM_STRUCT, f.DESIGNATION, COUNT(m.NUM_MARCHE) as nombre_marches " +
+                "FROM ACHAT.FOURNISSEUR f " +
+                "LEFT JOIN ACHAT.MARCHE m ON f.NUM_FOURN = m.NUM_FOURN " +
+                "GROUP BY m.NUM_STRUCT, f.DESIGNATION";
+        Set<String> designations = new HashSet<>();
+        for (Object[] row : lignes(sqlFournisseurs)) {
+            String designation = (String) row[1];
+            int nombre = ((Number) row[2]).intValue();
+            designations.add(designation);
+            global.ajouterFournisseur(designation, nombre);
+            StatistiquesSnapshot.Accumulateur structure = structure(structures, row[0]);
+            if (structure != null) {
+                structure.ajouterFournisseur(designation, nombre);
+            }
+        }
+        // Comme le filtre de structure dans la jointure en direct : chaque fournisseur figure dans chaque structure
+        for (StatistiquesSnapshot.Accumulateur structure : structures.values()) {
+            for (String designation : designations) {
+                structure.ajouterFournisseur(designation, 0);
+            }
+        }
+
+        // 5. Pénalités par structure
+        String sqlPenalites = "SELECT m.NUM_STRUCT, COUNT(mp.NUM_MARCHE) as nombre_penalites, " +
+                "COALESCE(SUM(mp.MONTANT_PEN), 0) as montant_total " +
+                "FROM ACHAT.MRC_PENALITE mp " +
+                "LEFT JOIN ACHAT.MARCHE m ON mp.NUM_MARCHE = m.NUM_MARCHE " +
+                "GROUP BY m.NUM_STRUCT";
+        for (Object[] row : lignes(sqlPenalites)) {
+            long nombre = ((Number) row[1]).longValue();
+            double montant = ((Number) row[2]).doubleValue();
+            global.ajouterPenalites(nombre, montant);
+            StatistiquesSnapshot.Accumulateur structure = structure(structures, row[0]);
+            if (structure != null) {
+                structure.ajouterPenalites(nombre, montant);
+            }
+        }
+
+        // 6. Totaux globaux
+        Object[] totaux = (Object[]) entityManager.createNativeQuery(
+                "SELECT (SELECT COUNT(*) FROM ACHAT.FOURNISSEUR), (SELECT COUNT(*) FROM ACHAT.PRM_ARTICLE) FROM DUAL")
+                .getSingleResult();
+
+        Map<String, StatistiquesSnapshot.Agregats> parStructure = new HashMap<>();
+        for (Map.Entry<String, StatistiquesSnapshot.Accumulateur> entry : structures.entrySet()) {
+            parStructure.put(entry.getKey(), entry.getValue().construire(topN));
+        }
+        long fin = System.currentTimeMillis();
+        return new StatistiquesSnapshot(fin, fin - debut,
+                ((Number) totaux[0]).longValue(), ((Number) totaux[1]).longValue(),
+                global.construire(topN), parStructure);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object[]> lignes(String sql) {
+        return entityManager.createNativeQuery(sql).getResultList();
+    }
+
+    private static StatistiquesSnapshot.Accumulateur structure(Map<String, StatistiquesSnapshot.Accumulateur> structures,
+                                                              Object numStruct) {
+        if (numStruct == null) {
+            return null;
+        }
+        String cle = numStruct.toString();
+        StatistiquesSnapshot.Accumulateur acc = structures.get(cle);
+        if (acc == null) {
+            acc = new StatistiquesSnapshot.Accumulateur();
+            structures.put(cle, acc);
+        }
+        return acc;
+    }
+}
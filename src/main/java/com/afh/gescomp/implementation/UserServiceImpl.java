@@ -6,16 +6,20 @@ import com.afh.gescomp.model.primary.User;
 import com.afh.gescomp.payload.response.AuthenticationResponse;
 import com.afh.gescomp.repository.primary.PrmStructureRepository;
 import com.afh.gescomp.repository.primary.UserRepository;
+import com.afh.gescomp.security.service.LoginAttemptService;
 import com.afh.gescomp.service.UserService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import java.sql.Connection;
 import java.sql.CallableStatement;
 import java.sql.SQLException;
 import java.sql.Types;
+import java.util.regex.Pattern;
 import javax.sql.DataSource;
 
 
@@ -25,6 +29,8 @@ public class UserServiceImpl implements  UserService {
 
     private static final Logger logger = LoggerFactory.getLogger(UserServiceImpl.class);
 
+    private static final Pattern BCRYPT = Pattern.compile("\\$2[aby]?\\$\\d\\d\\$[./A-Za-z0-9]{53}");
+
 
     @Autowired
     private DataSource dataSource;
@@ -35,9 +41,70 @@ public class UserServiceImpl implements  UserService {
     @Autowired
     private PrmStructureRepository prmStructureRepository;
 
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private LoginAttemptService loginAttemptService;
+
+    @Value("${auth.hachage.bcrypt.enabled:false}")
+    private boolean hachageBcrypt;
+
+    /**
+     * Un mot de passe déjà haché en BCrypt est vérifié dans la JVM, à partir de l'utilisateur et de sa structure
+     * lus en une requête. Un hachage PL/SQL passe encore par PKG_AUTH.AUTHENTIFICATE_USER_STRUCT, puis est
+     * remplacé par un hachage BCrypt après une connexion réussie si auth.hachage.bcrypt.enabled=true (false par défaut).
+     */
     @Transactional
     @Override
     public AuthenticationResponse authenticateUser(Long matricule, String password) {
+        if (matricule != null && loginAttemptService.estBloque(matricule)) {
+            AuthenticationResponse authResponse = new AuthenticationResponse();
+            authResponse.setAuthenticated(false);
+            authResponse.setResultat("Trop de tentatives échouées, réessayez dans "
+                    + loginAttemptService.getBlocageMinutes() + " minutes");
+            return authResponse;
+        }
+
+        User user = matricule == null ? null : userRepository.findOne(matricule);
+        AuthenticationResponse authResponse;
+        if (user != null && estHacheBcrypt(user.getPasswordHash())) {
+            authResponse = authentifierLocalement(user, password);
+        } else {
+            authResponse = authentifierParProcedure(matricule, password);
+            if (user != null && authResponse.isAuthenticated() && hachageBcrypt) {
+                userRepository.updatePasswordHash(matricule, passwordEncoder.encode(password));
+                logger.info("Mot de passe du matricule {} migré vers BCrypt", matricule);
+            }
+        }
+
+        if (matricule != null) {
+            if (authResponse.isAuthenticated()) {
+                loginAttemptService.succes(matricule);
+            } else {
+                loginAttemptService.echec(matricule);
+            }
+        }
+        return authResponse;
+    }
+
+    private AuthenticationResponse authentifierLocalement(User user, String password) {
+        AuthenticationResponse authResponse = new AuthenticationResponse();
+        if (password == null || !passwordEncoder.matches(password, user.getPasswordHash())) {
+            authResponse.setAuthenticated(false);
+            authResponse.setResultat("Mot de passe incorrect");
+            return authResponse;
+        }
+        authResponse.setAuthenticated(true);
+        authResponse.setResultat("Authentification réussie");
+        if (user.getNumStruct() != null) {
+            authResponse.setNumStruct(user.getNumStruct().getNumStruct());
+            authResponse.setDesignation(user.getNumStruct().getDesignation());
+        }
+        return authResponse;
+    }
+
+    private AuthenticationResponse authentifierParProcedure(Long matricule, String password) {
         AuthenticationResponse authResponse = new AuthenticationResponse();
 
         try (Connection connection = dataSource.getConnection();
@@ -68,9 +135,18 @@ public class UserServiceImpl implements  UserService {
         return authResponse;
     }
 
-    @Transactional
+    static boolean estHacheBcrypt(String passwordHash) {
+        return passwordHash != null && BCRYPT.matcher(passwordHash).matches();
+    }
+
+    /**
+     * Hachage BCrypt dans la JVM (force auth.bcrypt.force) ; PKG_AUTH.hash_string si auth.hachage.bcrypt.enabled=false
+     */
     @Override
     public String hashPassword(String password) {
+        if (hachageBcrypt) {
+            return passwordEncoder.encode(password);
+        }
         String hashedPassword = null;
         try (Connection connection = dataSource.getConnection();
              CallableStatement callableStatement = connection.prepareCall("{ ? = call PKG_AUTH.hash_string(?) }")) {
@@ -14,7 +14,7 @@ import java.io.Serializable;
 @Setter
 @ToString
 @Entity(name = "Chat")
-@Table(name = "CHAT", schema = "ACHAT")
+@Table(name = "CHAT", schema = "ACHAT", indexes = @Index(name = "IDX_CHAT_CONVERSATION", columnList = "SENDER_MATRICULE, RECEIVER_MATRICULE, ID"))
 public class Chat implements Serializable {
     private static final long serialVersionUID = -1478796447326881897L;
     private Long id;
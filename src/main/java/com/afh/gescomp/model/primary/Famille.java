@@ -14,6 +14,7 @@ import java.util.Set;
 
 @Entity(name = "Famille")
 @Table(name = "FAMILLE", schema = "ACHAT")
+@EntityListeners(HierarchieArticleListener.class)
 @IdClass(FamilleId.class)
 @Getter
 @Setter
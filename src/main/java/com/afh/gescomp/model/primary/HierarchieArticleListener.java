@@ -0,0 +1,26 @@
+package com.afh.gescomp.model.primary;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Listener JPA des tables de la hiérarchie article (SECT_ECO, SOUS_SECTEUR, FAMILLE, SOUS_FAMILLE) :
+ * chaque écriture incrémente une version, comparée par l'index des désignations pour se recharger.
+ */
+public class HierarchieArticleListener {
+
+    private static final AtomicLong VERSION = new AtomicLong();
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void hierarchieModifiee(Object entite) {
+        VERSION.incrementAndGet();
+    }
+
+    public static long version() {
+        return VERSION.get();
+    }
+}
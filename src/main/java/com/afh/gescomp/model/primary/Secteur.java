@@ -17,6 +17,7 @@ import java.util.Set;
 @NoArgsConstructor
 @AllArgsConstructor
 @Table(name = "SECT_ECO",schema = "ACHAT")
+@EntityListeners(HierarchieArticleListener.class)
 public class Secteur {
 
     @Id
@@ -11,6 +11,7 @@ import lombok.Setter;
 
 @Entity(name = "SOUS_FAMILLE")
 @Table(name = "SOUS_FAMILLE", schema = "ACHAT")
+@EntityListeners(HierarchieArticleListener.class)
 @IdClass(SousFamilleId.class)
 @Getter
 @Setter
@@ -15,6 +15,7 @@ import java.util.Set;
 
 @Entity(name = "SOUS_SECTEUR" )
 @Table(name = "SOUS_SECTEUR", schema = "ACHAT")
+@EntityListeners(HierarchieArticleListener.class)
 @IdClass(SousSecteurId.class)
 @Getter
 @Setter
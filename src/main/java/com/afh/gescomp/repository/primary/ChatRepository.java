@@ -3,6 +3,7 @@
 package com.afh.gescomp.repository.primary;
 
 import com.afh.gescomp.model.primary.Chat;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -11,8 +12,13 @@ import org.springframework.data.repository.query.Param;
 import java.util.List;
 
 public interface ChatRepository extends JpaRepository<Chat,Long> {
-    @Query("SELECT c FROM Chat c WHERE (c.senderMatricule = :sender AND c.receiverMatricule = :receiver) OR (c.senderMatricule = :receiver AND c.receiverMatricule = :sender) ORDER BY c.id ASC")
-    List<Chat> findMessagesBetweenUserAndAdmins(@Param("sender") String sender, @Param("receiver") String receiver);
+    /**
+     * Page de conversation par curseur : messages d'identifiant inférieur à avantId, du plus récent au plus ancien.
+     * La taille vient du Pageable (page 0), sans requête de comptage.
+     */
+    @Query("SELECT c FROM Chat c WHERE ((c.senderMatricule = :sender AND c.receiverMatricule = :receiver) OR (c.senderMatricule = :receiver AND c.receiverMatricule = :sender)) AND c.id < :avantId ORDER BY c.id DESC")
+    List<Chat> findPageBetweenUserAndAdmins(@Param("sender") String sender, @Param("receiver") String receiver,
+                                            @Param("avantId") Long avantId, Pageable pageable);
 
     @Modifying
     @Query("DELETE FROM Chat c WHERE " +
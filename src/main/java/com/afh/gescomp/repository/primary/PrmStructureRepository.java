@@ -1,6 +1,8 @@
 package com.afh.gescomp.repository.primary;
 
+import com.afh.gescomp.config.CacheConfig;
 import com.afh.gescomp.model.primary.PrmStructure;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
@@ -9,6 +11,7 @@ import org.springframework.stereotype.Repository;
 
 @Repository
 public interface PrmStructureRepository extends JpaRepository<PrmStructure, String>{
+    @Cacheable(value = CacheConfig.STRUCTURES, unless = "#result == null")
     @Query("SELECT prm FROM PrmStructure prm WHERE prm.numStruct = :numStruct")
     PrmStructure findPrmStructureByNumStruct(@Param("numStruct") String numStruct);
 }
\ No newline at end of file
@@ -2,7 +2,9 @@ package com.afh.gescomp.repository.primary;
 
 import com.afh.gescomp.model.primary.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 
@@ -11,4 +13,7 @@ public interface UserRepository extends JpaRepository<User, Long> {
     List<User> findAdminUsers();
     @Query("SELECT u FROM User u WHERE u.numStruct.numStruct <> '03'")
     List<User> findSimpleUsers();
+    @Modifying
+    @Query("UPDATE User u SET u.passwordHash = :passwordHash WHERE u.id = :matricule")
+    int updatePasswordHash(@Param("matricule") Long matricule, @Param("passwordHash") String passwordHash);
 }
\ No newline at end of file
@@ -2,6 +2,10 @@
 package com.afh.gescomp.security;
 
 
+import com.afh.gescomp.security.jwt.JwtAuthenticationFilter;
+import com.afh.gescomp.service.JwtTokenService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -9,8 +13,10 @@ import org.springframework.security.config.annotation.authentication.builders.Au
 import org.springframework.security.config.annotation.method.configuration.EnableGlobalMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
+import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
 
 @Configuration
@@ -19,6 +25,12 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
 
     //private  AuthEntryPointJwt unauthorizedHandler;
 
+    @Value("${auth.bcrypt.force:10}")
+    private int bcryptForce;
+
+    @Autowired
+    private JwtTokenService jwtTokenService;
+
     // Constructeur par défaut sans paramètre
     public WebSecurityConfig() {}
 
@@ -35,10 +47,10 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
         return super.authenticationManagerBean();
     }
 
-    // Password encoder bean (BCrypt) for password hashing
+    // Password encoder bean (BCrypt) for password hashing ; force réglable (2^force itérations)
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        return new BCryptPasswordEncoder(bcryptForce);
     }
 
     // Define custom userDetailsService if needed (example)
@@ -79,7 +91,12 @@ protected void configure(HttpSecurity http) throws Exception {
             .antMatchers("/api/auth/**", "/api/UserAuth/**").permitAll() // Endpoints d'authentification publics
             .antMatchers("/api/resources/**").permitAll()
             .antMatchers("/static/**", "/index.html").permitAll() // Permet l'accès aux ressources statiques
-            .anyRequest().permitAll(); // Toutes les autres requêtes nécessitent une authentification
+            .anyRequest().permitAll() // Toutes les autres requêtes nécessitent une authentification
+            .and()
+            .sessionManagement()
+            .sessionCreationPolicy(SessionCreationPolicy.STATELESS) // Authentification portée par le JWT de chaque requête
+            .and()
+            .addFilterBefore(new JwtAuthenticationFilter(jwtTokenService), UsernamePasswordAuthenticationFilter.class);
 }
 
 }
@@ -0,0 +1,56 @@
+package com.afh.gescomp.security.jwt;
+
+import com.afh.gescomp.service.JwtTokenService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Authentification sans état par l'en-tête "Authorization: Bearer <jwt>".
+ * Le jeton est vérifié par {@link JwtTokenService#verifier(String)} (signature contrôlée au premier passage,
+ * puis lue en mémoire) et le SecurityContext est rempli avec le matricule, sans accès à la base.
+ * Un jeton absent, invalide ou expiré laisse la requête anonyme : les règles d'accès décident de la suite.
+ */
+public class JwtAuthenticationFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
+
+    private static final String PREFIXE = "Bearer ";
+
+    private static final List<GrantedAuthority> AUTORITES = AuthorityUtils.createAuthorityList("ROLE_USER");
+
+    private final JwtTokenService jwtTokenService;
+
+    public JwtAuthenticationFilter(JwtTokenService jwtTokenService) {
+        this.jwtTokenService = jwtTokenService;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String entete = request.getHeader("Authorization");
+        if (entete != null && entete.startsWith(PREFIXE)
+                && SecurityContextHolder.getContext().getAuthentication() == null) {
+            JwtTokenService.JetonVerifie jeton = jwtTokenService.verifier(entete.substring(PREFIXE.length()).trim());
+            if (jeton != null) {
+                UsernamePasswordAuthenticationToken authentication =
+                        new UsernamePasswordAuthenticationToken(jeton.getMatricule(), null, AUTORITES);
+                SecurityContextHolder.getContext().setAuthentication(authentication);
+            } else {
+                logger.debug("Jeton JWT refusé pour {}", request.getRequestURI());
+            }
+        }
+        filterChain.doFilter(request, response);
+    }
+}
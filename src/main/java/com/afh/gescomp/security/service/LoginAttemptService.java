@@ -0,0 +1,75 @@
+package com.afh.gescomp.security.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compteur local des échecs de connexion par matricule : après {@code auth.tentatives.max} échecs,
+ * le matricule est refusé sans appel à la base pendant {@code auth.tentatives.blocage-ms}
+ * à compter du dernier échec. Une connexion réussie remet le compteur à zéro.
+ */
+@Component
+public class LoginAttemptService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoginAttemptService.class);
+
+    @Value("${auth.tentatives.max:5}")
+    private int maxEchecs = 5;
+
+    @Value("${auth.tentatives.blocage-ms:900000}")
+    private long blocageMs = 900000L;
+
+    @Value("${auth.tentatives.matricules-max:100000}")
+    private long matriculesMax = 100000L;
+
+    private ConcurrentMap<Long, Integer> echecs;
+
+    @PostConstruct
+    public void initialiser() {
+        Cache<Long, Integer> cache = Caffeine.newBuilder()
+                .expireAfterWrite(blocageMs, TimeUnit.MILLISECONDS)
+                .maximumSize(matriculesMax)
+                .build();
+        echecs = cache.asMap();
+    }
+
+    public boolean estBloque(Long matricule) {
+        Integer nombre = echecs.get(matricule);
+        return nombre != null && nombre >= maxEchecs;
+    }
+
+    /**
+     * Compte un échec ; chaque échec repousse la fin du blocage
+     */
+    public void echec(Long matricule) {
+        while (true) {
+            Integer nombre = echecs.get(matricule);
+            if (nombre == null) {
+                if (echecs.putIfAbsent(matricule, 1) == null) {
+                    return;
+                }
+            } else if (echecs.replace(matricule, nombre, nombre + 1)) {
+                if (nombre + 1 == maxEchecs) {
+                    logger.warn("Matricule {} bloqué après {} échecs de connexion", matricule, maxEchecs);
+                }
+                return;
+            }
+        }
+    }
+
+    public void succes(Long matricule) {
+        echecs.remove(matricule);
+    }
+
+    public long getBlocageMinutes() {
+        return TimeUnit.MILLISECONDS.toMinutes(blocageMs);
+    }
+}
@@ -0,0 +1,46 @@
+package com.afh.gescomp.service;
+
+import com.afh.gescomp.model.primary.Chat;
+
+import java.util.List;
+import java.util.Map;
+
+public interface ChatService {
+
+    /**
+     * Met le message en file d'écriture ; il est inséré en base par lots, hors du thread appelant.
+     * File pleine : les messages en attente sont écrits immédiatement dans le thread appelant.
+     * @throws IllegalArgumentException si un matricule ou la structure dépasse la taille de sa colonne
+     */
+    void enregistrer(Chat chat);
+
+    /**
+     * Écrit tous les messages en attente sur ce nœud ; un lot refusé est repris ligne par ligne
+     * et les messages refusés par la base sont écartés
+     * @return Nombre de messages insérés
+     */
+    int vider();
+
+    /**
+     * Page d'une conversation par curseur sur Chat.id, dans l'ordre chronologique
+     * @param avantId Curseur : messages d'identifiant inférieur (null pour les plus récents)
+     * @param limite Taille de la page, bornée par chat.historique.limite-max (null pour la taille par défaut)
+     * @return messages, avantId (curseur de la page précédente, null s'il n'y en a plus) et plusAnciens
+     */
+    Map<String, Object> historique(String sender, String receiver, Long avantId, Integer limite);
+
+    /**
+     * Derniers messages d'une conversation (au plus chat.historique.max), dans l'ordre chronologique
+     */
+    List<Chat> derniersMessages(String sender, String receiver);
+
+    /**
+     * Supprime une conversation, y compris les messages encore en attente d'écriture sur ce nœud
+     */
+    void supprimerConversation(String sender, String receiver);
+
+    /**
+     * @return Nombre de messages en attente d'écriture
+     */
+    int getEnAttente();
+}
@@ -77,4 +77,14 @@ public interface DashboardService {
      * @return Map contenant les données sectorielles
      */
     Map<String, Object> getSectoriellesData(String numStruct);
+
+    /**
+     * Calcule tous les widgets du dashboard en parallèle (stats, pénalités, garanties, décomptes,
+     * étapes, sectorielles, top fournisseurs, évolution des marchés), chacun avec un délai maximal
+     * @param numStruct Numéro de structure (optionnel)
+     * @param months Nombre de mois pour l'évolution des marchés
+     * @param limit Nombre de top fournisseurs
+     * @return Map des widgets par nom ; un widget en échec ou hors délai contient "error" et "widgetStatus"
+     */
+    Map<String, Object> getAllWidgets(String numStruct, int months, int limit);
 }
@@ -6,6 +6,7 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
 import java.util.List;
+import java.util.Map;
 
 public interface DecArticleService {
     List<DecArticle> getDecArticlesTravaux(Long numMarche, String idLot, Short numPieceFourn, Short numEtape);
@@ -18,6 +19,14 @@ public interface DecArticleService {
     //----------------//
     List<DecArticle> patchDecArticlesTravaux(Long numMarche, String idLot, Short numPieceFourn, Short numEtape, List<DecArticleUpdateRequest> articlesToUpdate);
     List<DecArticle> patchDecArticlesAppro(Long numMarche, String idLot, Short numPieceFourn, Short numEtape, List<DecArticleUpdateRequest> articlesToUpdate);
+
+    /**
+     * Patch en masse des lignes d'un décompte (travaux ou approvisionnement) dans une seule transaction.
+     * @param dryRun true : rien n'est écrit, seul le diff est calculé
+     * @return Map contenant dryRun, modifies, inchanges, introuvables et diff (avant / après par colonne)
+     */
+    Map<String, Object> patchDecArticles(Long numMarche, String idLot, Short numPieceFourn, Short numEtape, boolean appro,
+                                         List<DecArticleUpdateRequest> articlesToUpdate, boolean dryRun);
     String calculateMontantsFinalDecArticlesOrd(Long numMarche, Short numPieceFourn, Short numEtape);
     List<DecArticle> getDecArticlesTravauxDecompte(Long numMarche, String idLot, Short numPieceFourn, Short numDecompte);
     List<DecArticle> getDecArticlesApproDecompte(Long numMarche, String idLot, Short numPieceFourn, Short numDecompte);
@@ -0,0 +1,32 @@
+package com.afh.gescomp.service;
+
+import com.afh.gescomp.dto.ExportJob;
+
+public interface ExportJobService {
+
+    /**
+     * Soumet un export des statistiques (mêmes paramètres que /api/statistiques/export).
+     * Une demande identique en cours ou terminée non expirée renvoie la tâche existante.
+     * @param format "pdf" ou "excel"
+     * @return Tâche d'export
+     */
+    ExportJob soumettreStatistiques(String format, String type, String numStruct, String dateDebut, String dateFin);
+
+    /**
+     * Soumet l'export PDF des détails d'un fournisseur, avec la même déduplication
+     * @param numFourn Numéro du fournisseur
+     * @return Tâche d'export
+     */
+    ExportJob soumettreFournisseur(String numFourn);
+
+    /**
+     * @return La tâche, ou null si inconnue ou expirée
+     */
+    ExportJob getJob(String id);
+
+    /**
+     * Supprime les tâches finies depuis plus que la durée de conservation, ainsi que leurs fichiers
+     * @return Nombre de tâches supprimées
+     */
+    int nettoyer();
+}
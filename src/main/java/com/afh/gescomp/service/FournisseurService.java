@@ -5,6 +5,8 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 
 public interface FournisseurService {
@@ -23,4 +25,11 @@ public interface FournisseurService {
       * @return Données PDF en bytes
       */
      byte[] generateFournisseurDetailsPDF(String numFourn);
+
+     /**
+      * Génère le PDF d'un fournisseur directement dans le flux de sortie, les marchés étant lus en curseur
+      * @param numFourn Numéro du fournisseur
+      * @param out Flux de sortie (ex. réponse HTTP), non fermé par la méthode
+      */
+     void generateFournisseurDetailsPDF(String numFourn, OutputStream out) throws IOException;
 }
@@ -0,0 +1,21 @@
+package com.afh.gescomp.service;
+
+/**
+ * Résolution des désignations de la hiérarchie article
+ * (secteur → sous-secteur → famille → sous-famille) depuis un index en mémoire.
+ */
+public interface HierarchieArticleService {
+
+    String getDesignationSecteur(Short numSectEco);
+
+    String getDesignationSousSecteur(Short numSectEco, Short numSSectEco);
+
+    String getDesignationFamille(Short numSectEco, Short numSSectEco, Short numFamille);
+
+    String getDesignationSousFamille(Short numSectEco, Short numSSectEco, Short numFamille, Short numSFamille);
+
+    /**
+     * Force le rechargement de l'index au prochain accès
+     */
+    void invalider();
+}
@@ -1,16 +1,62 @@
 package com.afh.gescomp.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class JwtTokenService {
 
     private final String secretKey = "KaisserFrigui";  // Changez cette clé par une plus sécurisée
 
+    private static final long DECALAGE_HORLOGE_MS = 5000L;
+
+    @Value("${jwt.cache.max:10000}")
+    private long cacheMax = 10000L;
+
+    /**
+     * Jetons déjà vérifiés, par empreinte SHA-256, conservés jusqu'à leur expiration
+     */
+    private Cache<ByteBuffer, JetonVerifie> jetons;
+
+    @PostConstruct
+    public void initialiser() {
+        jetons = Caffeine.newBuilder()
+                .maximumSize(cacheMax)
+                .expireAfter(new Expiry<ByteBuffer, JetonVerifie>() {
+                    @Override
+                    public long expireAfterCreate(ByteBuffer cle, JetonVerifie jeton, long maintenant) {
+                        long restantMs = jeton.getExpiration().getTime() + DECALAGE_HORLOGE_MS - System.currentTimeMillis();
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(restantMs, 0L));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(ByteBuffer cle, JetonVerifie jeton, long maintenant, long restant) {
+                        return restant;
+                    }
+
+                    @Override
+                    public long expireAfterRead(ByteBuffer cle, JetonVerifie jeton, long maintenant, long restant) {
+                        return restant;
+                    }
+                })
+                .build();
+    }
+
     // Générer un token JWT
     public String generateToken(Long matricule) {
         return Jwts.builder()
@@ -33,30 +79,85 @@ public class JwtTokenService {
 
     // Extraire le matricule du token JWT
     public Long extractMatricule(String token) {
-        return Long.parseLong(Jwts.parser()
-                .setSigningKey(secretKey)
-                .setAllowedClockSkewSeconds(5) // Autoriser un décalage d'horloge de 5 secondes
-                .parseClaimsJws(token)
-                .getBody()
-                .getSubject());
+        return Long.parseLong(lireClaims(token).getSubject());
     }
 
-    // Vérifier si le token est valide
+    // Vérifier si le token est valide (signature vérifiée une seule fois)
     public boolean isTokenValid(String token, Long matricule) {
-        return matricule.equals(extractMatricule(token)) && !isTokenExpired(token);
+        Claims claims = lireClaims(token);
+        return matricule.equals(Long.parseLong(claims.getSubject())) && !claims.getExpiration().before(new Date());
     }
 
     // Vérifier si le token est expiré
     public boolean isTokenExpired(String token) {
-        return extractExpirationDate(token).before(new Date());
+        return lireClaims(token).getExpiration().before(new Date());
+    }
+
+    /**
+     * Vérification d'un jeton présenté à chaque requête : la signature n'est contrôlée qu'au premier passage,
+     * les suivants lisent le résultat en mémoire jusqu'à l'expiration du jeton (cache borné à jwt.cache.max)
+     * @return Matricule et expiration, ou null si le jeton est mal formé, mal signé ou expiré
+     */
+    public JetonVerifie verifier(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        ByteBuffer cle = empreinte(token);
+        JetonVerifie jeton = jetons.getIfPresent(cle);
+        if (jeton != null) {
+            return jeton;
+        }
+        try {
+            Claims claims = lireClaims(token);
+            if (claims.getExpiration() == null) {
+                return null;
+            }
+            jeton = new JetonVerifie(Long.parseLong(claims.getSubject()), claims.getExpiration());
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+        jetons.put(cle, jeton);
+        return jeton;
+    }
+
+    public long getTailleCache() {
+        return jetons.estimatedSize();
     }
 
-    private Date extractExpirationDate(String token) {
+    private Claims lireClaims(String token) {
         return Jwts.parser()
                 .setSigningKey(secretKey)
-                .setAllowedClockSkewSeconds(5) // Autoriser un décalage d'horloge de 5 secondes
+                .setAllowedClockSkewSeconds(DECALAGE_HORLOGE_MS / 1000) // Autoriser un décalage d'horloge de 5 secondes
                 .parseClaimsJws(token)
-                .getBody()
-                .getExpiration();
+                .getBody();
+    }
+
+    private static ByteBuffer empreinte(String token) {
+        try {
+            return ByteBuffer.wrap(MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Résultat immuable de la vérification d'un jeton
+     */
+    public static final class JetonVerifie {
+        private final Long matricule;
+        private final Date expiration;
+
+        public JetonVerifie(Long matricule, Date expiration) {
+            this.matricule = matricule;
+            this.expiration = new Date(expiration.getTime());
+        }
+
+        public Long getMatricule() {
+            return matricule;
+        }
+
+        public Date getExpiration() {
+            return new Date(expiration.getTime());
+        }
     }
 }
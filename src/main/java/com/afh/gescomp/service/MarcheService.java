@@ -1,5 +1,6 @@
 package com.afh.gescomp.service;
 
+import com.afh.gescomp.dto.MarcheListeDTO;
 import com.afh.gescomp.model.primary.Article;
 import com.afh.gescomp.model.primary.Marche;
 import com.afh.gescomp.payload.response.MontantResponse;
@@ -7,10 +8,25 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
 import java.util.List;
+import java.util.Map;
 
 public interface MarcheService {
     List<Marche> findAllMarches();
     Page<Marche> getAllMarches(Pageable Pageable, String filter, String designation, String fournisseurDesignation, String numStruct, String numFourn);
+
+    /**
+     * Liste paginée des marchés en projection (colonnes de la grille), mêmes filtres que getAllMarches
+     */
+    Page<MarcheListeDTO> getListeMarches(Pageable pageable, String filter, String designation, String fournisseurDesignation, String numStruct, String numFourn);
+
+    /**
+     * Liste des marchés par curseur (pagination par clé sur NUM_MARCHE décroissant), mêmes filtres que getAllMarches
+     * @param lastId Dernier NUM_MARCHE de la page précédente (null pour la première page)
+     * @param size Taille de page
+     * @param avecTotal Calcule aussi le nombre total de marchés (requête COUNT supplémentaire)
+     * @return Map contenant content (MarcheListeDTO), size, hasNext, nextCursor et éventuellement totalElements
+     */
+    Map<String, Object> getMarchesParCurseur(Long lastId, int size, String filter, String designation, String fournisseurDesignation, String numStruct, String numFourn, boolean avecTotal);
     void save(Marche marcheRequest);
     Marche findMarcheByNumMarche(Long numMarche);
     void deleteMarche(Marche marche);
@@ -7,6 +7,7 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
 import java.util.List;
+import java.util.Map;
 
 public interface MrcArticleService {
     List<MrcArticle> findByNumMarcheAndIdLot(Long numMarche, String idLot);
@@ -15,6 +16,13 @@ public interface MrcArticleService {
     MrcArticle findById(Long numMarche, String idLot, String numArticle, Short idArticle, Integer ap);
     void save(MrcArticle mrcArticle);
     List<MrcArticle> saveOrUpdateArticles(List<MrcArticle> mrcArticles);
+
+    /**
+     * Enregistrement en masse d'un bordereau : clés existantes et articles chargés en une requête,
+     * écritures JDBC par lots (mrc-article.batch.taille-lot)
+     * @return Map contenant total, inseres, misAJour, tailleLot et dureeMs
+     */
+    Map<String, Object> upsertArticles(List<MrcArticle> mrcArticles);
     MrcArticle findByNumMarcheAndIdLotAndNumArticleAndIdArticle(Long numMarche, String idLot, String numArticle, Short idArticle);
     MrcArticle findByNumMarcheAndIdLotAndIdArticle(Long numMarche, String idLot, Short idArticle);
     Short getMaxIdArticle(Long numMarche, String idLot);
@@ -0,0 +1,17 @@
+package com.afh.gescomp.service;
+
+import com.afh.gescomp.dto.RecalculDecompteCible;
+
+import java.util.List;
+import java.util.Map;
+
+public interface RecalculDecompteService {
+
+    /**
+     * Recalcule les montants de plusieurs décomptes (CAL_DEC_ORD, CAL_DEC_LRG, CAL_DEC_AVANCE).
+     * Les cibles d'un même marché partagent une connexion et une transaction, dans l'ordre de la demande ;
+     * les marchés distincts sont traités en parallèle.
+     * @return total, reussis, echecs, dureeMs et resultats (une issue par cible, dans l'ordre de la demande)
+     */
+    Map<String, Object> recalculer(List<RecalculDecompteCible> cibles);
+}
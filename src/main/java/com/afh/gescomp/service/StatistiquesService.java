@@ -1,6 +1,8 @@
 package com.afh.gescomp.service;
 
 import java.util.List;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Map;
 
 public interface StatistiquesService {
@@ -134,6 +136,13 @@ public interface StatistiquesService {
      * @return Données PDF en bytes
      */
     byte[] exportToPDF(String numStruct, String type, String dateDebut, String dateFin);
+
+    /**
+     * Export PDF en flux : le document est écrit directement dans le flux de sortie,
+     * les lignes de marchés étant lues en curseur et ajoutées par lots
+     * @param out Flux de sortie (ex. réponse HTTP), non fermé par la méthode
+     */
+    void exportToPDF(String numStruct, String type, String dateDebut, String dateFin, OutputStream out) throws IOException;
     
     /**
      * Export des données en Excel avec filtrage par période
@@ -145,6 +154,23 @@ public interface StatistiquesService {
      */
     byte[] exportToExcel(String numStruct, String type, String dateDebut, String dateFin);
 
+    /**
+     * Vérifie les dates d'une période d'export (YYYY-MM-DD, date calendaire existante, chacune optionnelle)
+     * @throws IllegalArgumentException si une date est mal formée ou n'existe pas
+     */
+    void validerPeriode(String dateDebut, String dateFin);
+
+    /**
+     * Export Excel des marchés en flux : lecture en curseur et écriture directe dans le flux,
+     * mémoire constante quel que soit le nombre de lignes
+     * @param numStruct Numéro de structure (optionnel)
+     * @param type Type de données à exporter
+     * @param dateDebut Date de début au format YYYY-MM-DD (optionnel)
+     * @param dateFin Date de fin au format YYYY-MM-DD (optionnel)
+     * @param out Flux de sortie (ex. réponse HTTP), non fermé par la méthode
+     */
+    void exportToExcel(String numStruct, String type, String dateDebut, String dateFin, OutputStream out) throws IOException;
+
     // ========== NOUVELLES MÉTHODES POUR STATISTIQUES GÉNÉRALES ==========
 
     /**
@@ -173,6 +199,14 @@ public interface StatistiquesService {
      */
     Map<String, Object> getStatistiquesGenerales(String numStruct);
 
+    /**
+     * Récupère toutes les statistiques générales en choisissant le mode de calcul
+     * @param numStruct Numéro de structure (optionnel)
+     * @param composite true pour une seule requête composite, false pour une requête par section
+     * @return Map contenant toutes les statistiques générales, le mode utilisé et le nombre de requêtes SQL
+     */
+    Map<String, Object> getStatistiquesGenerales(String numStruct, boolean composite);
+
     /**
      * Récupère les détails des marchés avec leurs fournisseurs et banques
      * @param numStruct Numéro de structure (optionnel)
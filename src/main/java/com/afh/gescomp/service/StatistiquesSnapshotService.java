@@ -0,0 +1,33 @@
+package com.afh.gescomp.service;
+
+import com.afh.gescomp.dto.StatistiquesSnapshot;
+
+import java.util.Map;
+
+public interface StatistiquesSnapshotService {
+
+    /**
+     * Retourne le dernier snapshot calculé
+     * @return le snapshot courant, ou null si le moteur est désactivé ou pas encore initialisé
+     */
+    StatistiquesSnapshot getSnapshot();
+
+    /**
+     * Recalcule immédiatement le snapshot à partir de la base
+     * @return le nouveau snapshot, ou le précédent si le calcul a échoué
+     */
+    StatistiquesSnapshot rafraichir();
+
+    /**
+     * Signale une modification des données (marchés, articles, fournisseurs, pénalités).
+     * Le snapshot sera recalculé au prochain passage du planificateur ; appelé dans une transaction,
+     * le marquage ne prend effet qu'après son commit.
+     */
+    void marquerModifie();
+
+    /**
+     * Récupère l'état du moteur de snapshot (date, âge, durée du dernier calcul)
+     * @return Map contenant l'état du snapshot
+     */
+    Map<String, Object> getEtat();
+}
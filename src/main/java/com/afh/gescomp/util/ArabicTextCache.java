@@ -0,0 +1,166 @@
+package com.afh.gescomp.util;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.itextpdf.text.Font;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Cache borné du rendu PDF des libellés (désignations fournisseurs, articles, marchés) :
+ * texte nettoyé, présence de caractères arabes et police, par (texte, taille, style).
+ * La mise en forme des ligatures et l'ordre bidi restent faits par iText à la mise en page
+ * des cellules RTL, pour que le retour à la ligne suive l'ordre logique du texte.
+ * Préchargé depuis FOURNISSEUR.DESIGNATION et PRM_ARTICLE.DESIGNATION, puis rafraîchi périodiquement.
+ */
+@Component
+public class ArabicTextCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ArabicTextCache.class);
+
+    /** Taille et style des cellules de données des exports PDF. */
+    public static final float TAILLE_CELLULE = 9;
+
+    private static final String SQL_DESIGNATIONS_FOURNISSEURS =
+            "SELECT DESIGNATION FROM ACHAT.FOURNISSEUR WHERE DESIGNATION IS NOT NULL";
+
+    private static final String SQL_DESIGNATIONS_ARTICLES =
+            "SELECT DESIGNATION FROM ACHAT.PRM_ARTICLE WHERE DESIGNATION IS NOT NULL";
+
+    @Autowired
+    private ArabicFontUtil arabicFontUtil;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${pdf.texte.cache.max:20000}")
+    private long tailleMax;
+
+    @Value("${pdf.texte.prechargement.enabled:true}")
+    private boolean prechargement;
+
+    private Cache<Cle, TexteRendu> cache;
+
+    /**
+     * Rendu d'un libellé : immuable, partageable entre threads et entre documents
+     */
+    public static final class TexteRendu {
+        private final String texte;
+        private final Font police;
+        private final boolean arabe;
+
+        public TexteRendu(String texte, Font police, boolean arabe) {
+            this.texte = texte;
+            this.police = police;
+            this.arabe = arabe;
+        }
+
+        /** Texte nettoyé par {@link ArabicFontUtil#formatArabicText(String)}. */
+        public String getTexte() {
+            return texte;
+        }
+
+        public Font getPolice() {
+            return police;
+        }
+
+        /** Vrai si la cellule doit être écrite de droite à gauche. */
+        public boolean isArabe() {
+            return arabe;
+        }
+    }
+
+    private static final class Cle {
+        private final String texte;
+        private final float taille;
+        private final int style;
+
+        Cle(String texte, float taille, int style) {
+            this.texte = texte;
+            this.taille = taille;
+            this.style = style;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Cle)) {
+                return false;
+            }
+            Cle autre = (Cle) o;
+            return Float.compare(taille, autre.taille) == 0 && style == autre.style && texte.equals(autre.texte);
+        }
+
+        @Override
+        public int hashCode() {
+            return (texte.hashCode() * 31 + Float.floatToIntBits(taille)) * 31 + style;
+        }
+    }
+
+    @PostConstruct
+    public void initialiser() {
+        cache = Caffeine.newBuilder().maximumSize(tailleMax).build();
+    }
+
+    /**
+     * Rendu du libellé, calculé au premier appel pour ce (texte, taille, style)
+     */
+    public TexteRendu rendu(String texte, float taille, int style) {
+        String source = texte == null ? "null" : texte;
+        Cle cle = new Cle(source, taille, style);
+        TexteRendu rendu = cache.getIfPresent(cle);
+        if (rendu == null) {
+            rendu = calculer(source, taille, style);
+            cache.put(cle, rendu);
+        }
+        return rendu;
+    }
+
+    public long getTaille() {
+        return cache.estimatedSize();
+    }
+
+    /**
+     * Tâche planifiée : charge dans le cache les désignations absentes (nouveaux fournisseurs, articles)
+     */
+    @Scheduled(initialDelayString = "${pdf.texte.prechargement.initial-delay-ms:20000}",
+               fixedDelayString = "${pdf.texte.prechargement.interval-ms:3600000}")
+    public void precharger() {
+        if (!prechargement) {
+            return;
+        }
+        long debut = System.currentTimeMillis();
+        final long avant = cache.estimatedSize();
+        try {
+            RowCallbackHandler chargeur = new RowCallbackHandler() {
+                @Override
+                public void processRow(ResultSet rs) throws SQLException {
+                    if (cache.estimatedSize() < tailleMax) {
+                        rendu(rs.getString(1), TAILLE_CELLULE, Font.NORMAL);
+                    }
+                }
+            };
+            jdbcTemplate.query(SQL_DESIGNATIONS_FOURNISSEURS, chargeur);
+            jdbcTemplate.query(SQL_DESIGNATIONS_ARTICLES, chargeur);
+            logger.info("Cache des libellés PDF : {} entrées ajoutées en {} ms ({} au total)",
+                    cache.estimatedSize() - avant, System.currentTimeMillis() - debut, cache.estimatedSize());
+        } catch (Exception e) {
+            logger.warn("Préchargement des libellés PDF impossible : {}", e.getMessage());
+        }
+    }
+
+    private TexteRendu calculer(String texte, float taille, int style) {
+        String formate = ArabicFontUtil.formatArabicText(texte);
+        boolean arabe = arabicFontUtil.containsArabicText(texte);
+        return new TexteRendu(formate, arabicFontUtil.getAppropriateFont(texte, taille, style), arabe);
+    }
+}
@@ -0,0 +1,195 @@
+package com.afh.gescomp.util;
+
+import com.itextpdf.text.BaseColor;
+import com.itextpdf.text.Font;
+import com.itextpdf.text.FontFactory;
+import com.itextpdf.text.pdf.BaseFont;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registre unique des polices des exports PDF. Les fichiers TTF arabes (Amiri, puis Noto Naskh Arabic
+ * en secours) et la police latine sont lus une seule fois, à la création du registre, en BaseFont partagées.
+ * Les polices (famille, taille, style) sont créées au premier usage puis servies sans verrou ;
+ * elles sont figées : toute modification lève UnsupportedOperationException, il faut en dériver une copie.
+ */
+@Component
+public class FontRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(FontRegistry.class);
+
+    private static final String REPERTOIRE = "fonts/arabic/";
+
+    public static final String AMIRI = "Amiri-Regular.ttf";
+
+    public static final String NOTO_NASKH = "NotoNaskhArabic-Regular.ttf";
+
+    /**
+     * Familles servies par le registre
+     */
+    public enum Famille {
+        ARABE, LATINE
+    }
+
+    private final BaseFont arabe;
+
+    private final BaseFont latine;
+
+    private final ConcurrentMap<Long, Font> polices = new ConcurrentHashMap<>();
+
+    public FontRegistry() {
+        BaseFont police = charger(AMIRI);
+        if (police == null) {
+            police = charger(NOTO_NASKH);
+        }
+        if (police == null) {
+            logger.warn("Aucune police arabe TTF trouvée dans {}, les textes arabes utiliseront la police par défaut", REPERTOIRE);
+        }
+        this.arabe = police;
+        BaseFont helvetica = null;
+        try {
+            helvetica = BaseFont.createFont(BaseFont.HELVETICA, BaseFont.CP1252, BaseFont.EMBEDDED);
+        } catch (Exception e) {
+            logger.error("Erreur lors du chargement de la police latine: {}", e.getMessage(), e);
+        }
+        this.latine = helvetica;
+    }
+
+    /**
+     * Police partagée de la famille, de la taille et du style demandés (Font.NORMAL, Font.BOLD...)
+     */
+    public Font police(Famille famille, float taille, int style) {
+        Long cle = ((long) Float.floatToIntBits(taille) << 32) | ((long) famille.ordinal() << 16) | (style & 0xFFFF);
+        Font font = polices.get(cle);
+        if (font == null) {
+            Font nouvelle = creer(famille, taille, style);
+            font = polices.putIfAbsent(cle, nouvelle);
+            if (font == null) {
+                font = nouvelle;
+            }
+        }
+        return font;
+    }
+
+    /**
+     * @return Police arabe de base (Amiri ou Noto Naskh Arabic), null si aucune n'a pu être chargée
+     */
+    public BaseFont getBaseArabe() {
+        return arabe;
+    }
+
+    public BaseFont getBaseLatine() {
+        return latine;
+    }
+
+    public int getTaille() {
+        return polices.size();
+    }
+
+    private Font creer(Famille famille, float taille, int style) {
+        BaseFont base = famille == Famille.ARABE ? arabe : latine;
+        if (base != null) {
+            return new PoliceFigee(new Font(base, taille, style));
+        }
+        return new PoliceFigee(famille == Famille.ARABE
+                ? FontFactory.getFont(BaseFont.IDENTITY_H, taille, style)
+                : FontFactory.getFont(BaseFont.HELVETICA, taille, style));
+    }
+
+    /**
+     * Lit le fichier TTF du classpath et crée la BaseFont à partir de ses octets : le fichier n'est plus relu,
+     * y compris depuis une archive WAR où il n'a pas de chemin sur disque
+     */
+    private static BaseFont charger(String nom) {
+        InputStream in = FontRegistry.class.getClassLoader().getResourceAsStream(REPERTOIRE + nom);
+        if (in == null) {
+            logger.warn("Police {} non trouvée", nom);
+            return null;
+        }
+        try {
+            BaseFont police = BaseFont.createFont(nom, BaseFont.IDENTITY_H, BaseFont.EMBEDDED, false, lire(in), null);
+            logger.info("Police {} chargée", nom);
+            return police;
+        } catch (Exception e) {
+            logger.error("Erreur lors du chargement de la police {}: {}", nom, e.getMessage(), e);
+            return null;
+        } finally {
+            try {
+                in.close();
+            } catch (IOException ignored) {
+                // rien
+            }
+        }
+    }
+
+    private static byte[] lire(InputStream in) throws IOException {
+        ByteArrayOutputStream octets = new ByteArrayOutputStream(256 * 1024);
+        byte[] tampon = new byte[16384];
+        int n;
+        while ((n = in.read(tampon)) != -1) {
+            octets.write(tampon, 0, n);
+        }
+        return octets.toByteArray();
+    }
+
+    /**
+     * Police partagée entre threads et documents : les modifications sont refusées après la construction
+     */
+    private static final class PoliceFigee extends Font {
+        private final boolean figee;
+
+        PoliceFigee(Font source) {
+            super(source);
+            this.figee = true;
+        }
+
+        private void refuser() {
+            if (figee) {
+                throw new UnsupportedOperationException("Police partagée du FontRegistry : utiliser une copie (new Font(police))");
+            }
+        }
+
+        @Override
+        public void setFamily(String family) {
+            refuser();
+            super.setFamily(family);
+        }
+
+        @Override
+        public void setSize(float size) {
+            refuser();
+            super.setSize(size);
+        }
+
+        @Override
+        public void setStyle(int style) {
+            refuser();
+            super.setStyle(style);
+        }
+
+        @Override
+        public void setStyle(String style) {
+            refuser();
+            super.setStyle(style);
+        }
+
+        @Override
+        public void setColor(BaseColor color) {
+            refuser();
+            super.setColor(color);
+        }
+
+        @Override
+        public void setColor(int red, int green, int blue) {
+            refuser();
+            super.setColor(red, green, blue);
+        }
+    }
+}
@@ -1,6 +1,7 @@
 
 package com.afh.gescomp.utils;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.messaging.converter.MessageConverter;
 import org.springframework.messaging.handler.invocation.HandlerMethodArgumentResolver;
@@ -14,9 +15,39 @@ import org.springframework.web.socket.config.annotation.WebSocketTransportRegist
 
 import java.util.List;
 
+/**
+ * STOMP sur /ws. Par défaut, broker simple en mémoire (un seul nœud, tests et développement) ;
+ * avec chat.broker.relay.enabled=true, les destinations /topic et /queue sont relayées vers un broker
+ * STOMP externe (RabbitMQ, ActiveMQ...) partagé par tous les nœuds de l'application.
+ */
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
+
+    @Value("${chat.broker.relay.enabled:false}")
+    private boolean relayEnabled;
+
+    @Value("${chat.broker.relay.host:localhost}")
+    private String relayHost;
+
+    @Value("${chat.broker.relay.port:61613}")
+    private int relayPort;
+
+    @Value("${chat.broker.relay.client-login:guest}")
+    private String clientLogin;
+
+    @Value("${chat.broker.relay.client-passcode:guest}")
+    private String clientPasscode;
+
+    @Value("${chat.broker.relay.system-login:guest}")
+    private String systemLogin;
+
+    @Value("${chat.broker.relay.system-passcode:guest}")
+    private String systemPasscode;
+
+    @Value("${chat.broker.relay.virtual-host:}")
+    private String virtualHost;
+
     @Override
     public void registerStompEndpoints(StompEndpointRegistry stompEndpointRegistry) {
         stompEndpointRegistry.addEndpoint("/ws").setAllowedOrigins("http://localhost:4200", "http://localhost:8080").withSockJS();
@@ -55,7 +86,18 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
     @Override
     public void configureMessageBroker(MessageBrokerRegistry messageBrokerRegistry) {
-        messageBrokerRegistry.enableSimpleBroker("/queue", "/topic");
+        if (relayEnabled) {
+            messageBrokerRegistry.enableStompBrokerRelay("/queue", "/topic")
+                    .setRelayHost(relayHost)
+                    .setRelayPort(relayPort)
+                    .setClientLogin(clientLogin)
+                    .setClientPasscode(clientPasscode)
+                    .setSystemLogin(systemLogin)
+                    .setSystemPasscode(systemPasscode)
+                    .setVirtualHost(virtualHost.isEmpty() ? null : virtualHost);
+        } else {
+            messageBrokerRegistry.enableSimpleBroker("/queue", "/topic");
+        }
         messageBrokerRegistry.setApplicationDestinationPrefixes("/app");
         messageBrokerRegistry.setUserDestinationPrefix("/user");
     }
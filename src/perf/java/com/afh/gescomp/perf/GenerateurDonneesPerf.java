@@ -0,0 +1,310 @@
+package com.afh.gescomp.perf;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Chargement des données synthétiques du profil "perf" : nomenclatures, fournisseurs, articles,
+ * marchés (lot, étape, articles), décomptes avec leurs lignes, pénalités et garanties.
+ * Graine fixe : deux démarrages au même volume produisent les mêmes lignes.
+ * Exécuté après la création des tables par Hibernate et avant l'ouverture du port HTTP.
+ */
+@Component
+@Profile("perf")
+@DependsOn("entityManagerFactory")
+public class GenerateurDonneesPerf {
+
+    private static final Logger logger = LoggerFactory.getLogger(GenerateurDonneesPerf.class);
+
+    private static final String[] LIBELLES_FR = {
+            "Travaux de voirie et réseaux divers", "Fourniture de câbles électriques",
+            "Construction de logements sociaux", "Aménagement de lotissement", "Étanchéité des terrasses"};
+
+    private static final String[] LIBELLES_AR = {
+            "أشغال الطرقات والشبكات المختلفة", "تزويد بالكوابل الكهربائية",
+            "بناء مساكن اجتماعية", "تهيئة تقسيم", "عزل الأسطح"};
+
+    private static final String[] VILLES = {"Tunis", "Sfax", "Sousse", "Gabès", "Bizerte", "Kairouan"};
+
+    private static final String[] UNITES = {"M2", "ML", "U", "M3", "KG", "F"};
+
+    private static final BigDecimal[] TAUX_TVA = {new BigDecimal("19"), new BigDecimal("13"), new BigDecimal("7")};
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${perf.donnees.structures:5}")
+    private int structures;
+
+    @Value("${perf.donnees.fournisseurs:500}")
+    private int fournisseurs;
+
+    @Value("${perf.donnees.articles:2000}")
+    private int articles;
+
+    @Value("${perf.donnees.marches:2000}")
+    private int marches;
+
+    @Value("${perf.donnees.articles-par-marche:10}")
+    private int articlesParMarche;
+
+    @Value("${perf.donnees.decomptes-par-marche:3}")
+    private int decomptesParMarche;
+
+    @Value("${perf.donnees.penalites-par-marche:1}")
+    private int penalitesParMarche;
+
+    @Value("${perf.donnees.taille-lot:1000}")
+    private int tailleLot;
+
+    private final Random random = new Random(20240101L);
+
+    /**
+     * Lignes d'un INSERT envoyées par lots JDBC
+     */
+    private final class Lot {
+        private final String sql;
+        private final List<Object[]> lignes = new ArrayList<>();
+        private long total;
+
+        Lot(String sql) {
+            this.sql = sql;
+        }
+
+        void ajouter(Object... valeurs) {
+            lignes.add(valeurs);
+            if (lignes.size() >= tailleLot) {
+                vider();
+            }
+        }
+
+        long terminer() {
+            vider();
+            return total;
+        }
+
+        private void vider() {
+            if (!lignes.isEmpty()) {
+                jdbcTemplate.batchUpdate(sql, lignes);
+                total += lignes.size();
+                lignes.clear();
+            }
+        }
+    }
+
+    @PostConstruct
+    public void generer() {
+        long debut = System.currentTimeMillis();
+        // Les lots de chaque table sont vidés indépendamment : contrôle des clés étrangères suspendu pendant le chargement
+        jdbcTemplate.execute("SET REFERENTIAL_INTEGRITY FALSE");
+        try {
+            genererReferentiels();
+            genererNomenclature();
+            genererFournisseurs();
+            genererArticles();
+            genererMarches();
+            // Les identifiants générés par séquence reprennent après les lignes chargées
+            jdbcTemplate.execute("ALTER SEQUENCE ACHAT.FOURNISSEUR_SEQ RESTART WITH " + (fournisseurs + 1));
+            jdbcTemplate.execute("ALTER SEQUENCE ACHAT.TYPE_PENALITE_SEQ RESTART WITH 4");
+            jdbcTemplate.execute("ALTER SEQUENCE ACHAT.TYPE_GARANTIE_SEQ RESTART WITH 3");
+        } finally {
+            jdbcTemplate.execute("SET REFERENTIAL_INTEGRITY TRUE");
+        }
+        logger.info("Données de charge générées en {} ms : {} marchés, {} fournisseurs, {} articles",
+                System.currentTimeMillis() - debut, marches, fournisseurs, articles);
+    }
+
+    private void genererReferentiels() {
+        Lot structure = new Lot("INSERT INTO ACHAT.PRM_STRUCTURE (NUM_STRUCT, DESIGNATION) VALUES (?, ?)");
+        Lot user = new Lot("INSERT INTO ACHAT.USERS (MATRICULE, NOM, PRENOM, NUM_STRUCT, PWD_HASH) VALUES (?, ?, ?, ?, ?)");
+        String empreinte = ProceduresH2.hashString(IdentifiantsPerf.MOT_DE_PASSE);
+        for (int i = 0; i < Math.max(structures, 3); i++) {
+            String numStruct = IdentifiantsPerf.numStruct(i);
+            structure.ajouter(numStruct, "Direction régionale " + numStruct);
+            user.ajouter(IdentifiantsPerf.MATRICULE_BASE + i, "Perf", "Utilisateur " + numStruct, numStruct, empreinte);
+        }
+        structure.terminer();
+        user.terminer();
+
+        referentiel("BANQUE", "NUM_BANQUE", "STB", "BNA", "BH", "BIAT");
+        referentiel("PRM_TYPE_PAY_MRC", "ID_TYPE_PAY_MRC", "Forfaitaire", "Bordereau des prix");
+        referentiel("PRM_MODE_PEN", "ID_MODE_PEN", "Par jour de retard", "Forfaitaire");
+        referentiel("PRM_TYPE_NANT", "NANT", "Sans nantissement", "Nanti");
+        referentiel("PRM_MODE_PAY_MRC", "ID_MODE_PAY_MRC", "Virement", "Chèque");
+        referentiel("PRM_TYPE_VALUE", "ID_TYPE_VALUE", "Plus-value", "Moins-value");
+        referentiel("PRM_TYPE_DEC", "ID_TYPE_DEC", "Avance", "Ordinaire", "Libération retenue de garantie", "Dernier");
+        referentiel("PRM_TYPE_PENALITE", "ID_TYPE_PEN", "Retard", "Malfaçon", "Absence");
+        referentiel("PRM_TYPE_GARANTIE", "ID_TYPE_GARANTIE", "Caution définitive", "Retenue de garantie");
+    }
+
+    /**
+     * Table de paramètres (identifiant numérique à partir de 1, désignation)
+     */
+    private void referentiel(String table, String colonneId, String... designations) {
+        Lot lot = new Lot("INSERT INTO ACHAT." + table + " (" + colonneId + ", DESIGNATION) VALUES (?, ?)");
+        for (int i = 0; i < designations.length; i++) {
+            lot.ajouter(i + 1, designations[i]);
+        }
+        lot.terminer();
+    }
+
+    private void genererNomenclature() {
+        Lot secteur = new Lot("INSERT INTO ACHAT.SECT_ECO (NUM_SECT_ECO, DESIGNATION) VALUES (?, ?)");
+        Lot sousSecteur = new Lot("INSERT INTO ACHAT.SOUS_SECTEUR (NUM_SECT_ECO, NUM_S_SECT_ECO, DESIGNATION) VALUES (?, ?, ?)");
+        Lot famille = new Lot("INSERT INTO ACHAT.FAMILLE (NUM_SECT_ECO, NUM_S_SECT_ECO, NUM_FAMILLE, DESIGNATION, DESIGNATION_FR)"
+                + " VALUES (?, ?, ?, ?, ?)");
+        Lot sousFamille = new Lot("INSERT INTO ACHAT.SOUS_FAMILLE (NUM_SECT_ECO, NUM_S_SECT_ECO, NUM_FAMILLE, NUM_S_FAMILLE,"
+                + " DESIGNATION) VALUES (?, ?, ?, ?, ?)");
+        for (int s = 1; s <= IdentifiantsPerf.SECTEURS; s++) {
+            secteur.ajouter(s, libelle(s));
+            for (int ss = 1; ss <= IdentifiantsPerf.SOUS_SECTEURS; ss++) {
+                sousSecteur.ajouter(s, ss, libelle(s * 10 + ss));
+                for (int f = 1; f <= IdentifiantsPerf.FAMILLES; f++) {
+                    famille.ajouter(s, ss, f, libelle(s * 100 + ss * 10 + f), LIBELLES_FR[f % LIBELLES_FR.length]);
+                    for (int sf = 1; sf <= IdentifiantsPerf.SOUS_FAMILLES; sf++) {
+                        sousFamille.ajouter(s, ss, f, sf, libelle(s * 1000 + ss * 100 + f * 10 + sf));
+                    }
+                }
+            }
+        }
+        secteur.terminer();
+        sousSecteur.terminer();
+        famille.terminer();
+        sousFamille.terminer();
+    }
+
+    private void genererFournisseurs() {
+        Lot lot = new Lot("INSERT INTO ACHAT.FOURNISSEUR (ID_FOURN, NUM_FOURN, DESIGNATION, DESIGNATION_FR, ADRESSE, VILLE,"
+                + " CODE_POSTAL, TEL, EMAIL, MATRICULE_FISC, NUM_GOUV, CODE_PAYS) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+        for (int i = 0; i < fournisseurs; i++) {
+            String ville = VILLES[i % VILLES.length];
+            lot.ajouter(i + 1, IdentifiantsPerf.numFourn(i), libelle(i) + " SARL", "Entreprise " + (i + 1),
+                    (i + 1) + " rue de la République", ville, String.valueOf(1000 + i % 9000),
+                    String.format("71%06d", i), "contact" + (i + 1) + "@exemple.tn",
+                    String.format("%07dA", i), String.valueOf(i % 24 + 1), "TN");
+        }
+        lot.terminer();
+    }
+
+    private void genererArticles() {
+        Lot lot = new Lot("INSERT INTO ACHAT.PRM_ARTICLE (NUM_ARTICLE, NUM_SECT_ECO, NUM_S_SECT_ECO, NUM_FAMILLE, NUM_S_FAMILLE,"
+                + " LIB_UNITE, TVA, DESIGNATION, DESIGNATION_FR, HISTORIQUE) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, 0)");
+        for (int i = 0; i < articles; i++) {
+            String num = IdentifiantsPerf.numArticle(i);
+            lot.ajouter(num, Integer.parseInt(num.substring(0, 2)), Integer.parseInt(num.substring(2, 4)),
+                    Integer.parseInt(num.substring(4, 6)), Integer.parseInt(num.substring(6, 8)),
+                    UNITES[i % UNITES.length], TAUX_TVA[i % TAUX_TVA.length], libelle(i),
+                    LIBELLES_FR[i % LIBELLES_FR.length] + " " + i);
+        }
+        lot.terminer();
+    }
+
+    private void genererMarches() {
+        Lot marche = new Lot("INSERT INTO ACHAT.MARCHE (NUM_MARCHE, NUM_MIN, NUM_STRUCT, NUM_FOURN, ID_FOURN, DESIGNATION,"
+                + " DESIGNATION_FR, DATE_MARCHE, DATE_CON_ADMIN, DATE_NOTIF, DATE_ENREG, DATE_CLOTURE, EXERCICE,"
+                + " TYPE_P_F_MARCHE, NUM_BANQUE, ID_MODE_PEN, NANT, MODE_PAI, PLUS_MOINS_VALUE, MNT_MARCHE,"
+                + " MNT_MRC_APRES_AVENANT, PCT_RET_GAR, PCT_AVANCE_PAY, PCT_RET_TVA, PCT_RET_IR, PCT_MAX_PENALITE,"
+                + " PCT_TVA, DUREE_CONTRACT, NUM_LOT)"
+                + " VALUES (?, '01', ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 1, 1, 1, 1, ?, ?, 10, 10, 50, 1.5, 10, 19, ?, 1)");
+        Lot lotMarche = new Lot("INSERT INTO ACHAT.MRC_LOT (NUM_MARCHE, ID_LOT, ID_TYPE_LOT, DESIGNATION) VALUES (?, '1', 0, ?)");
+        Lot etape = new Lot("INSERT INTO ACHAT.MRC_ETAPE (NUM_MARCHE, NUM_ETAPE, DESIGNATION, DUREE_PREV, PCT_PAIEMENT)"
+                + " VALUES (?, 1, ?, ?, 100)");
+        Lot article = new Lot("INSERT INTO ACHAT.MRC_ARTICLE (NUM_MARCHE, AP, ID_LOT, ID_ARTICLE, NUM_ARTICLE, TVA, QUANTITE,"
+                + " REMISE, PRIX_UNITAIRE, MNT_HT, MNT_TVA, MNT_TTC, FLAG_RAPPORT, CH_AP, PCT_FODEC, AR_MAINT)"
+                + " VALUES (?, 1, '1', ?, ?, ?, ?, 0, ?, ?, ?, ?, 1, 0, 0, 0)");
+        Lot decompte = new Lot("INSERT INTO ACHAT.DECOMPTE (NUM_MARCHE, NUM_PIECE_FOURN, NUM_ETAPE, DATE_PIECE, ID_TYPE_DEC,"
+                + " NUM_DECOMPTE, EX_PEN, SOLDE_AVANCE, PCT_REALISATION) VALUES (?, ?, 1, ?, ?, ?, 0, 0, ?)");
+        Lot ligneDecompte = new Lot("INSERT INTO ACHAT.DEC_ARTICLE (NUM_MARCHE, NUM_PIECE_FOURN, AP, ID_LOT, ID_ARTICLE,"
+                + " NUM_ARTICLE, QUANTITE, QUANTITE_MRC, TVA, PRIX_UNITAIRE, REMISE, PCT_REA) VALUES (?, ?, 1, '1', ?, ?, ?, ?, ?, ?, 0, ?)");
+        Lot penalite = new Lot("INSERT INTO ACHAT.MRC_PENALITE (NUM_MARCHE, NUM_PEN, NUM_ETAPE, DATE_PEN, MONTANT_PEN,"
+                + " ID_TYPE_PEN, NUM_PIECE_FOURN) VALUES (?, ?, 1, ?, ?, ?, ?)");
+        Lot garantie = new Lot("INSERT INTO ACHAT.MRC_GARANTIE (NUM_MARCHE, NUM_GARANTIE, ID_TYPE_GARANTIE, DATE_DEBUT,"
+                + " DATE_FIN, MNT_GAR) VALUES (?, 1, 1, ?, ?, ?)");
+
+        int nbStructures = Math.max(structures, 3);
+        for (int i = 0; i < marches; i++) {
+            long numMarche = IdentifiantsPerf.numMarche(i);
+            int rangFourn = random.nextInt(Math.max(fournisseurs, 1));
+            Date dateMarche = date(IdentifiantsPerf.exercice(i), random.nextInt(12), 1 + random.nextInt(28));
+            Date dateCloture = random.nextInt(4) == 0 ? plusJours(dateMarche, 365) : null;
+
+            BigDecimal total = BigDecimal.ZERO;
+            BigDecimal[] quantites = new BigDecimal[articlesParMarche];
+            BigDecimal[] prix = new BigDecimal[articlesParMarche];
+            String[] numArticles = new String[articlesParMarche];
+            BigDecimal[] tva = new BigDecimal[articlesParMarche];
+            for (int a = 0; a < articlesParMarche; a++) {
+                int rangArticle = random.nextInt(Math.max(articles, 1));
+                numArticles[a] = IdentifiantsPerf.numArticle(rangArticle);
+                tva[a] = TAUX_TVA[rangArticle % TAUX_TVA.length];
+                quantites[a] = BigDecimal.valueOf(1 + random.nextInt(500));
+                prix[a] = BigDecimal.valueOf(100 + random.nextInt(1000000), 3);
+                BigDecimal ht = quantites[a].multiply(prix[a]);
+                BigDecimal mntTva = ht.multiply(tva[a]).movePointLeft(2);
+                total = total.add(ht).add(mntTva);
+                article.ajouter(numMarche, a + 1, numArticles[a], tva[a], quantites[a], prix[a], ht, mntTva, ht.add(mntTva));
+            }
+
+            marche.ajouter(numMarche, IdentifiantsPerf.numStruct(i % nbStructures), IdentifiantsPerf.numFourn(rangFourn),
+                    rangFourn + 1, libelle(i), LIBELLES_FR[i % LIBELLES_FR.length] + " n°" + numMarche,
+                    dateMarche, dateMarche, plusJours(dateMarche, 7), plusJours(dateMarche, 10), dateCloture,
+                    IdentifiantsPerf.exercice(i), 1 + i % 2, 1 + i % 4, total, total, 90 + random.nextInt(600));
+            lotMarche.ajouter(numMarche, "Lot unique");
+            etape.ajouter(numMarche, "Exécution", 90 + random.nextInt(300));
+            garantie.ajouter(numMarche, dateMarche, plusJours(dateMarche, 730), total.movePointLeft(1));
+
+            for (int d = 1; d <= decomptesParMarche; d++) {
+                int pct = Math.min(100, d * 100 / decomptesParMarche);
+                decompte.ajouter(numMarche, d, plusJours(dateMarche, 30 * d), d == 1 ? 1 : d == decomptesParMarche ? 4 : 2, d, pct);
+                for (int a = 0; a < articlesParMarche; a++) {
+                    ligneDecompte.ajouter(numMarche, d, a + 1, numArticles[a],
+                            quantites[a].multiply(BigDecimal.valueOf(pct)).movePointLeft(2), quantites[a], tva[a], prix[a], pct);
+                }
+            }
+            for (int p = 1; p <= penalitesParMarche; p++) {
+                penalite.ajouter(numMarche, p, plusJours(dateMarche, 45 * p), BigDecimal.valueOf(random.nextInt(5000000), 3),
+                        1 + random.nextInt(3), Math.min(p, Math.max(decomptesParMarche, 1)));
+            }
+        }
+        marche.terminer();
+        lotMarche.terminer();
+        etape.terminer();
+        article.terminer();
+        decompte.terminer();
+        ligneDecompte.terminer();
+        penalite.terminer();
+        garantie.terminer();
+    }
+
+    /**
+     * Un libellé sur trois en arabe, comme sur les bordereaux réels
+     */
+    private static String libelle(int i) {
+        return i % 3 == 0 ? LIBELLES_AR[i % LIBELLES_AR.length] + " " + i : LIBELLES_FR[i % LIBELLES_FR.length] + " " + i;
+    }
+
+    private static Date date(int annee, int mois, int jour) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(annee, mois, jour);
+        return new Date(calendar.getTimeInMillis());
+    }
+
+    private static Date plusJours(Date date, int jours) {
+        return new Date(date.getTime() + jours * 86400000L);
+    }
+}
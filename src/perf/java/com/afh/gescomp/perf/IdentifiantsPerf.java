@@ -0,0 +1,60 @@
+package com.afh.gescomp.perf;
+
+/**
+ * Identifiants des données synthétiques, partagés par le générateur (côté application)
+ * et par le lanceur de scénarios (côté client) pour viser des lignes existantes.
+ */
+public final class IdentifiantsPerf {
+
+    /** Premier exercice des marchés générés ; les marchés sont répartis sur NB_EXERCICES années. */
+    public static final int PREMIER_EXERCICE = 2020;
+    public static final int NB_EXERCICES = 5;
+
+    /** Matricules des utilisateurs générés : MATRICULE_BASE + rang de la structure, mot de passe MOT_DE_PASSE. */
+    public static final long MATRICULE_BASE = 1000L;
+    public static final String MOT_DE_PASSE = "perf";
+
+    /** Découpage de la nomenclature : secteurs x sous-secteurs x familles x sous-familles. */
+    static final int SECTEURS = 5;
+    static final int SOUS_SECTEURS = 3;
+    static final int FAMILLES = 3;
+    static final int SOUS_FAMILLES = 2;
+
+    private IdentifiantsPerf() {
+    }
+
+    public static int exercice(int i) {
+        return PREMIER_EXERCICE + i % NB_EXERCICES;
+    }
+
+    /**
+     * @param i Rang du marché, de 0 à perf.donnees.marches - 1
+     */
+    public static long numMarche(int i) {
+        return exercice(i) * 1000000L + i / NB_EXERCICES + 1;
+    }
+
+    public static String numFourn(int i) {
+        return String.format("F%05d", i + 1);
+    }
+
+    /**
+     * Structures "01", "02", ... ; la structure "03" voit tous les marchés.
+     */
+    public static String numStruct(int i) {
+        return String.format("%02d", i + 1);
+    }
+
+    /**
+     * Numéro d'article : secteur, sous-secteur, famille, sous-famille sur 2 chiffres puis compteur sur 4 chiffres
+     */
+    public static String numArticle(int i) {
+        int sousFamille = i % (SECTEURS * SOUS_SECTEURS * FAMILLES * SOUS_FAMILLES);
+        int sf = sousFamille % SOUS_FAMILLES;
+        int f = sousFamille / SOUS_FAMILLES % FAMILLES;
+        int ss = sousFamille / (SOUS_FAMILLES * FAMILLES) % SOUS_SECTEURS;
+        int s = sousFamille / (SOUS_FAMILLES * FAMILLES * SOUS_SECTEURS);
+        int rang = i / (SECTEURS * SOUS_SECTEURS * FAMILLES * SOUS_FAMILLES) + 1;
+        return String.format("%02d%02d%02d%02d%04d", s + 1, ss + 1, f + 1, sf + 1, rang);
+    }
+}
@@ -0,0 +1,73 @@
+package com.afh.gescomp.perf;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Latences brutes d'un endpoint pendant la phase de mesure. Toutes les valeurs sont gardées
+ * (pas d'histogramme) pour des percentiles exacts : 8 octets par requête.
+ */
+final class MesuresEndpoint {
+
+    private final String nom;
+    private long[] latencesNanos = new long[1024];
+    private int nombre;
+    private int erreurs;
+
+    MesuresEndpoint(String nom) {
+        this.nom = nom;
+    }
+
+    String getNom() {
+        return nom;
+    }
+
+    synchronized void enregistrer(long nanos, boolean erreur) {
+        if (nombre == latencesNanos.length) {
+            latencesNanos = Arrays.copyOf(latencesNanos, nombre * 2);
+        }
+        latencesNanos[nombre++] = nanos;
+        if (erreur) {
+            erreurs++;
+        }
+    }
+
+    /**
+     * @param dureeMesureMs Durée de la phase de mesure, pour le débit
+     * @return nombre, erreurs, debit-rps, moyenne-ms, p50-ms, p95-ms, p99-ms, max-ms
+     */
+    synchronized Map<String, Object> resume(long dureeMesureMs) {
+        long[] tri = Arrays.copyOf(latencesNanos, nombre);
+        Arrays.sort(tri);
+        long somme = 0;
+        for (long valeur : tri) {
+            somme += valeur;
+        }
+        Map<String, Object> resume = new LinkedHashMap<>();
+        resume.put("nombre", nombre);
+        resume.put("erreurs", erreurs);
+        resume.put("debit-rps", arrondi(nombre * 1000.0 / Math.max(dureeMesureMs, 1)));
+        resume.put("moyenne-ms", nombre == 0 ? 0.0 : arrondi(somme / 1e6 / nombre));
+        resume.put("p50-ms", percentileMs(tri, 50));
+        resume.put("p95-ms", percentileMs(tri, 95));
+        resume.put("p99-ms", percentileMs(tri, 99));
+        resume.put("max-ms", nombre == 0 ? 0.0 : arrondi(tri[nombre - 1] / 1e6));
+        return resume;
+    }
+
+    /**
+     * Percentile au rang le plus proche sur des valeurs triées
+     */
+    static double percentileMs(long[] tri, int percentile) {
+        if (tri.length == 0) {
+            return 0.0;
+        }
+        int rang = (int) Math.ceil(percentile / 100.0 * tri.length);
+        return arrondi(tri[Math.max(rang, 1) - 1] / 1e6);
+    }
+
+    private static double arrondi(double valeur) {
+        return Math.round(valeur * 100) / 100.0;
+    }
+}
@@ -0,0 +1,262 @@
+package com.afh.gescomp.perf;
+
+import org.h2.tools.SimpleResultSet;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+
+/**
+ * Substituts Java des procédures et fonctions PL/SQL appelées par l'application,
+ * déclarés dans H2 par perf/procedures-h2.sql (CREATE ALIAS).
+ * Ils reproduisent les effets visibles par l'application (lignes créées, montants recalculés,
+ * valeurs renvoyées), pas les règles de gestion complètes des packages Oracle.
+ * <p>
+ * Les paramètres OUT sont émulés comme H2 le permet : la fonction renvoie une ligne et
+ * le paramètre OUT de rang n lit la colonne de rang n (les colonnes des paramètres IN sont vides).
+ */
+public final class ProceduresH2 {
+
+    /** URL de la connexion passée par H2 lors de la compilation, pour connaître les colonnes renvoyées. */
+    private static final String URL_LISTE_COLONNES = "jdbc:columnlist:connection";
+
+    private ProceduresH2() {
+    }
+
+    /**
+     * PKG_GENERAL.GET_NUM_MARCHE_SUIVANT : exercice suivi d'un compteur sur 6 chiffres
+     */
+    public static String getNumMarcheSuivant(Connection conn, String exercice) throws SQLException {
+        long base = Long.parseLong(exercice.trim()) * 1000000L;
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT NVL(MAX(NUM_MARCHE), ?) + 1 FROM ACHAT.MARCHE WHERE NUM_MARCHE > ? AND NUM_MARCHE < ?")) {
+            ps.setLong(1, base);
+            ps.setLong(2, base);
+            ps.setLong(3, base + 1000000L);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return String.valueOf(rs.getLong(1));
+            }
+        }
+    }
+
+    /**
+     * PKG_GENERAL.GET_ARTICLE_SUIVANT : préfixe secteur / sous-secteur / famille / sous-famille
+     * suivi d'un compteur sur 4 chiffres
+     */
+    public static String getArticleSuivant(Connection conn, String sect, String sSect, String famille,
+                                           String sFamille) throws SQLException {
+        String prefixe = sect + sSect + famille + sFamille;
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT MAX(NUM_ARTICLE) FROM ACHAT.PRM_ARTICLE WHERE NUM_ARTICLE LIKE ? AND LENGTH(NUM_ARTICLE) = ?")) {
+            ps.setString(1, prefixe + "%");
+            ps.setInt(2, prefixe.length() + 4);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                String max = rs.getString(1);
+                int suivant = max == null ? 1 : Integer.parseInt(max.substring(prefixe.length())) + 1;
+                return prefixe + String.format("%04d", suivant);
+            }
+        }
+    }
+
+    /**
+     * CAL_MARCHE : montant du marché recalculé à partir de ses articles (HT remisé + TVA)
+     */
+    public static void calMarche(Connection conn, Long numMarche) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "UPDATE ACHAT.MARCHE m SET MNT_MARCHE = (SELECT NVL(SUM(a.QUANTITE * a.PRIX_UNITAIRE"
+                        + " * (1 - NVL(a.REMISE, 0) / 100) * (1 + NVL(a.TVA, 0) / 100)), 0)"
+                        + " FROM ACHAT.MRC_ARTICLE a WHERE a.NUM_MARCHE = m.NUM_MARCHE),"
+                        + " MNT_MRC_APRES_AVENANT = NVL(MNT_MRC_APRES_AVENANT, MNT_MARCHE) WHERE m.NUM_MARCHE = ?")) {
+            ps.setLong(1, numMarche);
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * PKG_CREE_DEC.INSERT_DEC : nouveau décompte (pièce et numéro suivants) et recopie
+     * des articles du marché avec un pourcentage de réalisation nul ; numéro de pièce attribué
+     * dans la colonne 6 (paramètre OUT n°6)
+     */
+    public static ResultSet insertDec(Connection conn, Long numMarche, Date datePiece, Long idTypeDec, Long numEtape,
+                                      Integer soldeAvance, Integer numPieceFourn) throws SQLException {
+        SimpleResultSet resultat = colonnesIn(5);
+        resultat.addColumn("NUM_PIECE_FOURN", Types.INTEGER, 10, 0);
+        if (URL_LISTE_COLONNES.equals(conn.getMetaData().getURL())) {
+            return resultat;
+        }
+        // Verrou sur la ligne du marché : deux insertions simultanées ne lisent pas le même maximum
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT NUM_MARCHE FROM ACHAT.MARCHE WHERE NUM_MARCHE = ? FOR UPDATE")) {
+            ps.setLong(1, numMarche);
+            ps.executeQuery().close();
+        }
+        long numPiece;
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT NVL(MAX(NUM_PIECE_FOURN), 0) + 1 FROM ACHAT.DECOMPTE WHERE NUM_MARCHE = ?")) {
+            ps.setLong(1, numMarche);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                numPiece = rs.getLong(1);
+            }
+        }
+        try (PreparedStatement ps = conn.prepareStatement(
+                "INSERT INTO ACHAT.DECOMPTE (NUM_MARCHE, NUM_PIECE_FOURN, NUM_ETAPE, DATE_PIECE, ID_TYPE_DEC,"
+                        + " NUM_DECOMPTE, SOLDE_AVANCE, EX_PEN) VALUES (?, ?, ?, ?, ?, ?, ?, 0)")) {
+            ps.setLong(1, numMarche);
+            ps.setLong(2, numPiece);
+            ps.setLong(3, numEtape);
+            ps.setDate(4, datePiece);
+            ps.setLong(5, idTypeDec);
+            ps.setLong(6, numPiece);
+            if (soldeAvance == null) {
+                ps.setNull(7, Types.INTEGER);
+            } else {
+                ps.setInt(7, soldeAvance);
+            }
+            ps.executeUpdate();
+        }
+        try (PreparedStatement ps = conn.prepareStatement(
+                "INSERT INTO ACHAT.DEC_ARTICLE (NUM_MARCHE, NUM_PIECE_FOURN, AP, ID_LOT, ID_ARTICLE, NUM_ARTICLE,"
+                        + " QUANTITE, TVA, PRIX_UNITAIRE, REMISE, PCT_REA, QUANTITE_MRC)"
+                        + " SELECT NUM_MARCHE, ?, AP, ID_LOT, ID_ARTICLE, NUM_ARTICLE, 0, TVA, PRIX_UNITAIRE, REMISE, 0, QUANTITE"
+                        + " FROM ACHAT.MRC_ARTICLE WHERE NUM_MARCHE = ?")) {
+            ps.setLong(1, numPiece);
+            ps.setLong(2, numMarche);
+            ps.executeUpdate();
+        }
+        resultat.addRow(null, null, null, null, null, (int) numPiece);
+        return resultat;
+    }
+
+    /**
+     * DELETE_DEC : suppression du décompte et de ses lignes
+     */
+    public static void deleteDec(Connection conn, Long numMarche, Long numPieceFourn) throws SQLException {
+        for (String table : new String[]{"DEC_ARTICLE", "DEC_PENALITE", "DEC_LOT", "DEC_MNT", "DECOMPTE"}) {
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "DELETE FROM ACHAT." + table + " WHERE NUM_MARCHE = ? AND NUM_PIECE_FOURN = ?")) {
+                ps.setLong(1, numMarche);
+                ps.setLong(2, numPieceFourn);
+                ps.executeUpdate();
+            }
+        }
+    }
+
+    /**
+     * CAL_DEC_AVANCE : sans effet, les montants d'avance ne sont pas lus par les scénarios
+     */
+    public static void calDecAvance(Long numMarche) {
+    }
+
+    /**
+     * CAL_DEC_ORD : sans effet, les montants du décompte ne sont pas lus par les scénarios
+     */
+    public static void calDecOrd(Long numMarche, Integer numPieceFourn, Integer numEtape) {
+    }
+
+    /**
+     * CAL_DEC_LRG : sans effet, comme CAL_DEC_ORD
+     */
+    public static void calDecLrg(Long numMarche, Integer numPieceFourn) {
+    }
+
+    /**
+     * PKG_CREE_DEC.DATE_DECOMPTE_VALIDE : 1 si la date n'est pas antérieure au dernier décompte
+     */
+    public static Integer dateDecompteValide(Connection conn, Long numMarche, Date datePiece) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT COUNT(*) FROM ACHAT.DECOMPTE WHERE NUM_MARCHE = ? AND DATE_PIECE > ?")) {
+            ps.setLong(1, numMarche);
+            ps.setDate(2, datePiece);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getInt(1) == 0 ? 1 : 0;
+            }
+        }
+    }
+
+    /**
+     * PKG_ENVOI.ENVOI_DECOMPTE : message dans la colonne 5 (paramètre OUT n°5)
+     */
+    public static ResultSet envoiDecompte(Connection conn, Long numMarche, Integer numPieceFourn, String numStruct,
+                                          String nomUser, String message) throws SQLException {
+        SimpleResultSet rs = colonnesIn(4);
+        rs.addColumn("MESSAGE", Types.VARCHAR, 200, 0);
+        if (!URL_LISTE_COLONNES.equals(conn.getMetaData().getURL())) {
+            rs.addRow(null, null, null, null, "Décompte " + numPieceFourn + " du marché " + numMarche + " envoyé");
+        }
+        return rs;
+    }
+
+    /**
+     * PKG_AUTH.HASH_STRING : empreinte SHA-256 en hexadécimal majuscule
+     */
+    public static String hashString(String valeur) {
+        if (valeur == null) {
+            return null;
+        }
+        try {
+            byte[] empreinte = MessageDigest.getInstance("SHA-256").digest(valeur.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(empreinte.length * 2);
+            for (byte b : empreinte) {
+                sb.append(String.format("%02X", b));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * PKG_AUTH.AUTHENTIFICATE_USER_STRUCT : message (colonne 1, valeur de retour), authentifié (4),
+     * structure (5) et désignation de la structure (6)
+     */
+    public static ResultSet authentifierUtilisateur(Connection conn, Long matricule, String motDePasse,
+                                                    Integer authentifie, String numStruct, String designation)
+            throws SQLException {
+        SimpleResultSet rs = new SimpleResultSet();
+        rs.addColumn("MESSAGE", Types.VARCHAR, 200, 0);
+        rs.addColumn("MATRICULE", Types.BIGINT, 19, 0);
+        rs.addColumn("MOT_DE_PASSE", Types.VARCHAR, 100, 0);
+        rs.addColumn("AUTHENTIFIE", Types.INTEGER, 1, 0);
+        rs.addColumn("NUM_STRUCT", Types.VARCHAR, 22, 0);
+        rs.addColumn("DESIGNATION", Types.VARCHAR, 100, 0);
+        if (URL_LISTE_COLONNES.equals(conn.getMetaData().getURL())) {
+            return rs;
+        }
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT u.PWD_HASH, s.NUM_STRUCT, s.DESIGNATION FROM ACHAT.USERS u"
+                        + " LEFT JOIN ACHAT.PRM_STRUCTURE s ON s.NUM_STRUCT = u.NUM_STRUCT WHERE u.MATRICULE = ?")) {
+            ps.setLong(1, matricule);
+            try (ResultSet u = ps.executeQuery()) {
+                if (!u.next()) {
+                    rs.addRow("Utilisateur inconnu", null, null, 0, null, null);
+                } else if (!u.getString(1).equals(hashString(motDePasse))) {
+                    rs.addRow("Mot de passe incorrect", null, null, 0, null, null);
+                } else {
+                    rs.addRow("Authentification réussie", null, null, 1, u.getString(2), u.getString(3));
+                }
+            }
+        }
+        return rs;
+    }
+
+    /**
+     * Colonnes vides occupant les rangs des paramètres IN
+     */
+    private static SimpleResultSet colonnesIn(int nombre) {
+        SimpleResultSet rs = new SimpleResultSet();
+        for (int i = 1; i <= nombre; i++) {
+            rs.addColumn("IN_" + i, Types.VARCHAR, 1, 0);
+        }
+        return rs;
+    }
+}
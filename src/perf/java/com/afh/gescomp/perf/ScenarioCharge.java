@@ -0,0 +1,284 @@
+package com.afh.gescomp.perf;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Rejoue un mélange pondéré d'endpoints contre l'application démarrée avec le profil "perf",
+ * puis rapporte par endpoint le nombre de requêtes, les erreurs, le débit et les latences p50 / p95 / p99.
+ * <p>
+ * Paramètres (propriétés système) : perf.url, perf.scenario (fichier ou classpath:),
+ * perf.threads, perf.echauffement-s, perf.duree-s, perf.timeout-ms, perf.rapport,
+ * et le volume des données générées (perf.marches, perf.fournisseurs, perf.articles,
+ * perf.structures, perf.decomptes-par-marche) pour ne viser que des lignes existantes.
+ */
+public final class ScenarioCharge {
+
+    private final String url;
+    private final int threads;
+    private final long echauffementMs;
+    private final long dureeMs;
+    private final int timeoutMs;
+    private final int marches;
+    private final int fournisseurs;
+    private final int articles;
+    private final int structures;
+    private final int decomptesParMarche;
+
+    private final List<Requete> requetes = new ArrayList<>();
+    private int poidsTotal;
+
+    /** Vrai pendant la phase de mesure, faux pendant l'échauffement. */
+    private final AtomicBoolean mesure = new AtomicBoolean();
+    private final AtomicBoolean arret = new AtomicBoolean();
+
+    /**
+     * Ligne du scénario
+     */
+    private static final class Requete {
+        final int poids;
+        final String methode;
+        final String chemin;
+        final String corps;
+        final MesuresEndpoint mesures;
+
+        Requete(int poids, String methode, String chemin, String corps) {
+            this.poids = poids;
+            this.methode = methode;
+            this.chemin = chemin;
+            this.corps = corps;
+            this.mesures = new MesuresEndpoint(methode + " " + chemin);
+        }
+    }
+
+    private ScenarioCharge() {
+        url = System.getProperty("perf.url", "http://localhost:8080");
+        threads = Integer.getInteger("perf.threads", 8);
+        echauffementMs = Integer.getInteger("perf.echauffement-s", 15) * 1000L;
+        dureeMs = Integer.getInteger("perf.duree-s", 60) * 1000L;
+        timeoutMs = Integer.getInteger("perf.timeout-ms", 30000);
+        marches = Integer.getInteger("perf.marches", 2000);
+        fournisseurs = Integer.getInteger("perf.fournisseurs", 500);
+        articles = Integer.getInteger("perf.articles", 2000);
+        structures = Math.max(Integer.getInteger("perf.structures", 5), 3);
+        decomptesParMarche = Math.max(Integer.getInteger("perf.decomptes-par-marche", 3), 1);
+    }
+
+    public static void main(String[] args) throws Exception {
+        ScenarioCharge scenario = new ScenarioCharge();
+        scenario.charger(System.getProperty("perf.scenario", "classpath:perf/scenario-mixte.txt"));
+        scenario.attendreApplication(TimeUnit.MINUTES.toMillis(5));
+        Map<String, Object> rapport = scenario.executer();
+        scenario.afficher(rapport);
+
+        File fichier = new File(System.getProperty("perf.rapport", "target/perf/rapport-charge.json"));
+        if (fichier.getParentFile() != null && !fichier.getParentFile().isDirectory() && !fichier.getParentFile().mkdirs()) {
+            throw new IOException("Impossible de créer le répertoire du rapport: " + fichier.getParentFile());
+        }
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(fichier, rapport);
+        System.out.println("Rapport écrit dans " + fichier.getAbsolutePath());
+    }
+
+    private void charger(String source) throws IOException {
+        InputStream in = source.startsWith("classpath:")
+                ? ScenarioCharge.class.getClassLoader().getResourceAsStream(source.substring("classpath:".length()))
+                : new FileInputStream(source);
+        if (in == null) {
+            throw new IllegalArgumentException("Scénario introuvable: " + source);
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String ligne;
+            while ((ligne = reader.readLine()) != null) {
+                ligne = ligne.trim();
+                if (ligne.isEmpty() || ligne.startsWith("#")) {
+                    continue;
+                }
+                String[] champs = ligne.split("\\s+", 4);
+                if (champs.length < 3) {
+                    throw new IllegalArgumentException("Ligne de scénario invalide: " + ligne);
+                }
+                Requete requete = new Requete(Integer.parseInt(champs[0]), champs[1].toUpperCase(), champs[2],
+                        champs.length == 4 ? champs[3] : null);
+                requetes.add(requete);
+                poidsTotal += requete.poids;
+            }
+        }
+        if (poidsTotal <= 0) {
+            throw new IllegalArgumentException("Scénario vide: " + source);
+        }
+    }
+
+    private void attendreApplication(long delaiMaxMs) throws InterruptedException {
+        long limite = System.currentTimeMillis() + delaiMaxMs;
+        System.out.println("Attente de l'application sur " + url + " ...");
+        while (System.currentTimeMillis() < limite) {
+            try {
+                HttpURLConnection connexion = (HttpURLConnection) new URL(url + "/health").openConnection();
+                connexion.setConnectTimeout(2000);
+                if (connexion.getResponseCode() < 500) {
+                    connexion.disconnect();
+                    return;
+                }
+            } catch (IOException e) {
+                // Application pas encore démarrée
+            }
+            Thread.sleep(2000);
+        }
+        throw new IllegalStateException("Application indisponible sur " + url);
+    }
+
+    private Map<String, Object> executer() throws InterruptedException {
+        final CountDownLatch fin = new CountDownLatch(threads);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            final long graine = 31L * t + 7;
+            pool.execute(new Runnable() {
+                @Override
+                public void run() {
+                    Random random = new Random(graine);
+                    try {
+                        while (!arret.get()) {
+                            appeler(tirer(random), random);
+                        }
+                    } finally {
+                        fin.countDown();
+                    }
+                }
+            });
+        }
+        System.out.println("Échauffement " + echauffementMs / 1000 + " s, " + threads + " threads ...");
+        Thread.sleep(echauffementMs);
+        mesure.set(true);
+        long debut = System.currentTimeMillis();
+        System.out.println("Mesure " + dureeMs / 1000 + " s ...");
+        Thread.sleep(dureeMs);
+        mesure.set(false);
+        long dureeMesureMs = System.currentTimeMillis() - debut;
+        arret.set(true);
+        fin.await(timeoutMs * 2L, TimeUnit.MILLISECONDS);
+        pool.shutdownNow();
+
+        Map<String, Object> parEndpoint = new LinkedHashMap<>();
+        long total = 0;
+        for (Requete requete : requetes) {
+            Map<String, Object> resume = requete.mesures.resume(dureeMesureMs);
+            parEndpoint.put(requete.mesures.getNom(), resume);
+            total += (Integer) resume.get("nombre");
+        }
+        Map<String, Object> rapport = new LinkedHashMap<>();
+        rapport.put("url", url);
+        rapport.put("threads", threads);
+        rapport.put("duree-mesure-ms", dureeMesureMs);
+        rapport.put("requetes", total);
+        rapport.put("debit-rps", Math.round(total * 100000.0 / Math.max(dureeMesureMs, 1)) / 100.0);
+        rapport.put("endpoints", parEndpoint);
+        return rapport;
+    }
+
+    private Requete tirer(Random random) {
+        int tirage = random.nextInt(poidsTotal);
+        for (Requete requete : requetes) {
+            tirage -= requete.poids;
+            if (tirage < 0) {
+                return requete;
+            }
+        }
+        return requetes.get(requetes.size() - 1);
+    }
+
+    private void appeler(Requete requete, Random random) {
+        int rangMarche = random.nextInt(marches);
+        String chemin = substituer(requete.chemin, rangMarche, random);
+        String corps = requete.corps == null ? null : substituer(requete.corps, rangMarche, random);
+        long debut = System.nanoTime();
+        boolean erreur;
+        try {
+            HttpURLConnection connexion = (HttpURLConnection) new URL(url + chemin).openConnection();
+            connexion.setConnectTimeout(timeoutMs);
+            connexion.setReadTimeout(timeoutMs);
+            connexion.setRequestMethod(requete.methode);
+            connexion.setRequestProperty("Accept", "application/json");
+            if (corps != null) {
+                connexion.setDoOutput(true);
+                connexion.setRequestProperty("Content-Type", "application/json;charset=UTF-8");
+                try (OutputStream out = connexion.getOutputStream()) {
+                    out.write(corps.getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            int statut = connexion.getResponseCode();
+            erreur = statut >= 400;
+            consommer(erreur ? connexion.getErrorStream() : connexion.getInputStream());
+        } catch (IOException e) {
+            erreur = true;
+        }
+        long duree = System.nanoTime() - debut;
+        if (mesure.get()) {
+            requete.mesures.enregistrer(duree, erreur);
+        }
+    }
+
+    private String substituer(String modele, int rangMarche, Random random) {
+        if (modele.indexOf('{') < 0) {
+            return modele;
+        }
+        int rangStructure = random.nextInt(structures);
+        return modele.replace("{marche}", String.valueOf(IdentifiantsPerf.numMarche(rangMarche)))
+                .replace("{exercice}", String.valueOf(IdentifiantsPerf.exercice(rangMarche)))
+                .replace("{piece}", String.valueOf(1 + random.nextInt(decomptesParMarche)))
+                .replace("{fournisseur}", IdentifiantsPerf.numFourn(random.nextInt(fournisseurs)))
+                .replace("{article}", IdentifiantsPerf.numArticle(random.nextInt(articles)))
+                .replace("{structure}", IdentifiantsPerf.numStruct(rangStructure))
+                .replace("{matricule}", String.valueOf(IdentifiantsPerf.MATRICULE_BASE + rangStructure))
+                .replace("{motDePasse}", IdentifiantsPerf.MOT_DE_PASSE);
+    }
+
+    /**
+     * Lecture complète de la réponse : la latence inclut le transfert, et la connexion reste réutilisable (keep-alive)
+     */
+    private static void consommer(InputStream in) throws IOException {
+        if (in == null) {
+            return;
+        }
+        byte[] tampon = new byte[8192];
+        try (InputStream flux = in) {
+            while (flux.read(tampon) >= 0) {
+                // rien
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void afficher(Map<String, Object> rapport) {
+        System.out.println();
+        System.out.println(String.format("%-90s %8s %7s %9s %9s %9s %9s", "Endpoint", "Requêtes", "Erreurs",
+                "Débit/s", "p50 ms", "p95 ms", "p99 ms"));
+        for (Map.Entry<String, Object> entry : ((Map<String, Object>) rapport.get("endpoints")).entrySet()) {
+            Map<String, Object> r = (Map<String, Object>) entry.getValue();
+            System.out.println(String.format("%-90s %8d %7d %9.2f %9.2f %9.2f %9.2f", entry.getKey(), r.get("nombre"),
+                    r.get("erreurs"), r.get("debit-rps"), r.get("p50-ms"), r.get("p95-ms"), r.get("p99-ms")));
+        }
+        System.out.println(String.format("Total : %d requêtes en %d ms, %.2f requêtes/s", rapport.get("requetes"),
+                rapport.get("duree-mesure-ms"), rapport.get("debit-rps")));
+    }
+}
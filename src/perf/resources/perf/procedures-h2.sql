@@ -0,0 +1,23 @@
+-- Procédures et fonctions PL/SQL simulées pour le profil "perf" (H2 en mode Oracle).
+-- Chaque package Oracle devient un schéma H2 afin de conserver les appels qualifiés (PKG_XXX.FONCTION).
+CREATE SCHEMA IF NOT EXISTS PKG_GENERAL;
+CREATE SCHEMA IF NOT EXISTS PKG_CREE_DEC;
+CREATE SCHEMA IF NOT EXISTS PKG_ENVOI;
+CREATE SCHEMA IF NOT EXISTS PKG_AUTH;
+
+CREATE ALIAS IF NOT EXISTS PKG_GENERAL.GET_NUM_MARCHE_SUIVANT FOR "com.afh.gescomp.perf.ProceduresH2.getNumMarcheSuivant";
+CREATE ALIAS IF NOT EXISTS PKG_GENERAL.GET_ARTICLE_SUIVANT FOR "com.afh.gescomp.perf.ProceduresH2.getArticleSuivant";
+
+CREATE ALIAS IF NOT EXISTS PKG_CREE_DEC.INSERT_DEC FOR "com.afh.gescomp.perf.ProceduresH2.insertDec";
+CREATE ALIAS IF NOT EXISTS PKG_CREE_DEC.DATE_DECOMPTE_VALIDE FOR "com.afh.gescomp.perf.ProceduresH2.dateDecompteValide";
+CREATE ALIAS IF NOT EXISTS PKG_ENVOI.ENVOI_DECOMPTE FOR "com.afh.gescomp.perf.ProceduresH2.envoiDecompte";
+
+CREATE ALIAS IF NOT EXISTS PKG_AUTH.HASH_STRING FOR "com.afh.gescomp.perf.ProceduresH2.hashString";
+CREATE ALIAS IF NOT EXISTS PKG_AUTH.AUTHENTIFICATE_USER_STRUCT FOR "com.afh.gescomp.perf.ProceduresH2.authentifierUtilisateur";
+
+-- Procédures hors package, dans le schéma ACHAT (schéma courant des connexions)
+CREATE ALIAS IF NOT EXISTS ACHAT.CAL_MARCHE FOR "com.afh.gescomp.perf.ProceduresH2.calMarche";
+CREATE ALIAS IF NOT EXISTS ACHAT.DELETE_DEC FOR "com.afh.gescomp.perf.ProceduresH2.deleteDec";
+CREATE ALIAS IF NOT EXISTS ACHAT.CAL_DEC_AVANCE FOR "com.afh.gescomp.perf.ProceduresH2.calDecAvance";
+CREATE ALIAS IF NOT EXISTS ACHAT.CAL_DEC_ORD FOR "com.afh.gescomp.perf.ProceduresH2.calDecOrd";
+CREATE ALIAS IF NOT EXISTS ACHAT.CAL_DEC_LRG FOR "com.afh.gescomp.perf.ProceduresH2.calDecLrg";
@@ -0,0 +1,201 @@
+package com.afh.gescomp.config;
+
+import org.junit.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests unitaires pour EtagFilter et CompressionFilter, chaînés comme dans ResponseOptimizationConfig
+ * Compatible Java 7 et JUnit 4
+ */
+public class ResponseOptimizationFiltersTest {
+
+    private static final String[] TYPES = {"application/json", "text/plain"};
+
+    private final EtagFilter etagFilter = new EtagFilter(new String[]{"/export"});
+
+    private final CompressionFilter compressionFilter = new CompressionFilter(1024, TYPES);
+
+    /**
+     * Contrôleur simulé : écrit {@code corps} avec le type donné et annonce sa longueur
+     */
+    private static HttpServlet servlet(final String contentType, final byte[] corps) {
+        return new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+                resp.setContentType(contentType);
+                resp.setContentLength(corps.length);
+                resp.getOutputStream().write(corps);
+                resp.flushBuffer();
+            }
+        };
+    }
+
+    private MockHttpServletResponse executer(MockHttpServletRequest request, HttpServlet servlet) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        new MockFilterChain(servlet, etagFilter, compressionFilter).doFilter(request, response);
+        return response;
+    }
+
+    private static MockHttpServletRequest get(String uri, String acceptEncoding) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        if (acceptEncoding != null) {
+            request.addHeader("Accept-Encoding", acceptEncoding);
+        }
+        return request;
+    }
+
+    private static byte[] json(int octets) {
+        StringBuilder sb = new StringBuilder("[");
+        while (sb.length() < octets) {
+            sb.append("{\"designation\":\"Fournisseur\",\"montant\":1234.5},");
+        }
+        sb.setLength(sb.length() - 1);
+        return sb.append("]").toString().getBytes();
+    }
+
+    private static byte[] gunzip(byte[] octets) throws IOException {
+        GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(octets));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] tampon = new byte[4096];
+        int n;
+        while ((n = in.read(tampon)) != -1) {
+            out.write(tampon, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    public void testGrosJsonCompresseAvecEtag() throws Exception {
+        // Arrange
+        byte[] corps = json(20000);
+
+        // Act
+        MockHttpServletResponse response = executer(get("/api/statistiques/fournisseurs", "gzip, deflate"),
+                servlet("application/json;charset=UTF-8", corps));
+
+        // Assert
+        assertEquals(200, response.getStatus());
+        assertEquals("gzip", response.getHeader("Content-Encoding"));
+        assertEquals("Accept-Encoding", response.getHeader("Vary"));
+        assertTrue(response.getContentAsByteArray().length < corps.length / 5);
+        assertArrayEquals(corps, gunzip(response.getContentAsByteArray()));
+        assertNotNull(response.getHeader("ETag"));
+        assertEquals("private, no-cache", response.getHeader("Cache-Control"));
+        assertEquals(response.getContentAsByteArray().length, response.getContentLength());
+    }
+
+    @Test
+    public void testPetitJsonNonCompresse() throws Exception {
+        // Arrange
+        byte[] corps = "{\"total\":12}".getBytes();
+
+        // Act
+        MockHttpServletResponse response = executer(get("/api/statistiques/generales", "gzip"),
+                servlet("application/json", corps));
+
+        // Assert
+        assertNull(response.getHeader("Content-Encoding"));
+        assertArrayEquals(corps, response.getContentAsByteArray());
+        assertEquals(corps.length, response.getContentLength());
+    }
+
+    @Test
+    public void testSansAcceptEncoding() throws Exception {
+        byte[] corps = json(20000);
+
+        MockHttpServletResponse response = executer(get("/api/articles", null), servlet("application/json", corps));
+
+        assertNull(response.getHeader("Content-Encoding"));
+        assertArrayEquals(corps, response.getContentAsByteArray());
+    }
+
+    @Test
+    public void testTypeNonCompressible() throws Exception {
+        byte[] corps = json(20000);
+
+        MockHttpServletResponse response = executer(get("/api/fichiers/1", "gzip"), servlet("application/pdf", corps));
+
+        assertNull(response.getHeader("Content-Encoding"));
+        assertNull(response.getHeader("ETag"));
+        assertArrayEquals(corps, response.getContentAsByteArray());
+        assertEquals(corps.length, response.getContentLength());
+    }
+
+    @Test
+    public void testIfNoneMatchRenvoie304() throws Exception {
+        // Arrange : premier appel pour obtenir l'ETag
+        byte[] corps = json(20000);
+        String etag = executer(get("/api/articles", "gzip"), servlet("application/json", corps)).getHeader("ETag");
+        MockHttpServletRequest request = get("/api/articles", "gzip");
+        request.addHeader("If-None-Match", etag);
+
+        // Act
+        MockHttpServletResponse response = executer(request, servlet("application/json", corps));
+
+        // Assert
+        assertEquals(304, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+        assertEquals(etag, response.getHeader("ETag"));
+    }
+
+    @Test
+    public void testEtagDifferentSiDonneesModifiees() throws Exception {
+        byte[] corps = json(20000);
+        byte[] modifie = corps.clone();
+        modifie[10] = 'X';
+
+        String etag = executer(get("/api/articles", "gzip"), servlet("application/json", corps)).getHeader("ETag");
+        MockHttpServletRequest request = get("/api/articles", "gzip");
+        request.addHeader("If-None-Match", etag);
+        MockHttpServletResponse response = executer(request, servlet("application/json", modifie));
+
+        assertEquals(200, response.getStatus());
+        assertFalse(etag.equals(response.getHeader("ETag")));
+        assertArrayEquals(modifie, gunzip(response.getContentAsByteArray()));
+    }
+
+    @Test
+    public void testExportExcluDeLEtag() throws Exception {
+        MockHttpServletResponse response = executer(get("/api/statistiques/export", "identity"),
+                servlet("application/json", json(5000)));
+
+        assertNull(response.getHeader("ETag"));
+        assertEquals(200, response.getStatus());
+    }
+
+    @Test
+    public void testCodageAccepte() {
+        assertEquals("gzip", CompressionFilter.codageAccepte("deflate, gzip;q=0.8"));
+        assertEquals("deflate", CompressionFilter.codageAccepte("gzip;q=0, deflate"));
+        assertEquals("deflate", CompressionFilter.codageAccepte("deflate"));
+        assertNull(CompressionFilter.codageAccepte("identity, br"));
+        assertNull(CompressionFilter.codageAccepte(null));
+    }
+
+    @Test
+    public void testComparaisonIfNoneMatch() {
+        assertTrue(EtagFilter.correspond("\"a\", \"b\"", "\"b\""));
+        assertTrue(EtagFilter.correspond("W/\"b\"", "\"b\""));
+        assertTrue(EtagFilter.correspond("*", "\"b\""));
+        assertFalse(EtagFilter.correspond("\"a\"", "\"b\""));
+        assertFalse(EtagFilter.correspond(null, "\"b\""));
+    }
+}
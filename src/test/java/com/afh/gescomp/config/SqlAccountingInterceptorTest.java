@@ -0,0 +1,147 @@
+package com.afh.gescomp.config;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.lang.reflect.Method;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests unitaires pour SqlAccountingInterceptor et SqlAccounting
+ * Compatible Java 7 et JUnit 4
+ */
+public class SqlAccountingInterceptorTest {
+
+    @Mock
+    private Connection connexion;
+
+    @Mock
+    private PreparedStatement preparedStatement;
+
+    @Mock
+    private CallableStatement callableStatement;
+
+    @Mock
+    private ResultSet resultSet;
+
+    private SqlAccountingInterceptor interceptor;
+
+    private Method prepareStatement;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        interceptor = new SqlAccountingInterceptor();
+        prepareStatement = Connection.class.getMethod("prepareStatement", String.class);
+        SqlAccounting.demarrer();
+    }
+
+    @After
+    public void tearDown() {
+        SqlAccounting.terminer();
+    }
+
+    @Test
+    public void testRequeteEtLignesComptees() throws Exception {
+        // Arrange
+        String sql = "SELECT * FROM ACHAT.MARCHE WHERE NUM_MARCHE = ?";
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true, true, true, false);
+
+        // Act
+        PreparedStatement statement = (PreparedStatement) interceptor.createStatement(
+                connexion, prepareStatement, new Object[]{sql}, preparedStatement, 0L);
+        ResultSet rs = statement.executeQuery();
+        while (rs.next()) {
+            // parcours complet
+        }
+        rs.close();
+        statement.close();
+        SqlAccounting.Bilan bilan = SqlAccounting.terminer();
+
+        // Assert
+        assertEquals(1, bilan.getRequetes());
+        assertEquals(3, bilan.getLignes());
+        assertSame(connexion, statement.getConnection());
+        assertTrue(bilan.detail(5, 200).contains("ACHAT.MARCHE"));
+        verify(resultSet).close();
+        verify(preparedStatement).close();
+    }
+
+    @Test
+    public void testLignesSignaleesALaFermetureDuStatement() throws Exception {
+        // Arrange : ResultSet jamais fermé explicitement
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true, false);
+
+        // Act
+        PreparedStatement statement = (PreparedStatement) interceptor.createStatement(
+                connexion, prepareStatement, new Object[]{"SELECT 1 FROM DUAL"}, preparedStatement, 0L);
+        ResultSet rs = statement.executeQuery();
+        rs.next();
+        rs.next();
+        statement.close();
+
+        // Assert
+        assertEquals(1, SqlAccounting.terminer().getLignes());
+    }
+
+    @Test
+    public void testProcedureChronometree() throws Exception {
+        // Arrange
+        Method prepareCall = Connection.class.getMethod("prepareCall", String.class);
+        long avant = SqlAccounting.getProcedures().containsKey("PKG_ENVOI.ENVOI_DECOMPTE")
+                ? SqlAccounting.getProcedures().get("PKG_ENVOI.ENVOI_DECOMPTE").getTotal() : 0;
+
+        // Act
+        CallableStatement statement = (CallableStatement) interceptor.createStatement(
+                connexion, prepareCall, new Object[]{"{ call PKG_ENVOI.ENVOI_DECOMPTE(?, ?, ?, ?, ?) }"},
+                callableStatement, 0L);
+        statement.execute();
+
+        // Assert
+        verify(callableStatement).execute();
+        assertEquals(avant + 1, SqlAccounting.getProcedures().get("PKG_ENVOI.ENVOI_DECOMPTE").getTotal());
+        assertEquals(1, SqlAccounting.terminer().getRequetes());
+    }
+
+    @Test
+    public void testNomDeProcedure() {
+        assertEquals("CAL_MARCHE", SqlAccounting.procedure("CALL CAL_MARCHE(?)"));
+        assertEquals("ACHAT.CAL_DEC_ORD", SqlAccounting.procedure("{call achat.cal_dec_ord(?, ?, ?)}"));
+        assertEquals("PKG_CREE_DEC.DATE_DECOMPTE_VALIDE",
+                SqlAccounting.procedure("{ ? = call PKG_CREE_DEC.DATE_DECOMPTE_VALIDE(?, ?, ?) }"));
+        assertNull(SqlAccounting.procedure("SELECT CALL_ID FROM T"));
+        assertNull(SqlAccounting.procedure(null));
+    }
+
+    @Test
+    public void testSansBilanOuvert() throws Exception {
+        // Arrange : hors requête HTTP
+        SqlAccounting.terminer();
+        when(preparedStatement.executeUpdate()).thenReturn(2);
+        long requetesAvant = SqlAccounting.requetesDuThread();
+
+        // Act
+        PreparedStatement statement = (PreparedStatement) interceptor.createStatement(
+                connexion, prepareStatement, new Object[]{"UPDATE T SET X = 1"}, preparedStatement, 0L);
+
+        // Assert : aucun bilan, mais la requête reste comptée pour le thread
+        assertEquals(2, statement.executeUpdate());
+        assertNull(SqlAccounting.terminer());
+        assertEquals(1, SqlAccounting.requetesDuThread() - requetesAvant);
+    }
+}
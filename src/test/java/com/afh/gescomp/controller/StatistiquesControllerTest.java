@@ -0,0 +1,72 @@
+package com.afh.gescomp.controller;
+
+import com.afh.gescomp.exception.ExceptionControllerAdvice;
+import com.afh.gescomp.service.StatistiquesService;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.OutputStream;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Tests unitaires pour StatistiquesController
+ * Compatible Java 7 et JUnit 4
+ */
+public class StatistiquesControllerTest {
+
+    @Mock
+    private StatistiquesService statistiquesService;
+
+    @InjectMocks
+    private StatistiquesController statistiquesController;
+
+    private MockMvc mockMvc;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        mockMvc = MockMvcBuilders.standaloneSetup(statistiquesController)
+                .setControllerAdvice(new ExceptionControllerAdvice())
+                .build();
+    }
+
+    @Test
+    public void testExportExcelDateInvalideRenvoie400() throws Exception {
+        // Arrange
+        doThrow(new IllegalArgumentException("Format de date invalide. Format attendu: YYYY-MM-DD"))
+                .when(statistiquesService).validerPeriode("01/01/2024", null);
+
+        // Act & Assert : erreur lisible, aucun classeur commencé
+        mockMvc.perform(get("/api/statistiques/export/excel").param("dateDebut", "01/01/2024"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("Format de date invalide. Format attendu: YYYY-MM-DD"));
+        verify(statistiquesService, never()).exportToExcel(anyString(), anyString(), anyString(), anyString(),
+                any(OutputStream.class));
+    }
+
+    @Test
+    public void testExportExcelDatesValides() throws Exception {
+        // Act & Assert
+        mockMvc.perform(get("/api/statistiques/export/excel")
+                        .param("numStruct", "01")
+                        .param("dateDebut", "2024-01-01")
+                        .param("dateFin", "2024-12-31"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet"));
+        verify(statistiquesService).exportToExcel(anyString(), anyString(), anyString(), anyString(),
+                any(OutputStream.class));
+    }
+}
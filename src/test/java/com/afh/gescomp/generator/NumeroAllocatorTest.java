@@ -0,0 +1,176 @@
+package com.afh.gescomp.generator;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests unitaires pour NumeroAllocator
+ * Compatible Java 7 et JUnit 4
+ */
+public class NumeroAllocatorTest {
+
+    private NumeroAllocator numeroAllocator;
+
+    private AmorceComptee amorce;
+
+    @Before
+    public void setUp() {
+        numeroAllocator = new NumeroAllocator();
+        amorce = new AmorceComptee(5L);
+    }
+
+    @Test
+    public void testAmorceUneSeuleFois() {
+        // Act
+        long premier = numeroAllocator.suivant("M1", amorce);
+        long second = numeroAllocator.suivant("M1", amorce);
+
+        // Assert
+        assertEquals(6L, premier);
+        assertEquals(7L, second);
+        assertEquals(7L, numeroAllocator.courant("M1", amorce));
+        assertEquals(1, amorce.lectures.get());
+    }
+
+    @Test
+    public void testAucunNumeroEnBase() {
+        assertEquals(0L, numeroAllocator.courant("M2", new AmorceComptee(null)));
+        assertEquals(1L, numeroAllocator.suivant("M2", new AmorceComptee(null)));
+    }
+
+    @Test
+    public void testNumerosUniquesEntreThreads() throws Exception {
+        // Arrange
+        final int threads = 8;
+        final int parThread = 500;
+        final Set<Long> numeros = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+        final CountDownLatch depart = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        for (int i = 0; i < threads; i++) {
+            executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        depart.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    for (int j = 0; j < parThread; j++) {
+                        numeros.add(numeroAllocator.suivant("M1", amorce));
+                    }
+                }
+            });
+        }
+
+        // Act
+        depart.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+
+        // Assert : suite continue, sans doublon ni trou
+        assertEquals(threads * parThread, numeros.size());
+        assertEquals(5L + threads * parThread, numeroAllocator.courant("M1", amorce));
+    }
+
+    @Test
+    public void testOublierRelitLaBase() {
+        // Arrange
+        numeroAllocator.suivant("M1", amorce);
+        amorce.max = 2L;
+
+        // Act
+        numeroAllocator.oublier("M1");
+
+        // Assert
+        assertEquals(3L, numeroAllocator.suivant("M1", amorce));
+        assertEquals(2, amorce.lectures.get());
+    }
+
+    @Test
+    public void testReamorceApresDelai() {
+        // Arrange
+        ReflectionTestUtils.setField(numeroAllocator, "dureeAmorce", 0L);
+        numeroAllocator.suivant("M1", amorce);
+        amorce.max = 20L;
+
+        // Act & Assert
+        assertEquals(21L, numeroAllocator.suivant("M1", amorce));
+    }
+
+    @Test
+    public void testAllouerRetenteSurNumeroDejaPris() {
+        // Arrange : une autre instance a inséré les numéros 6 et 7
+        final AtomicInteger insertions = new AtomicInteger();
+        NumeroAllocator.Insertion<Long> insertion = new NumeroAllocator.Insertion<Long>() {
+            @Override
+            public Long inserer(long numero) {
+                insertions.incrementAndGet();
+                if (numero <= 7L) {
+                    amorce.max = 7L;
+                    throw new DataIntegrityViolationException("ORA-00001: contrainte unique violée");
+                }
+                return numero;
+            }
+        };
+
+        // Act
+        Long numero = numeroAllocator.allouer("M1", amorce, insertion);
+
+        // Assert
+        assertEquals(Long.valueOf(8L), numero);
+        assertEquals(2, insertions.get());
+        assertEquals(8L, numeroAllocator.courant("M1", amorce));
+    }
+
+    @Test
+    public void testAllouerPropageUnEchecSansDoublon() {
+        // Arrange
+        final IllegalStateException erreur = new IllegalStateException("décompte inexistant");
+        NumeroAllocator.Insertion<Long> insertion = new NumeroAllocator.Insertion<Long>() {
+            @Override
+            public Long inserer(long numero) {
+                throw erreur;
+            }
+        };
+
+        // Act & Assert
+        try {
+            numeroAllocator.allouer("M1", amorce, insertion);
+            fail("L'échec de l'insertion doit être propagé");
+        } catch (IllegalStateException e) {
+            assertEquals(erreur, e);
+        }
+        assertEquals(0, numeroAllocator.getTaille());
+    }
+
+    private static final class AmorceComptee implements NumeroAllocator.Amorce {
+        private final AtomicInteger lectures = new AtomicInteger();
+        private volatile Long max;
+
+        AmorceComptee(Long max) {
+            this.max = max;
+        }
+
+        @Override
+        public Long max() {
+            lectures.incrementAndGet();
+            return max;
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.afh.gescomp.implementation;
+
+import com.afh.gescomp.model.primary.Chat;
+import com.afh.gescomp.repository.primary.ChatRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests unitaires pour ChatServiceImpl
+ * Compatible Java 7 et JUnit 4
+ */
+public class ChatServiceImplTest {
+
+    @Mock
+    private ChatRepository chatRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @InjectMocks
+    private ChatServiceImpl chatService;
+
+    /** Messages passés à chaque batchUpdate, dans l'ordre */
+    private final List<List<String>> lots = new ArrayList<>();
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        ReflectionTestUtils.setField(chatService, "fileMax", 5);
+        ReflectionTestUtils.setField(chatService, "lotMax", 2);
+        ReflectionTestUtils.setField(chatService, "limiteMax", 3);
+        chatService.initialiser();
+        when(transactionTemplate.execute(any(TransactionCallback.class))).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                return ((TransactionCallback<Object>) invocation.getArguments()[0]).doInTransaction(mock(TransactionStatus.class));
+            }
+        });
+        when(jdbcTemplate.batchUpdate(anyString(), any(BatchPreparedStatementSetter.class))).thenAnswer(new Answer<int[]>() {
+            @Override
+            public int[] answer(InvocationOnMock invocation) throws Throwable {
+                BatchPreparedStatementSetter setter = (BatchPreparedStatementSetter) invocation.getArguments()[1];
+                List<String> lot = new ArrayList<>();
+                for (int i = 0; i < setter.getBatchSize(); i++) {
+                    PreparedStatement ps = mock(PreparedStatement.class);
+                    setter.setValues(ps, i);
+                    ArgumentCaptor<Reader> message = ArgumentCaptor.forClass(Reader.class);
+                    verify(ps).setCharacterStream(eq(3), message.capture(), anyInt());
+                    lot.add(lire(message.getValue()));
+                }
+                if (lot.contains("refuse")) {
+                    // Valeur refusée par la base (ex. ORA-12899) : tout le lot est annulé
+                    throw new DataIntegrityViolationException("valeur trop grande pour la colonne");
+                }
+                lots.add(lot);
+                return new int[setter.getBatchSize()];
+            }
+        });
+    }
+
+    @Test
+    public void testEnregistrementDiffereParLots() {
+        // Arrange
+        chatService.enregistrer(message(null, "m1"));
+        chatService.enregistrer(message(null, "m2"));
+        chatService.enregistrer(message(null, "m3"));
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), any(BatchPreparedStatementSetter.class));
+
+        // Act
+        int ecrits = chatService.vider();
+
+        // Assert : deux lots (lot-max = 2), ordre d'arrivée conservé
+        assertEquals(3, ecrits);
+        assertEquals(Arrays.asList(Arrays.asList("m1", "m2"), Arrays.asList("m3")), lots);
+        assertEquals(0, chatService.getEnAttente());
+    }
+
+    @Test
+    public void testEchecLotRemisEnTeteDeFile() {
+        // Arrange
+        doThrow(new DataAccessResourceFailureException("base indisponible"))
+                .when(jdbcTemplate).batchUpdate(anyString(), any(BatchPreparedStatementSetter.class));
+        chatService.enregistrer(message(null, "m1"));
+        chatService.enregistrer(message(null, "m2"));
+        chatService.enregistrer(message(null, "m3"));
+
+        // Act
+        int ecrits = chatService.vider();
+
+        // Assert
+        assertEquals(0, ecrits);
+        assertEquals(3, chatService.getEnAttente());
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), any(BatchPreparedStatementSetter.class));
+    }
+
+    @Test
+    public void testMessageRefuseEcarteSansBloquerLaFile() {
+        // Arrange
+        chatService.enregistrer(message(null, "m1"));
+        chatService.enregistrer(message(null, "refuse"));
+        chatService.enregistrer(message(null, "m3"));
+
+        // Act
+        int ecrits = chatService.vider();
+
+        // Assert : le lot refusé est repris ligne par ligne, seul le message fautif est écarté
+        assertEquals(2, ecrits);
+        assertEquals(Arrays.asList(Arrays.asList("m1"), Arrays.asList("m3")), lots);
+        assertEquals(0, chatService.getEnAttente());
+    }
+
+    @Test
+    public void testMatriculeTropLongRefuseAvantLaFile() {
+        // Arrange
+        Chat chat = message(null, "m1");
+        chat.setReceiverMatricule("123456789012345678901");
+
+        // Act
+        try {
+            chatService.enregistrer(chat);
+            fail("Un matricule de plus de 20 caractères doit être refusé");
+        } catch (IllegalArgumentException e) {
+            // Assert
+            assertEquals(0, chatService.getEnAttente());
+        }
+    }
+
+    @Test
+    public void testFilePleineEcritureDansLeThreadAppelant() {
+        // Arrange : file de 5 messages
+        for (int i = 1; i <= 5; i++) {
+            chatService.enregistrer(message(null, "m" + i));
+        }
+
+        // Act
+        chatService.enregistrer(message(null, "m6"));
+
+        // Assert : les 5 messages en attente sont écrits, le 6e attend le prochain passage
+        assertEquals(3, lots.size());
+        assertEquals(1, chatService.getEnAttente());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testHistoriqueParCurseur() {
+        // Arrange : limite bornée à 3, une ligne de plus lue pour savoir s'il reste des messages
+        when(chatRepository.findPageBetweenUserAndAdmins(eq("1000"), eq("2000"), eq(50L), any(Pageable.class)))
+                .thenReturn(Arrays.asList(message(49L, "d"), message(48L, "c"), message(47L, "b"), message(46L, "a")));
+
+        // Act
+        Map<String, Object> result = chatService.historique("1000", "2000", 50L, 10);
+
+        // Assert
+        ArgumentCaptor<Pageable> pageable = ArgumentCaptor.forClass(Pageable.class);
+        verify(chatRepository).findPageBetweenUserAndAdmins(eq("1000"), eq("2000"), eq(50L), pageable.capture());
+        assertEquals(4, pageable.getValue().getPageSize());
+        List<Chat> messages = (List<Chat>) result.get("messages");
+        assertEquals(3, messages.size());
+        assertEquals(Long.valueOf(47L), messages.get(0).getId());
+        assertEquals(Long.valueOf(49L), messages.get(2).getId());
+        assertEquals(47L, result.get("avantId"));
+        assertTrue((Boolean) result.get("plusAnciens"));
+    }
+
+    @Test
+    public void testPremierePageEcritLesMessagesEnAttente() {
+        // Arrange
+        chatService.enregistrer(message(null, "m1"));
+        when(chatRepository.findPageBetweenUserAndAdmins(eq("1000"), eq("2000"), eq(Long.MAX_VALUE), any(Pageable.class)))
+                .thenReturn(Arrays.asList(message(1L, "m1")));
+
+        // Act
+        Map<String, Object> result = chatService.historique("1000", "2000", null, null);
+
+        // Assert
+        assertEquals(1, lots.size());
+        assertNull(result.get("avantId"));
+        assertFalse((Boolean) result.get("plusAnciens"));
+    }
+
+    private static String lire(Reader reader) throws IOException {
+        StringBuilder texte = new StringBuilder();
+        char[] tampon = new char[256];
+        for (int n = reader.read(tampon); n != -1; n = reader.read(tampon)) {
+            texte.append(tampon, 0, n);
+        }
+        return texte.toString();
+    }
+
+    private static Chat message(Long id, String texte) {
+        Chat chat = new Chat();
+        chat.setId(id);
+        chat.setSenderMatricule("1000");
+        chat.setReceiverMatricule("2000");
+        chat.setMessage(texte);
+        return chat;
+    }
+}
@@ -8,6 +8,10 @@ import org.junit.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import javax.persistence.EntityManager;
 import javax.persistence.Query;
@@ -286,4 +290,44 @@ public class DashboardServiceImplTest {
         verify(entityManager).createNativeQuery(anyString());
         verify(query).setParameter("numStruct", numStruct);
     }
-}
\ No newline at end of file
+
+    // ========== TEST: getAllWidgets ==========
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testGetAllWidgets_WidgetHorsDelai() {
+        // Arrange : pool réel, le widget stats dépasse le délai
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(8);
+        executor.initialize();
+        ReflectionTestUtils.setField(dashboardService, "dashboardExecutor", executor);
+        ReflectionTestUtils.setField(dashboardService, "widgetTimeoutMs", 300L);
+
+        when(fournisseurRepository.count()).thenAnswer(new Answer<Long>() {
+            @Override
+            public Long answer(InvocationOnMock invocation) throws Throwable {
+                Thread.sleep(2000);
+                return 100L;
+            }
+        });
+        when(entityManager.createNativeQuery(anyString())).thenReturn(query);
+        when(query.setParameter(anyString(), any())).thenReturn(query);
+        when(query.getResultList()).thenReturn(new ArrayList<Object[]>());
+        when(query.getSingleResult()).thenReturn(0L);
+
+        try {
+            // Act
+            Map<String, Object> result = dashboardService.getAllWidgets("01", 12, 5);
+
+            // Assert : résultat partiel, stats marqué hors délai
+            Map<String, Object> stats = (Map<String, Object>) result.get("stats");
+            assertEquals("timeout", stats.get("widgetStatus"));
+            assertTrue(((List<String>) result.get("widgetsEnErreur")).contains("stats"));
+            assertNotNull(result.get("sectorielles"));
+            assertNotNull(result.get("marchesEvolution"));
+            assertTrue((Long) result.get("dureeMs") < 2000);
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
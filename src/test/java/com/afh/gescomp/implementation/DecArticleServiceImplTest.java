@@ -0,0 +1,115 @@
+package com.afh.gescomp.implementation;
+
+import com.afh.gescomp.model.primary.DecArticle;
+import com.afh.gescomp.model.primary.DecArticleId;
+import com.afh.gescomp.payload.request.DecArticleUpdateRequest;
+import com.afh.gescomp.payload.request.UpdatedColumns;
+import com.afh.gescomp.repository.primary.DecArticleRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.persistence.EntityManager;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests unitaires pour DecArticleServiceImpl
+ * Compatible Java 7 et JUnit 4
+ */
+public class DecArticleServiceImplTest {
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private DecArticleRepository decArticleRepository;
+
+    @InjectMocks
+    private DecArticleServiceImpl decArticleService;
+
+    private List<DecArticle> existants;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        existants = Arrays.asList(
+                ligne((short) 1, "10.000", "19.00", "0.00"),
+                ligne((short) 2, "5.000", "19.00", "0.00"),
+                ligne((short) 3, "1.000", "7.00", "0.00"));
+        when(decArticleRepository.findDecArticlesByMarcheAndLotAndAPTravaux(2024000010L, "L1", (short) 1, (short) 1))
+                .thenReturn(existants);
+    }
+
+    @Test
+    public void testPatchDecArticles_DryRunRenvoieLeDiffSansEcrire() {
+        List<DecArticleUpdateRequest> demandes = Arrays.asList(
+                demande((short) 1, "12", null, null),
+                demande((short) 2, "5", "19", null),   // valeurs identiques : aucune écriture
+                demande((short) 9, "1", null, null));
+
+        Map<String, Object> result = decArticleService.patchDecArticles(
+                2024000010L, "L1", (short) 1, (short) 1, false, demandes, true);
+
+        assertEquals(1, result.get("modifies"));
+        assertEquals(2, result.get("inchanges"));
+        assertTrue(((Set<?>) result.get("introuvables")).contains((short) 9));
+        List<?> diff = (List<?>) result.get("diff");
+        assertEquals(1, diff.size());
+        Map<?, ?> colonnes = (Map<?, ?>) ((Map<?, ?>) diff.get(0)).get("colonnes");
+        assertEquals(new BigDecimal("12"), ((Map<?, ?>) colonnes.get("quantite")).get("apres"));
+        assertEquals(new BigDecimal("10.000"), existants.get(0).getQuantite());
+        verifyZeroInteractions(jdbcTemplate);
+    }
+
+    @Test
+    public void testPatchDecArticlesTravaux_UnSeulUpdateParLots() {
+        List<DecArticleUpdateRequest> demandes = Arrays.asList(
+                demande((short) 1, "12", null, null),
+                demande((short) 3, null, null, "50"),
+                demande((short) 1, null, "7", null));
+
+        List<DecArticle> result = decArticleService.patchDecArticlesTravaux(2024000010L, "L1", (short) 1, (short) 1, demandes);
+
+        ArgumentCaptor<BatchPreparedStatementSetter> lot = ArgumentCaptor.forClass(BatchPreparedStatementSetter.class);
+        verify(jdbcTemplate, times(1)).batchUpdate(startsWith("UPDATE ACHAT.DEC_ARTICLE"), lot.capture());
+        assertEquals(2, lot.getValue().getBatchSize());
+        verify(decArticleRepository, never()).save(any(DecArticle.class));
+        assertEquals(new BigDecimal("12"), result.get(0).getQuantite());
+        assertEquals(new BigDecimal("7"), result.get(0).getTva());
+        assertEquals(new BigDecimal("50"), result.get(2).getPctRea());
+    }
+
+    private static DecArticle ligne(short idArticle, String quantite, String tva, String pctRea) {
+        DecArticle ligne = new DecArticle();
+        ligne.setId(new DecArticleId("A" + idArticle, 2024000010L, (short) 1, (short) 0, "L1", idArticle));
+        ligne.setQuantite(new BigDecimal(quantite));
+        ligne.setTva(new BigDecimal(tva));
+        ligne.setPctRea(new BigDecimal(pctRea));
+        return ligne;
+    }
+
+    private static DecArticleUpdateRequest demande(short idArticle, String quantite, String tva, String pctRea) {
+        DecArticleId id = new DecArticleId();
+        id.setIdArticle(idArticle);
+        return new DecArticleUpdateRequest(id, new UpdatedColumns(
+                quantite == null ? null : new BigDecimal(quantite),
+                tva == null ? null : new BigDecimal(tva),
+                pctRea == null ? null : new BigDecimal(pctRea)));
+    }
+}
@@ -0,0 +1,68 @@
+package com.afh.gescomp.implementation;
+
+import com.afh.gescomp.dto.DecompteResponse;
+import com.afh.gescomp.repository.primary.DecompteRepository;
+import org.hibernate.Session;
+import org.hibernate.jdbc.ReturningWork;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import javax.persistence.EntityManager;
+import java.sql.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests unitaires pour DecompteServiceImpl
+ * Compatible Java 7 et JUnit 4
+ */
+public class DecompteServiceImplTest {
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private Session session;
+
+    @Mock
+    private DecompteRepository decompteRepository;
+
+    @InjectMocks
+    private DecompteServiceImpl decompteService;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        when(entityManager.unwrap(Session.class)).thenReturn(session);
+        when(session.doReturningWork(any(ReturningWork.class))).thenReturn((short) 4);
+    }
+
+    @Test
+    public void testNumPieceFournRenvoyeParLaProcedure() {
+        // Act
+        DecompteResponse response = decompteService.insertDecompte(2024000010L, Date.valueOf("2024-05-02"), 1L, 1L, null);
+
+        // Assert
+        assertTrue(response.isSuccess());
+        assertEquals(Short.valueOf((short) 4), response.getNumPieceFourn());
+    }
+
+    @Test
+    public void testMaxNumPieceFournLuEnBase() {
+        // Arrange
+        when(decompteRepository.findMaxNumPieceFournForMarche(2024000010L)).thenReturn((short) 7);
+
+        // Act
+        Short max = decompteService.getMaxNumPieceFournForMarche(2024000010L);
+
+        // Assert
+        assertEquals(Short.valueOf((short) 7), max);
+    }
+}
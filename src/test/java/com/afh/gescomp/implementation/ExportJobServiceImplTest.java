@@ -0,0 +1,150 @@
+package com.afh.gescomp.implementation;
+
+import com.afh.gescomp.dto.ExportJob;
+import com.afh.gescomp.service.FournisseurService;
+import com.afh.gescomp.service.StatistiquesService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests unitaires pour ExportJobServiceImpl
+ * Compatible Java 7 et JUnit 4
+ */
+public class ExportJobServiceImplTest {
+
+    @Rule
+    public TemporaryFolder dossier = new TemporaryFolder();
+
+    @Mock
+    private StatistiquesService statistiquesService;
+
+    @Mock
+    private FournisseurService fournisseurService;
+
+    @InjectMocks
+    private ExportJobServiceImpl exportJobService;
+
+    private ThreadPoolTaskExecutor executor;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(2);
+        executor.initialize();
+        ReflectionTestUtils.setField(exportJobService, "exportExecutor", executor);
+        ReflectionTestUtils.setField(exportJobService, "repertoire", dossier.getRoot().getAbsolutePath());
+        ReflectionTestUtils.setField(exportJobService, "ttlMs", 3600000L);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void testSoumettreStatistiques_DemandesIdentiquesDedupliquees() throws Exception {
+        final CountDownLatch liberer = new CountDownLatch(1);
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                liberer.await(5, TimeUnit.SECONDS);
+                ((OutputStream) invocation.getArguments()[4]).write("%PDF-test".getBytes("UTF-8"));
+                return null;
+            }
+        }).when(statistiquesService).exportToPDF(anyString(), anyString(), anyString(), anyString(), any(OutputStream.class));
+
+        ExportJob premier = exportJobService.soumettreStatistiques("pdf", "marches", "01", "2024-01-01", "2024-12-31");
+        ExportJob second = exportJobService.soumettreStatistiques("pdf", "marches", "01", "2024-01-01", "2024-12-31");
+        ExportJob autre = exportJobService.soumettreStatistiques("pdf", "marches", "02", "2024-01-01", "2024-12-31");
+
+        assertSame(premier, second);
+        assertNotSame(premier, autre);
+
+        liberer.countDown();
+        attendreFin(premier);
+
+        assertEquals(ExportJob.Statut.TERMINE, premier.getStatut());
+        assertEquals(9L, premier.getOctetsEcrits());
+        assertEquals(dossier.getRoot(), premier.getFichier().getParentFile());
+        // Terminé et non expiré : toujours réutilisé
+        assertSame(premier, exportJobService.soumettreStatistiques("pdf", "marches", "01", "2024-01-01", "2024-12-31"));
+        verify(statistiquesService, times(1)).exportToPDF(eq("01"), anyString(), anyString(), anyString(), any(OutputStream.class));
+    }
+
+    @Test
+    public void testNettoyer_SupprimeLesExportsExpires() throws Exception {
+        ExportJob job = exportJobService.soumettreFournisseur("F001");
+        attendreFin(job);
+        File fichier = job.getFichier();
+        assertTrue(fichier.exists());
+
+        assertEquals(0, exportJobService.nettoyer());
+        ReflectionTestUtils.setField(exportJobService, "ttlMs", -1L);
+        assertEquals(1, exportJobService.nettoyer());
+
+        assertFalse(fichier.exists());
+        assertNull(exportJobService.getJob(job.getId()));
+    }
+
+    @Test
+    public void testSoumettre_EchecPuisNouvelleTentative() throws Exception {
+        doThrow(new RuntimeException("Fournisseur non trouvé")).doNothing()
+                .when(fournisseurService).generateFournisseurDetailsPDF(anyString(), any(OutputStream.class));
+
+        ExportJob echec = exportJobService.soumettreFournisseur("F404");
+        attendreFin(echec);
+        assertEquals(ExportJob.Statut.ECHEC, echec.getStatut());
+        assertEquals("Fournisseur non trouvé", echec.getMessage());
+        assertFalse(echec.getFichier().exists());
+
+        ExportJob nouveau = exportJobService.soumettreFournisseur("F404");
+        assertNotSame(echec, nouveau);
+    }
+
+    @Test
+    public void testSoumettreStatistiques_DateInvalideRefuseeALaSoumission() throws Exception {
+        // Arrange
+        doThrow(new IllegalArgumentException("Format de date invalide. Format attendu: YYYY-MM-DD"))
+                .when(statistiquesService).validerPeriode("2024-13-45", null);
+
+        // Act
+        try {
+            exportJobService.soumettreStatistiques("excel", "marches", "01", "2024-13-45", null);
+            fail("IllegalArgumentException attendue");
+        } catch (IllegalArgumentException e) {
+            // Assert : aucune tâche lancée
+            assertEquals("Format de date invalide. Format attendu: YYYY-MM-DD", e.getMessage());
+        }
+        verify(statistiquesService, never()).exportToExcel(anyString(), anyString(), anyString(), anyString(),
+                any(OutputStream.class));
+    }
+
+    private static void attendreFin(ExportJob job) throws InterruptedException {
+        long limite = System.currentTimeMillis() + 5000;
+        while (job.getStatut() != ExportJob.Statut.TERMINE && job.getStatut() != ExportJob.Statut.ECHEC
+                && System.currentTimeMillis() < limite) {
+            Thread.sleep(10);
+        }
+    }
+}
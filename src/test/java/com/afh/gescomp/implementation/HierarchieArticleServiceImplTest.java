@@ -0,0 +1,83 @@
+package com.afh.gescomp.implementation;
+
+import com.afh.gescomp.model.primary.HierarchieArticleListener;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.contains;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests unitaires pour HierarchieArticleServiceImpl
+ * Compatible Java 7 et JUnit 4
+ */
+public class HierarchieArticleServiceImplTest {
+
+    @Mock
+    private EntityManager entityManager;
+
+    @InjectMocks
+    private HierarchieArticleServiceImpl hierarchieArticleService;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        ReflectionTestUtils.setField(hierarchieArticleService, "maxAgeMs", 600000L);
+
+        List<Object[]> secteurs = new ArrayList<Object[]>();
+        secteurs.add(new Object[]{(short) 1, "BATIMENT"});
+        stub("FROM SECT_ECO", secteurs);
+
+        List<Object[]> sousSecteurs = new ArrayList<Object[]>();
+        sousSecteurs.add(new Object[]{(short) 1, (short) 0, "GROS OEUVRE"});
+        stub("FROM SOUS_SECTEUR", sousSecteurs);
+
+        List<Object[]> familles = new ArrayList<Object[]>();
+        familles.add(new Object[]{(short) 1, (short) 0, (short) 3, "CIMENT"});
+        stub("FROM Famille", familles);
+
+        List<Object[]> sousFamilles = new ArrayList<Object[]>();
+        sousFamilles.add(new Object[]{(short) 1, (short) 0, (short) 3, (short) 12, "CIMENT PORTLAND"});
+        stub("FROM SOUS_FAMILLE", sousFamilles);
+    }
+
+    private void stub(String fragment, List<Object[]> rows) {
+        Query query = mock(Query.class);
+        when(query.getResultList()).thenReturn(rows);
+        when(entityManager.createQuery(contains(fragment))).thenReturn(query);
+    }
+
+    @Test
+    public void testDesignations_UnSeulChargement() {
+        assertEquals("BATIMENT", hierarchieArticleService.getDesignationSecteur((short) 1));
+        assertEquals("GROS OEUVRE", hierarchieArticleService.getDesignationSousSecteur((short) 1, (short) 0));
+        assertEquals("CIMENT", hierarchieArticleService.getDesignationFamille((short) 1, (short) 0, (short) 3));
+        assertEquals("CIMENT PORTLAND",
+                hierarchieArticleService.getDesignationSousFamille((short) 1, (short) 0, (short) 3, (short) 12));
+        assertNull(hierarchieArticleService.getDesignationFamille((short) 2, (short) 0, (short) 3));
+        assertNull(hierarchieArticleService.getDesignationSecteur(null));
+
+        // Quatre requêtes au premier accès, aucune ensuite
+        verify(entityManager, times(4)).createQuery(anyString());
+    }
+
+    @Test
+    public void testRechargement_ApresEcritureHierarchie() {
+        hierarchieArticleService.getDesignationSecteur((short) 1);
+
+        new HierarchieArticleListener().hierarchieModifiee(new Object());
+        hierarchieArticleService.getDesignationSecteur((short) 1);
+
+        verify(entityManager, times(8)).createQuery(anyString());
+    }
+}
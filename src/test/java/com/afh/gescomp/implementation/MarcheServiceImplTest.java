@@ -0,0 +1,113 @@
+package com.afh.gescomp.implementation;
+
+import com.afh.gescomp.dto.MarcheListeDTO;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests unitaires pour MarcheServiceImpl
+ * Compatible Java 7 et JUnit 4
+ */
+public class MarcheServiceImplTest {
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private TypedQuery<MarcheListeDTO> typedQuery;
+
+    @Mock
+    private Query countQuery;
+
+    @InjectMocks
+    private MarcheServiceImpl marcheService;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        when(entityManager.createQuery(anyString(), eq(MarcheListeDTO.class))).thenReturn(typedQuery);
+        when(typedQuery.setParameter(anyString(), any())).thenReturn(typedQuery);
+        when(typedQuery.setMaxResults(anyInt())).thenReturn(typedQuery);
+    }
+
+    @Test
+    public void testGetMarchesParCurseur_PageSuivanteSansCount() {
+        // Arrange : 3 lignes lues pour une page de 2 => il existe une page suivante
+        List<MarcheListeDTO> lignes = new ArrayList<>();
+        for (long id : new long[]{2024000090L, 2024000080L, 2024000070L}) {
+            MarcheListeDTO marche = new MarcheListeDTO();
+            marche.setId(id);
+            lignes.add(marche);
+        }
+        when(typedQuery.getResultList()).thenReturn(lignes);
+
+        // Act
+        Map<String, Object> result = marcheService.getMarchesParCurseur(2024000100L, 2, null, "route", null, "01", null, false);
+
+        // Assert
+        assertEquals(2, result.get("size"));
+        assertEquals(Boolean.TRUE, result.get("hasNext"));
+        assertEquals(2024000080L, result.get("nextCursor"));
+        assertFalse(result.containsKey("totalElements"));
+        verify(entityManager).createQuery(
+                contains("AND LOWER(m.designation) LIKE LOWER(CONCAT('%', :designation, '%')) AND m.id < :lastId ORDER BY m.id DESC"),
+                eq(MarcheListeDTO.class));
+        verify(typedQuery).setParameter("lastId", 2024000100L);
+        verify(typedQuery).setMaxResults(3);
+        verify(entityManager, never()).createQuery(startsWith("SELECT COUNT"));
+    }
+
+    @Test
+    public void testGetMarchesParCurseur_DernierePageAvecTotal() {
+        MarcheListeDTO marche = new MarcheListeDTO();
+        marche.setId(2024000010L);
+        List<MarcheListeDTO> lignes = new ArrayList<>();
+        lignes.add(marche);
+        when(typedQuery.getResultList()).thenReturn(lignes);
+        when(entityManager.createQuery(startsWith("SELECT COUNT"))).thenReturn(countQuery);
+        when(countQuery.getSingleResult()).thenReturn(41L);
+
+        Map<String, Object> result = marcheService.getMarchesParCurseur(null, 10, "2024000010", null, "STEG", "03", null, true);
+
+        assertEquals(Boolean.FALSE, result.get("hasNext"));
+        assertNull(result.get("nextCursor"));
+        assertEquals(41L, result.get("totalElements"));
+        verify(entityManager).createQuery(
+                contains("AND m.id = :numMarche AND f.designation LIKE :fournisseurDesignation ORDER BY"),
+                eq(MarcheListeDTO.class));
+        verify(typedQuery).setParameter("fournisseurDesignation", "%STEG%");
+        verify(typedQuery, never()).setParameter(eq("lastId"), any());
+        verify(countQuery, never()).setParameter(eq("lastId"), any());
+    }
+
+    @Test
+    public void testGetListeMarches_ProjectionSansCountSurDernierePage() {
+        List<MarcheListeDTO> lignes = new ArrayList<>();
+        lignes.add(new MarcheListeDTO(2024000010L, "Route", (short) 2024, null, null, "F01", "STEG", "01", "Siège"));
+        when(typedQuery.getResultList()).thenReturn(lignes);
+
+        Page<MarcheListeDTO> page = marcheService.getListeMarches(new PageRequest(0, 10), null, null, null, "01", "F01");
+
+        assertEquals(1L, page.getTotalElements());
+        assertEquals("STEG", page.getContent().get(0).getFournisseurDesignation());
+        verify(entityManager).createQuery(startsWith("SELECT NEW com.afh.gescomp.dto.MarcheListeDTO("), eq(MarcheListeDTO.class));
+        verify(typedQuery).setParameter("numFourn", "F01");
+        verify(entityManager, never()).createQuery(startsWith("SELECT COUNT"));
+    }
+}
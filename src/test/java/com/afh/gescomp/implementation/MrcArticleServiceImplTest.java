@@ -0,0 +1,122 @@
+package com.afh.gescomp.implementation;
+
+import com.afh.gescomp.model.primary.Article;
+import com.afh.gescomp.model.primary.MrcArticle;
+import com.afh.gescomp.model.primary.MrcArticleId;
+import com.afh.gescomp.service.StatistiquesSnapshotService;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests unitaires pour MrcArticleServiceImpl
+ * Compatible Java 7 et JUnit 4
+ */
+public class MrcArticleServiceImplTest {
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private StatistiquesSnapshotService statistiquesSnapshotService;
+
+    @Mock
+    private TypedQuery<MrcArticleId> clesQuery;
+
+    @Mock
+    private TypedQuery<String> articlesQuery;
+
+    @InjectMocks
+    private MrcArticleServiceImpl mrcArticleService;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        ReflectionTestUtils.setField(mrcArticleService, "tailleLot", 2);
+        when(entityManager.createQuery(anyString(), eq(MrcArticleId.class))).thenReturn(clesQuery);
+        when(clesQuery.setParameter(anyString(), any())).thenReturn(clesQuery);
+        when(entityManager.createQuery(anyString(), eq(String.class))).thenReturn(articlesQuery);
+        when(articlesQuery.setParameter(anyString(), any())).thenReturn(articlesQuery);
+    }
+
+    @Test
+    public void testUpsertArticles_InsertionsEtMisesAJourParLots() {
+        // Arrange : A1 existe déjà, A2, A3 et A4 sont nouveaux
+        when(clesQuery.getResultList()).thenReturn(Collections.singletonList(
+                new MrcArticleId("A1", 2024000010L, 1, "L1", (short) 1)));
+        when(articlesQuery.getResultList()).thenReturn(Arrays.asList("A2", "A3", "A4"));
+        List<MrcArticle> lignes = Arrays.asList(ligne("A1", 1), ligne("A2", 2), ligne("A3", 3), ligne("A4", 4));
+
+        // Act
+        Map<String, Object> result = mrcArticleService.upsertArticles(lignes);
+
+        // Assert : une requête de clés pour le lot, une requête IN pour les articles
+        assertEquals(4, result.get("total"));
+        assertEquals(3, result.get("inseres"));
+        assertEquals(1, result.get("misAJour"));
+        verify(entityManager, times(1)).createQuery(anyString(), eq(MrcArticleId.class));
+        verify(entityManager, times(1)).createQuery(anyString(), eq(String.class));
+
+        ArgumentCaptor<BatchPreparedStatementSetter> insertions = ArgumentCaptor.forClass(BatchPreparedStatementSetter.class);
+        verify(jdbcTemplate, times(2)).batchUpdate(startsWith("INSERT INTO ACHAT.MRC_ARTICLE"), insertions.capture());
+        assertEquals(2, insertions.getAllValues().get(0).getBatchSize());
+        assertEquals(1, insertions.getAllValues().get(1).getBatchSize());
+        verify(jdbcTemplate, times(1)).batchUpdate(startsWith("UPDATE ACHAT.MRC_ARTICLE"), any(BatchPreparedStatementSetter.class));
+        verify(statistiquesSnapshotService).marquerModifie();
+    }
+
+    @Test
+    public void testUpsertArticles_ArticleIntrouvableAucuneEcriture() {
+        when(clesQuery.getResultList()).thenReturn(new ArrayList<MrcArticleId>());
+        when(articlesQuery.getResultList()).thenReturn(Collections.singletonList("A1"));
+
+        try {
+            mrcArticleService.upsertArticles(Arrays.asList(ligne("A1", 1), ligne("A9", 2)));
+            fail("IllegalArgumentException attendue");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Articles introuvables: [A9]", e.getMessage());
+        }
+        verifyZeroInteractions(jdbcTemplate);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUpsertArticles_PrixFournitureObligatoire() {
+        MrcArticle ligne = ligne("A1", 1);
+        ligne.setChAp(1);
+        mrcArticleService.upsertArticles(Collections.singletonList(ligne));
+    }
+
+    private static MrcArticle ligne(String numArticle, int idArticle) {
+        MrcArticle ligne = new MrcArticle();
+        ligne.setId(new MrcArticleId(numArticle, 2024000010L, 1, "L1", (short) idArticle));
+        Article article = new Article();
+        article.setNumArticle(numArticle);
+        ligne.setNumArticle(article);
+        ligne.setQuantite(BigDecimal.TEN);
+        ligne.setPrixUnitaire(new BigDecimal("12.500"));
+        ligne.setChAp(0);
+        return ligne;
+    }
+}
@@ -0,0 +1,182 @@
+package com.afh.gescomp.implementation;
+
+import com.afh.gescomp.dto.RecalculDecompteCible;
+import com.afh.gescomp.dto.RecalculDecompteResultat;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.BatchUpdateException;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests unitaires pour RecalculDecompteServiceImpl
+ * Compatible Java 7 et JUnit 4
+ */
+public class RecalculDecompteServiceImplTest {
+
+    private static final String SQL_ORD = "{ call CAL_DEC_ORD(?, ?, ?) }";
+    private static final String SQL_LRG = "{ call CAL_DEC_LRG(?, ?) }";
+    private static final String SQL_AVANCE = "{ call CAL_DEC_AVANCE(?) }";
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private CallableStatement ord;
+
+    @Mock
+    private CallableStatement lrg;
+
+    @Mock
+    private CallableStatement avance;
+
+    @InjectMocks
+    private RecalculDecompteServiceImpl recalculDecompteService;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        ReflectionTestUtils.setField(recalculDecompteService, "timeoutMs", 5000L);
+        when(transactionTemplate.execute(any(TransactionCallback.class))).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                return ((TransactionCallback<Object>) invocation.getArguments()[0]).doInTransaction(mock(TransactionStatus.class));
+            }
+        });
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                return ((ConnectionCallback<Object>) invocation.getArguments()[0]).doInConnection(connection);
+            }
+        });
+        when(connection.prepareCall(SQL_ORD)).thenReturn(ord);
+        when(connection.prepareCall(SQL_LRG)).thenReturn(lrg);
+        when(connection.prepareCall(SQL_AVANCE)).thenReturn(avance);
+        when(ord.executeBatch()).thenReturn(new int[]{1, 1});
+        when(lrg.executeBatch()).thenReturn(new int[]{1});
+        when(avance.executeBatch()).thenReturn(new int[]{1});
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testLotsParProcedureEtParMarche() throws Exception {
+        // Arrange
+        List<RecalculDecompteCible> cibles = Arrays.asList(
+                new RecalculDecompteCible("ORD", 1L, (short) 1, (short) 1),
+                new RecalculDecompteCible("LRG", 2L, (short) 3, null),
+                new RecalculDecompteCible("ord", 1L, (short) 2, (short) 1),
+                new RecalculDecompteCible("AVANCE", 1L, null, null));
+
+        // Act
+        Map<String, Object> result = recalculDecompteService.recalculer(cibles);
+
+        // Assert : un lot de deux appels ORD puis AVANCE sur le marché 1, un appel LRG sur le marché 2
+        assertEquals(4, result.get("total"));
+        assertEquals(4, result.get("reussis"));
+        verify(ord, times(2)).addBatch();
+        verify(ord, times(1)).executeBatch();
+        verify(avance, times(1)).executeBatch();
+        verify(lrg, times(1)).executeBatch();
+        verify(jdbcTemplate, times(2)).execute(any(ConnectionCallback.class));
+        List<RecalculDecompteResultat> resultats = (List<RecalculDecompteResultat>) result.get("resultats");
+        assertEquals(Long.valueOf(2L), resultats.get(1).getNumMarche());
+        assertEquals(Short.valueOf((short) 2), resultats.get(2).getNumPieceFourn());
+        assertEquals(RecalculDecompteServiceImpl.SUCCES, resultats.get(3).getMessage());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testCibleIncompleteRefuseeSansAppel() throws Exception {
+        // Arrange
+        List<RecalculDecompteCible> cibles = Arrays.asList(
+                new RecalculDecompteCible("ORD", 1L, (short) 1, null),
+                new RecalculDecompteCible("XYZ", 1L, (short) 1, (short) 1));
+
+        // Act
+        Map<String, Object> result = recalculDecompteService.recalculer(cibles);
+
+        // Assert
+        assertEquals(2, result.get("echecs"));
+        List<RecalculDecompteResultat> resultats = (List<RecalculDecompteResultat>) result.get("resultats");
+        assertEquals("Étape obligatoire pour ORD", resultats.get(0).getMessage());
+        assertTrue(resultats.get(1).getMessage().startsWith("Procédure inconnue"));
+        verify(connection, never()).prepareCall(anyString());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testEchecDansLeLotLesAutresAppelsSontRepris() throws Exception {
+        // Arrange : le pilote s'arrête au 2e appel (un seul compte rendu), le 3e est rejoué seul
+        when(ord.executeBatch()).thenThrow(new BatchUpdateException("ORA-20001: étape clôturée", new int[]{1}));
+        List<RecalculDecompteCible> cibles = Arrays.asList(
+                new RecalculDecompteCible("ORD", 1L, (short) 1, (short) 1),
+                new RecalculDecompteCible("ORD", 1L, (short) 2, (short) 1),
+                new RecalculDecompteCible("ORD", 1L, (short) 3, (short) 1));
+
+        // Act
+        Map<String, Object> result = recalculDecompteService.recalculer(cibles);
+
+        // Assert
+        List<RecalculDecompteResultat> resultats = (List<RecalculDecompteResultat>) result.get("resultats");
+        assertTrue(resultats.get(0).isSucces());
+        assertFalse(resultats.get(1).isSucces());
+        assertTrue(resultats.get(1).getMessage().contains("ORA-20001"));
+        assertTrue(resultats.get(2).isSucces());
+        verify(ord, times(1)).execute();
+        assertEquals(2, result.get("reussis"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testPoolSature() {
+        // Arrange
+        AsyncTaskExecutor executor = mock(AsyncTaskExecutor.class);
+        when(executor.submit(any(Callable.class))).thenThrow(new TaskRejectedException("saturé"));
+        ReflectionTestUtils.setField(recalculDecompteService, "recalculExecutor", executor);
+
+        // Act
+        Map<String, Object> result = recalculDecompteService.recalculer(
+                Arrays.asList(new RecalculDecompteCible("AVANCE", 1L, null, null)));
+
+        // Assert
+        List<RecalculDecompteResultat> resultats = (List<RecalculDecompteResultat>) result.get("resultats");
+        assertFalse(resultats.get(0).isSucces());
+        assertEquals(1, result.get("echecs"));
+    }
+}
@@ -0,0 +1,83 @@
+package com.afh.gescomp.implementation;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests de StatistiquesServiceImpl sur une base H2 en mode Oracle (schéma créé depuis les entités) :
+ * les requêtes natives sont réellement exécutées et lues par Hibernate
+ * Compatible Java 7 et JUnit 4
+ */
+public class StatistiquesServiceImplH2Test {
+
+    private static DriverManagerDataSource dataSource;
+
+    private static LocalContainerEntityManagerFactoryBean fabrique;
+
+    private EntityManager entityManager;
+
+    private StatistiquesServiceImpl statistiquesService;
+
+    @BeforeClass
+    public static void creerBase() {
+        dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:statistiques;MODE=Oracle;DB_CLOSE_DELAY=-1;INIT=CREATE SCHEMA IF NOT EXISTS ACHAT\\;SET SCHEMA ACHAT",
+                "sa", "");
+        Properties proprietes = new Properties();
+        proprietes.setProperty("hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+        proprietes.setProperty("hibernate.hbm2ddl.auto", "create");
+        fabrique = new LocalContainerEntityManagerFactoryBean();
+        fabrique.setDataSource(dataSource);
+        fabrique.setPackagesToScan("com.afh.gescomp.model.primary");
+        fabrique.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        fabrique.setJpaProperties(proprietes);
+        fabrique.afterPropertiesSet();
+    }
+
+    @AfterClass
+    public static void fermerBase() {
+        fabrique.destroy();
+    }
+
+    @Before
+    public void setUp() {
+        entityManager = fabrique.getObject().createEntityManager();
+        statistiquesService = new StatistiquesServiceImpl();
+        ReflectionTestUtils.setField(statistiquesService, "entityManager", entityManager);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testStatistiquesGeneralesCompositeSurBaseReelle() {
+        // Arrange
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("DELETE FROM ACHAT.FOURNISSEUR");
+        jdbcTemplate.update("INSERT INTO ACHAT.FOURNISSEUR (ID_FOURN, NUM_FOURN, DESIGNATION, VILLE, FIN_FOURN) VALUES (1, 'F1', 'STEG', 'TUNIS', 'A')");
+        jdbcTemplate.update("INSERT INTO ACHAT.FOURNISSEUR (ID_FOURN, NUM_FOURN, DESIGNATION, VILLE, FIN_FOURN) VALUES (2, 'F2', 'GEOMED', 'SFAX', 'A')");
+
+        // Act
+        Map<String, Object> statistiques = statistiquesService.getStatistiquesGenerales(null, true);
+
+        // Assert : la requête unique aboutit, sans repli sur le mode détaillé
+        assertEquals("composite", statistiques.get("mode"));
+        Map<String, Object> metriques = (Map<String, Object>) statistiques.get("metriquesGlobales");
+        assertEquals(2, metriques.get("totalFournisseurs"));
+        Map<String, Object> fournisseurs = (Map<String, Object>) statistiques.get("fournisseurs");
+        assertEquals(2, ((List<?>) fournisseurs.get("fournisseursByRegion")).size());
+        assertEquals(2, ((Map<String, Object>) fournisseurs.get("fournisseursStatut")).get("actif"));
+    }
+}
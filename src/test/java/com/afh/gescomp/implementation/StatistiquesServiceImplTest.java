@@ -1,11 +1,20 @@
 package com.afh.gescomp.implementation;
 
 
+import com.afh.gescomp.util.ArabicFontUtil;
+import com.afh.gescomp.util.ArabicTextCache;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import javax.persistence.EntityManager;
 import javax.persistence.Query;
@@ -26,6 +35,15 @@ public class StatistiquesServiceImplTest {
     @Mock
     private Query query;
 
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private ArabicFontUtil arabicFontUtil;
+
+    @Mock
+    private ArabicTextCache arabicTextCache;
+
     @InjectMocks
     private StatistiquesServiceImpl statistiquesService;
 
@@ -419,4 +437,200 @@ public class StatistiquesServiceImplTest {
             verify(query, atLeastOnce()).setParameter("dateFin", dateFin); // Verify named parameter
         }
     }
+
+    // ========== TEST 13 bis: exportToExcel (en flux) ==========
+
+    @Test
+    public void testExportToExcel_EnFlux() throws Exception {
+        // Arrange
+        ReflectionTestUtils.setField(statistiquesService, "exportFetchSize", 500);
+        ReflectionTestUtils.setField(statistiquesService, "exportFenetreLignes", 100);
+
+        final java.sql.PreparedStatement ps = mock(java.sql.PreparedStatement.class);
+        final java.sql.Connection connection = mock(java.sql.Connection.class);
+        when(connection.prepareStatement(anyString())).thenReturn(ps);
+
+        final java.sql.ResultSet rs = mock(java.sql.ResultSet.class);
+        when(rs.getString(1)).thenReturn("123");
+        when(rs.getString(2)).thenReturn("Marché Test");
+        when(rs.getString(3)).thenReturn(null);
+        when(rs.getDouble(4)).thenReturn(9999.99);
+        when(rs.getTimestamp(5)).thenReturn(java.sql.Timestamp.valueOf("2024-05-10 00:00:00"));
+        when(rs.getString(6)).thenReturn("Banque X");
+
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                ((PreparedStatementCreator) invocation.getArguments()[0]).createPreparedStatement(connection);
+                RowCallbackHandler handler = (RowCallbackHandler) invocation.getArguments()[1];
+                handler.processRow(rs);
+                handler.processRow(rs);
+                return null;
+            }
+        }).when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+
+        // Act
+        java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream();
+        statistiquesService.exportToExcel("01", "marches", "2024-01-01", "2024-12-31", out);
+
+        // Assert : même disposition que l'export en mémoire
+        verify(ps).setFetchSize(500);
+        verify(ps).setObject(1, "01");
+        verify(ps).setObject(3, "2024-01-01");
+        verify(entityManager, never()).createNativeQuery(anyString());
+
+        org.apache.poi.xssf.usermodel.XSSFWorkbook wb = new org.apache.poi.xssf.usermodel.XSSFWorkbook(
+                new java.io.ByteArrayInputStream(out.toByteArray()));
+        try {
+            org.apache.poi.xssf.usermodel.XSSFSheet sheet = wb.getSheet("Statistiques Marchés");
+            assertNotNull(sheet);
+            assertEquals("Numéro Marché", sheet.getRow(4).getCell(0).getStringCellValue());
+            assertEquals(6, sheet.getLastRowNum());
+            org.apache.poi.ss.usermodel.Row dataRow = sheet.getRow(5);
+            assertEquals("123", dataRow.getCell(0).getStringCellValue());
+            assertEquals("Non spécifié", dataRow.getCell(2).getStringCellValue());
+            assertEquals(9999.99, dataRow.getCell(3).getNumericCellValue(), 0.001);
+            assertEquals("10/05/2024", dataRow.getCell(4).getStringCellValue());
+            assertTrue(sheet.getColumnWidth(1) >= "Marché Test".length() * 256);
+        } finally {
+            wb.close();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testExportToExcel_EnFlux_DateInvalide() throws Exception {
+        statistiquesService.exportToExcel("01", "marches", "01/01/2024", null, new java.io.ByteArrayOutputStream());
+    }
+
+    @Test
+    public void testValiderPeriode_DatesCalendaires() {
+        // Act & Assert : dates optionnelles, format YYYY-MM-DD et date existante
+        statistiquesService.validerPeriode(null, "");
+        statistiquesService.validerPeriode("2024-02-29", "2024-12-31");
+        for (String date : new String[]{"2024-13-45", "2023-02-29", "2024-1-01", "01/01/2024"}) {
+            try {
+                statistiquesService.validerPeriode(date, null);
+                fail("Date acceptée à tort: " + date);
+            } catch (IllegalArgumentException e) {
+                assertEquals("Format de date invalide. Format attendu: YYYY-MM-DD", e.getMessage());
+            }
+        }
+    }
+
+    // ========== TEST 13 ter: exportToPDF (en flux) ==========
+
+    @Test
+    public void testExportToPDF_EnFlux_TableauVideParLots() throws Exception {
+        // Arrange
+        ReflectionTestUtils.setField(statistiquesService, "exportPdfLotLignes", 2);
+        when(arabicFontUtil.getAppropriateFont(anyString(), anyFloat(), anyInt()))
+                .thenReturn(new com.itextpdf.text.Font());
+        when(arabicTextCache.rendu(anyString(), anyFloat(), anyInt()))
+                .thenReturn(new ArabicTextCache.TexteRendu("Marché Test", new com.itextpdf.text.Font(), false));
+
+        final java.sql.ResultSet rs = mock(java.sql.ResultSet.class);
+        when(rs.getString(1)).thenReturn("123");
+        when(rs.getString(2)).thenReturn("Marché Test");
+        when(rs.getString(3)).thenReturn("Fourn A");
+        when(rs.getDouble(4)).thenReturn(9999.99);
+
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                RowCallbackHandler handler = (RowCallbackHandler) invocation.getArguments()[1];
+                for (int i = 0; i < 5; i++) {
+                    handler.processRow(rs);
+                }
+                return null;
+            }
+        }).when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+
+        // Act
+        java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream();
+        statistiquesService.exportToPDF("01", "marches", "2024-01-01", "2024-12-31", out);
+
+        // Assert
+        String contenu = new String(out.toByteArray(), "ISO-8859-1");
+        assertTrue(contenu.startsWith("%PDF"));
+        assertTrue(contenu.trim().endsWith("%%EOF"));
+        verify(entityManager, never()).createNativeQuery(anyString());
+        verify(arabicTextCache, times(5)).rendu(eq("Marché Test"), anyFloat(), anyInt());
+        verify(arabicFontUtil).getAppropriateFont(eq("Nombre total de marchés: 5"), anyFloat(), anyInt());
+    }
+
+    // ========== TEST 14: getStatistiquesGenerales (mode composite) ==========
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testGetStatistiquesGenerales_Composite() {
+        // Arrange : lignes au format SECTION, RANG, L1..L5, N1..N4
+        when(entityManager.createNativeQuery(anyString())).thenReturn(query);
+
+        List<Object[]> rows = new ArrayList<Object[]>();
+        rows.add(new Object[]{"ART_COMPTEURS", 1, null, null, null, null, null, 40, 30, 10, null});
+        rows.add(new Object[]{"ART_SECTEUR", 1, "Energie", null, null, null, null, 25, null, null, null});
+        rows.add(new Object[]{"ART_TOP", 1, "Câble", "Energie", null, null, "Actif", 12, 300.0, 19.0, null});
+        rows.add(new Object[]{"FOURN_COMPTEURS", 1, null, null, null, null, null, 12, 4, null, null});
+        rows.add(new Object[]{"FOURN_STATUT", 1, "actif", null, null, null, null, 9, null, null, null});
+        rows.add(new Object[]{"FOURN_TOP", 1, "STEG", null, null, null, null, 7, null, null, null});
+        when(query.getResultList()).thenReturn(rows);
+
+        // Act
+        Map<String, Object> result = statistiquesService.getStatistiquesGenerales("01", true);
+
+        // Assert
+        assertEquals("composite", result.get("mode"));
+        assertTrue(result.containsKey("requetesSql"));
+        Map<String, Object> articles = (Map<String, Object>) result.get("articles");
+        assertEquals(10, articles.get("articlesSansMouvement"));
+        assertEquals(10, ((Map<String, Object>) articles.get("articlesStatut")).get("inactif"));
+        List<Map<String, Object>> topArticles = (List<Map<String, Object>>) articles.get("topArticles");
+        assertEquals("—", topArticles.get(0).get("uniteMesure"));
+        assertEquals(1, topArticles.get(0).get("rang"));
+        assertTrue(((List<?>) articles.get("articlesByFamille")).isEmpty());
+
+        Map<String, Object> fournisseurs = (Map<String, Object>) result.get("fournisseurs");
+        assertEquals(9, ((Map<String, Object>) fournisseurs.get("fournisseursStatut")).get("actif"));
+        assertEquals(8, ((Map<String, Object>) fournisseurs.get("fournisseursPenalites")).get("sansPenalites"));
+        assertEquals(40, ((Map<String, Object>) result.get("metriquesGlobales")).get("totalArticles"));
+
+        // Verify : une seule requête
+        verify(entityManager, times(1)).createNativeQuery(anyString());
+    }
+
+    @Test
+    public void testGetStatistiquesGenerales_CompositeEnEchec_RepliDetaille() {
+        // Arrange
+        when(entityManager.createNativeQuery(contains("UNION ALL"))).thenThrow(new RuntimeException("ORA-00904"));
+
+        // Act
+        Map<String, Object> result = statistiquesService.getStatistiquesGenerales("01", true);
+
+        // Assert
+        assertEquals("detaille", result.get("mode"));
+        assertTrue(result.containsKey("articles"));
+        assertTrue(result.containsKey("fournisseurs"));
+    }
+
+    // ========== TEST 15: getFournisseursStatistiques (formes SQL mémorisées) ==========
+
+    @Test
+    public void testGetFournisseursStatistiques_UneRequeteParAppelEtTexteStable() {
+        // Arrange
+        when(entityManager.createNativeQuery(anyString())).thenReturn(query);
+        when(query.getResultList()).thenReturn(new ArrayList<Object[]>());
+
+        // Act : deux appels avec les mêmes filtres actifs mais des valeurs différentes
+        statistiquesService.getFournisseursStatistiques("01", 0, 10, "STEG", 1000.0, true);
+        statistiquesService.getFournisseursStatistiques("02", 1, 10, "SOTUBI", 5000.0, true);
+
+        // Assert : une seule requête par appel, au texte SQL identique
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(entityManager, times(2)).createNativeQuery(sql.capture());
+        assertEquals(sql.getAllValues().get(0), sql.getAllValues().get(1));
+        assertTrue(sql.getValue().contains("HAVING COALESCE(SUM(m.MNT_MARCHE), 0) >= :filterMinAmount AND COALESCE(SUM(mp.MONTANT_PEN), 0) > 0"));
+        verify(query).setParameter("numStruct", "02");
+        verify(query).setParameter("filterName", "%SOTUBI%");
+        verify(query).setParameter("offset", 10);
+    }
 }
@@ -0,0 +1,205 @@
+package com.afh.gescomp.implementation;
+
+import com.afh.gescomp.dto.StatistiquesSnapshot;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.mockito.Matchers.contains;
+import static org.mockito.Mockito.*;
+
+/**
+ * Tests unitaires pour StatistiquesSnapshotServiceImpl
+ * Compatible Java 7 et JUnit 4
+ */
+public class StatistiquesSnapshotServiceImplTest {
+
+    @Mock
+    private EntityManager entityManager;
+
+    @InjectMocks
+    private StatistiquesSnapshotServiceImpl snapshotService;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        ReflectionTestUtils.setField(snapshotService, "enabled", true);
+        ReflectionTestUtils.setField(snapshotService, "maxAgeMs", 900000L);
+        ReflectionTestUtils.setField(snapshotService, "topN", 2);
+
+        List<Object[]> marches = new ArrayList<Object[]>();
+        marches.add(new Object[]{"01", "20240110", 2, 1000.0});
+        marches.add(new Object[]{"01", "20240215", 1, 500.0});
+        marches.add(new Object[]{"02", "20240120", 4, 4000.0});
+        marches.add(new Object[]{"02", null, 1, 100.0});
+        stub("TO_CHAR(m.DATE_MARCHE, 'YYYYMMDD')", marches);
+
+        List<Object[]> regions = new ArrayList<Object[]>();
+        regions.add(new Object[]{"01", "Tunis", 3});
+        regions.add(new Object[]{"02", "Sfax", 5});
+        regions.add(new Object[]{null, "Sousse", 0});
+        stub("as region", regions);
+
+        List<Object[]> secteursGlobal = new ArrayList<Object[]>();
+        secteursGlobal.add(new Object[]{"GAZ", 10});
+        secteursGlobal.add(new Object[]{null, 4});
+        stub("GROUP BY s.DESIGNATION", secteursGlobal);
+
+        List<Object[]> secteursStructure = new ArrayList<Object[]>();
+        secteursStructure.add(new Object[]{"01", "GAZ", 3});
+        stub("GROUP BY m.NUM_STRUCT, s.DESIGNATION", secteursStructure);
+
+        List<Object[]> fournisseurs = new ArrayList<Object[]>();
+        fournisseurs.add(new Object[]{"01", "STEG", 2});
+        fournisseurs.add(new Object[]{"02", "STEG", 1});
+        fournisseurs.add(new Object[]{"02", "GEOMED", 3});
+        fournisseurs.add(new Object[]{"02", "MEDIBAT", 1});
+        fournisseurs.add(new Object[]{null, "SOTUVER", 0});
+        stub("GROUP BY m.NUM_STRUCT, f.DESIGNATION", fournisseurs);
+
+        List<Object[]> penalites = new ArrayList<Object[]>();
+        penalites.add(new Object[]{"01", 2, 300.0});
+        penalites.add(new Object[]{null, 1, 50.0});
+        stub("FROM ACHAT.MRC_PENALITE", penalites);
+
+        Query totaux = mock(Query.class);
+        when(totaux.getSingleResult()).thenReturn(new Object[]{12L, 40L});
+        when(entityManager.createNativeQuery(contains("FROM DUAL"))).thenReturn(totaux);
+    }
+
+    private void stub(String fragment, List<Object[]> rows) {
+        Query query = mock(Query.class);
+        when(query.getResultList()).thenReturn(rows);
+        when(entityManager.createNativeQuery(contains(fragment))).thenReturn(query);
+    }
+
+    @Test
+    public void testRafraichir_AgregatsGlobalEtParStructure() {
+        StatistiquesSnapshot snapshot = snapshotService.rafraichir();
+
+        assertNotNull(snapshot);
+        assertSame(snapshot, snapshotService.getSnapshot());
+        assertEquals(12L, snapshot.getTotalFournisseurs());
+        assertEquals(40L, snapshot.getTotalArticles());
+        assertEquals(2, snapshot.getNombreStructures());
+
+        // Global = toutes structures, marchés sans date inclus
+        assertEquals(8L, snapshot.perimetre(null).nombreMarches());
+        assertEquals(5600.0, snapshot.perimetre("03").montantMarches(), 0.001);
+        assertEquals(3L, snapshot.perimetre("01").nombreMarches());
+        assertEquals(0L, snapshot.perimetre("99").nombreMarches());
+
+        // Cumuls par date
+        assertEquals(2L, snapshot.structure("01").nombreMarchesJusquAu(20240131));
+        assertEquals(6L, snapshot.perimetre(null).nombreMarchesJusquAu(20240131));
+
+        // Séries mensuelles
+        Map<String, double[]> parMois = snapshot.perimetre("01").parMoisDepuis(20240101);
+        assertEquals(2, parMois.size());
+        assertEquals(1.0, parMois.get("2024-02")[0], 0.001);
+
+        // Régions et secteurs triés par volume, secteur null ignoré
+        Map<String, Integer> regions = snapshot.perimetre(null).getMarchesParRegion();
+        assertEquals("Sfax", regions.keySet().iterator().next());
+        assertEquals(Integer.valueOf(0), regions.get("Sousse"));
+        assertEquals(1, snapshot.perimetre(null).getArticlesParSecteur().size());
+        assertEquals(Integer.valueOf(3), snapshot.perimetre("01").getArticlesParSecteur().get("GAZ"));
+
+        // Top fournisseurs : global additif, profondeur limitée à topN
+        Map<String, Integer> top = snapshot.perimetre(null).getTopFournisseurs(5);
+        assertEquals(2, top.size());
+        assertEquals(Integer.valueOf(3), top.get("STEG"));
+        assertFalse(snapshot.perimetre("02").couvreTopFournisseurs(3));
+        assertTrue(snapshot.perimetre("02").couvreTopFournisseurs(2));
+
+        // Fournisseurs sans marché (LEFT JOIN) : présents avec 0 dans chaque structure, comme en direct
+        Map<String, Integer> top01 = snapshot.perimetre("01").getTopFournisseurs(2);
+        assertEquals(Integer.valueOf(2), top01.get("STEG"));
+        assertEquals(Integer.valueOf(0), top01.values().toArray()[1]);
+        assertFalse(snapshot.perimetre("01").couvreTopFournisseurs(5));
+
+        // Pénalités
+        assertEquals(3L, snapshot.perimetre(null).getNombrePenalites());
+        assertEquals(300.0, snapshot.perimetre("01").getMontantPenalites(), 0.001);
+    }
+
+    @Test
+    public void testRafraichir_ErreurConserveLeSnapshotPrecedent() {
+        StatistiquesSnapshot premier = snapshotService.rafraichir();
+        when(entityManager.createNativeQuery(contains("TO_CHAR(m.DATE_MARCHE, 'YYYYMMDD')")))
+                .thenThrow(new RuntimeException("ORA-00942"));
+
+        StatistiquesSnapshot second = snapshotService.rafraichir();
+
+        assertSame(premier, second);
+        assertEquals(Boolean.TRUE, snapshotService.getEtat().get("modifie"));
+    }
+
+    @Test
+    public void testGetSnapshot_Desactive() {
+        snapshotService.rafraichir();
+        ReflectionTestUtils.setField(snapshotService, "enabled", false);
+
+        assertNull(snapshotService.getSnapshot());
+    }
+
+    @Test
+    public void testRafraichirSiNecessaire_MarqueModifie() {
+        StatistiquesSnapshot premier = snapshotService.rafraichir();
+        snapshotService.rafraichirSiNecessaire();
+        assertSame(premier, snapshotService.getSnapshot());
+
+        snapshotService.marquerModifie();
+        snapshotService.rafraichirSiNecessaire();
+        assertNotSame(premier, snapshotService.getSnapshot());
+    }
+
+    @Test
+    public void testRafraichirEntreEcritureEtCommit() {
+        StatistiquesSnapshot premier = snapshotService.rafraichir();
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // Écriture non encore validée : un recalcul intermédiaire ne doit pas consommer le marquage
+            snapshotService.marquerModifie();
+            snapshotService.rafraichirSiNecessaire();
+            assertSame(premier, snapshotService.getSnapshot());
+            assertEquals(Boolean.FALSE, snapshotService.getEtat().get("modifie"));
+
+            TransactionSynchronizationUtils.triggerAfterCommit();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals(Boolean.TRUE, snapshotService.getEtat().get("modifie"));
+        snapshotService.rafraichirSiNecessaire();
+        assertNotSame(premier, snapshotService.getSnapshot());
+    }
+
+    @Test
+    public void testMarquageIgnoreApresRollback() {
+        snapshotService.rafraichir();
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            snapshotService.marquerModifie();
+            TransactionSynchronizationUtils.invokeAfterCompletion(
+                    TransactionSynchronizationManager.getSynchronizations(), TransactionSynchronization.STATUS_ROLLED_BACK);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals(Boolean.FALSE, snapshotService.getEtat().get("modifie"));
+    }
+}
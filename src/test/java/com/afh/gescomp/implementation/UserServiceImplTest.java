@@ -0,0 +1,206 @@
+package com.afh.gescomp.implementation;
+
+import com.afh.gescomp.model.primary.PrmStructure;
+import com.afh.gescomp.model.primary.User;
+import com.afh.gescomp.payload.response.AuthenticationResponse;
+import com.afh.gescomp.repository.primary.UserRepository;
+import com.afh.gescomp.security.service.LoginAttemptService;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests unitaires pour UserServiceImpl
+ * Compatible Java 7 et JUnit 4
+ */
+public class UserServiceImplTest {
+
+    private static final Long MATRICULE = 1000L;
+
+    @Mock
+    private DataSource dataSource;
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private CallableStatement callableStatement;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @InjectMocks
+    private UserServiceImpl userService;
+
+    private final PasswordEncoder passwordEncoder = new BCryptPasswordEncoder(4);
+
+    private final LoginAttemptService loginAttemptService = new LoginAttemptService();
+
+    private User user;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        ReflectionTestUtils.setField(loginAttemptService, "maxEchecs", 3);
+        loginAttemptService.initialiser();
+        ReflectionTestUtils.setField(userService, "passwordEncoder", passwordEncoder);
+        ReflectionTestUtils.setField(userService, "loginAttemptService", loginAttemptService);
+
+        PrmStructure structure = new PrmStructure();
+        structure.setNumStruct("01");
+        structure.setDesignation("Direction régionale 01");
+        user = new User();
+        user.setId(MATRICULE);
+        user.setNumStruct(structure);
+        when(userRepository.findOne(MATRICULE)).thenReturn(user);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.prepareCall(anyString())).thenReturn(callableStatement);
+    }
+
+    @Test
+    public void testConnexionBcryptSansProcedure() throws Exception {
+        // Arrange
+        user.setPasswordHash(passwordEncoder.encode("secret"));
+
+        // Act
+        AuthenticationResponse reponse = userService.authenticateUser(MATRICULE, "secret");
+
+        // Assert
+        assertTrue(reponse.isAuthenticated());
+        assertEquals("01", reponse.getNumStruct());
+        assertEquals("Direction régionale 01", reponse.getDesignation());
+        verify(dataSource, never()).getConnection();
+    }
+
+    @Test
+    public void testMotDePasseIncorrect() throws Exception {
+        // Arrange
+        user.setPasswordHash(passwordEncoder.encode("secret"));
+
+        // Act
+        AuthenticationResponse reponse = userService.authenticateUser(MATRICULE, "autre");
+
+        // Assert
+        assertFalse(reponse.isAuthenticated());
+        assertEquals("Mot de passe incorrect", reponse.getResultat());
+        verify(dataSource, never()).getConnection();
+    }
+
+    @Test
+    public void testMigrationDuHachagePlsql() throws Exception {
+        // Arrange : migration activée, hachage hexadécimal de PKG_AUTH.hash_string accepté par la procédure
+        ReflectionTestUtils.setField(userService, "hachageBcrypt", true);
+        user.setPasswordHash("2BB80D537B1DA3E38BD30361AA855686BDE0EACD7162FEF6A25FE97BF527A25B");
+        when(callableStatement.getString(1)).thenReturn("Authentification réussie");
+        when(callableStatement.getInt(4)).thenReturn(1);
+        when(callableStatement.getString(5)).thenReturn("01");
+
+        // Act
+        AuthenticationResponse reponse = userService.authenticateUser(MATRICULE, "secret");
+
+        // Assert : le nouveau hachage BCrypt correspond au mot de passe
+        assertTrue(reponse.isAuthenticated());
+        ArgumentCaptor<String> hachage = ArgumentCaptor.forClass(String.class);
+        verify(userRepository).updatePasswordHash(eq(MATRICULE), hachage.capture());
+        assertTrue(UserServiceImpl.estHacheBcrypt(hachage.getValue()));
+        assertTrue(passwordEncoder.matches("secret", hachage.getValue()));
+    }
+
+    @Test
+    public void testPasDeMigrationParDefaut() throws Exception {
+        // Arrange
+        user.setPasswordHash("2BB80D537B1DA3E38BD30361AA855686BDE0EACD7162FEF6A25FE97BF527A25B");
+        when(callableStatement.getString(1)).thenReturn("Authentification réussie");
+        when(callableStatement.getInt(4)).thenReturn(1);
+        when(callableStatement.getString(5)).thenReturn("01");
+
+        // Act
+        AuthenticationResponse reponse = userService.authenticateUser(MATRICULE, "secret");
+
+        // Assert : connexion acceptée, hachage PL/SQL conservé
+        assertTrue(reponse.isAuthenticated());
+        verify(userRepository, never()).updatePasswordHash(anyLong(), anyString());
+    }
+
+    @Test
+    public void testEchecPlsqlSansMigration() throws Exception {
+        // Arrange
+        user.setPasswordHash("2BB80D537B1DA3E38BD30361AA855686BDE0EACD7162FEF6A25FE97BF527A25B");
+        when(callableStatement.getString(1)).thenReturn("Mot de passe incorrect");
+        when(callableStatement.getInt(4)).thenReturn(0);
+
+        // Act
+        AuthenticationResponse reponse = userService.authenticateUser(MATRICULE, "faux");
+
+        // Assert
+        assertFalse(reponse.isAuthenticated());
+        verify(userRepository, never()).updatePasswordHash(anyLong(), anyString());
+    }
+
+    @Test
+    public void testBlocageApresEchecsRepetes() throws Exception {
+        // Arrange
+        user.setPasswordHash(passwordEncoder.encode("secret"));
+        for (int i = 0; i < 3; i++) {
+            userService.authenticateUser(MATRICULE, "faux");
+        }
+
+        // Act : même le bon mot de passe est refusé, sans lecture de l'utilisateur
+        AuthenticationResponse reponse = userService.authenticateUser(MATRICULE, "secret");
+
+        // Assert
+        assertFalse(reponse.isAuthenticated());
+        assertTrue(reponse.getResultat().startsWith("Trop de tentatives"));
+        verify(userRepository, times(3)).findOne(MATRICULE);
+    }
+
+    @Test
+    public void testSuccesRemetLeCompteurAZero() {
+        // Arrange
+        user.setPasswordHash(passwordEncoder.encode("secret"));
+        userService.authenticateUser(MATRICULE, "faux");
+        userService.authenticateUser(MATRICULE, "faux");
+
+        // Act
+        userService.authenticateUser(MATRICULE, "secret");
+        userService.authenticateUser(MATRICULE, "faux");
+        userService.authenticateUser(MATRICULE, "faux");
+
+        // Assert
+        assertFalse(loginAttemptService.estBloque(MATRICULE));
+    }
+
+    @Test
+    public void testHashPasswordDansLaJvm() throws Exception {
+        // Arrange
+        ReflectionTestUtils.setField(userService, "hachageBcrypt", true);
+
+        // Act
+        String hachage = userService.hashPassword("secret");
+
+        // Assert
+        assertTrue(UserServiceImpl.estHacheBcrypt(hachage));
+        verify(dataSource, never()).getConnection();
+    }
+}
@@ -0,0 +1,87 @@
+package com.afh.gescomp.security.jwt;
+
+import com.afh.gescomp.service.JwtTokenService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests unitaires pour JwtAuthenticationFilter
+ * Compatible Java 7 et JUnit 4
+ */
+public class JwtAuthenticationFilterTest {
+
+    private JwtTokenService jwtTokenService;
+
+    private JwtAuthenticationFilter filtre;
+
+    @Before
+    public void setUp() {
+        jwtTokenService = new JwtTokenService();
+        jwtTokenService.initialiser();
+        filtre = new JwtAuthenticationFilter(jwtTokenService);
+    }
+
+    @After
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    public void testJetonValideAuthentifieLaRequete() throws Exception {
+        // Arrange
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/marches");
+        request.addHeader("Authorization", "Bearer " + jwtTokenService.generateToken(1000L));
+
+        // Act
+        Authentication authentication = filtrer(request);
+
+        // Assert
+        assertEquals(1000L, authentication.getPrincipal());
+        assertTrue(authentication.isAuthenticated());
+    }
+
+    @Test
+    public void testJetonInvalideLaisseLaRequeteAnonyme() throws Exception {
+        // Arrange
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/marches");
+        request.addHeader("Authorization", "Bearer abc.def.ghi");
+
+        // Act & Assert
+        assertNull(filtrer(request));
+    }
+
+    @Test
+    public void testSansEnTete() throws Exception {
+        assertNull(filtrer(new MockHttpServletRequest("GET", "/api/marches")));
+    }
+
+    /**
+     * @return Authentification vue par la suite de la chaîne
+     */
+    private Authentication filtrer(MockHttpServletRequest request) throws Exception {
+        final AtomicReference<Authentication> vue = new AtomicReference<>();
+        FilterChain chaine = new MockFilterChain() {
+            @Override
+            public void doFilter(ServletRequest req, ServletResponse res) {
+                vue.set(SecurityContextHolder.getContext().getAuthentication());
+            }
+        };
+        filtre.doFilter(request, new MockHttpServletResponse(), chaine);
+        return vue.get();
+    }
+}
@@ -22,6 +22,7 @@ public class JwtTokenServiceTest {
     @Before
     public void setUp() {
         MockitoAnnotations.initMocks(this);
+        jwtTokenService.initialiser();
     }
 
     @Test
@@ -93,4 +94,42 @@ public class JwtTokenServiceTest {
         // Assert
         assertTrue("Le token devrait être considéré comme expiré après un court délai", isExpired);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testVerifierMetEnCacheLeJeton() {
+        // Arrange
+        String token = jwtTokenService.generateToken(12345L);
+
+        // Act
+        JwtTokenService.JetonVerifie premier = jwtTokenService.verifier(token);
+        JwtTokenService.JetonVerifie second = jwtTokenService.verifier(token);
+
+        // Assert
+        assertNotNull(premier);
+        assertEquals(Long.valueOf(12345L), premier.getMatricule());
+        assertSame("Le second passage devrait lire le jeton vérifié en mémoire", premier, second);
+        assertEquals(1L, jwtTokenService.getTailleCache());
+    }
+
+    @Test
+    public void testVerifierRefuseUnJetonModifie() {
+        // Arrange
+        String token = jwtTokenService.generateToken(12345L);
+        String falsifie = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+
+        // Act & Assert
+        assertNull(jwtTokenService.verifier(falsifie));
+        assertNull(jwtTokenService.verifier("pas.un.jeton"));
+        assertNull(jwtTokenService.verifier(null));
+        assertEquals(0L, jwtTokenService.getTailleCache());
+    }
+
+    @Test
+    public void testVerifierRefuseUnJetonExpire() {
+        // Arrange : expiré au-delà du décalage d'horloge toléré
+        String token = jwtTokenService.generateTokenWithShortExpiration(12345L, -10000L);
+
+        // Act & Assert
+        assertNull(jwtTokenService.verifier(token));
+    }
+}
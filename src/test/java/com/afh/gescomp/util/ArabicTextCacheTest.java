@@ -0,0 +1,128 @@
+package com.afh.gescomp.util;
+
+import com.itextpdf.text.Font;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.ResultSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyFloat;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests unitaires pour ArabicTextCache
+ * Compatible Java 7 et JUnit 4
+ */
+public class ArabicTextCacheTest {
+
+    private static final String DESIGNATION_ARABE = "شركة البناء  (تونس)";
+
+    @Mock
+    private ArabicFontUtil arabicFontUtil;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @InjectMocks
+    private ArabicTextCache arabicTextCache;
+
+    private final Font policeArabe = new Font(Font.FontFamily.TIMES_ROMAN, 9);
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        ReflectionTestUtils.setField(arabicTextCache, "tailleMax", 100L);
+        ReflectionTestUtils.setField(arabicTextCache, "prechargement", true);
+        arabicTextCache.initialiser();
+        when(arabicFontUtil.getAppropriateFont(anyString(), anyFloat(), anyInt())).thenReturn(policeArabe);
+        when(arabicFontUtil.containsArabicText(DESIGNATION_ARABE)).thenReturn(true);
+    }
+
+    @Test
+    public void testRenduCalculeUneSeuleFois() {
+        // Act
+        ArabicTextCache.TexteRendu premier = arabicTextCache.rendu(DESIGNATION_ARABE, 9, Font.NORMAL);
+        ArabicTextCache.TexteRendu second = arabicTextCache.rendu(DESIGNATION_ARABE, 9, Font.NORMAL);
+
+        // Assert
+        assertSame(premier, second);
+        assertTrue(premier.isArabe());
+        assertSame(policeArabe, premier.getPolice());
+        assertEquals(ArabicFontUtil.formatArabicText(DESIGNATION_ARABE), premier.getTexte());
+        verify(arabicFontUtil, times(1)).getAppropriateFont(DESIGNATION_ARABE, 9, Font.NORMAL);
+    }
+
+    @Test
+    public void testCleInclutTailleEtStyle() {
+        // Act
+        ArabicTextCache.TexteRendu normal = arabicTextCache.rendu("Fournisseur A", 9, Font.NORMAL);
+        ArabicTextCache.TexteRendu gras = arabicTextCache.rendu("Fournisseur A", 9, Font.BOLD);
+        ArabicTextCache.TexteRendu grand = arabicTextCache.rendu("Fournisseur A", 10, Font.NORMAL);
+
+        // Assert
+        assertNotSame(normal, gras);
+        assertNotSame(normal, grand);
+        assertEquals(3, arabicTextCache.getTaille());
+    }
+
+    @Test
+    public void testTexteNull() {
+        assertEquals("null", arabicTextCache.rendu(null, 9, Font.NORMAL).getTexte());
+    }
+
+    @Test
+    public void testPrechargementDesignations() throws Exception {
+        // Arrange
+        final ResultSet rs = mock(ResultSet.class);
+        when(rs.getString(1)).thenReturn(DESIGNATION_ARABE, "Article B");
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                ((RowCallbackHandler) invocation.getArguments()[1]).processRow(rs);
+                return null;
+            }
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class));
+
+        // Act
+        arabicTextCache.precharger();
+        arabicTextCache.rendu(DESIGNATION_ARABE, ArabicTextCache.TAILLE_CELLULE, Font.NORMAL);
+
+        // Assert : une requête par table, libellé déjà en cache au premier rendu
+        verify(jdbcTemplate, times(2)).query(anyString(), any(RowCallbackHandler.class));
+        verify(arabicFontUtil, times(1)).getAppropriateFont(eq(DESIGNATION_ARABE), anyFloat(), anyInt());
+        assertEquals(2, arabicTextCache.getTaille());
+    }
+
+    @Test
+    public void testPrechargementDesactive() {
+        // Arrange
+        ReflectionTestUtils.setField(arabicTextCache, "prechargement", false);
+
+        // Act
+        arabicTextCache.precharger();
+
+        // Assert
+        verify(jdbcTemplate, never()).query(anyString(), any(RowCallbackHandler.class));
+    }
+}
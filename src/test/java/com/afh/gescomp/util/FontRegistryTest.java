@@ -0,0 +1,102 @@
+package com.afh.gescomp.util;
+
+import com.itextpdf.text.BaseColor;
+import com.itextpdf.text.Document;
+import com.itextpdf.text.Font;
+import com.itextpdf.text.Phrase;
+import com.itextpdf.text.pdf.PdfPCell;
+import com.itextpdf.text.pdf.PdfPTable;
+import com.itextpdf.text.pdf.PdfWriter;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests unitaires pour FontRegistry et ArabicFontUtil
+ * Compatible Java 7 et JUnit 4
+ */
+public class FontRegistryTest {
+
+    private static FontRegistry fontRegistry;
+
+    private static ArabicFontUtil arabicFontUtil;
+
+    @BeforeClass
+    public static void setUpClass() {
+        // Lecture des TTF une seule fois pour toute la classe, comme au démarrage de l'application
+        fontRegistry = new FontRegistry();
+        arabicFontUtil = new ArabicFontUtil();
+        ReflectionTestUtils.setField(arabicFontUtil, "fontRegistry", fontRegistry);
+    }
+
+    @Test
+    public void testPolicesChargees() {
+        assertNotNull(fontRegistry.getBaseArabe());
+        assertNotNull(fontRegistry.getBaseLatine());
+    }
+
+    @Test
+    public void testPolicePartagee() {
+        Font premiere = fontRegistry.police(FontRegistry.Famille.ARABE, 9, Font.NORMAL);
+
+        assertSame(premiere, fontRegistry.police(FontRegistry.Famille.ARABE, 9, Font.NORMAL));
+        assertNotSame(premiere, fontRegistry.police(FontRegistry.Famille.ARABE, 9, Font.BOLD));
+        assertNotSame(premiere, fontRegistry.police(FontRegistry.Famille.LATINE, 9, Font.NORMAL));
+        assertSame(fontRegistry.getBaseArabe(), premiere.getBaseFont());
+        assertEquals(9f, premiere.getSize(), 0f);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testPoliceFigee() {
+        fontRegistry.police(FontRegistry.Famille.LATINE, 10, Font.BOLD).setColor(BaseColor.RED);
+    }
+
+    @Test
+    public void testCopieModifiable() {
+        Font copie = new Font(fontRegistry.police(FontRegistry.Famille.LATINE, 10, Font.BOLD));
+        copie.setColor(BaseColor.RED);
+
+        assertEquals(BaseColor.RED, copie.getColor());
+        assertEquals(null, fontRegistry.police(FontRegistry.Famille.LATINE, 10, Font.BOLD).getColor());
+    }
+
+    @Test
+    public void testArabicFontUtilChoixDeLaFamille() {
+        assertSame(fontRegistry.police(FontRegistry.Famille.ARABE, 9, Font.NORMAL),
+                arabicFontUtil.getAppropriateFont("شركة البناء", 9, Font.NORMAL));
+        assertSame(fontRegistry.police(FontRegistry.Famille.LATINE, 9, Font.NORMAL),
+                arabicFontUtil.getAppropriateFont("Société Générale", 9, Font.NORMAL));
+    }
+
+    @Test
+    public void testRenduPdfAvecPolicesPartagees() throws Exception {
+        // Arrange
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Document document = new Document();
+        PdfWriter.getInstance(document, out);
+        document.open();
+        PdfPTable table = new PdfPTable(2);
+        String arabe = "أشغال الطرقات والشبكات المختلفة";
+
+        // Act
+        PdfPCell cellule = new PdfPCell(new Phrase(arabe, arabicFontUtil.getAppropriateFont(arabe, 9, Font.NORMAL)));
+        cellule.setRunDirection(PdfWriter.RUN_DIRECTION_RTL);
+        table.addCell(cellule);
+        table.addCell(new PdfPCell(new Phrase("1 234,50", arabicFontUtil.getAppropriateFont("1 234,50", 9, Font.NORMAL))));
+        document.add(table);
+        document.close();
+
+        // Assert
+        String contenu = new String(out.toByteArray(), "ISO-8859-1");
+        assertTrue(contenu.startsWith("%PDF"));
+        assertTrue(contenu.contains("Amiri") || contenu.contains("NotoNaskh"));
+    }
+}